@@ -0,0 +1,79 @@
+package bench;
+
+import java.util.Random;
+
+import model.ImageGrid;
+import model.ImageProcessingModel;
+import model.PackedImage;
+import model.RGB;
+
+/**
+ * Creates the synthetic images used by the benchmarks.
+ */
+final class BenchmarkImages {
+
+  private BenchmarkImages() {
+  }
+
+  /**
+   * Gets the width of a 4:3 image with the given number of megapixels.
+   */
+  static int width(int megapixels) {
+    return (int) Math.round(Math.sqrt(megapixels * 1_000_000 * 4 / 3.0));
+  }
+
+  /**
+   * Gets the height of a 4:3 image with the given number of megapixels.
+   */
+  static int height(int megapixels) {
+    return megapixels * 1_000_000 / width(megapixels);
+  }
+
+  /**
+   * Creates an image with the given number of megapixels filled with random colors, stored by the
+   * given backend ("packed" for PackedImage or "grid" for ImageGrid).
+   *
+   * @throws IllegalArgumentException if the backend is not known.
+   */
+  static ImageProcessingModel create(String backend, int megapixels)
+          throws IllegalArgumentException {
+    int width = width(megapixels);
+    int height = height(megapixels);
+    Random random = new Random(megapixels);
+    int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = random.nextInt() & 0xFFFFFF;
+    }
+
+    switch (backend) {
+      case "packed":
+        return new PackedImage(width, height, pixels);
+      case "grid":
+        RGB[][] grid = new RGB[height][width];
+        for (int h = 0; h < height; h++) {
+          for (int w = 0; w < width; w++) {
+            int p = pixels[h * width + w];
+            grid[h][w] = new RGB((p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF);
+          }
+        }
+        return new ImageGrid(grid);
+      default:
+        throw new IllegalArgumentException("unknown backend " + backend);
+    }
+  }
+
+  /**
+   * Reads every row of the given image, the same way saving it would, and returns a checksum so
+   * the work cannot be optimized away. Point operations on a PackedImage are applied lazily, so
+   * this is where their cost shows up.
+   */
+  static long drain(ImageProcessingModel image) {
+    int[] row = new int[image.getImageWidth()];
+    long sum = 0;
+    for (int h = 0; h < image.getImageHeight(); h++) {
+      image.getPackedRow(h, row);
+      sum += row[h % row.length];
+    }
+    return sum;
+  }
+}
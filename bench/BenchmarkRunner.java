@@ -0,0 +1,40 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler attached, so that allocation rates are reported next
+ * to throughput. The optional arguments are regular expressions selecting which benchmarks to run
+ * (by default all of them), for example "bench.ModelBenchmark.blur".
+ */
+public class BenchmarkRunner {
+
+  /**
+   * Runs the selected benchmarks and writes the results to bench_output.csv as well.
+   *
+   * @param args regular expressions selecting the benchmarks to run.
+   * @throws RunnerException if a benchmark fails.
+   */
+  public static void main(String[] args) throws RunnerException {
+    OptionsBuilder options = new OptionsBuilder();
+    if (args.length == 0) {
+      options.include("bench.ModelBenchmark");
+      options.include("bench.FileOperationsBenchmark");
+      options.include("bench.PointKernelsBenchmark");
+    }
+    for (String pattern : args) {
+      options.include(pattern);
+    }
+    Options built = options
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.CSV)
+            .result("bench_output.csv")
+            .build();
+    new Runner(built).run();
+  }
+}
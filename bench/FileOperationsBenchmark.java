@@ -0,0 +1,91 @@
+package bench;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import controller.FileOperations;
+import controller.ImageFileOperationsImpl;
+import controller.ImageStore;
+import controller.MapImageStore;
+import controller.PPMFileOperationsImpl;
+import model.ImageProcessingModel;
+
+/**
+ * Benchmarks loading and saving images through PPMFileOperationsImpl (for ppm) and
+ * ImageFileOperationsImpl (for the other formats).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx24g"})
+public class FileOperationsBenchmark {
+
+  @Param({"ppm", "png", "jpg"})
+  public String format;
+
+  @Param({"packed"})
+  public String backend;
+
+  @Param({"1", "12", "48"})
+  public int megapixels;
+
+  private Map<String, ImageProcessingModel> images;
+  private FileOperations operations;
+  private File directory;
+  private String input;
+  private String output;
+
+  @Setup(Level.Trial)
+  public void writeInput() throws IOException {
+    images = new HashMap<>();
+    images.put("bench", BenchmarkImages.create(backend, megapixels));
+    ImageStore store = new MapImageStore(images);
+
+    operations = "ppm".equals(format) ? new PPMFileOperationsImpl(store)
+            : new ImageFileOperationsImpl(store);
+    directory = Files.createTempDirectory("imageprocessor-bench").toFile();
+    input = new File(directory, "input." + format).getPath();
+    output = new File(directory, "output." + format).getPath();
+    operations.save(input, "bench");
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteFiles() {
+    new File(input).delete();
+    new File(output).delete();
+    directory.delete();
+  }
+
+  @Benchmark
+  public int load() throws FileNotFoundException {
+    operations.load(input, "loaded");
+    return images.get("loaded").getImageWidth();
+  }
+
+  @Benchmark
+  public long save() {
+    operations.save(output, "bench");
+    return new File(output).length();
+  }
+}
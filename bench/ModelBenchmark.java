@@ -0,0 +1,118 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.ImageProcessingModel;
+import model.ResampleFilter;
+
+/**
+ * Benchmarks every operation of ImageProcessingModel on each model backend. Each benchmark
+ * returns a checksum of the resulting image's pixels so that lazily computed results are
+ * included in the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx24g"})
+public class ModelBenchmark {
+
+  @Param({"packed", "grid"})
+  public String backend;
+
+  @Param({"1", "12", "48"})
+  public int megapixels;
+
+  private ImageProcessingModel image;
+
+  @Setup(Level.Trial)
+  public void createImage() {
+    image = BenchmarkImages.create(backend, megapixels);
+  }
+
+  @Benchmark
+  public long brighten() {
+    return BenchmarkImages.drain(image.brighten(40));
+  }
+
+  @Benchmark
+  public long darken() {
+    return BenchmarkImages.drain(image.brighten(-40));
+  }
+
+  @Benchmark
+  public long flipVertical() {
+    return BenchmarkImages.drain(image.flipVertical());
+  }
+
+  @Benchmark
+  public long flipHorizontal() {
+    return BenchmarkImages.drain(image.flipHorizontal());
+  }
+
+  @Benchmark
+  public long redComponent() {
+    return BenchmarkImages.drain(image.channelComponent("red-component"));
+  }
+
+  @Benchmark
+  public long lumaComponent() {
+    return BenchmarkImages.drain(image.channelComponent("luma-component"));
+  }
+
+  @Benchmark
+  public long valueComponent() {
+    return BenchmarkImages.drain(image.channelComponent("value-component"));
+  }
+
+  @Benchmark
+  public long blur() {
+    return BenchmarkImages.drain(image.filter("blur"));
+  }
+
+  @Benchmark
+  public long sharpen() {
+    return BenchmarkImages.drain(image.filter("sharpen"));
+  }
+
+  @Benchmark
+  public long sepia() {
+    return BenchmarkImages.drain(image.colorTransformation("sepia"));
+  }
+
+  @Benchmark
+  public long downscale() {
+    return BenchmarkImages.drain(image.downscaleImage(50, 50));
+  }
+
+  //the image keeps its mipmap between invocations, so these measure repeated downscales
+
+  @Benchmark
+  public long downscaleBox() {
+    return BenchmarkImages.drain(image.downscaleImage(50, 50, ResampleFilter.BOX));
+  }
+
+  @Benchmark
+  public long downscaleBilinear() {
+    return BenchmarkImages.drain(image.downscaleImage(50, 50, ResampleFilter.BILINEAR));
+  }
+
+  @Benchmark
+  public long downscaleLanczos() {
+    return BenchmarkImages.drain(image.downscaleImage(50, 50, ResampleFilter.LANCZOS));
+  }
+}
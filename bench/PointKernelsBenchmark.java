@@ -0,0 +1,147 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.ChannelLut;
+import model.PointKernels;
+import model.Vectorization;
+
+/**
+ * Benchmarks each point operation loop on the scalar and vectorized implementations, over the
+ * pixels of one image held in a single array. The forked JVM is started with the
+ * jdk.incubator.vector module so that the vectorized implementation can be loaded; the src-vector
+ * folder must be compiled with the benchmarks for it to be found.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", "--add-modules", "jdk.incubator.vector"})
+public class PointKernelsBenchmark {
+
+  private static final double[][] SEPIA_ROWS = new double[][]{
+      {0.393, 0.769, 0.189},
+      {0.349, 0.686, 0.168},
+      {0.272, 0.534, 0.131}};
+  private static final double[][] LUMA_ROWS = new double[][]{
+      {0.2126, 0.7152, 0.0722},
+      {0.2126, 0.7152, 0.0722},
+      {0.2126, 0.7152, 0.0722}};
+  private static final long[] SEPIA = fixedPoint(SEPIA_ROWS);
+  private static final long[] LUMA = fixedPoint(LUMA_ROWS);
+  private static final IntUnaryOperator SEPIA_REFERENCE = reference(SEPIA_ROWS);
+  private static final IntUnaryOperator LUMA_REFERENCE = reference(LUMA_ROWS);
+
+  @Param({"scalar", "vector"})
+  public String kernels;
+
+  @Param({"1", "12"})
+  public int megapixels;
+
+  private PointKernels loops;
+  private int[] src;
+  private int[] dst;
+
+  /**
+   * Converts the given 3x3 matrix to the fixed-point coefficients the loops take, as ColorMatrix
+   * does.
+   */
+  private static long[] fixedPoint(double[][] rows) {
+    long[] coefficients = new long[12];
+    for (int c = 0; c < 3; c++) {
+      for (int column = 0; column < 3; column++) {
+        coefficients[4 * c + column] = Math.round(rows[c][column] * (1L << 24));
+      }
+    }
+    return coefficients;
+  }
+
+  /**
+   * Creates the function computing a pixel with the given 3x3 matrix in double arithmetic, which
+   * the loops fall back on as they do for ColorMatrix.
+   */
+  private static IntUnaryOperator reference(double[][] rows) {
+    return p -> {
+      int result = 0;
+      for (double[] row : rows) {
+        int value = (int) (row[0] * ((p >> 16) & 0xFF) + row[1] * ((p >> 8) & 0xFF)
+                + row[2] * (p & 0xFF));
+        result = result << 8 | Math.max(0, Math.min(255, value));
+      }
+      return result;
+    };
+  }
+
+  @Setup(Level.Trial)
+  public void createPixels() {
+    loops = "vector".equals(kernels) ? Vectorization.vector() : Vectorization.scalar();
+    if (loops == null) {
+      throw new IllegalStateException("the vectorized point operations could not be loaded");
+    }
+    src = new int[megapixels * 1_000_000];
+    for (int i = 0; i < src.length; i++) {
+      src[i] = (i * 0x9E3779B1) & 0xFFFFFF;
+    }
+    dst = new int[src.length];
+  }
+
+  @Benchmark
+  public int[] brighten() {
+    loops.offset(src, 0, dst, 0, src.length, ChannelLut.RED, ChannelLut.GREEN, ChannelLut.BLUE,
+            40, 0, 255);
+    return dst;
+  }
+
+  @Benchmark
+  public int[] darken() {
+    loops.offset(src, 0, dst, 0, src.length, ChannelLut.RED, ChannelLut.GREEN, ChannelLut.BLUE,
+            -40, 0, 255);
+    return dst;
+  }
+
+  @Benchmark
+  public int[] redComponent() {
+    loops.offset(src, 0, dst, 0, src.length, ChannelLut.RED, ChannelLut.RED, ChannelLut.RED,
+            0, 0, 255);
+    return dst;
+  }
+
+  @Benchmark
+  public int[] valueComponent() {
+    loops.grey(src, 0, dst, 0, src.length, PointKernels.VALUE);
+    return dst;
+  }
+
+  @Benchmark
+  public int[] intensityComponent() {
+    loops.grey(src, 0, dst, 0, src.length, PointKernels.INTENSITY);
+    return dst;
+  }
+
+  @Benchmark
+  public int[] lumaComponent() {
+    loops.matrix(src, 0, dst, 0, src.length, LUMA, LUMA_REFERENCE);
+    return dst;
+  }
+
+  @Benchmark
+  public int[] sepia() {
+    loops.matrix(src, 0, dst, 0, src.length, SEPIA, SEPIA_REFERENCE);
+    return dst;
+  }
+}
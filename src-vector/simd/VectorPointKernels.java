@@ -0,0 +1,151 @@
+package simd;
+
+import java.util.function.IntUnaryOperator;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import model.PointKernels;
+import model.ScalarPointKernels;
+
+/**
+ * Represents the point operation loops using the incubating Vector API, which process as many
+ * pixels at once as the processor's vector registers hold. Operations on whole channels use int
+ * lanes. Color matrices need products wider than an int, so the pixels are read as pairs in
+ * long lanes and each half of a pair is computed with exactly the same integer arithmetic as the
+ * scalar loop. A block of pixels with a channel too close to a whole number is left to the scalar
+ * loop, which computes such pixels with the matrix's reference. The pixels left over at the end
+ * of a run are handled by the scalar loops.
+ *
+ * <p>This class needs the jdk.incubator.vector module, so it is compiled and run with
+ * --add-modules jdk.incubator.vector, and is only loaded through Vectorization.
+ */
+public final class VectorPointKernels implements PointKernels {
+
+  private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+  private static final long FRACTION = (1L << MATRIX_SHIFT) - 1;
+
+  private final PointKernels scalar = new ScalarPointKernels();
+
+  @Override
+  public void offset(int[] src, int srcOffset, int[] dst, int dstOffset, int length,
+                     int redSource, int greenSource, int blueSource, int offset, int low,
+                     int high) {
+    int redShift = 16 - 8 * redSource;
+    int greenShift = 16 - 8 * greenSource;
+    int blueShift = 16 - 8 * blueSource;
+    int bound = INTS.loopBound(length);
+    int i = 0;
+    for (; i < bound; i += INTS.length()) {
+      IntVector p = IntVector.fromArray(INTS, src, srcOffset + i);
+      IntVector red = channel(p, redShift).add(offset).max(low).min(high);
+      IntVector green = channel(p, greenShift).add(offset).max(low).min(high);
+      IntVector blue = channel(p, blueShift).add(offset).max(low).min(high);
+      red.lanewise(VectorOperators.LSHL, 16)
+              .or(green.lanewise(VectorOperators.LSHL, 8))
+              .or(blue)
+              .intoArray(dst, dstOffset + i);
+    }
+    scalar.offset(src, srcOffset + i, dst, dstOffset + i, length - i, redSource, greenSource,
+            blueSource, offset, low, high);
+  }
+
+  @Override
+  public void grey(int[] src, int srcOffset, int[] dst, int dstOffset, int length,
+                   int component) {
+    if (component == VALUE) {
+      value(src, srcOffset, dst, dstOffset, length);
+    } else if (component == INTENSITY) {
+      intensity(src, srcOffset, dst, dstOffset, length);
+    } else {
+      throw new IllegalArgumentException("invalid component");
+    }
+  }
+
+  //each component has a loop of its own, since vectors merged from branches are not kept in
+  //registers
+
+  /**
+   * Sets every pixel to the grey pixel of its value component.
+   */
+  private void value(int[] src, int srcOffset, int[] dst, int dstOffset, int length) {
+    int bound = INTS.loopBound(length);
+    int i = 0;
+    for (; i < bound; i += INTS.length()) {
+      IntVector p = IntVector.fromArray(INTS, src, srcOffset + i);
+      IntVector grey = channel(p, 16).max(channel(p, 8)).max(channel(p, 0));
+      toGrey(grey).intoArray(dst, dstOffset + i);
+    }
+    scalar.grey(src, srcOffset + i, dst, dstOffset + i, length - i, VALUE);
+  }
+
+  /**
+   * Sets every pixel to the grey pixel of its intensity component.
+   */
+  private void intensity(int[] src, int srcOffset, int[] dst, int dstOffset, int length) {
+    int bound = INTS.loopBound(length);
+    int i = 0;
+    for (; i < bound; i += INTS.length()) {
+      IntVector p = IntVector.fromArray(INTS, src, srcOffset + i);
+      IntVector sum = channel(p, 16).add(channel(p, 8)).add(channel(p, 0));
+      //n / 3 for every n up to 765, without a division
+      IntVector grey = sum.mul(0xAAAB).lanewise(VectorOperators.LSHR, 17);
+      toGrey(grey).intoArray(dst, dstOffset + i);
+    }
+    scalar.grey(src, srcOffset + i, dst, dstOffset + i, length - i, INTENSITY);
+  }
+
+  @Override
+  public void matrix(int[] src, int srcOffset, int[] dst, int dstOffset, int length,
+                     long[] coefficients, IntUnaryOperator reference) {
+    int bound = INTS.loopBound(length);
+    for (int i = 0; i < bound; i += INTS.length()) {
+      LongVector pairs = IntVector.fromArray(INTS, src, srcOffset + i).reinterpretAsLongs();
+      LongVector result = LongVector.zero(pairs.species());
+      VectorMask<Long> near = pairs.species().maskAll(false);
+      for (int half = 0; half < Long.SIZE; half += Integer.SIZE) {
+        LongVector red = channel(pairs, half + 16);
+        LongVector green = channel(pairs, half + 8);
+        LongVector blue = channel(pairs, half);
+        for (int c = 0; c < 3; c++) {
+          LongVector sum = red.mul(coefficients[4 * c])
+                  .add(green.mul(coefficients[4 * c + 1]))
+                  .add(blue.mul(coefficients[4 * c + 2]))
+                  .add(coefficients[4 * c + 3]);
+          if (reference != null) {
+            near = near.or(sum.add(MATRIX_MARGIN).and(FRACTION)
+                    .compare(VectorOperators.LT, 2 * MATRIX_MARGIN));
+          }
+          LongVector value = sum.lanewise(VectorOperators.ASHR, MATRIX_SHIFT).max(0).min(255);
+          result = result.or(value.lanewise(VectorOperators.LSHL, half + 16 - 8 * c));
+        }
+      }
+      if (near.anyTrue()) {
+        //rare pixels close to a whole number are left to the reference
+        scalar.matrix(src, srcOffset + i, dst, dstOffset + i, INTS.length(), coefficients,
+                reference);
+      } else {
+        result.reinterpretAsInts().intoArray(dst, dstOffset + i);
+      }
+    }
+    scalar.matrix(src, srcOffset + bound, dst, dstOffset + bound, length - bound, coefficients,
+            reference);
+  }
+
+  private static LongVector channel(LongVector pairs, int shift) {
+    return pairs.lanewise(VectorOperators.LSHR, shift).and(0xFFL);
+  }
+
+  private static IntVector channel(IntVector pixels, int shift) {
+    return pixels.lanewise(VectorOperators.LSHR, shift).and(0xFF);
+  }
+
+  private static IntVector toGrey(IntVector value) {
+    return value.lanewise(VectorOperators.LSHL, 16)
+            .or(value.lanewise(VectorOperators.LSHL, 8))
+            .or(value);
+  }
+}
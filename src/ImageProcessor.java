@@ -1,12 +1,17 @@
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStreamReader;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import controller.BoundedImageStore;
 import controller.ImageProcessingController;
+import controller.ImageProcessingControllerBatch;
 import controller.ImageProcessingControllerGUI;
 import controller.ImageProcessingControllerImpl;
+import controller.ImageProcessingControllerStream;
+import controller.ImageStore;
+import controller.MapImageStore;
 import model.ImageProcessingModel;
 import view.ImageProcessingView;
 import view.ImageProcessingViewImpl;
@@ -26,7 +31,8 @@ public final class ImageProcessor {
   public static void main(String[] args) {
     Readable input;
     Appendable output;
-    Map<String, ImageProcessingModel> listOfModels = new HashMap<String, ImageProcessingModel>();
+    Map<String, ImageProcessingModel> listOfModels =
+            new ConcurrentHashMap<String, ImageProcessingModel>();
 
     if (args.length == 0) {
       ImageProcessorFrame frameView = new ImageProcessorFrame();
@@ -36,6 +42,39 @@ public final class ImageProcessor {
     }
 
 
+    if (args[0].equals("-batch")) {
+      if (args.length < 4) {
+        throw new IllegalArgumentException("usage: -batch template.txt input-directory-or-glob "
+                + "output-directory [threads]");
+      }
+      try {
+        input = new InputStreamReader(new FileInputStream(args[1]));
+      } catch (FileNotFoundException e) {
+        throw new RuntimeException(e);
+      }
+      int threads = args.length > 4 ? Integer.parseInt(args[4])
+              : Runtime.getRuntime().availableProcessors();
+      new ImageProcessingControllerBatch(input, args[2], args[3],
+              new ImageProcessingViewImpl(System.out), threads, threads).runProgram();
+      return;
+    }
+
+    if (args[0].equals("-stream")) {
+      if (args.length < 4) {
+        throw new IllegalArgumentException("usage: -stream commands.txt input-image "
+                + "output.ppm [band-rows]");
+      }
+      try {
+        input = new InputStreamReader(new FileInputStream(args[1]));
+      } catch (FileNotFoundException e) {
+        throw new RuntimeException(e);
+      }
+      int bandRows = args.length > 4 ? Integer.parseInt(args[4]) : 256;
+      new ImageProcessingControllerStream(input, args[2], args[3],
+              new ImageProcessingViewImpl(System.out), bandRows).runProgram();
+      return;
+    }
+
     if (args[0].equals("-file")) {
       try {
         input = new InputStreamReader(new FileInputStream(args[1]));
@@ -50,8 +89,15 @@ public final class ImageProcessor {
 
     output = System.out;
     ImageProcessingView view = new ImageProcessingViewImpl(output);
-    ImageProcessingController controller = new ImageProcessingControllerImpl(listOfModels, view,
-            input);
+    //scripts are evaluated lazily, so images that are never saved are never computed, and
+    //instructions on unrelated images run in parallel
+    boolean script = args[0].equals("-file");
+    //with a memory budget in megabytes, images used least recently are spilled to disk
+    Long budget = Long.getLong("imageprocessor.imageMemory");
+    ImageStore store = budget == null ? new MapImageStore(listOfModels)
+            : new BoundedImageStore(budget << 20);
+    ImageProcessingController controller = new ImageProcessingControllerImpl(store, view,
+            input, script, script);
     controller.runProgram();
   }
 }
@@ -0,0 +1,19 @@
+package controller;
+
+/**
+ * Represents a command that can be applied to a horizontal band of an image on its own. The rows
+ * of the result only depend on the rows of the image within a fixed distance of them (the halo),
+ * so applying the command to a band together with its halo gives the same rows in the middle of
+ * the band as applying it to the whole image.
+ */
+public interface BandOperation extends ImageOperationCommand {
+
+  /**
+   * Gets the number of rows above and below a band that this command reads to compute the rows
+   * of the band, such as 2 for a 5x5 kernel and 0 for operations on single pixels.
+   *
+   * @return the number of rows needed on each side of a band.
+   * @throws IllegalArgumentException if the command is invalid.
+   */
+  int getHalo() throws IllegalArgumentException;
+}
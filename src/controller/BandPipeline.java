@@ -0,0 +1,204 @@
+package controller;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import model.ImageProcessingModel;
+import model.PackedImage;
+
+/**
+ * Represents a sequence of commands applied to an image as it streams from a BandSource to a
+ * BandSink, a band of rows at a time, so that images too large for the heap can be processed.
+ *
+ * <p>Each band is read together with the halo its commands need (the sum of their halos) above
+ * and below it, the commands are applied to the band as a small image of its own, and the rows
+ * of the band are written out, so the result is the same as applying the commands to the whole
+ * image. Rows shared by the halos of neighboring bands are kept rather than read again.
+ *
+ * <p>Commands that are not BandOperations, such as vertical flips and downscaling, need more of
+ * the image than a band. The image produced so far is spilled to a temporary binary PPM file,
+ * which is mapped into memory rather than loaded onto the heap, the command is applied to the
+ * mapped image, and the commands after it stream from its result.
+ */
+public final class BandPipeline {
+
+  private final List<ImageOperationCommand> commands;
+  private final int bandRows;
+
+  /**
+   * Creates the pipeline applying the given commands in order, in bands of the given number of
+   * rows.
+   *
+   * @param commands the commands to apply.
+   * @param bandRows the number of rows processed at once.
+   * @throws IllegalArgumentException if the commands or any of them are null, a band operation is
+   *                                  invalid, or the number of rows is not positive.
+   */
+  public BandPipeline(List<ImageOperationCommand> commands, int bandRows)
+          throws IllegalArgumentException {
+    if (commands == null || commands.contains(null) || bandRows < 1) {
+      throw new IllegalArgumentException("commands cannot be null and bands must have rows");
+    }
+    for (ImageOperationCommand command : commands) {
+      if (command instanceof BandOperation && ((BandOperation) command).getHalo() < 0) {
+        throw new IllegalArgumentException("halo cannot be negative");
+      }
+    }
+    this.commands = new ArrayList<>(commands);
+    this.bandRows = bandRows;
+  }
+
+  /**
+   * Applies the commands to the image read from the given source, and writes the result to the
+   * given sink. Neither is closed.
+   *
+   * @param source where the image is read from.
+   * @param sink   where the result is written to.
+   * @return the number of times the image was spilled to disk.
+   * @throws IOException              if the image cannot be read or written, or spilling fails.
+   * @throws IllegalArgumentException if the source or sink is null, or a command fails.
+   */
+  public int run(BandSource source, BandSink sink) throws IOException, IllegalArgumentException {
+    if (source == null || sink == null) {
+      throw new IllegalArgumentException("source and sink cannot be null");
+    }
+    List<Path> spills = new ArrayList<>();
+    try {
+      BandSource current = source;
+      int next = 0;
+      while (true) {
+        List<BandOperation> band = new ArrayList<>();
+        while (next < commands.size() && commands.get(next) instanceof BandOperation) {
+          band.add((BandOperation) commands.get(next++));
+        }
+        if (next == commands.size()) {
+          stream(current, band, sink);
+          return spills.size();
+        }
+
+        ImageProcessingModel whole;
+        if (band.isEmpty() && current instanceof ModelSource) {
+          //the image is already held by a model, so the command reads it directly
+          whole = ((ModelSource) current).image;
+        } else {
+          Path spill = Files.createTempFile("imageprocessor", ".ppm");
+          spills.add(spill);
+          try (PPMBandSink spilled = new PPMBandSink(spill.toString())) {
+            stream(current, band, spilled);
+          }
+          whole = MappedPPMFileOperationsImpl.map(spill.toString());
+        }
+        current = new ModelSource(commands.get(next++).executeCommand(whole));
+      }
+    } finally {
+      for (Path spill : spills) {
+        delete(spill);
+      }
+    }
+  }
+
+  /**
+   * Deletes the given spill file, or deletes it when the program exits if it is still mapped
+   * and the system does not allow mapped files to be deleted.
+   */
+  private static void delete(Path spill) {
+    try {
+      Files.deleteIfExists(spill);
+    } catch (IOException e) {
+      spill.toFile().deleteOnExit();
+    }
+  }
+
+  /**
+   * Streams the image read from the given source to the given sink, applying the given
+   * commands to each band.
+   */
+  private void stream(BandSource source, List<BandOperation> band, BandSink sink)
+          throws IOException {
+    int imageWidth = source.getImageWidth();
+    int imageHeight = source.getImageHeight();
+    int halo = 0;
+    for (BandOperation command : band) {
+      halo += command.getHalo();
+    }
+    sink.start(imageWidth, imageHeight);
+
+    //holds the rows from windowStart on that have been read, including the halo
+    int[] window = new int[(int) Math.min(imageHeight, bandRows + 2L * halo) * imageWidth];
+    int windowStart = 0;
+    int windowRows = 0;
+    int[] row = new int[imageWidth];
+    for (int first = 0; first < imageHeight; first += bandRows) {
+      int rows = Math.min(bandRows, imageHeight - first);
+      int start = Math.max(0, first - halo);
+      int end = (int) Math.min(imageHeight, (long) first + rows + halo);
+      int dropped = start - windowStart;
+      System.arraycopy(window, dropped * imageWidth, window, 0,
+              (windowRows - dropped) * imageWidth);
+      windowRows -= dropped;
+      windowStart = start;
+      int missing = end - windowStart - windowRows;
+      source.readRows(missing, window, windowRows * imageWidth);
+      windowRows += missing;
+
+      if (band.isEmpty()) {
+        sink.writeRows(rows, window, (first - windowStart) * imageWidth);
+        continue;
+      }
+      ImageProcessingModel image = new PackedImage(imageWidth, windowRows,
+              Arrays.copyOf(window, windowRows * imageWidth));
+      for (BandOperation command : band) {
+        image = command.executeCommand(image);
+      }
+      for (int h = first - windowStart; h < first - windowStart + rows; h++) {
+        image.getPackedRow(h, row);
+        sink.writeRows(1, row, 0);
+      }
+    }
+  }
+
+  /**
+   * Represents an image held by a model, usually one mapped from a spill file, read a band of
+   * rows at a time.
+   */
+  private static final class ModelSource implements BandSource {
+    private final ImageProcessingModel image;
+    private final int[] row;
+    private int rowsRead;
+
+    private ModelSource(ImageProcessingModel image) {
+      this.image = image;
+      this.row = new int[image.getImageWidth()];
+    }
+
+    @Override
+    public int getImageWidth() {
+      return image.getImageWidth();
+    }
+
+    @Override
+    public int getImageHeight() {
+      return image.getImageHeight();
+    }
+
+    @Override
+    public void readRows(int rows, int[] pixels, int offset) throws IllegalArgumentException {
+      if (rows < 0 || rows > image.getImageHeight() - rowsRead) {
+        throw new IllegalArgumentException("invalid number of rows");
+      }
+      for (int h = 0; h < rows; h++) {
+        image.getPackedRow(rowsRead++, row);
+        System.arraycopy(row, 0, pixels, offset + h * row.length, row.length);
+      }
+    }
+
+    @Override
+    public void close() {
+      //the model is left as it is
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package controller;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Represents where an image is written a band of rows at a time, from the top row down, so that
+ * an image too large for the heap can be saved without ever holding all of its pixels.
+ */
+public interface BandSink extends Closeable {
+
+  /**
+   * Starts writing an image of the given size. This is called once, before any rows are written.
+   *
+   * @param imageWidth  the width of the image.
+   * @param imageHeight the height of the image.
+   * @throws IOException if the image cannot be written.
+   */
+  void start(int imageWidth, int imageHeight) throws IOException;
+
+  /**
+   * Writes the next rows of the image from the given array of 0xRRGGBB pixels, row by row.
+   *
+   * @param rows   the number of rows to write.
+   * @param pixels the array holding the rows.
+   * @param offset the index of the array holding the first pixel.
+   * @throws IOException              if the rows cannot be written.
+   * @throws IllegalArgumentException if the number of rows is negative or more than are left.
+   */
+  void writeRows(int rows, int[] pixels, int offset) throws IOException, IllegalArgumentException;
+}
@@ -0,0 +1,36 @@
+package controller;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Represents an image that is read a band of rows at a time, from the top row down, so that an
+ * image too large for the heap can be processed without ever holding all of its pixels.
+ */
+public interface BandSource extends Closeable {
+
+  /**
+   * Gets the width of the image.
+   *
+   * @return the number of pixels in each row of the image.
+   */
+  int getImageWidth();
+
+  /**
+   * Gets the height of the image.
+   *
+   * @return the number of rows in the image.
+   */
+  int getImageHeight();
+
+  /**
+   * Reads the next rows of the image into the given array as 0xRRGGBB, row by row.
+   *
+   * @param rows   the number of rows to read.
+   * @param pixels the array to read the rows into.
+   * @param offset the index of the array the first pixel is read into.
+   * @throws IOException              if the rows cannot be read.
+   * @throws IllegalArgumentException if the number of rows is negative or more than are left.
+   */
+  void readRows(int rows, int[] pixels, int offset) throws IOException, IllegalArgumentException;
+}
@@ -0,0 +1,434 @@
+package controller;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import model.ImageGrid;
+import model.ImageProcessingModel;
+import model.LazyImage;
+import model.MappedImage;
+import model.PackedImage;
+
+/**
+ * Represents a store keeping at most a given number of bytes of images in memory. When storing
+ * or reading an image takes the store over its budget, the images used least recently are
+ * spilled: their pixels are written to a compressed temporary file and dropped from memory, and
+ * read back the next time they are requested. Since images never change, an image that was
+ * spilled before is not written again.
+ *
+ * <p>Lazy images only hold the operations that produce them until they are read, so they count
+ * against the budget once they hold pixels: a lazy image is measured again each time the store
+ * is used until it has been computed and kept, and then counts as the image it keeps. Mapped
+ * images are read from their own files and hold almost nothing in memory, so they do not count.
+ * An image larger than the whole budget is kept while it is the one being used.
+ *
+ * <p>The lock of the store is only held to update which images are in memory, never while an
+ * image is written to or read from disk. An image chosen to be spilled is marked as spilling
+ * and written afterwards, and a spilled image is read back while holding a lock of its own, so
+ * threads sharing the store only wait for each other's disk I/O when they need the same image.
+ * An image that is read while it is being spilled stays in memory.
+ */
+public final class BoundedImageStore implements ImageStore {
+
+  /**
+   * Represents an image in this store, which is either in memory or in its spill file. Its
+   * fields are guarded by the lock of the store, and its own lock is held while its spill file
+   * is written, read, or deleted.
+   */
+  private static final class Entry {
+    private final int alpha;
+    private final int imageWidth;
+    private final int imageHeight;
+    private final boolean hasAlpha;
+    private long bytes;
+    private ImageProcessingModel image;
+    private Path spill;
+    //whether the image is still in memory but no longer counted, as it is about to be spilled
+    private boolean spilling;
+    private boolean removed;
+
+    private Entry(ImageProcessingModel image, int alpha) {
+      this.image = image;
+      this.alpha = alpha;
+      this.imageWidth = image.getImageWidth();
+      this.imageHeight = image.getImageHeight();
+      this.hasAlpha = image.hasAlpha();
+      this.bytes = bytesOf(image);
+    }
+  }
+
+  private final long budget;
+  private final Path directory;
+  //iterates from the image used least recently to the one used most recently
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  //the lazy images in memory that held no pixels when they were last measured
+  private final List<Entry> unmeasured = new ArrayList<>();
+  private long resident;
+
+  /**
+   * Creates a store keeping at most the given number of bytes of images in memory, spilling the
+   * others to the default temporary directory.
+   *
+   * @param budget the number of bytes of images to keep in memory.
+   * @throws IllegalArgumentException if the budget is negative.
+   */
+  public BoundedImageStore(long budget) throws IllegalArgumentException {
+    this(budget, null);
+  }
+
+  /**
+   * Creates a store keeping at most the given number of bytes of images in memory, spilling the
+   * others to the given directory.
+   *
+   * @param budget    the number of bytes of images to keep in memory.
+   * @param directory the directory to spill images to, or null for the default temporary
+   *                  directory.
+   * @throws IllegalArgumentException if the budget is negative.
+   */
+  public BoundedImageStore(long budget, Path directory) throws IllegalArgumentException {
+    if (budget < 0) {
+      throw new IllegalArgumentException("budget cannot be negative");
+    }
+    this.budget = budget;
+    this.directory = directory;
+  }
+
+  /**
+   * Gets the number of bytes the images of this store hold in memory.
+   *
+   * @return the estimated size of the images in memory.
+   */
+  public synchronized long getResidentBytes() {
+    return resident;
+  }
+
+  /**
+   * Gets whether the image with the given name is spilled to disk rather than held in memory.
+   *
+   * @param name the name of the image.
+   * @return true if the image is only in its spill file, and false otherwise.
+   */
+  public synchronized boolean isSpilled(String name) {
+    //looks the image up without counting it as used
+    for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+      if (entry.getKey().equals(name)) {
+        return entry.getValue().image == null;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public ImageProcessingModel get(String name) {
+    while (true) {
+      Entry entry;
+      ImageProcessingModel image;
+      List<Entry> victims;
+      synchronized (this) {
+        entry = entries.get(name);
+        if (entry == null) {
+          return null;
+        }
+        boolean grew = measure();
+        image = entry.image;
+        if (image != null) {
+          if (entry.spilling) {
+            //the image is used again before it is spilled, so it stays in memory
+            entry.spilling = false;
+            resident += entry.bytes;
+          } else if (!grew) {
+            return image;
+          }
+          victims = evict(entry);
+        } else {
+          victims = null;
+        }
+      }
+      if (victims != null) {
+        spill(victims);
+        return image;
+      }
+      image = reload(entry);
+      if (image != null) {
+        return image;
+      }
+      //the image was replaced while waiting to read it, so the new one is looked up
+    }
+  }
+
+  /**
+   * Reads the given spilled image back into memory, unless another thread already has, and
+   * spills other images if that takes this store over its budget.
+   *
+   * @return the image, or null if it was replaced in this store before it could be read.
+   * @throws IllegalStateException if the spill file cannot be read.
+   */
+  private ImageProcessingModel reload(Entry entry) throws IllegalStateException {
+    ImageProcessingModel image;
+    List<Entry> victims;
+    synchronized (entry) {
+      synchronized (this) {
+        if (entry.removed) {
+          return null;
+        }
+        if (entry.image != null) {
+          return entry.image;
+        }
+      }
+      image = read(entry);
+      synchronized (this) {
+        if (entry.removed) {
+          return image;
+        }
+        entry.image = image;
+        resident += entry.bytes;
+        victims = evict(entry);
+      }
+    }
+    spill(victims);
+    return image;
+  }
+
+  @Override
+  public synchronized int getAlpha(String name) {
+    Entry entry = entries.get(name);
+    return entry == null ? 255 : entry.alpha;
+  }
+
+  @Override
+  public void put(String name, ImageProcessingModel image, int alpha)
+          throws IllegalArgumentException {
+    if (name == null || image == null || alpha < 0 || alpha > 255) {
+      throw new IllegalArgumentException("invalid image to store");
+    }
+    Entry entry = new Entry(image, alpha);
+    Entry replaced;
+    List<Entry> victims;
+    synchronized (this) {
+      replaced = entries.put(name, entry);
+      if (replaced != null) {
+        if (replaced.image != null && !replaced.spilling) {
+          resident -= replaced.bytes;
+        }
+        replaced.spilling = false;
+        replaced.removed = true;
+      }
+      resident += entry.bytes;
+      if (entry.bytes == 0 && image instanceof LazyImage) {
+        unmeasured.add(entry);
+      }
+      measure();
+      victims = evict(entry);
+    }
+    if (replaced != null) {
+      synchronized (replaced) {
+        delete(replaced);
+      }
+    }
+    spill(victims);
+  }
+
+  /**
+   * Measures again the lazy images in memory that held no pixels when they were last measured,
+   * counting those that have been computed and kept since.
+   *
+   * @return true if any of them now counts against the budget, and false otherwise.
+   */
+  private boolean measure() {
+    boolean grew = false;
+    Iterator<Entry> lazy = unmeasured.iterator();
+    while (lazy.hasNext()) {
+      Entry entry = lazy.next();
+      if (entry.removed || entry.image == null) {
+        lazy.remove();
+        continue;
+      }
+      long bytes = bytesOf(entry.image);
+      if (bytes > 0) {
+        //an image with no bytes is never spilling, so it is counted as resident
+        entry.bytes = bytes;
+        resident += bytes;
+        grew = true;
+        lazy.remove();
+      }
+    }
+    return grew;
+  }
+
+  /**
+   * Marks the images used least recently, other than the given one, as spilling until this
+   * store is within its budget, and gets them so that they can be written once the lock of the
+   * store is released.
+   */
+  private List<Entry> evict(Entry using) {
+    List<Entry> victims = new ArrayList<>();
+    Iterator<Entry> oldest = entries.values().iterator();
+    while (resident > budget && oldest.hasNext()) {
+      Entry entry = oldest.next();
+      if (entry == using || entry.image == null || entry.spilling || entry.bytes == 0) {
+        continue;
+      }
+      entry.spilling = true;
+      resident -= entry.bytes;
+      victims.add(entry);
+    }
+    return victims;
+  }
+
+  /**
+   * Writes the given images marked as spilling to their spill files, if they have none yet, and
+   * drops them from memory unless they were used or replaced in the meantime. Images that cannot
+   * be written stay in memory.
+   */
+  private void spill(List<Entry> victims) {
+    for (Entry victim : victims) {
+      synchronized (victim) {
+        ImageProcessingModel image;
+        Path spill;
+        synchronized (this) {
+          if (!victim.spilling) {
+            continue;
+          }
+          image = victim.image;
+          spill = victim.spill;
+        }
+        if (spill == null) {
+          try {
+            spill = write(image);
+          } catch (IOException e) {
+            synchronized (this) {
+              if (victim.spilling) {
+                victim.spilling = false;
+                resident += victim.bytes;
+              }
+            }
+            continue;
+          }
+        }
+        synchronized (this) {
+          victim.spill = spill;
+          if (victim.spilling) {
+            victim.spilling = false;
+            victim.image = null;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes the pixels of the given image, row by row, to a new compressed temporary file. The
+   * alpha of each pixel of an image with an alpha channel is written in the top byte of its int.
+   */
+  private Path write(ImageProcessingModel image) throws IOException {
+    Path file = directory == null ? Files.createTempFile("image", ".spill")
+            : Files.createTempFile(directory, "image", ".spill");
+    file.toFile().deleteOnExit();
+    int imageWidth = image.getImageWidth();
+    int[] row = new int[imageWidth];
+    int[] alphas = new int[imageWidth];
+    ByteBuffer bytes = ByteBuffer.allocate(imageWidth * 4);
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try (OutputStream out = new DeflaterOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(file)), deflater, 1 << 16)) {
+      for (int h = 0; h < image.getImageHeight(); h++) {
+        image.getPackedRow(h, row);
+        if (image.hasAlpha()) {
+          image.getAlphaRow(h, alphas);
+          for (int w = 0; w < imageWidth; w++) {
+            row[w] |= alphas[w] << 24;
+          }
+        }
+        bytes.clear();
+        bytes.asIntBuffer().put(row);
+        out.write(bytes.array());
+      }
+    } catch (IOException e) {
+      Files.deleteIfExists(file);
+      throw e;
+    } finally {
+      deflater.end();
+    }
+    return file;
+  }
+
+  /**
+   * Reads the pixels of the given spilled image back from its file.
+   *
+   * @throws IllegalStateException if the file cannot be read.
+   */
+  private static ImageProcessingModel read(Entry entry) throws IllegalStateException {
+    int[] pixels = new int[entry.imageWidth * entry.imageHeight];
+    byte[] row = new byte[entry.imageWidth * 4];
+    Inflater inflater = new Inflater();
+    try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+            new BufferedInputStream(Files.newInputStream(entry.spill)), inflater, 1 << 16))) {
+      for (int h = 0; h < entry.imageHeight; h++) {
+        in.readFully(row);
+        ByteBuffer.wrap(row).asIntBuffer().get(pixels, h * entry.imageWidth, entry.imageWidth);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("could not read spilled image: " + e.getMessage());
+    } finally {
+      inflater.end();
+    }
+    if (!entry.hasAlpha) {
+      return new PackedImage(entry.imageWidth, entry.imageHeight, pixels);
+    }
+    byte[] alpha = new byte[pixels.length];
+    for (int i = 0; i < pixels.length; i++) {
+      alpha[i] = (byte) (pixels[i] >>> 24);
+      pixels[i] &= 0xFFFFFF;
+    }
+    return new PackedImage(entry.imageWidth, entry.imageHeight, pixels, alpha);
+  }
+
+  /**
+   * Deletes the spill file of the given image, if it has one.
+   */
+  private static void delete(Entry entry) {
+    if (entry.spill != null) {
+      try {
+        Files.deleteIfExists(entry.spill);
+      } catch (IOException e) {
+        //the file is deleted when the program exits
+      }
+    }
+  }
+
+  /**
+   * Estimates the number of bytes the given image holds in memory.
+   */
+  private static long bytesOf(ImageProcessingModel image) {
+    if (image instanceof LazyImage) {
+      ImageProcessingModel held = ((LazyImage) image).getHeld();
+      return held == null ? 0 : bytesOf(held);
+    }
+    if (image instanceof MappedImage) {
+      return 0;
+    }
+    long pixels = (long) image.getImageWidth() * image.getImageHeight();
+    //a grid holds a reference to a pixel for every pixel, and the pixels, objects of one packed
+    //int, are shared between images only for greys and a few cached colors
+    if (image instanceof ImageGrid) {
+      return pixels * 20;
+    }
+    //packed images hold an int for every pixel, and a byte more if they have alpha
+    return image.hasAlpha() ? pixels * 5 : pixels * 4;
+  }
+}
@@ -23,4 +23,9 @@ public interface Features {
    */
   void applyOp(String method, String action);
 
+  /**
+   * Cancels the operations that have not finished, keeping the image currently displayed.
+   */
+  void cancel();
+
 }
@@ -0,0 +1,257 @@
+package controller;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Runs the work behind the buttons of the GUI off the event dispatch thread. The GUI keeps one
+ * piece of state (the image being edited), and every click submits a step that turns the latest
+ * state into the next one.
+ *
+ * <p>Steps run on the worker in the order they were submitted. Steps submitted while others are
+ * running are queued behind them and run by the same task, and only the state left by the last
+ * of them is prepared for display and published, so repeated clicks never render intermediate
+ * images. A step that replaces the state outright, such as loading a new image, drops the steps
+ * queued before it. Cancelling drops every queued step and discards whatever the running task
+ * has produced so far; the step running at that moment is left to finish, but its result is
+ * never published.
+ *
+ * <p>Everything this class hands to the display (status messages and prepared states) is run by
+ * the publisher, normally the event dispatch thread.
+ *
+ * @param <S> the type of the state the steps transform.
+ */
+final class GuiTaskExecutor<S> {
+
+  /**
+   * Represents the work submitted by one click.
+   *
+   * @param <S> the type of the state the step transforms.
+   */
+  interface Step<S> {
+    /**
+     * Produces the next state from the given one. Runs on the worker.
+     *
+     * @param state the latest state.
+     * @return the next state.
+     * @throws Exception if the step fails, leaving the state unchanged.
+     */
+    S apply(S state) throws Exception;
+  }
+
+  /**
+   * Represents where the results of the steps are shown.
+   *
+   * @param <S> the type of the state shown.
+   */
+  interface Display<S> {
+    /**
+     * Does the expensive part of showing the given state, such as rendering the image, and
+     * returns what remains to be done by the publisher. Runs on the worker.
+     *
+     * @param state the state to show.
+     * @return the action that shows the prepared state.
+     */
+    Runnable prepare(S state);
+
+    /**
+     * Shows the given status message. Runs on the publisher.
+     *
+     * @param message the message to show.
+     */
+    void status(String message);
+  }
+
+  /**
+   * Represents a submitted step waiting to run.
+   */
+  private static final class Queued<S> {
+    private final String description;
+    private final Step<S> step;
+    private final String success;
+    private final Function<Exception, String> failure;
+
+    private Queued(String description, Step<S> step, String success,
+                   Function<Exception, String> failure) {
+      this.description = description;
+      this.step = step;
+      this.success = success;
+      this.failure = failure;
+    }
+  }
+
+  private final Executor worker;
+  private final Executor publisher;
+  private final Display<S> display;
+
+  private final Deque<Queued<S>> queue = new ArrayDeque<>();
+  private S latest;
+  private S published;
+  private boolean running;
+  private int generation;
+
+  /**
+   * Creates an executor starting from the given state.
+   *
+   * @param worker    runs the steps and prepares their results.
+   * @param publisher runs everything handed to the display.
+   * @param display   where the results are shown.
+   * @param initial   the state the first step receives.
+   */
+  GuiTaskExecutor(Executor worker, Executor publisher, Display<S> display, S initial) {
+    this.worker = worker;
+    this.publisher = publisher;
+    this.display = display;
+    this.latest = initial;
+    this.published = initial;
+  }
+
+  /**
+   * Queues the given step behind every step submitted before it, starting a task on the worker
+   * if none is running.
+   *
+   * @param description the name of the step, shown while it runs.
+   * @param replaces    whether the step ignores the state it receives, making the steps queued
+   *                    before it pointless.
+   * @param step        the step to run.
+   * @param success     the message shown if this is the last step to run.
+   * @param failure     gives the message shown if the step throws the given exception.
+   */
+  void submit(String description, boolean replaces, Step<S> step, String success,
+              Function<Exception, String> failure) {
+    int started;
+    synchronized (this) {
+      if (replaces) {
+        queue.clear();
+      }
+      queue.add(new Queued<>(description, step, success, failure));
+      if (running) {
+        return;
+      }
+      running = true;
+      started = generation;
+    }
+    worker.execute(() -> run(started));
+  }
+
+  /**
+   * Drops every queued step and discards the result of the running task, going back to the last
+   * state that was published.
+   *
+   * @return true if there was anything to cancel, and false otherwise.
+   */
+  synchronized boolean cancel() {
+    if (!running) {
+      return false;
+    }
+    queue.clear();
+    latest = published;
+    running = false;
+    generation++;
+    return true;
+  }
+
+  /**
+   * Gets whether a task is running or waiting to run.
+   *
+   * @return true if there are steps that have not finished, and false otherwise.
+   */
+  synchronized boolean isBusy() {
+    return running;
+  }
+
+  /**
+   * Runs every queued step on the worker, then prepares and publishes the last state, unless
+   * the task is cancelled in the meantime. If the last state cannot be prepared, it is dropped
+   * like the result of a failed step, and the failure of the last step that ran is shown.
+   */
+  private void run(int started) {
+    String message = null;
+    Queued<S> last = null;
+    while (true) {
+      Queued<S> next;
+      S state;
+      int waiting;
+      boolean changed;
+      synchronized (this) {
+        if (generation != started) {
+          return;
+        }
+        next = queue.poll();
+        state = latest;
+        waiting = queue.size();
+        changed = state != published;
+      }
+
+      if (next == null) {
+        Runnable show = () -> { };
+        boolean prepared = true;
+        if (changed) {
+          try {
+            show = display.prepare(state);
+          } catch (RuntimeException e) {
+            prepared = false;
+            message = last.failure.apply(e);
+          }
+        }
+        Runnable shows = show;
+        String shown = message;
+        synchronized (this) {
+          if (generation != started) {
+            return;
+          }
+          if (!prepared) {
+            //a state that cannot be shown is dropped, going back to the last one that was
+            latest = published;
+            state = published;
+          }
+          if (!queue.isEmpty()) {
+            //more clicks arrived while preparing; only the state after them is worth showing
+            continue;
+          }
+          running = false;
+          published = state;
+        }
+        publisher.execute(() -> {
+          shows.run();
+          display.status(shown);
+        });
+        return;
+      }
+
+      publish(started, "Processing: " + next.description
+              + (waiting > 0 ? " (" + waiting + " more queued)" : ""));
+      last = next;
+      S result;
+      try {
+        result = next.step.apply(state);
+        message = next.success;
+      } catch (Exception e) {
+        result = state;
+        message = next.failure.apply(e);
+      }
+      synchronized (this) {
+        if (generation != started) {
+          return;
+        }
+        latest = result;
+      }
+    }
+  }
+
+  /**
+   * Shows the given status message unless the task that sent it was cancelled by then.
+   */
+  private void publish(int started, String message) {
+    publisher.execute(() -> {
+      synchronized (this) {
+        if (generation != started) {
+          return;
+        }
+      }
+      display.status(message);
+    });
+  }
+}
@@ -6,19 +6,35 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 
-import java.awt.Color;
 import javax.imageio.ImageIO;
 
-import model.ImageGrid;
-import model.RGB;
+import model.ImageProcessingModel;
+import model.PackedImage;
 
 /**
  * Represents the operations to convert between a JPG, BMP, and PNG file and image.
  */
 public class ImageFileOperationsImpl implements FileOperations {
+
+  private final ImageStore images;
+
+  /**
+   * Creates the file operations for the images in the given store.
+   *
+   * @param images the store images are loaded into and saved from.
+   * @throws IllegalArgumentException if the store is null.
+   */
+  public ImageFileOperationsImpl(ImageStore images) throws IllegalArgumentException {
+    if (images == null) {
+      throw new IllegalArgumentException("image store cannot be null");
+    }
+    this.images = images;
+  }
+
   /**
    * Translates the given JPG, BMP, or PNG file to an image that the
-   * user can refer to by the given name.
+   * user can refer to by the given name. The image keeps the alpha of every pixel if the file has
+   * pixels that are not fully opaque.
    *
    * @param fileName  the JPG, BMP, or PNG file to translate to an image.
    * @param imageName the name the user can use to refer to the produced image.
@@ -27,37 +43,30 @@ public class ImageFileOperationsImpl implements FileOperations {
    */
   public void load(String fileName, String imageName) throws FileNotFoundException {
 
-    RGB[][] pixelGrid;
+    int[] pixels;
     int imageWidth;
     int imageHeight;
+    byte[] alpha;
 
     try {
       BufferedImage img = ImageIO.read(new FileInputStream(fileName));
 
       imageWidth = img.getWidth();
       imageHeight = img.getHeight();
-      pixelGrid = new RGB[imageHeight][imageWidth];
-
-      for (int i = 0; i < imageHeight; i++) {
-        for (int j = 0; j < imageWidth; j++) {
-          int a = (img.getRGB(j, i) >> 24) & 0xff;
-          int r = new Color(img.getRGB(j, i)).getRed();
-          int g = new Color(img.getRGB(j, i)).getGreen();
-          int b = new Color(img.getRGB(j, i)).getBlue();
-          pixelGrid[i][j] = new RGB(r, g, b);
-          ImageProcessingControllerImpl.listOfAlpha.put(imageName, a);
-        }
-      }
+      pixels = new int[imageWidth * imageHeight];
+
+      alpha = Rasters.read(img, pixels);
 
     } catch (IOException e) {
       throw new FileNotFoundException("File " + fileName + " not found!");
     }
 
-    ImageProcessingControllerImpl.listOfImages.put(imageName, new ImageGrid(pixelGrid));
+    images.put(imageName, new PackedImage(imageWidth, imageHeight, pixels, alpha), 255);
   }
 
   /**
-   * Translates an image referred to by a given name to the JPG, BMP, or PNG file provided.
+   * Translates an image referred to by a given name to the JPG, BMP, or PNG file provided. PNG
+   * files keep the alpha of every pixel of an image with an alpha channel.
    *
    * @param fileName  the name of the JGP, BMP, or PNG file where the given image will be saved.
    * @param imageName the name the user uses to refer to the image they want to save.
@@ -85,28 +94,10 @@ public class ImageFileOperationsImpl implements FileOperations {
           imageType = 0;
       }
 
-      ImageGrid curr = (ImageGrid) ImageProcessingControllerImpl.listOfImages.get(imageName);
-
-      BufferedImage img = new BufferedImage(curr.getImageWidth(),
-              curr.getImageHeight(), imageType);
-      RGB[][] g = curr.getGrid();
-      int alpha = ImageProcessingControllerImpl.listOfAlpha.get(imageName);
-
-      if (fileType.equals("jpg")) {
-        for (int i = 0; i < curr.getImageHeight(); i++) {
-          for (int j = 0; j < curr.getImageWidth(); j++) {
-            img.setRGB(j, i, new Color(g[i][j].getRed(),
-                    g[i][j].getGreen(), g[i][j].getBlue()).getRGB());
-          }
-        }
-      } else if (fileType.equals("png") || fileType.equals("bmp")) {
-        for (int i = 0; i < curr.getImageHeight(); i++) {
-          for (int j = 0; j < curr.getImageWidth(); j++) {
-            img.setRGB(j, i, new Color(g[i][j].getRed(),
-                    g[i][j].getGreen(), g[i][j].getBlue(), alpha).getRGB());
-          }
-        }
-      }
+      ImageProcessingModel curr = images.get(imageName);
+
+      int alpha = images.getAlpha(imageName);
+      BufferedImage img = Rasters.write(curr, imageType, alpha);
 
       ImageIO.write(img, fileType, new File(fileName));
 
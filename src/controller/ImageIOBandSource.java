@@ -0,0 +1,94 @@
+package controller;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Represents an image file in any format ImageIO can read (such as PNG, JPG, BMP, or TIFF) read
+ * a band of rows at a time. Each band is decoded on its own by setting the source region of the
+ * reader, so only one band is ever held. Formats stored in strips or tiles decode just the band;
+ * other formats may be decoded from the top for each band, which takes longer but no more memory.
+ */
+public class ImageIOBandSource implements BandSource {
+
+  private final ImageInputStream stream;
+  private final ImageReader reader;
+  private final int imageWidth;
+  private final int imageHeight;
+  private int rowsRead;
+
+  /**
+   * Opens the given image file and reads its size.
+   *
+   * @param fileName the image file to read.
+   * @throws IOException if the file cannot be opened or ImageIO cannot read its format.
+   */
+  public ImageIOBandSource(String fileName) throws IOException {
+    File file = new File(fileName);
+    if (!file.isFile()) {
+      throw new FileNotFoundException("File " + fileName + " not found!");
+    }
+    this.stream = ImageIO.createImageInputStream(file);
+    if (stream == null) {
+      throw new IOException("cannot read " + fileName);
+    }
+    Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+    if (!readers.hasNext()) {
+      stream.close();
+      throw new IOException("unsupported image format");
+    }
+    this.reader = readers.next();
+    try {
+      reader.setInput(stream);
+      this.imageWidth = reader.getWidth(0);
+      this.imageHeight = reader.getHeight(0);
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  @Override
+  public int getImageWidth() {
+    return imageWidth;
+  }
+
+  @Override
+  public int getImageHeight() {
+    return imageHeight;
+  }
+
+  @Override
+  public void readRows(int rows, int[] pixels, int offset)
+          throws IOException, IllegalArgumentException {
+    if (rows < 0 || rows > imageHeight - rowsRead) {
+      throw new IllegalArgumentException("invalid number of rows");
+    }
+    if (rows == 0 || imageWidth == 0) {
+      return;
+    }
+    ImageReadParam param = reader.getDefaultReadParam();
+    param.setSourceRegion(new Rectangle(0, rowsRead, imageWidth, rows));
+    BufferedImage band = reader.read(0, param);
+    int[] read = new int[imageWidth * rows];
+    //streamed images are written to PPM files, which have no alpha
+    Rasters.read(band, read);
+    System.arraycopy(read, 0, pixels, offset, read.length);
+    rowsRead += rows;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.dispose();
+    stream.close();
+  }
+}
@@ -0,0 +1,253 @@
+package controller;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Scanner;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import view.ImageProcessingView;
+
+/**
+ * Represents a controller that runs the same script on every image in a directory, without any
+ * user interaction. The script is a template in which {input} stands for the path of the image
+ * being processed, {name} for its file name without the extension, and {output} for the output
+ * directory, so that a template such as
+ *
+ * <pre>
+ * load {input} image
+ * brighten image 10 image
+ * save {output}/{name}.png image
+ * q
+ * </pre>
+ *
+ * <p>brightens every image and saves it to the output directory. Since instructions are
+ * separated by whitespace, paths containing spaces are not supported.
+ *
+ * <p>Images are processed on a pool of worker threads, each image by its own controller with its
+ * own images, and at most a given number of images are being processed at once, which caps the
+ * memory used. The time each image took is printed as it finishes, followed by the number of
+ * images processed per second.
+ */
+public class ImageProcessingControllerBatch implements ImageProcessingController {
+
+  private static final String[] IMAGE_TYPES = {"ppm", "png", "jpg", "jpeg", "bmp"};
+
+  private final Readable template;
+  private final String inputs;
+  private final String outputDirectory;
+  private final ImageProcessingView view;
+  private final int threads;
+  private final int maxInFlight;
+
+  /**
+   * Constructs the batch controller given the script template, the images to process, where to
+   * write the results, and the view reporting progress, using one worker per core.
+   *
+   * @param template        the script to run on every image.
+   * @param inputs          a directory holding the images to process, or a glob pattern such as
+   *                        res/*.png matching file names in a directory.
+   * @param outputDirectory the directory {output} stands for, created if it does not exist.
+   * @param view            the view reporting progress.
+   * @throws IllegalArgumentException if any of the givens are null
+   */
+  public ImageProcessingControllerBatch(Readable template, String inputs, String outputDirectory,
+                                        ImageProcessingView view)
+          throws IllegalArgumentException {
+    this(template, inputs, outputDirectory, view, Runtime.getRuntime().availableProcessors(),
+            Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Constructs the batch controller given the script template, the images to process, where to
+   * write the results, the view reporting progress, the number of workers, and the number of
+   * images that may be processed at once.
+   *
+   * @param template        the script to run on every image.
+   * @param inputs          a directory holding the images to process, or a glob pattern such as
+   *                        res/*.png matching file names in a directory.
+   * @param outputDirectory the directory {output} stands for, created if it does not exist.
+   * @param view            the view reporting progress.
+   * @param threads         the number of images processed in parallel.
+   * @param maxInFlight     the largest number of images loaded at once.
+   * @throws IllegalArgumentException if any of the givens are null, or a number is not positive
+   */
+  public ImageProcessingControllerBatch(Readable template, String inputs, String outputDirectory,
+                                        ImageProcessingView view, int threads, int maxInFlight)
+          throws IllegalArgumentException {
+    if (template == null || inputs == null || outputDirectory == null || view == null) {
+      throw new IllegalArgumentException("template, inputs, output directory, or view is null");
+    }
+    if (threads < 1 || maxInFlight < 1) {
+      throw new IllegalArgumentException("threads and images in flight must be positive");
+    }
+    this.template = template;
+    this.inputs = inputs;
+    this.outputDirectory = outputDirectory;
+    this.view = view;
+    this.threads = threads;
+    this.maxInFlight = maxInFlight;
+  }
+
+  @Override
+  public void runProgram() throws IllegalStateException {
+    Scanner scanner = new Scanner(template).useDelimiter("\\A");
+    String script = scanner.hasNext() ? scanner.next() : "";
+    List<Path> images = findImages();
+    try {
+      Files.createDirectories(Paths.get(outputDirectory));
+    } catch (IOException e) {
+      throw new IllegalStateException("could not create " + outputDirectory);
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    CompletionService<String> done = new ExecutorCompletionService<>(pool);
+    long start = System.nanoTime();
+    int submitted = 0;
+    int reported = 0;
+    try {
+      for (Path image : images) {
+        //images submitted and not yet reported are in flight, waiting, running, or finished
+        if (submitted - reported == maxInFlight) {
+          report(done.take());
+          reported++;
+        }
+        done.submit(() -> process(script, image));
+        submitted++;
+      }
+      while (reported < submitted) {
+        report(done.take());
+        reported++;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("batch interrupted");
+    } finally {
+      pool.shutdownNow();
+    }
+
+    double seconds = (System.nanoTime() - start) / 1e9;
+    write(String.format(Locale.ROOT, "Processed %d images in %.2f s (%.2f images/second)%n",
+            images.size(), seconds, seconds > 0 ? images.size() / seconds : 0));
+  }
+
+  /**
+   * Writes the report of the given finished image.
+   */
+  private void report(Future<String> finished) {
+    try {
+      write(finished.get());
+    } catch (InterruptedException | ExecutionException e) {
+      //process reports its own failures, so this only happens when the pool is shut down
+      throw new IllegalStateException("batch interrupted");
+    }
+  }
+
+  /**
+   * Runs the script on the given image with a controller of its own, and returns the line
+   * reporting how long it took and any errors.
+   */
+  private String process(String script, Path image) {
+    String fileName = image.getFileName().toString();
+    int dot = fileName.lastIndexOf('.');
+    String name = dot > 0 ? fileName.substring(0, dot) : fileName;
+    String filled = script.replace("{input}", image.toString())
+            .replace("{name}", name)
+            .replace("{output}", outputDirectory);
+
+    List<String> errors = new ArrayList<>();
+    long start = System.nanoTime();
+    try {
+      new ImageProcessingControllerImpl(new MapImageStore(new HashMap<>()),
+              new BatchView(errors), new StringReader(filled), true, false).runProgram();
+    } catch (RuntimeException e) {
+      errors.add(e.getMessage() == null ? "script did not end with q" : e.getMessage());
+    }
+    long millis = (System.nanoTime() - start) / 1_000_000;
+    return fileName + ": " + millis + " ms"
+            + (errors.isEmpty() ? "" : " (" + String.join("; ", errors) + ")")
+            + System.lineSeparator();
+  }
+
+  /**
+   * Finds the images to process, in the order of their paths.
+   *
+   * @throws IllegalStateException if the directory holding them cannot be read.
+   */
+  private List<Path> findImages() throws IllegalStateException {
+    Path given = Paths.get(inputs);
+    Path directory;
+    String glob;
+    if (Files.isDirectory(given)) {
+      directory = given;
+      glob = "*.{" + String.join(",", IMAGE_TYPES) + "}";
+    } else {
+      directory = given.getParent() == null ? Paths.get(".") : given.getParent();
+      glob = given.getFileName().toString();
+    }
+
+    List<Path> images = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, glob)) {
+      for (Path file : files) {
+        if (Files.isRegularFile(file)) {
+          images.add(file);
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("could not read " + directory);
+    }
+    images.sort(null);
+    return images;
+  }
+
+  /**
+   * Renders the given message in this program's view and throws
+   * an error if there are any problems in the process.
+   *
+   * @param message the given message to render.
+   * @throws IllegalStateException if there is an IOException thrown while rendering.
+   */
+  private void write(String message) throws IllegalStateException {
+    try {
+      view.renderMessage(message);
+    } catch (IOException e) {
+      throw new IllegalStateException();
+    }
+  }
+
+  /**
+   * Represents the view of the controller processing one image, which keeps the errors the
+   * controller reports and drops its menu and prompts.
+   */
+  private static final class BatchView implements ImageProcessingView {
+    private static final String PROMPT = "Type instruction: " + System.lineSeparator();
+
+    private final List<String> errors;
+    private boolean prompted;
+
+    private BatchView(List<String> errors) {
+      this.errors = errors;
+    }
+
+    @Override
+    public void renderMessage(String message) {
+      if (message.equals(PROMPT)) {
+        prompted = true;
+      } else if (prompted && !message.isEmpty() && !message.equals("Program ended")) {
+        errors.add(message.trim());
+      }
+    }
+  }
+}
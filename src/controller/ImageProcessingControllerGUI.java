@@ -1,18 +1,26 @@
 package controller;
 
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.GraphicsEnvironment;
+import java.awt.Toolkit;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 
 import javax.swing.filechooser.FileNameExtensionFilter;
 
-import java.awt.Color;
+import javax.swing.Icon;
 import javax.swing.JFileChooser;
 import javax.swing.ImageIcon;
+import javax.swing.SwingUtilities;
 
 import controller.commands.Brighten;
 import controller.commands.ColorTransformation;
@@ -22,9 +30,8 @@ import controller.commands.Filter;
 import controller.commands.HorizontalFlip;
 import controller.commands.SetToComponent;
 import controller.commands.VerticalFlip;
-import model.ImageGrid;
 import model.ImageProcessingModel;
-import model.RGB;
+import model.Mipmap;
 import view.ImageProcessorFrame;
 
 /**
@@ -34,26 +41,79 @@ import view.ImageProcessorFrame;
 public class ImageProcessingControllerGUI implements
         ImageProcessingController, Features {
 
-  private static Map<String, ImageProcessingModel> listOfImages =
-          new HashMap<String, ImageProcessingModel>();
-
-  private static Map<String, Integer> listOfAlpha =
-          new HashMap<String, Integer>();
+  private final ImageStore images;
+  //where loading and saving put the image, so the image shown only changes once it is shown
+  private final ImageStore files = new MapImageStore(new HashMap<>());
 
   private final ImageProcessorFrame view;
+  private final GuiTaskExecutor<Current> tasks;
+  private final Dimension previewSize;
+  private volatile boolean preview = true;
+
+  //what the view shows once every submitted step has finished, updated on the event dispatch
+  //thread, and the preview level of the latest image with every operation clicked since
+  private Current shown;
+  private Icon shownIcon;
+  private ImageProcessingModel shownLevel;
+  private ImageProcessingModel previewImage;
 
-  private Function<Scanner, ImageOperationCommand> cmd;
-  private String fileType;
   private Map<String, Function<Scanner, ImageOperationCommand>> knownCommands = new HashMap<>();
   private Map<String, Function<Scanner, FileOperations>> knownOperations = new HashMap<>();
 
   private FileNameExtensionFilter filter = new FileNameExtensionFilter(
           "PPM, JPG, PNG, and BMP Images", "ppm", "jpg", "png", "bmp");
 
+  /**
+   * Represents the image shown by the GUI, along with its alpha and the file it was loaded from,
+   * whose type decides how it is rendered.
+   */
+  private static final class Current {
+    private final ImageProcessingModel image;
+    private final int alpha;
+    private final String fileName;
+
+    private Current(ImageProcessingModel image, int alpha, String fileName) {
+      this.image = image;
+      this.alpha = alpha;
+      this.fileName = fileName;
+    }
+  }
+
+  /**
+   * Represents a low resolution image drawn at the size of the full resolution image it
+   * previews.
+   */
+  private static final class PreviewIcon implements Icon {
+    private final BufferedImage image;
+    private final int width;
+    private final int height;
+
+    private PreviewIcon(BufferedImage image, int width, int height) {
+      this.image = image;
+      this.width = width;
+      this.height = height;
+    }
+
+    @Override
+    public void paintIcon(Component c, Graphics g, int x, int y) {
+      g.drawImage(image, x, y, width, height, c);
+    }
+
+    @Override
+    public int getIconWidth() {
+      return width;
+    }
+
+    @Override
+    public int getIconHeight() {
+      return height;
+    }
+  }
 
   /**
    * Constructs the constructor for this program given the models with images the user has already
-   * loaded, the view for this program, and user input.
+   * loaded, the view for this program, and user input. Operations run on a background thread and
+   * their results are shown on the event dispatch thread.
    *
    * @param listOfModels the images the user has already loaded into the program.
    * @param view         the view for this program.
@@ -62,17 +122,51 @@ public class ImageProcessingControllerGUI implements
   public ImageProcessingControllerGUI(Map<String, ImageProcessingModel> listOfModels,
                                       ImageProcessorFrame view)
           throws IllegalArgumentException {
-    if (listOfModels == null || view == null) {
-      throw new IllegalArgumentException("models or view is null");
+    this(listOfModels, view, Executors.newSingleThreadExecutor(r -> {
+      Thread worker = new Thread(r, "image-processor-worker");
+      worker.setDaemon(true);
+      return worker;
+    }), SwingUtilities::invokeLater);
+  }
+
+  /**
+   * Constructs the controller for this program given the models with images the user has already
+   * loaded, the view for this program, where operations run, and where their results are shown.
+   * Passing an executor that runs tasks immediately for both makes every operation finish before
+   * the method that started it returns.
+   *
+   * @param listOfModels the images the user has already loaded into the program.
+   * @param view         the view for this program.
+   * @param worker       runs loading, saving, and operations, and renders their results.
+   * @param publisher    updates the view, normally on the event dispatch thread.
+   * @throws IllegalArgumentException if any of the givens are null
+   */
+  public ImageProcessingControllerGUI(Map<String, ImageProcessingModel> listOfModels,
+                                      ImageProcessorFrame view, Executor worker,
+                                      Executor publisher)
+          throws IllegalArgumentException {
+    if (listOfModels == null || view == null || worker == null || publisher == null) {
+      throw new IllegalArgumentException("models, view, or executors are null");
     }
-    listOfImages = listOfModels;
+    this.images = new MapImageStore(listOfModels);
     this.view = view;
-    for (Map.Entry<String, ImageProcessingModel> mod : listOfImages.entrySet()) {
-      listOfAlpha.put(mod.getKey(), 255);
-    }
+    this.tasks = new GuiTaskExecutor<>(worker, publisher, new GuiTaskExecutor.Display<Current>() {
+      @Override
+      public Runnable prepare(Current current) {
+        return show(current);
+      }
+
+      @Override
+      public void status(String message) {
+        view.setErrorLabelText(message);
+      }
+    }, new Current(images.get("current"), 255, null));
+    this.shown = new Current(images.get("current"), 255, null);
+    this.previewSize = GraphicsEnvironment.isHeadless() ? new Dimension(1920, 1080)
+            : Toolkit.getDefaultToolkit().getScreenSize();
 
 
-    knownOperations.put("ppm", s -> new PPMFileOperationsImpl());
+    knownOperations.put("ppm", s -> MappedPPMFileOperationsImpl.forControllers(files));
 
 
     knownCommands.put("brighten", s -> new Brighten(Integer.parseInt(view.getLightNum())));
@@ -96,73 +190,120 @@ public class ImageProcessingControllerGUI implements
 
   }
 
+  /**
+   * Sets whether operations are first applied to a copy of the image about the size of the
+   * screen and shown right away, before the full resolution result is ready. The full
+   * resolution result always replaces the preview, and is the image that is saved. Previews are
+   * on by default.
+   *
+   * @param enabled whether to show previews of operations.
+   */
+  public void setPreview(boolean enabled) {
+    preview = enabled;
+    if (!enabled) {
+      previewImage = null;
+    }
+  }
 
-  private BufferedImage getImage() {
-
-    int imageType;
+  /**
+   * Gets the type of image to render for the given file, keeping the alpha channel unless the
+   * file type has none.
+   */
+  private static int imageType(String fileName) {
+    String fileType = fileName == null ? ""
+            : fileName.substring(fileName.lastIndexOf('.') + 1);
 
     switch (fileType) {
       case "jpg":
-        imageType = BufferedImage.TYPE_INT_RGB;
-        break;
+        return BufferedImage.TYPE_INT_RGB;
       case "bmp":
-        imageType = BufferedImage.TYPE_3BYTE_BGR;
-        break;
+        return BufferedImage.TYPE_3BYTE_BGR;
       default:
-        imageType = BufferedImage.TYPE_INT_ARGB;
-        break;
+        return BufferedImage.TYPE_INT_ARGB;
     }
+  }
 
-    ImageGrid curr = (ImageGrid) listOfImages.get("current");
-
-    BufferedImage img = new BufferedImage(curr.getImageWidth(),
-            curr.getImageHeight(), imageType);
-    RGB[][] g = curr.getGrid();
-    int alpha = listOfAlpha.get("current");
-
-    for (int i = 0; i < curr.getImageHeight(); i++) {
-      for (int j = 0; j < curr.getImageWidth(); j++) {
-        img.setRGB(j, i, new Color(g[i][j].getRed(),
-                g[i][j].getGreen(), g[i][j].getBlue(), alpha).getRGB());
+  /**
+   * Renders the given image and computes its histograms on the calling thread, and returns the
+   * action that shows them in the view.
+   */
+  private Runnable show(Current current) {
+    BufferedImage rendered = Rasters.write(current.image, imageType(current.fileName),
+            current.alpha);
+    current.image.getHistogram();
+    ImageProcessingModel level = preview
+            ? new Mipmap(current.image).levelFor(previewSize.width, previewSize.height)
+            : null;
+    return () -> {
+      images.put("current", current.image, current.alpha);
+      shown = current;
+      shownIcon = new ImageIcon(rendered);
+      shownLevel = level;
+      if (preview && tasks.isBusy()) {
+        //operations clicked since are still running, and the preview shows them already
+        return;
       }
-    }
+      previewImage = level;
+      if (current.fileName != null) {
+        view.setFileLabelText(current.fileName);
+      }
+      view.setImageIcon(shownIcon);
+      view.updateHistogram(current.image.getHistogram());
+    };
+  }
 
-    return img;
+  /**
+   * Applies the given command to the preview of the latest image and shows the result scaled
+   * to the size the full resolution result will have. Images no larger than the screen are not
+   * previewed, since their full resolution result is about as fast.
+   */
+  private void showPreview(ImageOperationCommand command) {
+    ImageProcessingModel full = shown.image;
+    if (!preview || previewImage == null || previewImage == full) {
+      previewImage = null;
+      return;
+    }
+    double scaleX = (double) full.getImageWidth() / shownLevel.getImageWidth();
+    double scaleY = (double) full.getImageHeight() / shownLevel.getImageHeight();
+    BufferedImage rendered;
+    try {
+      previewImage = command.executeCommand(previewImage);
+      rendered = Rasters.write(previewImage, imageType(shown.fileName), shown.alpha);
+    } catch (RuntimeException e) {
+      //the full resolution step reports the failure
+      return;
+    }
+    view.setImageIcon(new PreviewIcon(rendered,
+            (int) Math.round(previewImage.getImageWidth() * scaleX),
+            (int) Math.round(previewImage.getImageHeight() * scaleY)));
   }
 
   @Override
   public void loadImage() {
-    view.setErrorLabelText("Processing");
-
-    cmd = knownCommands.getOrDefault("load", null);
-
     final JFileChooser fchooser = new JFileChooser(".");
     fchooser.setFileFilter(filter);
     int retvalue = fchooser.showOpenDialog(new ImageProcessorFrame());
     if (retvalue == JFileChooser.APPROVE_OPTION) {
       File f = fchooser.getSelectedFile();
-      view.setFileLabelText(f.getAbsolutePath());
 
       String fileName = f.getAbsolutePath();
-      fileType = fileName.split("\\.")[fileName.split("\\.").length - 1];
-
-      Function<Scanner, FileOperations> oF
-              = knownOperations.getOrDefault(fileType, s -> new ImageFileOperationsImpl());
-      try {
-        oF.apply(new Scanner("")).load(fileName, "current");
-        listOfImages = ImageProcessingControllerImpl.listOfImages;
-        listOfAlpha = ImageProcessingControllerImpl.listOfAlpha;
-
-        view.setImageIcon(new ImageIcon(this.getImage()));
-        view.updateHistogram();
-        view.setErrorLabelText("Image loaded successfully");
-
-      } catch (FileNotFoundException fn) {
-        view.setErrorLabelText("File not found! Try again.");
-      } catch (NullPointerException n) {
-        view.setErrorLabelText("Unacceptable file type. Only JPG, PNG, BMP, and PPM files " +
-                "are supported. Try again.");
-      }
+      String fileType = fileName.split("\\.")[fileName.split("\\.").length - 1];
+
+      FileOperations oF = knownOperations.getOrDefault(fileType,
+              s -> new ImageFileOperationsImpl(files)).apply(new Scanner(""));
+      //operations clicked before the new image is loaded are not previewed
+      previewImage = null;
+      tasks.submit("loading " + f.getName(), true, current -> {
+        oF.load(fileName, "current");
+        ImageProcessingModel loaded = files.get("current");
+        if (loaded == null) {
+          throw new IllegalStateException("nothing was loaded");
+        }
+        return new Current(loaded, files.getAlpha("current"), fileName);
+      }, "Image loaded successfully", e -> e instanceof FileNotFoundException
+              ? "File not found! Try again."
+              : "Unacceptable file type. Only JPG, PNG, BMP, and PPM files " +
+              "are supported. Try again.");
     } else {
       view.setErrorLabelText("No new image loaded.");
     }
@@ -170,11 +311,6 @@ public class ImageProcessingControllerGUI implements
 
   @Override
   public void saveImage() {
-    view.setErrorLabelText("Processing");
-
-    Function<Scanner, ImageOperationCommand> cmd
-            = knownCommands.getOrDefault("save", null);
-
     final JFileChooser fchooser = new JFileChooser(".");
     fchooser.setFileFilter(filter);
     int retvalue = fchooser.showSaveDialog(new ImageProcessorFrame());
@@ -182,17 +318,19 @@ public class ImageProcessingControllerGUI implements
       File f = fchooser.getSelectedFile();
 
       String fileName = f.getAbsolutePath();
-      fileType = fileName.split("\\.")[fileName.split("\\.").length - 1];
-
-      Function<Scanner, FileOperations> oF
-              = knownOperations.getOrDefault(fileType, s -> new ImageFileOperationsImpl());
-      try {
-        oF.apply(new Scanner("")).save(fileName, "current");
-        view.setErrorLabelText("Image saved successfully");
-      } catch (IllegalArgumentException a) {
-        view.setErrorLabelText("Unacceptable file type. Only JPG, PNG, BMP, and PPM files " +
-                "are supported. Try again.");
-      }
+      String fileType = fileName.split("\\.")[fileName.split("\\.").length - 1];
+
+      FileOperations oF = knownOperations.getOrDefault(fileType,
+              s -> new ImageFileOperationsImpl(files)).apply(new Scanner(""));
+      //saves the image left by every operation queued before the save
+      tasks.submit("saving " + f.getName(), false, current -> {
+        files.put("current", current.image, current.alpha);
+        oF.save(fileName, "current");
+        return current;
+      }, "Image saved successfully", e -> e instanceof IllegalArgumentException
+              ? "Unacceptable file type. Only JPG, PNG, BMP, and PPM files " +
+              "are supported. Try again."
+              : "Could not save the image! Try again.");
     } else {
       view.setErrorLabelText("Did not save image.");
     }
@@ -200,64 +338,39 @@ public class ImageProcessingControllerGUI implements
 
   @Override
   public void applyOp(String method, String action) {
-    cmd = knownCommands.getOrDefault(method, null);
-
-    view.setErrorLabelText("Processing");
+    Function<Scanner, ImageOperationCommand> cmd = knownCommands.getOrDefault(method, null);
 
+    ImageOperationCommand command;
     try {
-      ImageProcessingModel model = listOfImages.get("current");
-      ImageOperationCommand command = cmd.apply(new Scanner(action));
-      String next = "current";
-      listOfImages.put(next, command.executeCommand(model));
-      listOfAlpha.put(next, listOfAlpha.get("current"));
-
-
-      view.setImageIcon(new ImageIcon(this.getImage()));
-      view.updateHistogram();
-      view.setErrorLabelText("Operation applied successfully");
+      //the text fields are read here, on the event dispatch thread
+      command = cmd.apply(new Scanner(action));
     } catch (IllegalArgumentException ia) {
       view.setErrorLabelText("Command failed! Try again.");
+      return;
     } catch (NullPointerException n) {
       view.setErrorLabelText("Image does not exist! Try again.");
+      return;
     }
-  }
 
-  /**
-   * Counts the number of reds, greens, blues, and intensities for the given RGB value.
-   *
-   * @param currentRGBValue the given RGB value
-   * @return an array of the number of reds, greens, blues, and intensities
-   */
-  public static int[] imageRGBCounter(int currentRGBValue) {
-    RGB[][] currentImage = listOfImages.get("current").getGrid();
-    int redCount = 0;
-    int greenCount = 0;
-    int blueCount = 0;
-    int intensityCount = 0;
-
-    if (currentImage == null) {
-      return new int[]{0, 0, 0, 0};
-    }
-
-    for (int h = 0; h < currentImage.length; h++) {
-      for (int w = 0; w < currentImage[0].length; w++) {
-
-        if (currentImage[h][w].getRed() == currentRGBValue) {
-          redCount++;
-        }
-        if (currentImage[h][w].getGreen() == currentRGBValue) {
-          greenCount++;
-        }
-        if (currentImage[h][w].getBlue() == currentRGBValue) {
-          blueCount++;
-        }
-        if ((currentImage[h][w].getRed() + currentImage[h][w].getGreen()
-                + currentImage[h][w].getBlue()) / 3 == currentRGBValue) {
-          intensityCount++;
-        }
+    showPreview(command);
+    tasks.submit(action, false, current -> new Current(command.executeCommand(current.image),
+            current.alpha, current.fileName), "Operation applied successfully",
+        e -> e instanceof NullPointerException
+                ? "Image does not exist! Try again."
+                : "Command failed! Try again.");
+  }
 
+  @Override
+  public void cancel() {
+    if (tasks.cancel()) {
+      previewImage = shownLevel;
+      if (shownIcon != null) {
+        view.setImageIcon(shownIcon);
+        view.updateHistogram(shown.image.getHistogram());
       }
+      view.setErrorLabelText("Operation cancelled");
+    } else {
+      view.setErrorLabelText("Nothing to cancel.");
     }
-    return new int[]{redCount, greenCount, blueCount, intensityCount};
   }
 }
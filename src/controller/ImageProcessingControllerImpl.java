@@ -2,39 +2,50 @@ package controller;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 
 import controller.commands.Brighten;
 import controller.commands.ColorTransformation;
+import controller.commands.Crop;
 import controller.commands.Darken;
 import controller.commands.Downscale;
 import controller.commands.Filter;
 import controller.commands.HorizontalFlip;
+import controller.commands.Rotate;
 import controller.commands.SetToComponent;
 import controller.commands.VerticalFlip;
+import model.BoxBlur;
+import model.ColorMatrix;
 import model.ImageProcessingModel;
+import model.LazyImage;
+import model.ResampleFilter;
 import view.ImageProcessingView;
 
 /**
  * Represents the operations for the controller for this program and manages how the
- * given models and view interact when user input is given.
+ * given models and view interact when user input is given. Every controller keeps its images in
+ * its own store, so several controllers can run at once, on different threads, without seeing
+ * each other's images.
  */
 public class ImageProcessingControllerImpl implements
         ImageProcessingController {
 
-  //package private
-  static Map<String, ImageProcessingModel> listOfImages =
-          new HashMap<String, ImageProcessingModel>();
-
-  //package private
-  static Map<String, Integer> listOfAlpha =
-          new HashMap<String, Integer>();
 
+  private final ImageStore images;
   private final ImageProcessingView view;
   private final Readable input;
+  private final boolean lazy;
+  private final boolean parallel;
+  private final int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
 
 
   /**
@@ -49,107 +60,325 @@ public class ImageProcessingControllerImpl implements
   public ImageProcessingControllerImpl(Map<String, ImageProcessingModel> listOfModels,
                                        ImageProcessingView view, Readable input)
           throws IllegalArgumentException {
-    if (listOfModels == null || view == null || input == null) {
+    this(listOfModels, view, input, false);
+  }
+
+  /**
+   * Constructs the controller for this program given the models with images the user has
+   * already loaded, the view for this program, user input, and whether to evaluate lazily. In
+   * lazy mode, commands only record the operations they apply as LazyImages, and an image is
+   * computed when it is saved or when its name is read by more than one command, so images
+   * that are never saved are never computed and consecutive operations are computed in one pass.
+   *
+   * @param listOfModels the images the user has already loaded into the program.
+   * @param view         the view for this program.
+   * @param input        the user input to use this program.
+   * @param lazy         whether to defer operations until their results are needed.
+   * @throws IllegalArgumentException if any of the givens are null
+   */
+  public ImageProcessingControllerImpl(Map<String, ImageProcessingModel> listOfModels,
+                                       ImageProcessingView view, Readable input, boolean lazy)
+          throws IllegalArgumentException {
+    this(listOfModels, view, input, lazy, false);
+  }
+
+  /**
+   * Constructs the controller for this program given the models with images the user has
+   * already loaded, the view for this program, user input, whether to evaluate lazily, and
+   * whether to run the script in parallel. In parallel mode, the whole input is read before
+   * anything runs, and instructions that do not read or write the same images or files run at
+   * the same time, including loading and saving. The output of each instruction is still
+   * printed in script order. The input must end with q or run out, so this mode suits scripts
+   * rather than interactive use.
+   *
+   * @param listOfModels the images the user has already loaded into the program.
+   * @param view         the view for this program.
+   * @param input        the user input to use this program.
+   * @param lazy         whether to defer operations until their results are needed.
+   * @param parallel     whether to run independent instructions at the same time.
+   * @throws IllegalArgumentException if any of the givens are null
+   */
+  public ImageProcessingControllerImpl(Map<String, ImageProcessingModel> listOfModels,
+                                       ImageProcessingView view, Readable input, boolean lazy,
+                                       boolean parallel)
+          throws IllegalArgumentException {
+    this(listOfModels == null ? null : new MapImageStore(listOfModels), view, input, lazy,
+            parallel);
+  }
+
+  /**
+   * Constructs the controller for this program given the store holding the images of this
+   * program, the view for this program, user input, whether to evaluate lazily, and whether to
+   * run the script in parallel.
+   *
+   * @param store    where the images of this program are kept.
+   * @param view     the view for this program.
+   * @param input    the user input to use this program.
+   * @param lazy     whether to defer operations until their results are needed.
+   * @param parallel whether to run independent instructions at the same time.
+   * @throws IllegalArgumentException if any of the givens are null
+   */
+  public ImageProcessingControllerImpl(ImageStore store, ImageProcessingView view,
+                                       Readable input, boolean lazy, boolean parallel)
+          throws IllegalArgumentException {
+    if (store == null || view == null || input == null) {
       throw new IllegalArgumentException("models, view, or readable is null");
     }
-    listOfImages = listOfModels;
+    this.images = store;
     this.view = view;
     this.input = input;
-    for (Map.Entry<String, ImageProcessingModel> mod : listOfImages.entrySet()) {
-      listOfAlpha.put(mod.getKey(), 255);
-    }
+    this.lazy = lazy;
+    this.parallel = parallel;
   }
 
 
   @Override
   public void runProgram() throws IllegalStateException {
     Scanner scanner = new Scanner(this.input);
-    boolean quit = false;
 
-    Map<String, Function<Scanner, ImageOperationCommand>> knownCommands = new HashMap<>();
-    knownCommands = new HashMap<>();
-
-    knownCommands.put("brighten", s -> new Brighten(s.nextInt()));
-    knownCommands.put("darken", s -> new Darken(s.nextInt()));
-    knownCommands.put("vertical-flip", s -> new VerticalFlip());
-    knownCommands.put("horizontal-flip", s -> new HorizontalFlip());
-    knownCommands.put("greyscale", s -> new SetToComponent(s.next()));
-    knownCommands.put("color-transformation", s -> new ColorTransformation(s.next()));
-    knownCommands.put("filter", s -> new Filter(s.next()));
-    knownCommands.put("downscale", s -> new Downscale(s.nextInt(), s.nextInt()));
+    Map<String, Function<Scanner, ImageOperationCommand>> knownCommands = knownCommands();
 
 
     Map<String, Function<Scanner, FileOperations>> knownOperations = new HashMap<>();
     knownOperations = new HashMap<>();
 
-    knownOperations.put("ppm", s -> new PPMFileOperationsImpl());
+    knownOperations.put("ppm", s -> MappedPPMFileOperationsImpl.forControllers(images));
 
 
     this.printMenu();
 
-    while (!quit) {
+    if (parallel) {
+      runInParallel(scanner, knownCommands, knownOperations);
+      return;
+    }
+
+    while (true) {
       write("Type instruction: " + System.lineSeparator());
-      ImageOperationCommand command;
       if (!scanner.hasNext()) {
         throw new IllegalStateException();
       }
-      String userInput = scanner.next();
-
-      Function<Scanner, ImageOperationCommand> cmd
-              = knownCommands.getOrDefault(userInput, null);
-      if (userInput.equals("q")) {
+      ScriptInstruction instruction = nextInstruction(scanner, knownCommands, knownOperations);
+      if (instruction.quits()) {
         write("Program ended");
         return;
-      } else if (userInput.equals("load")) {
-        String fileName = scanner.next();
-        String fileType = fileName.split("\\.")[fileName.split("\\.").length - 1];
+      }
+      write(instruction.run());
+    }
 
-        Function<Scanner, FileOperations> oF
-                = knownOperations.getOrDefault(fileType, s -> new ImageFileOperationsImpl());
+  }
 
+  /**
+   * Gets the commands a script can use on an image, by name, each reading its arguments (but not
+   * the names of the images it reads and writes) from the given scanner.
+   */
+  static Map<String, Function<Scanner, ImageOperationCommand>> knownCommands() {
+    Map<String, Function<Scanner, ImageOperationCommand>> knownCommands = new HashMap<>();
 
-        try {
-          oF.apply(scanner).load(fileName, scanner.next());
-        } catch (FileNotFoundException e) {
-          write("File not found! Try again." + System.lineSeparator());
-        } catch (NullPointerException n) {
-          write("No such file type" + System.lineSeparator());
-        }
-      } else if (userInput.equals("save")) {
-        String fileName = scanner.next();
-        String fileType = fileName.split("\\.")[fileName.split("\\.").length - 1];
+    knownCommands.put("brighten", s -> new Brighten(s.nextInt()));
+    knownCommands.put("darken", s -> new Darken(s.nextInt()));
+    knownCommands.put("vertical-flip", s -> new VerticalFlip());
+    knownCommands.put("horizontal-flip", s -> new HorizontalFlip());
+    knownCommands.put("rotate", s -> new Rotate(s.nextInt()));
+    knownCommands.put("crop",
+        s -> new Crop(s.nextInt(), s.nextInt(), s.nextInt(), s.nextInt()));
+    knownCommands.put("greyscale", s -> new SetToComponent(s.next()));
+    knownCommands.put("color-transformation", ImageProcessingControllerImpl::colorTransformation);
+    knownCommands.put("filter", ImageProcessingControllerImpl::filter);
+    knownCommands.put("downscale", s -> new Downscale(s.nextInt(), s.nextInt()));
+    knownCommands.put("downscale-filtered", ImageProcessingControllerImpl::downscaleFiltered);
+    return knownCommands;
+  }
 
-        Function<Scanner, FileOperations> oF
-                = knownOperations.getOrDefault(fileType, s -> new ImageFileOperationsImpl());
-        try {
-          oF.apply(scanner).save(fileName, scanner.next());
-        } catch (IllegalArgumentException e) {
-          write("No such file type" + System.lineSeparator());
-        } catch (NullPointerException e) {
-          write("Image does not exist" + System.lineSeparator());
-        }
-      } else {
-        if (cmd == null) {
-          write("Command does not exist! Try again." + System.lineSeparator());
-        } else {
-          try {
-            String old = scanner.next();
-            ImageProcessingModel model = listOfImages.get(old);
-            command = cmd.apply(scanner);
-            String next = scanner.next();
+  /**
+   * Reads the arguments of a filter: the name of a built-in filter, or box-blur followed by the
+   * radius of the box, or gaussian-blur followed by the standard deviation of the Gaussian.
+   *
+   * @throws IllegalArgumentException if the amount of a blur is invalid.
+   */
+  private static ImageOperationCommand filter(Scanner scanner) throws IllegalArgumentException {
+    String type = scanner.next();
+    if (BoxBlur.isNamed(type)) {
+      return new Filter(BoxBlur.named(type, Double.parseDouble(scanner.next())));
+    }
+    return new Filter(type);
+  }
 
+  /**
+   * Reads the arguments of a filtered downscale: the name of the filter computing the new pixels
+   * (box, bilinear, or lanczos), followed by the width and height percentages.
+   *
+   * @throws IllegalArgumentException if there is no filter with that name.
+   */
+  private static ImageOperationCommand downscaleFiltered(Scanner scanner)
+          throws IllegalArgumentException {
+    ResampleFilter filter = ResampleFilter.named(scanner.next());
+    return new Downscale(scanner.nextInt(), scanner.nextInt(), filter);
+  }
 
-            listOfImages.put(next, command.executeCommand(model));
-            listOfAlpha.put(next, listOfAlpha.get(old));
-          } catch (IllegalArgumentException e) {
-            write("Command failed! Try again." + System.lineSeparator());
-          } catch (NullPointerException n) {
-            write("Image does not exist! Try again." + System.lineSeparator());
+  /**
+   * Reads the arguments of a color transformation: the name of a built-in transformation, or
+   * matrix followed by the nine weights of a 3x3 color matrix row by row, or matrix-offset
+   * followed by the twelve entries of a 3x4 color matrix whose rows end with an offset.
+   *
+   * @throws IllegalArgumentException if the matrix is invalid.
+   */
+  private static ImageOperationCommand colorTransformation(Scanner scanner)
+          throws IllegalArgumentException {
+    String type = scanner.next();
+    int columns = "matrix".equals(type) ? 3 : "matrix-offset".equals(type) ? 4 : 0;
+    if (columns == 0) {
+      return new ColorTransformation(type);
+    }
+    double[][] rows = new double[3][columns];
+    for (double[] row : rows) {
+      for (int column = 0; column < columns; column++) {
+        row[column] = Double.parseDouble(scanner.next());
+      }
+    }
+    return new ColorTransformation(ColorMatrix.of(rows));
+  }
+
+  /**
+   * Reads the whole script, then runs its instructions in parallel wherever they do not depend
+   * on each other, printing the output of each instruction in script order as soon as it and
+   * every instruction before it have finished.
+   */
+  private void runInParallel(Scanner scanner,
+                             Map<String, Function<Scanner, ImageOperationCommand>> knownCommands,
+                             Map<String, Function<Scanner, FileOperations>> knownOperations)
+          throws IllegalStateException {
+    List<ScriptInstruction> script = new ArrayList<>();
+    RuntimeException end = null;
+    while (true) {
+      if (!scanner.hasNext()) {
+        end = new IllegalStateException();
+        break;
+      }
+      ScriptInstruction instruction;
+      try {
+        instruction = nextInstruction(scanner, knownCommands, knownOperations);
+      } catch (RuntimeException e) {
+        end = e;
+        break;
+      }
+      script.add(instruction);
+      if (instruction.quits()) {
+        break;
+      }
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<CompletableFuture<String>> results = ScriptScheduler.schedule(script, pool);
+      for (int i = 0; i < script.size(); i++) {
+        write("Type instruction: " + System.lineSeparator());
+        if (script.get(i).quits()) {
+          write("Program ended");
+          return;
+        }
+        String message;
+        try {
+          message = results.get(i).join();
+        } catch (CompletionException e) {
+          if (e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
           }
+          throw e;
         }
+        write(message);
       }
+      write("Type instruction: " + System.lineSeparator());
+      throw end;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Reads the next instruction of the script, consuming its arguments. Problems that can be
+   * found without running the instruction, such as an unknown command, produce an instruction
+   * that only prints the problem.
+   */
+  private ScriptInstruction nextInstruction(Scanner scanner,
+                             Map<String, Function<Scanner, ImageOperationCommand>> knownCommands,
+                             Map<String, Function<Scanner, FileOperations>> knownOperations) {
+    String userInput = scanner.next();
+
+    Function<Scanner, ImageOperationCommand> cmd
+            = knownCommands.getOrDefault(userInput, null);
+    if (userInput.equals("q")) {
+      return ScriptInstruction.quit();
+    } else if (userInput.equals("load")) {
+      String fileName = scanner.next();
+      String fileType = fileName.split("\\.")[fileName.split("\\.").length - 1];
+
+      Function<Scanner, FileOperations> oF
+              = knownOperations.getOrDefault(fileType, s -> new ImageFileOperationsImpl(images));
+      FileOperations operations = oF.apply(scanner);
+      String imageName = scanner.next();
+
+      return ScriptInstruction.of(ScriptInstruction.file(fileName),
+          ScriptInstruction.image(imageName), () -> {
+            try {
+              operations.load(fileName, imageName);
+            } catch (FileNotFoundException e) {
+              return "File not found! Try again." + System.lineSeparator();
+            } catch (NullPointerException n) {
+              return "No such file type" + System.lineSeparator();
+            }
+            return "";
+          });
+    } else if (userInput.equals("save")) {
+      String fileName = scanner.next();
+      String fileType = fileName.split("\\.")[fileName.split("\\.").length - 1];
+
+      Function<Scanner, FileOperations> oF
+              = knownOperations.getOrDefault(fileType, s -> new ImageFileOperationsImpl(images));
+      FileOperations operations = oF.apply(scanner);
+      String imageName = scanner.next();
+
+      return ScriptInstruction.of(ScriptInstruction.image(imageName),
+          ScriptInstruction.file(fileName), () -> {
+            try {
+              operations.save(fileName, imageName);
+            } catch (IllegalArgumentException e) {
+              return "No such file type" + System.lineSeparator();
+            } catch (NullPointerException e) {
+              return "Image does not exist" + System.lineSeparator();
+            }
+            return "";
+          });
+    } else if (cmd == null) {
+      return ScriptInstruction.message("Command does not exist! Try again."
+              + System.lineSeparator());
     }
 
+    String old = scanner.next();
+    ImageOperationCommand command;
+    try {
+      command = cmd.apply(scanner);
+    } catch (IllegalArgumentException e) {
+      return ScriptInstruction.message("Command failed! Try again." + System.lineSeparator());
+    }
+    String next = scanner.next();
+
+    return ScriptInstruction.of(ScriptInstruction.image(old), ScriptInstruction.image(next),
+        () -> {
+          try {
+            ImageProcessingModel model = images.get(old);
+            int alpha = images.getAlpha(old);
+            if (lazy && model != null && !(model instanceof LazyImage)) {
+              //the image is only wrapped for this command, as its name is only read here
+              model = LazyImage.of(model);
+            }
+            images.put(next, command.executeCommand(model), alpha);
+          } catch (IllegalArgumentException e) {
+            return "Command failed! Try again." + System.lineSeparator();
+          } catch (NullPointerException n) {
+            return "Image does not exist! Try again." + System.lineSeparator();
+          }
+          return "";
+        });
   }
 
   /**
@@ -194,6 +423,15 @@ public class ImageProcessingControllerImpl implements
             "(flips the image with the given name horizontally and refers to it by the given " +
             "destination name.)" +
             System.lineSeparator());
+    write("ROTATE image-name degrees dest-image-name " +
+            "(rotates the image with the given name clockwise by the given multiple of 90 " +
+            "degrees and refers to it by the given destination name.)" +
+            System.lineSeparator());
+    write("CROP image-name x y width height dest-image-name " +
+            "(crops the image with the given name to the rectangle of the given size whose top " +
+            "left corner is at column x and row y, and refers to it by the given destination " +
+            "name.)" +
+            System.lineSeparator());
     write("GREYSCALE image-name color-component/channel-component dest-image-name " +
             "(creates a greyscale image with the color-component or the channel-component" +
             "of the image with the given name, " +
@@ -201,12 +439,15 @@ public class ImageProcessingControllerImpl implements
             System.lineSeparator());
     write("COLOR-TRANSFORMATION image-name transformation-type dest-image-name " +
             "(creates a new image with the color transformation of the type given " +
-            "of the image with the given name, " +
+            "of the image with the given name, where the type is sepia, greyscale, " +
+            "matrix followed by the nine weights of a 3x3 color matrix row by row, or " +
+            "matrix-offset followed by the twelve entries of a 3x4 matrix with offsets, " +
             "and refers to it by the given destination name.)" +
             System.lineSeparator());
     write("FILTER image-name filter-type dest-image-name " +
             "(creates a new image with the given filter type applied " +
-            "to the image with the given name, " +
+            "to the image with the given name, where the type is blur, sharpen, " +
+            "box-blur followed by a radius, or gaussian-blur followed by a standard deviation, " +
             "and refers to it by the given destination name.)" +
             System.lineSeparator());
     write("DOWNSCALE image-name width-percentage height-percentage dest-image-name " +
@@ -214,6 +455,11 @@ public class ImageProcessingControllerImpl implements
             "and height percentage to the image with the given name, " +
             "and refers to it by the given destination name.)" +
             System.lineSeparator());
+    write("DOWNSCALE-FILTERED image-name filter width-percentage height-percentage " +
+            "dest-image-name (creates a new image that has been downscaled like DOWNSCALE, " +
+            "computing the new pixels with the box, bilinear, or lanczos filter, " +
+            "and refers to it by the given destination name.)" +
+            System.lineSeparator());
 
   }
 }
@@ -0,0 +1,152 @@
+package controller;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.function.Function;
+
+import view.ImageProcessingView;
+
+/**
+ * Represents a controller that streams one image from a file to another a band of rows at a
+ * time, applying a list of commands on the way, so that images too large for the heap can be
+ * processed. The script lists the commands and their arguments without image names, so that
+ *
+ * <pre>
+ * filter sharpen
+ * brighten 10
+ * vertical-flip
+ * q
+ * </pre>
+ *
+ * <p>sharpens, brightens, and vertically flips the image. The script ends with q or when the
+ * input runs out. Images are read from PPM files, or any other format ImageIO can read, and
+ * written to binary PPM files. The output file is only replaced once the whole image has been
+ * written, so it may be the input file, and a failed stream leaves it as it was.
+ *
+ * <p>Commands that work on bands (brighten, darken, greyscale, color transformations, horizontal
+ * flips, and filters) are applied as the image streams through; the others spill the image to
+ * a temporary file first, as described in BandPipeline.
+ */
+public class ImageProcessingControllerStream implements ImageProcessingController {
+
+  private final Readable script;
+  private final String inputFile;
+  private final String outputFile;
+  private final ImageProcessingView view;
+  private final int bandRows;
+
+  /**
+   * Constructs the streaming controller given the script listing the commands, the image to read
+   * and the file to write it to, the view reporting the result, and the number of rows streamed
+   * at once.
+   *
+   * @param script     the commands to apply.
+   * @param inputFile  the image file to read.
+   * @param outputFile the PPM file to write.
+   * @param view       the view reporting the result.
+   * @param bandRows   the number of rows processed at once.
+   * @throws IllegalArgumentException if any of the givens are null, the output is not a PPM file,
+   *                                  or the number of rows is not positive.
+   */
+  public ImageProcessingControllerStream(Readable script, String inputFile, String outputFile,
+                                         ImageProcessingView view, int bandRows)
+          throws IllegalArgumentException {
+    if (script == null || inputFile == null || outputFile == null || view == null) {
+      throw new IllegalArgumentException("script, files, or view is null");
+    }
+    if (!outputFile.toLowerCase().endsWith(".ppm")) {
+      throw new IllegalArgumentException("streamed images can only be saved as PPM files");
+    }
+    if (bandRows < 1) {
+      throw new IllegalArgumentException("bands must have rows");
+    }
+    this.script = script;
+    this.inputFile = inputFile;
+    this.outputFile = outputFile;
+    this.view = view;
+    this.bandRows = bandRows;
+  }
+
+  @Override
+  public void runProgram() throws IllegalStateException {
+    Scanner scanner = new Scanner(this.script);
+    Map<String, Function<Scanner, ImageOperationCommand>> knownCommands =
+            ImageProcessingControllerImpl.knownCommands();
+
+    List<ImageOperationCommand> commands = new ArrayList<>();
+    while (scanner.hasNext()) {
+      String name = scanner.next();
+      if (name.equals("q")) {
+        break;
+      }
+      Function<Scanner, ImageOperationCommand> command = knownCommands.get(name);
+      if (command == null) {
+        write("Command " + name + " does not exist!" + System.lineSeparator());
+        return;
+      }
+      try {
+        commands.add(command.apply(scanner));
+      } catch (IllegalArgumentException | NoSuchElementException e) {
+        write("Command " + name + " failed!" + System.lineSeparator());
+        return;
+      }
+    }
+
+    BandPipeline pipeline;
+    try {
+      pipeline = new BandPipeline(commands, bandRows);
+    } catch (IllegalArgumentException e) {
+      write("Command failed! " + e.getMessage() + System.lineSeparator());
+      return;
+    }
+
+    long start = System.nanoTime();
+    int spills;
+    //the source is closed before the sink moves the finished image over the output file, which
+    //may be the input file itself
+    try (BandSink sink = new PPMBandSink(outputFile);
+         BandSource source = open(inputFile)) {
+      spills = pipeline.run(source, sink);
+    } catch (IOException e) {
+      write("Streaming failed: " + e.getMessage() + System.lineSeparator());
+      return;
+    } catch (IllegalArgumentException e) {
+      write("Command failed! " + e.getMessage() + System.lineSeparator());
+      return;
+    }
+    long millis = (System.nanoTime() - start) / 1_000_000;
+    String spilled = spills == 1 ? " (1 spill to disk)" : " (" + spills + " spills to disk)";
+    write(inputFile + " streamed to " + outputFile + ": " + millis + " ms"
+            + (spills == 0 ? "" : spilled) + System.lineSeparator());
+  }
+
+  /**
+   * Opens the given image file as a source of bands, reading PPM files directly and any other
+   * format through ImageIO.
+   */
+  private static BandSource open(String fileName) throws IOException {
+    if (fileName.toLowerCase().endsWith(".ppm")) {
+      return new PPMBandSource(fileName);
+    }
+    return new ImageIOBandSource(fileName);
+  }
+
+  /**
+   * Renders the given message in this program's view and throws
+   * an error if there are any problems in the process.
+   *
+   * @param message the given message to render.
+   * @throws IllegalStateException if there is an IOException thrown while rendering.
+   */
+  private void write(String message) throws IllegalStateException {
+    try {
+      view.renderMessage(message);
+    } catch (IOException e) {
+      throw new IllegalStateException();
+    }
+  }
+}
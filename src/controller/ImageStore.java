@@ -0,0 +1,36 @@
+package controller;
+
+import model.ImageProcessingModel;
+
+/**
+ * Represents where the images of this program are kept, by the names the user refers to them
+ * by. Every image is kept with an alpha that it is saved with if it has no alpha channel of its
+ * own. Implementations may be used by several threads at once.
+ */
+public interface ImageStore {
+  /**
+   * Gets the image with the given name.
+   *
+   * @param name the name of the image.
+   * @return the image with the given name, or null if there is none.
+   */
+  ImageProcessingModel get(String name);
+
+  /**
+   * Gets the alpha of the image with the given name.
+   *
+   * @param name the name of the image.
+   * @return the alpha the image was stored with, or 255 if there is no such image.
+   */
+  int getAlpha(String name);
+
+  /**
+   * Stores the given image under the given name, replacing any image with that name.
+   *
+   * @param name  the name of the image.
+   * @param image the image to store.
+   * @param alpha the alpha to save the image with, between 0 and 255.
+   * @throws IllegalArgumentException if the name or image is null, or the alpha is out of range.
+   */
+  void put(String name, ImageProcessingModel image, int alpha) throws IllegalArgumentException;
+}
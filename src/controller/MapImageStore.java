@@ -0,0 +1,77 @@
+package controller;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import model.ImageProcessingModel;
+
+/**
+ * Represents a store keeping every image in memory. Each image is kept together with its alpha
+ * as a single entry, so that storing two images under the same name at once can never leave one
+ * of them with the other's alpha. The map given by the caller is updated as images are stored,
+ * so the caller can look images up in it directly, and images the store has not stored under a
+ * name are read from it, with an alpha of 255.
+ *
+ * <p>Entries are kept in a ConcurrentHashMap, so threads reading and storing images never wait
+ * for each other. A map given by the caller that is not concurrent is synchronized.
+ */
+public final class MapImageStore implements ImageStore {
+
+  /**
+   * Represents an image of this store together with the alpha it is saved with.
+   */
+  private static final class Entry {
+    private final ImageProcessingModel image;
+    private final int alpha;
+
+    private Entry(ImageProcessingModel image, int alpha) {
+      this.image = image;
+      this.alpha = alpha;
+    }
+  }
+
+  private final Map<String, ImageProcessingModel> images;
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a store keeping its images in the given map.
+   *
+   * @param images the map holding the images, which may already hold some.
+   * @throws IllegalArgumentException if the map is null.
+   */
+  public MapImageStore(Map<String, ImageProcessingModel> images)
+          throws IllegalArgumentException {
+    if (images == null) {
+      throw new IllegalArgumentException("map cannot be null");
+    }
+    this.images = images instanceof ConcurrentMap ? images : Collections.synchronizedMap(images);
+  }
+
+  @Override
+  public ImageProcessingModel get(String name) {
+    Entry entry = entries.get(name);
+    return entry == null ? images.get(name) : entry.image;
+  }
+
+  @Override
+  public int getAlpha(String name) {
+    Entry entry = entries.get(name);
+    return entry == null ? 255 : entry.alpha;
+  }
+
+  @Override
+  public void put(String name, ImageProcessingModel image, int alpha)
+          throws IllegalArgumentException {
+    if (name == null || image == null || alpha < 0 || alpha > 255) {
+      throw new IllegalArgumentException("invalid image to store");
+    }
+    Entry stored = new Entry(image, alpha);
+    //the caller's map is updated while the entry is held, so both end up with the same image
+    entries.compute(name, (key, old) -> {
+      images.put(key, image);
+      return stored;
+    });
+  }
+}
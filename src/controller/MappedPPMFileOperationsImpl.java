@@ -0,0 +1,255 @@
+package controller;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import model.ImageProcessingModel;
+import model.MappedImage;
+
+/**
+ * Represents the operations to convert between a binary (P6) PPM file and image by mapping the
+ * file into memory, so that large images are never copied onto the heap. Loaded images are
+ * MappedImages reading their pixels from the mapped file, and saved images are written into a
+ * mapped output file. Plain (P3) files cannot be mapped and are loaded by PPMFileOperationsImpl.
+ *
+ * <p>The operations can be given a size below which files and images are small enough to read
+ * onto the heap: smaller files are then loaded, and smaller images saved as plain files, by
+ * PPMFileOperationsImpl. The controllers load and save every PPM file this way, so that only
+ * large files are mapped.
+ */
+public class MappedPPMFileOperationsImpl implements FileOperations {
+
+  private static final long MAX_CHUNK_BYTES = 1 << 30;
+  //the size of the files and images the controllers map, about 2.8 megapixels
+  private static final long CONTROLLER_MAPPED_BYTES = 8L << 20;
+
+  private final ImageStore images;
+  private final long maxChunkBytes;
+  private final long minMappedBytes;
+
+  /**
+   * Creates the mapped PPM file operations for the images in the given store, mapping files in
+   * regions of up to 1 GiB.
+   *
+   * @param images the store images are loaded into and saved from.
+   * @throws IllegalArgumentException if the store is null.
+   */
+  public MappedPPMFileOperationsImpl(ImageStore images) throws IllegalArgumentException {
+    this(images, MAX_CHUNK_BYTES);
+  }
+
+  /**
+   * Creates the mapped PPM file operations for the images in the given store, mapping files in
+   * regions of up to the given size. Each region holds whole rows, so a region can be larger
+   * than this when a single row is.
+   *
+   * @param images        the store images are loaded into and saved from.
+   * @param maxChunkBytes the largest number of bytes to map at once.
+   * @throws IllegalArgumentException if the store is null, or the size is not positive or is
+   *                                  above 1 GiB.
+   */
+  public MappedPPMFileOperationsImpl(ImageStore images, long maxChunkBytes)
+          throws IllegalArgumentException {
+    this(images, maxChunkBytes, 0);
+  }
+
+  /**
+   * Creates the mapped PPM file operations for the images in the given store, mapping files in
+   * regions of up to the given size, and only mapping files and images of at least the given
+   * number of bytes. Smaller binary files are read onto the heap, and smaller images are saved
+   * as plain files, as PPMFileOperationsImpl does by default.
+   *
+   * @param images         the store images are loaded into and saved from.
+   * @param maxChunkBytes  the largest number of bytes to map at once.
+   * @param minMappedBytes the size of the smallest file to map when loading, and of the samples
+   *                       of the smallest image to save to a mapped file.
+   * @throws IllegalArgumentException if the store is null, the chunk size is not positive or is
+   *                                  above 1 GiB, or the smallest size is negative.
+   */
+  public MappedPPMFileOperationsImpl(ImageStore images, long maxChunkBytes, long minMappedBytes)
+          throws IllegalArgumentException {
+    if (images == null) {
+      throw new IllegalArgumentException("image store cannot be null");
+    }
+    if (maxChunkBytes < 1 || maxChunkBytes > MAX_CHUNK_BYTES) {
+      throw new IllegalArgumentException("chunk size must be between 1 byte and 1 GiB");
+    }
+    if (minMappedBytes < 0) {
+      throw new IllegalArgumentException("smallest mapped size cannot be negative");
+    }
+    this.images = images;
+    this.maxChunkBytes = maxChunkBytes;
+    this.minMappedBytes = minMappedBytes;
+  }
+
+  /**
+   * Creates the PPM file operations the controllers use for the images in the given store,
+   * which map binary files and images of at least 8 MiB and read smaller ones onto the heap.
+   */
+  static MappedPPMFileOperationsImpl forControllers(ImageStore images) {
+    return new MappedPPMFileOperationsImpl(images, MAX_CHUNK_BYTES, CONTROLLER_MAPPED_BYTES);
+  }
+
+  /**
+   * Gets the number of rows of the given size to map at once.
+   */
+  private static int rowsPerChunk(long rowBytes, long maxChunkBytes) {
+    return (int) Math.max(1, maxChunkBytes / Math.max(1, rowBytes));
+  }
+
+  /**
+   * Maps the given PPM file into memory as an image that the user can refer to by the given name.
+   *
+   * @param fileName  the PPM file to map.
+   * @param imageName the name the user can use to refer to the produced image.
+   * @throws FileNotFoundException if the given file doesn't exist or is not a valid PPM file
+   */
+  @Override
+  public void load(String fileName, String imageName) throws FileNotFoundException {
+    MappedImage image = null;
+
+    try (FileChannel file = FileChannel.open(Paths.get(fileName))) {
+      PPMTokenizer tokens = new PPMTokenizer(file);
+      String magic = tokens.nextMagic();
+      if (!magic.equals("P3") && !magic.equals("P6")) {
+        throw new IOException("unsupported PPM format " + magic);
+      }
+      if (magic.equals("P6") && file.size() >= minMappedBytes) {
+        image = map(file, tokens, maxChunkBytes);
+      }
+    } catch (NoSuchFileException e) {
+      throw new FileNotFoundException("File " + fileName + " not found!");
+    } catch (IOException | IllegalArgumentException e) {
+      throw new FileNotFoundException("File " + fileName + " is not a valid PPM file: "
+              + e.getMessage());
+    }
+
+    if (image == null) {
+      new PPMFileOperationsImpl(images).load(fileName, imageName);
+      return;
+    }
+    images.put(imageName, image, 255);
+  }
+
+  /**
+   * Maps the given binary PPM file into memory as an image, in regions of up to 1 GiB. The image
+   * stays readable after the file is closed.
+   */
+  static MappedImage map(String fileName) throws IOException {
+    try (FileChannel file = FileChannel.open(Paths.get(fileName))) {
+      PPMTokenizer tokens = new PPMTokenizer(file);
+      if (!tokens.nextMagic().equals("P6")) {
+        throw new IOException("only binary PPM files can be mapped");
+      }
+      return map(file, tokens, MAX_CHUNK_BYTES);
+    }
+  }
+
+  /**
+   * Maps the samples of the binary PPM file whose magic number the given tokenizer has read.
+   */
+  private static MappedImage map(FileChannel file, PPMTokenizer tokens, long maxChunkBytes)
+          throws IOException {
+    int imageWidth = tokens.nextInt();
+    int imageHeight = tokens.nextInt();
+    int maxValue = tokens.nextInt();
+    if (maxValue < 1 || maxValue > 65535) {
+      throw new IOException("invalid PPM header");
+    }
+
+    long rowBytes = (long) imageWidth * 3 * (maxValue > 255 ? 2 : 1);
+    long offset = tokens.position();
+    if (offset + rowBytes * imageHeight > file.size()) {
+      throw new IOException("unexpected end of file");
+    }
+    int rowsPerChunk = rowsPerChunk(rowBytes, maxChunkBytes);
+    ByteBuffer[] chunks = new ByteBuffer[(imageHeight + rowsPerChunk - 1) / rowsPerChunk];
+    for (int c = 0; c < chunks.length; c++) {
+      int rows = Math.min(rowsPerChunk, imageHeight - c * rowsPerChunk);
+      chunks[c] = file.map(FileChannel.MapMode.READ_ONLY,
+              offset + c * rowsPerChunk * rowBytes, rows * rowBytes);
+    }
+    return new MappedImage(chunks, rowsPerChunk, imageWidth, imageHeight, maxValue);
+  }
+
+  /**
+   * Writes an image referred to by a given name to a binary PPM file by mapping the file into
+   * memory and copying the image into it row by row. The image is written to a temporary file
+   * next to the given one, which then replaces it, so an image mapped from the file it is saved
+   * to keeps reading the old file while it is saved. An image whose samples take fewer bytes
+   * than the smallest mapped size is saved as a plain file instead.
+   *
+   * @param fileName  the name of the PPM file where the given image will be saved.
+   * @param imageName the name the user uses to refer to the image they want to save.
+   * @throws RuntimeException if transmission to file fails
+   */
+  @Override
+  public void save(String fileName, String imageName) throws RuntimeException {
+    ImageProcessingModel curr = images.get(imageName);
+    int imageWidth = curr.getImageWidth();
+    int imageHeight = curr.getImageHeight();
+    if ((long) imageWidth * imageHeight * 3 < minMappedBytes) {
+      new PPMFileOperationsImpl(images).save(fileName, imageName);
+      return;
+    }
+    byte[] header = ("P6\n" + imageWidth + " " + imageHeight + "\n255\n")
+            .getBytes(StandardCharsets.US_ASCII);
+    long rowBytes = (long) imageWidth * 3;
+    Path target = Paths.get(fileName).toAbsolutePath();
+    Path written;
+    try {
+      written = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+    } catch (IOException e) {
+      throw new RuntimeException("Error occurred in writing the file");
+    }
+
+    boolean moved = false;
+    try {
+      try (FileChannel file = FileChannel.open(written, StandardOpenOption.READ,
+              StandardOpenOption.WRITE)) {
+        file.write(ByteBuffer.wrap(header));
+
+        int rowsPerChunk = rowsPerChunk(rowBytes, maxChunkBytes);
+        int[] row = new int[imageWidth];
+        byte[] samples = new byte[(int) rowBytes];
+        for (int first = 0; first < imageHeight; first += rowsPerChunk) {
+          int rows = Math.min(rowsPerChunk, imageHeight - first);
+          MappedByteBuffer out = file.map(FileChannel.MapMode.READ_WRITE,
+                  header.length + first * rowBytes, rows * rowBytes);
+          for (int h = first; h < first + rows; h++) {
+            curr.getPackedRow(h, row);
+            for (int w = 0; w < imageWidth; w++) {
+              samples[w * 3] = (byte) (row[w] >> 16);
+              samples[w * 3 + 1] = (byte) (row[w] >> 8);
+              samples[w * 3 + 2] = (byte) row[w];
+            }
+            out.put(samples);
+          }
+        }
+      }
+      Files.move(written, target, StandardCopyOption.REPLACE_EXISTING);
+      moved = true;
+    } catch (IOException e) {
+      throw new RuntimeException("Error occurred in writing the file");
+    } finally {
+      //whatever stopped the image from being written, the partial file is not left behind
+      if (!moved) {
+        try {
+          Files.deleteIfExists(written);
+        } catch (IOException e) {
+          //the original error is the one worth reporting
+        }
+      }
+    }
+  }
+}
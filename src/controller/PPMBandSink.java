@@ -0,0 +1,113 @@
+package controller;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Represents a binary (P6) PPM file with a maximum value of 255 written a band of rows at a time
+ * through a buffer, so only the rows being written are ever held.
+ *
+ * <p>The rows are written to a temporary file next to the PPM file, which replaces it only once
+ * every row of the image has been written. An image that fails part way through leaves any file
+ * already there untouched, even when that file is the one the image is being read from.
+ */
+public class PPMBandSink implements BandSink {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final Path target;
+  private final Path written;
+  private final FileChannel file;
+  private final ByteBuffer out;
+  private int imageWidth;
+  private int rowsLeft = -1;
+
+  /**
+   * Starts writing the given PPM file, which replaces any file already there once the whole
+   * image has been written.
+   *
+   * @param fileName the PPM file to write.
+   * @throws IOException if the temporary file cannot be created.
+   */
+  public PPMBandSink(String fileName) throws IOException {
+    this.target = Paths.get(fileName).toAbsolutePath();
+    this.written = Files.createTempFile(target.getParent(), target.getFileName().toString(),
+            ".tmp");
+    try {
+      this.file = FileChannel.open(written, StandardOpenOption.WRITE);
+    } catch (IOException e) {
+      Files.deleteIfExists(written);
+      throw e;
+    }
+    this.out = ByteBuffer.allocate(BUFFER_SIZE);
+  }
+
+  @Override
+  public void start(int imageWidth, int imageHeight) throws IOException {
+    if (rowsLeft >= 0) {
+      throw new IOException("image already started");
+    }
+    this.imageWidth = imageWidth;
+    this.rowsLeft = imageHeight;
+    out.put(("P6\n" + imageWidth + " " + imageHeight + "\n255\n")
+            .getBytes(StandardCharsets.US_ASCII));
+  }
+
+  @Override
+  public void writeRows(int rows, int[] pixels, int offset)
+          throws IOException, IllegalArgumentException {
+    if (rows < 0 || rows > rowsLeft) {
+      throw new IllegalArgumentException("invalid number of rows");
+    }
+    for (int i = offset; i < offset + rows * imageWidth; i++) {
+      if (out.remaining() < 3) {
+        flush();
+      }
+      out.put((byte) (pixels[i] >> 16));
+      out.put((byte) (pixels[i] >> 8));
+      out.put((byte) pixels[i]);
+    }
+    rowsLeft -= rows;
+  }
+
+  private void flush() throws IOException {
+    out.flip();
+    while (out.hasRemaining()) {
+      file.write(out);
+    }
+    out.clear();
+  }
+
+  /**
+   * Finishes the PPM file, replacing the given file with it if every row of the image was
+   * written, and otherwise discarding it.
+   *
+   * @throws IOException if the file cannot be written or moved into place.
+   */
+  @Override
+  public void close() throws IOException {
+    boolean moved = false;
+    try {
+      try {
+        flush();
+      } finally {
+        file.close();
+      }
+      if (rowsLeft == 0) {
+        Files.move(written, target, StandardCopyOption.REPLACE_EXISTING);
+        moved = true;
+      }
+    } finally {
+      if (!moved) {
+        Files.deleteIfExists(written);
+      }
+    }
+  }
+}
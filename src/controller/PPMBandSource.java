@@ -0,0 +1,76 @@
+package controller;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+
+/**
+ * Represents a PPM file read a band of rows at a time. Both the plain (P3) and binary (P6)
+ * formats can be read, with any maximum value up to 65535; samples are scaled to the 0 to 255
+ * range of the model. The file is read once, front to back, through a buffer, so only the rows
+ * being read are ever held.
+ */
+public class PPMBandSource implements BandSource {
+
+  private final PPMTokenizer tokens;
+  private final boolean binary;
+  private final int imageWidth;
+  private final int imageHeight;
+  private final int maxValue;
+  private int rowsRead;
+
+  /**
+   * Opens the given PPM file and reads its header.
+   *
+   * @param fileName the PPM file to read.
+   * @throws IOException if the file cannot be opened or is not a valid PPM file.
+   */
+  public PPMBandSource(String fileName) throws IOException {
+    this.tokens = new PPMTokenizer(FileChannel.open(Paths.get(fileName)));
+    try {
+      String magic = tokens.nextMagic();
+      if (!magic.equals("P3") && !magic.equals("P6")) {
+        throw new IOException("unsupported PPM format " + magic);
+      }
+      this.binary = magic.equals("P6");
+      this.imageWidth = tokens.nextInt();
+      this.imageHeight = tokens.nextInt();
+      this.maxValue = tokens.nextInt();
+      if (maxValue < 1 || maxValue > 65535) {
+        throw new IOException("invalid PPM header");
+      }
+    } catch (IOException e) {
+      tokens.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public int getImageWidth() {
+    return imageWidth;
+  }
+
+  @Override
+  public int getImageHeight() {
+    return imageHeight;
+  }
+
+  @Override
+  public void readRows(int rows, int[] pixels, int offset)
+          throws IOException, IllegalArgumentException {
+    if (rows < 0 || rows > imageHeight - rowsRead) {
+      throw new IllegalArgumentException("invalid number of rows");
+    }
+    if (binary) {
+      PPMFileOperationsImpl.readBinary(tokens, imageWidth, rows, maxValue, pixels, offset);
+    } else {
+      PPMFileOperationsImpl.readPlain(tokens, rows * imageWidth, maxValue, pixels, offset);
+    }
+    rowsRead += rows;
+  }
+
+  @Override
+  public void close() throws IOException {
+    tokens.close();
+  }
+}
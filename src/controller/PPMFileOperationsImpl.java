@@ -1,70 +1,166 @@
 package controller;
 
-import java.io.BufferedWriter;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.Scanner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
-import model.ImageGrid;
-import model.RGB;
+import model.ImageProcessingModel;
+import model.PackedImage;
 
 /**
- * Represents the operations to convert between a PPM file and image.
+ * Represents the operations to convert between a PPM file and image. Both the plain (P3) and
+ * binary (P6) formats can be loaded, with any maximum value up to 65535; samples are scaled to
+ * the 0 to 255 range of the model. Files are read and written through a buffer one row at a time.
  */
 public class PPMFileOperationsImpl implements FileOperations {
 
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int MAX_SAMPLE_LENGTH = 6;
+
+  private final ImageStore images;
+  private final boolean binary;
+  private final int maxValue;
+
+  /**
+   * Creates the PPM file operations for the images in the given store, saving images as plain
+   * (P3) files with a maximum value of 255.
+   *
+   * @param images the store images are loaded into and saved from.
+   * @throws IllegalArgumentException if the store is null.
+   */
+  public PPMFileOperationsImpl(ImageStore images) throws IllegalArgumentException {
+    this(images, false, 255);
+  }
+
+  /**
+   * Creates the PPM file operations for the images in the given store, saving images in the
+   * given format with the given maximum value. A maximum value above 255 saves two bytes per
+   * sample in the binary format.
+   *
+   * @param images   the store images are loaded into and saved from.
+   * @param binary   true to save binary (P6) files, and false to save plain (P3) files.
+   * @param maxValue the maximum value written to saved files, between 1 and 65535.
+   * @throws IllegalArgumentException if the store is null or the maximum value is out of range.
+   */
+  public PPMFileOperationsImpl(ImageStore images, boolean binary, int maxValue)
+          throws IllegalArgumentException {
+    if (images == null) {
+      throw new IllegalArgumentException("image store cannot be null");
+    }
+    if (maxValue < 1 || maxValue > 65535) {
+      throw new IllegalArgumentException("maximum value must be between 1 and 65535");
+    }
+    this.images = images;
+    this.binary = binary;
+    this.maxValue = maxValue;
+  }
+
   /**
    * Translates the given PPM file to an image that the user can refer to by the given name.
    *
    * @param fileName  the PPM file to translate to an image.
    * @param imageName the name the user can use to refer to the produced image.
-   * @throws FileNotFoundException if the given file doesn't exist
+   * @throws FileNotFoundException if the given file doesn't exist or is not a valid PPM file
    */
   public void load(String fileName, String imageName) throws FileNotFoundException {
-
-    RGB[][] pixelGrid;
-    int maxValue;
+    int[] pixels;
     int imageWidth;
     int imageHeight;
 
-    Scanner sc;
+    try (PPMTokenizer tokens = new PPMTokenizer(FileChannel.open(Paths.get(fileName)))) {
+      String magic = tokens.nextMagic();
+      if (!magic.equals("P3") && !magic.equals("P6")) {
+        throw new IOException("unsupported PPM format " + magic);
+      }
+      imageWidth = tokens.nextInt();
+      imageHeight = tokens.nextInt();
+      int fileMaxValue = tokens.nextInt();
+      if (fileMaxValue < 1 || fileMaxValue > 65535
+              || (long) imageWidth * imageHeight > Integer.MAX_VALUE) {
+        throw new IOException("invalid PPM header");
+      }
+      pixels = new int[imageWidth * imageHeight];
 
-    try {
-      sc = new Scanner(new FileInputStream(fileName));
-    } catch (FileNotFoundException e) {
+      if (magic.equals("P3")) {
+        readPlain(tokens, pixels.length, fileMaxValue, pixels, 0);
+      } else {
+        readBinary(tokens, imageWidth, imageHeight, fileMaxValue, pixels, 0);
+      }
+    } catch (NoSuchFileException | FileNotFoundException e) {
       throw new FileNotFoundException("File " + fileName + " not found!");
+    } catch (IOException e) {
+      throw new FileNotFoundException("File " + fileName + " is not a valid PPM file: "
+              + e.getMessage());
     }
-    StringBuilder builder = new StringBuilder();
-    //read the file line by line, and populate a string. This will throw away any comment lines
-    while (sc.hasNextLine()) {
-      String s = sc.nextLine();
-      if (s.charAt(0) != '#') {
-        builder.append(s + System.lineSeparator());
-      }
+
+    images.put(imageName,
+            new PackedImage(imageWidth, imageHeight, pixels), 255);
+  }
+
+  /**
+   * Reads the given number of pixels of a plain file into the given array in 0xRRGGBB form,
+   * starting at the given offset.
+   */
+  static void readPlain(PPMTokenizer tokens, int count, int fileMaxValue, int[] pixels,
+                        int offset) throws IOException {
+    for (int i = offset; i < offset + count; i++) {
+      int r = tokens.nextInt();
+      int g = tokens.nextInt();
+      int b = tokens.nextInt();
+      pixels[i] = PackedImage.pack(toModel(r, fileMaxValue), toModel(g, fileMaxValue),
+              toModel(b, fileMaxValue));
     }
+  }
 
-    //now set up the scanner to read from the string we just built
-    sc = new Scanner(builder.toString());
-
-    String token = sc.next();
-    imageWidth = sc.nextInt();
-    imageHeight = sc.nextInt();
-    maxValue = sc.nextInt();
-    pixelGrid = new RGB[imageHeight][imageWidth];
-
-    for (int i = 0; i < imageHeight; i++) {
-      for (int j = 0; j < imageWidth; j++) {
-        int r = sc.nextInt();
-        int g = sc.nextInt();
-        int b = sc.nextInt();
-        pixelGrid[i][j] = new RGB(r, g, b);
+  /**
+   * Reads the given number of rows of a binary file into the given array in 0xRRGGBB form,
+   * starting at the given offset.
+   */
+  static void readBinary(PPMTokenizer tokens, int imageWidth, int rows, int fileMaxValue,
+                         int[] pixels, int offset) throws IOException {
+    int bytesPerSample = fileMaxValue > 255 ? 2 : 1;
+    byte[] row = new byte[imageWidth * 3 * bytesPerSample];
+    int[] samples = new int[3];
+    for (int h = 0; h < rows; h++) {
+      tokens.readFully(row, row.length);
+      for (int w = 0; w < imageWidth; w++) {
+        for (int c = 0; c < 3; c++) {
+          int at = (w * 3 + c) * bytesPerSample;
+          int sample = bytesPerSample == 1 ? row[at] & 0xFF
+                  : (row[at] & 0xFF) << 8 | (row[at + 1] & 0xFF);
+          samples[c] = toModel(sample, fileMaxValue);
+        }
+        pixels[offset + h * imageWidth + w] =
+                PackedImage.pack(samples[0], samples[1], samples[2]);
       }
     }
+  }
 
-    ImageProcessingControllerImpl.listOfAlpha.put(imageName, 255);
-    ImageProcessingControllerImpl.listOfImages.put(imageName, new ImageGrid(pixelGrid));
+  /**
+   * Scales a sample with the given maximum value to the range of the model, rounding to the
+   * nearest value.
+   */
+  private static int toModel(int sample, int fileMaxValue) {
+    if (fileMaxValue == 255) {
+      return sample;
+    }
+    return (int) ((sample * 255L + fileMaxValue / 2) / fileMaxValue);
+  }
+
+  /**
+   * Scales a channel of the model to a sample with this file's maximum value, rounding to the
+   * nearest value.
+   */
+  private int toFile(int channel) {
+    if (maxValue == 255) {
+      return channel;
+    }
+    return (channel * maxValue + 127) / 255;
   }
 
   /**
@@ -75,35 +171,75 @@ public class PPMFileOperationsImpl implements FileOperations {
    * @throws RuntimeException if transmission to file fails
    */
   public void save(String fileName, String imageName) throws RuntimeException {
-
-    //create the file
-    try {
-      BufferedWriter file = new BufferedWriter(new FileWriter(fileName));
-      StringBuilder txt = new StringBuilder();
-      //ppm file token
-      txt.append("P3\n");
-
-      ImageGrid curr = (ImageGrid) ImageProcessingControllerImpl.listOfImages.get(imageName);
-      //the file values
-      txt.append("" + curr.getImageWidth());
-      txt.append(" " + curr.getImageHeight() + "\n");
-      txt.append("" + curr.getMaxValue());
-
-      RGB[][] g = curr.getGrid();
-
-      for (int i = 0; i < curr.getImageHeight(); i++) {
-        for (int j = 0; j < curr.getImageWidth(); j++) {
-          txt.append("\n" + g[i][j].getRed());
-          txt.append("\n" + g[i][j].getGreen());
-          txt.append("\n" + g[i][j].getBlue());
+    ImageProcessingModel curr = images.get(imageName);
+    int imageWidth = curr.getImageWidth();
+    int imageHeight = curr.getImageHeight();
+
+    try (FileChannel file = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+      String header = binary
+              ? "P6\n" + imageWidth + " " + imageHeight + "\n" + maxValue + "\n"
+              : "P3\n" + imageWidth + " " + imageHeight + "\n" + maxValue;
+      out.put(header.getBytes(StandardCharsets.US_ASCII));
+
+      int[] row = new int[imageWidth];
+      for (int i = 0; i < imageHeight; i++) {
+        curr.getPackedRow(i, row);
+        for (int j = 0; j < imageWidth; j++) {
+          if (out.remaining() < 3 * MAX_SAMPLE_LENGTH) {
+            flush(file, out);
+          }
+          putSample(out, toFile((row[j] >> 16) & 0xFF));
+          putSample(out, toFile((row[j] >> 8) & 0xFF));
+          putSample(out, toFile(row[j] & 0xFF));
+        }
+      }
+      if (!binary) {
+        if (!out.hasRemaining()) {
+          flush(file, out);
         }
+        out.put((byte) '\n');
       }
-      txt.append("\n");
-      file.write(txt.toString());
-      file.close();
+      flush(file, out);
     } catch (IOException e) {
       throw new RuntimeException("Error occurred in writing the file");
     }
   }
 
+  /**
+   * Writes one sample: two bytes or one byte in the binary format, and a new line followed by the
+   * decimal digits in the plain format.
+   */
+  private void putSample(ByteBuffer out, int sample) {
+    if (binary) {
+      if (maxValue > 255) {
+        out.put((byte) (sample >> 8));
+      }
+      out.put((byte) sample);
+      return;
+    }
+    out.put((byte) '\n');
+    if (sample >= 10000) {
+      out.put((byte) ('0' + sample / 10000));
+    }
+    if (sample >= 1000) {
+      out.put((byte) ('0' + sample / 1000 % 10));
+    }
+    if (sample >= 100) {
+      out.put((byte) ('0' + sample / 100 % 10));
+    }
+    if (sample >= 10) {
+      out.put((byte) ('0' + sample / 10 % 10));
+    }
+    out.put((byte) ('0' + sample % 10));
+  }
+
+  private static void flush(FileChannel file, ByteBuffer out) throws IOException {
+    out.flip();
+    while (out.hasRemaining()) {
+      file.write(out);
+    }
+    out.clear();
+  }
 }
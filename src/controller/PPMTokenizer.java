@@ -0,0 +1,142 @@
+package controller;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads the tokens and binary samples of a PPM file from a channel through a reusable buffer,
+ * one byte at a time, without building strings for the numbers. Comments start with '#' and run
+ * to the end of the line.
+ */
+final class PPMTokenizer implements Closeable {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final ReadableByteChannel channel;
+  private final ByteBuffer buffer;
+  private long filled;
+
+  /**
+   * Creates the tokenizer reading from the given channel.
+   */
+  PPMTokenizer(ReadableByteChannel channel) {
+    this.channel = channel;
+    this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    this.buffer.flip();
+  }
+
+  /**
+   * Reads the next byte, or returns -1 at the end of the channel.
+   */
+  private int read() throws IOException {
+    if (!buffer.hasRemaining()) {
+      buffer.clear();
+      int count;
+      do {
+        count = channel.read(buffer);
+      } while (count == 0);
+      buffer.flip();
+      if (count < 0) {
+        return -1;
+      }
+      filled += count;
+    }
+    return buffer.get() & 0xFF;
+  }
+
+  private static boolean isWhitespace(int c) {
+    return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f' || c == 0x0B;
+  }
+
+  /**
+   * Skips whitespace and comments, returning the first byte of the next token, or -1 at the end
+   * of the channel.
+   */
+  private int skipToToken() throws IOException {
+    int c = read();
+    while (true) {
+      if (c == '#') {
+        while (c != '\n' && c != '\r' && c != -1) {
+          c = read();
+        }
+      } else if (isWhitespace(c)) {
+        c = read();
+      } else {
+        return c;
+      }
+    }
+  }
+
+  /**
+   * Reads the two-byte magic number at the start of the file, such as "P3" or "P6".
+   */
+  String nextMagic() throws IOException {
+    int first = skipToToken();
+    int second = read();
+    if (first < 0 || second < 0) {
+      throw new EOFException("missing PPM header");
+    }
+    return "" + (char) first + (char) second;
+  }
+
+  /**
+   * Reads the next non-negative decimal number. The single byte ending the number is consumed,
+   * which in a binary file is the whitespace separating the header from the samples.
+   */
+  int nextInt() throws IOException {
+    int c = skipToToken();
+    if (c < '0' || c > '9') {
+      throw new IOException(c < 0 ? "unexpected end of file" : "expected a number");
+    }
+    int value = 0;
+    while (c >= '0' && c <= '9') {
+      value = value * 10 + (c - '0');
+      if (value < 0) {
+        throw new IOException("number too large");
+      }
+      c = read();
+    }
+    if (c == '#') {
+      while (c != '\n' && c != '\r' && c != -1) {
+        c = read();
+      }
+    } else if (c != -1 && !isWhitespace(c)) {
+      throw new IOException("expected whitespace after a number");
+    }
+    return value;
+  }
+
+  /**
+   * Gets the number of bytes of the channel consumed so far, which after reading the header of a
+   * binary file is the offset of the first sample.
+   */
+  long position() {
+    return filled - buffer.remaining();
+  }
+
+  /**
+   * Reads exactly the given number of bytes into the start of the given array.
+   */
+  void readFully(byte[] bytes, int length) throws IOException {
+    int copied = 0;
+    while (copied < length) {
+      if (!buffer.hasRemaining() && read() >= 0) {
+        buffer.position(buffer.position() - 1);
+      }
+      if (!buffer.hasRemaining()) {
+        throw new EOFException("unexpected end of file");
+      }
+      int count = Math.min(buffer.remaining(), length - copied);
+      buffer.get(bytes, copied, count);
+      copied += count;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,197 @@
+package controller;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+import model.ImageProcessingModel;
+
+/**
+ * Converts between BufferedImages and packed 0xRRGGBB pixels, along with the alpha of each pixel, a
+ * row at a time. The image types used by ImageIO and by this program (int RGB and ARGB, and byte
+ * BGR and ABGR) are read and written straight through their data buffers; any other type goes
+ * through the image's color model one row at a time.
+ */
+final class Rasters {
+
+  private Rasters() {
+  }
+
+  /**
+   * Gets whether the given image stores its pixels in one of the layouts read and written
+   * directly through its data buffer.
+   */
+  private static boolean isDirect(BufferedImage image) {
+    switch (image.getType()) {
+      case BufferedImage.TYPE_INT_RGB:
+      case BufferedImage.TYPE_INT_ARGB:
+        return image.getRaster().getSampleModel() instanceof SinglePixelPackedSampleModel
+                && image.getRaster().getDataBuffer() instanceof DataBufferInt;
+      case BufferedImage.TYPE_3BYTE_BGR:
+      case BufferedImage.TYPE_4BYTE_ABGR:
+        return image.getRaster().getSampleModel() instanceof ComponentSampleModel
+                && image.getRaster().getDataBuffer() instanceof DataBufferByte;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Reads every pixel of the given image into the given array as 0xRRGGBB, row by row, and the
+   * alpha of every pixel into an array of its own. That array is only created once a pixel that
+   * is not fully opaque is found, so opaque images take no memory for their alpha.
+   *
+   * @return the alpha of every pixel, row by row, or null if every pixel is fully opaque.
+   */
+  static byte[] read(BufferedImage image, int[] pixels) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    boolean hasAlpha = image.getColorModel().hasAlpha();
+    byte[] alpha = null;
+    if (width == 0 || height == 0) {
+      return null;
+    }
+    if (!isDirect(image)) {
+      int[] row = new int[width];
+      for (int y = 0; y < height; y++) {
+        image.getRGB(0, y, width, 1, row, 0, width);
+        for (int x = 0; x < width; x++) {
+          pixels[y * width + x] = row[x] & 0xFFFFFF;
+          if (hasAlpha) {
+            alpha = withAlpha(alpha, pixels.length, y * width + x, row[x] >>> 24);
+          }
+        }
+      }
+      return alpha;
+    }
+
+    WritableRaster raster = image.getRaster();
+    int originX = -raster.getSampleModelTranslateX();
+    int originY = -raster.getSampleModelTranslateY();
+
+    if (raster.getDataBuffer() instanceof DataBufferInt) {
+      DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+      int[] data = buffer.getData();
+      int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+      for (int y = 0; y < height; y++) {
+        int at = buffer.getOffset() + (originY + y) * stride + originX;
+        for (int x = 0; x < width; x++) {
+          pixels[y * width + x] = data[at + x] & 0xFFFFFF;
+          if (hasAlpha) {
+            alpha = withAlpha(alpha, pixels.length, y * width + x, data[at + x] >>> 24);
+          }
+        }
+      }
+    } else {
+      DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
+      byte[] data = buffer.getData();
+      ComponentSampleModel model = (ComponentSampleModel) raster.getSampleModel();
+      int stride = model.getScanlineStride();
+      int pixelStride = model.getPixelStride();
+      int[] bands = model.getBandOffsets();
+      for (int y = 0; y < height; y++) {
+        int at = buffer.getOffset() + (originY + y) * stride + originX * pixelStride;
+        for (int x = 0; x < width; x++, at += pixelStride) {
+          pixels[y * width + x] = (data[at + bands[0]] & 0xFF) << 16
+                  | (data[at + bands[1]] & 0xFF) << 8 | (data[at + bands[2]] & 0xFF);
+          if (hasAlpha) {
+            alpha = withAlpha(alpha, pixels.length, y * width + x, data[at + bands[3]] & 0xFF);
+          }
+        }
+      }
+    }
+    return alpha;
+  }
+
+  /**
+   * Records the given alpha of the pixel at the given index, creating the array of alphas, with
+   * every pixel before it fully opaque, if the pixel is the first that is not.
+   *
+   * @return the array of alphas, or null if every pixel so far is fully opaque.
+   */
+  private static byte[] withAlpha(byte[] alpha, int pixels, int index, int value) {
+    if (alpha == null) {
+      if (value == 255) {
+        return null;
+      }
+      alpha = new byte[pixels];
+      Arrays.fill(alpha, 0, index, (byte) 255);
+    }
+    alpha[index] = (byte) value;
+    return alpha;
+  }
+
+  /**
+   * Creates an image of the given type holding the pixels of the given model. If the type has an
+   * alpha channel, each pixel has its own alpha if the model has an alpha channel, and the given
+   * alpha otherwise.
+   *
+   * @throws IllegalArgumentException if the image type is not valid.
+   */
+  static BufferedImage write(ImageProcessingModel model, int imageType, int alpha)
+          throws IllegalArgumentException {
+    int width = model.getImageWidth();
+    int height = model.getImageHeight();
+    BufferedImage image = new BufferedImage(width, height, imageType);
+    int[] row = new int[width];
+    int[] alphas = new int[width];
+    boolean perPixel = model.hasAlpha();
+    Arrays.fill(alphas, alpha);
+
+    if (!isDirect(image)) {
+      for (int y = 0; y < height; y++) {
+        model.getPackedRow(y, row);
+        if (perPixel) {
+          model.getAlphaRow(y, alphas);
+        }
+        for (int x = 0; x < width; x++) {
+          row[x] |= alphas[x] << 24;
+        }
+        image.setRGB(0, y, width, 1, row, 0, width);
+      }
+      return image;
+    }
+
+    WritableRaster raster = image.getRaster();
+    boolean hasAlpha = image.getColorModel().hasAlpha();
+    if (raster.getDataBuffer() instanceof DataBufferInt) {
+      int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+      int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+      for (int y = 0; y < height; y++) {
+        model.getPackedRow(y, row);
+        if (hasAlpha && perPixel) {
+          model.getAlphaRow(y, alphas);
+        }
+        for (int x = 0; x < width; x++) {
+          data[y * stride + x] = hasAlpha ? row[x] | alphas[x] << 24 : row[x];
+        }
+      }
+    } else {
+      byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+      ComponentSampleModel sampleModel = (ComponentSampleModel) raster.getSampleModel();
+      int stride = sampleModel.getScanlineStride();
+      int pixelStride = sampleModel.getPixelStride();
+      int[] bands = sampleModel.getBandOffsets();
+      for (int y = 0; y < height; y++) {
+        model.getPackedRow(y, row);
+        if (hasAlpha && perPixel) {
+          model.getAlphaRow(y, alphas);
+        }
+        int at = y * stride;
+        for (int x = 0; x < width; x++, at += pixelStride) {
+          data[at + bands[0]] = (byte) (row[x] >> 16);
+          data[at + bands[1]] = (byte) (row[x] >> 8);
+          data[at + bands[2]] = (byte) row[x];
+          if (hasAlpha) {
+            data[at + bands[3]] = (byte) alphas[x];
+          }
+        }
+      }
+    }
+    return image;
+  }
+}
@@ -0,0 +1,90 @@
+package controller;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Represents one instruction of a script after it has been read: what it reads and writes, and
+ * the work that runs it. Images are named by the user and files by their paths, so that two
+ * instructions touching different names can run at the same time.
+ */
+final class ScriptInstruction {
+
+  private final Set<String> reads;
+  private final Set<String> writes;
+  private final Supplier<String> action;
+  private final boolean quits;
+
+  private ScriptInstruction(Set<String> reads, Set<String> writes, Supplier<String> action,
+                            boolean quits) {
+    this.reads = reads;
+    this.writes = writes;
+    this.action = action;
+    this.quits = quits;
+  }
+
+  /**
+   * Creates the instruction ending the script.
+   */
+  static ScriptInstruction quit() {
+    return new ScriptInstruction(Collections.emptySet(), Collections.emptySet(), () -> "", true);
+  }
+
+  /**
+   * Creates an instruction that touches nothing and only prints the given message, such as an
+   * unknown command.
+   */
+  static ScriptInstruction message(String message) {
+    return new ScriptInstruction(Collections.emptySet(), Collections.emptySet(), () -> message,
+            false);
+  }
+
+  /**
+   * Creates an instruction reading and writing the given resources, whose action returns the
+   * message it prints (empty if none).
+   */
+  static ScriptInstruction of(String read, String write, Supplier<String> action) {
+    Set<String> reads = new HashSet<>();
+    reads.add(read);
+    Set<String> writes = new HashSet<>();
+    writes.add(write);
+    return new ScriptInstruction(reads, writes, action, false);
+  }
+
+  /**
+   * Gets the name of the resource holding the image with the given name.
+   */
+  static String image(String imageName) {
+    return "image:" + imageName;
+  }
+
+  /**
+   * Gets the name of the resource holding the file with the given name.
+   */
+  static String file(String fileName) {
+    return "file:" + fileName;
+  }
+
+  Set<String> getReads() {
+    return reads;
+  }
+
+  Set<String> getWrites() {
+    return writes;
+  }
+
+  boolean quits() {
+    return quits;
+  }
+
+  /**
+   * Runs this instruction.
+   *
+   * @return the message printed by this instruction, or an empty string if it prints none.
+   */
+  String run() {
+    return action.get();
+  }
+}
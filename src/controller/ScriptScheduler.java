@@ -0,0 +1,71 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Schedules the instructions of a script by the images and files they read and write, so that
+ * instructions on unrelated images run at the same time while every instruction still sees
+ * exactly what it would see if the script ran line by line. An instruction waits for:
+ * <ul>
+ *   <li>the last instruction before it writing anything it reads or writes, and</li>
+ *   <li>every instruction since then reading anything it writes.</li>
+ * </ul>
+ */
+final class ScriptScheduler {
+
+  private ScriptScheduler() {
+  }
+
+  /**
+   * Starts every instruction of the given script on the given executor as soon as the
+   * instructions it depends on have finished. An instruction whose dependency failed with an
+   * exception does not run and fails with the same exception.
+   *
+   * @param script   the instructions, in script order.
+   * @param executor runs the instructions.
+   * @return the messages printed by the instructions, in script order.
+   */
+  static List<CompletableFuture<String>> schedule(List<ScriptInstruction> script,
+                                                  Executor executor) {
+    Map<String, CompletableFuture<String>> lastWriter = new HashMap<>();
+    Map<String, List<CompletableFuture<String>>> readersSinceWrite = new HashMap<>();
+    List<CompletableFuture<String>> results = new ArrayList<>();
+
+    for (ScriptInstruction instruction : script) {
+      List<CompletableFuture<String>> dependencies = new ArrayList<>();
+      for (String read : instruction.getReads()) {
+        addIfPresent(dependencies, lastWriter.get(read));
+      }
+      for (String write : instruction.getWrites()) {
+        addIfPresent(dependencies, lastWriter.get(write));
+        dependencies.addAll(readersSinceWrite.getOrDefault(write, new ArrayList<>()));
+      }
+
+      CompletableFuture<String> result = CompletableFuture
+              .allOf(dependencies.toArray(new CompletableFuture<?>[0]))
+              .thenApplyAsync(ignored -> instruction.run(), executor);
+      results.add(result);
+
+      for (String read : instruction.getReads()) {
+        readersSinceWrite.computeIfAbsent(read, r -> new ArrayList<>()).add(result);
+      }
+      for (String write : instruction.getWrites()) {
+        lastWriter.put(write, result);
+        readersSinceWrite.remove(write);
+      }
+    }
+    return results;
+  }
+
+  private static void addIfPresent(List<CompletableFuture<String>> dependencies,
+                                   CompletableFuture<String> dependency) {
+    if (dependency != null) {
+      dependencies.add(dependency);
+    }
+  }
+}
@@ -1,12 +1,12 @@
 package controller.commands;
 
-import controller.ImageOperationCommand;
+import controller.BandOperation;
 import model.ImageProcessingModel;
 
 /**
  * Represents the commands a user can use to brighten an image through the controller.
  */
-public class Brighten implements ImageOperationCommand {
+public class Brighten implements BandOperation {
   private final int increment;
 
   /**
@@ -29,5 +29,9 @@ public class Brighten implements ImageOperationCommand {
   public ImageProcessingModel executeCommand(ImageProcessingModel model) {
     return model.brighten(this.increment);
   }
-}
 
+  @Override
+  public int getHalo() {
+    return 0;
+  }
+}
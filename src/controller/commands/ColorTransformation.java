@@ -1,14 +1,16 @@
 package controller.commands;
 
-import controller.ImageOperationCommand;
+import controller.BandOperation;
+import model.ColorMatrix;
 import model.ImageProcessingModel;
 
 /**
  * Represents the commands a user can use to change the colors of an image through the controller.
  */
-public class ColorTransformation implements ImageOperationCommand {
+public class ColorTransformation implements BandOperation {
 
   private final String operation;
+  private final ColorMatrix matrix;
 
   /**
    * Gets the color change operation that the user wants to apply.
@@ -17,12 +19,30 @@ public class ColorTransformation implements ImageOperationCommand {
    */
   public ColorTransformation(String operation) {
     this.operation = operation;
+    this.matrix = null;
+  }
+
+  /**
+   * Gets the color matrix that the user wants to apply.
+   *
+   * @param matrix the color matrix.
+   */
+  public ColorTransformation(ColorMatrix matrix) {
+    this.operation = null;
+    this.matrix = matrix;
   }
 
 
   @Override
   public ImageProcessingModel executeCommand(ImageProcessingModel model) {
+    if (this.matrix != null) {
+      return model.colorTransformation(this.matrix);
+    }
     return model.colorTransformation(this.operation);
   }
 
+  @Override
+  public int getHalo() {
+    return 0;
+  }
 }
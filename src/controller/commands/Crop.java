@@ -0,0 +1,34 @@
+package controller.commands;
+
+import controller.ImageOperationCommand;
+import model.ImageProcessingModel;
+
+/**
+ * Represents the commands a user can use to crop an image to a rectangle through the controller.
+ */
+public class Crop implements ImageOperationCommand {
+  private final int x;
+  private final int y;
+  private final int width;
+  private final int height;
+
+  /**
+   * Crops the image to the rectangle with the given top left corner and size.
+   *
+   * @param x      the given column of the left edge
+   * @param y      the given row of the top edge
+   * @param width  the given width
+   * @param height the given height
+   */
+  public Crop(int x, int y, int width, int height) {
+    this.x = x;
+    this.y = y;
+    this.width = width;
+    this.height = height;
+  }
+
+  @Override
+  public ImageProcessingModel executeCommand(ImageProcessingModel model) {
+    return model.crop(x, y, width, height);
+  }
+}
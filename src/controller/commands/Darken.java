@@ -1,12 +1,12 @@
 package controller.commands;
 
-import controller.ImageOperationCommand;
+import controller.BandOperation;
 import model.ImageProcessingModel;
 
 /**
  * Represents the commands a user can use to darken an image through the controller.
  */
-public class Darken implements ImageOperationCommand {
+public class Darken implements BandOperation {
   private final int increment;
 
   /**
@@ -28,4 +28,9 @@ public class Darken implements ImageOperationCommand {
   public ImageProcessingModel executeCommand(ImageProcessingModel model) {
     return model.brighten(-this.increment);
   }
-}
\ No newline at end of file
+
+  @Override
+  public int getHalo() {
+    return 0;
+  }
+}
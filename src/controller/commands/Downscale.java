@@ -2,6 +2,7 @@ package controller.commands;
 
 import controller.ImageOperationCommand;
 import model.ImageProcessingModel;
+import model.ResampleFilter;
 
 /**
  * Represents the commands a user can use to downscale an image through the controller.
@@ -9,6 +10,7 @@ import model.ImageProcessingModel;
 public class Downscale implements ImageOperationCommand {
   private int width;
   private int height;
+  private ResampleFilter filter;
 
   /**
    * Downscales the image by the given width and height percentage.
@@ -21,8 +23,25 @@ public class Downscale implements ImageOperationCommand {
     this.height = height;
   }
 
+  /**
+   * Downscales the image by the given width and height percentage, computing the new pixels with
+   * the given filter.
+   *
+   * @param width  the given width
+   * @param height the given height
+   * @param filter the filter computing the new pixels
+   */
+  public Downscale(int width, int height, ResampleFilter filter) {
+    this.width = width;
+    this.height = height;
+    this.filter = filter;
+  }
+
   @Override
   public ImageProcessingModel executeCommand(ImageProcessingModel model) {
+    if (filter != null) {
+      return model.downscaleImage(width, height, filter);
+    }
     return model.downscaleImage(width, height);
   }
 }
@@ -1,14 +1,17 @@
 package controller.commands;
 
-import controller.ImageOperationCommand;
+import controller.BandOperation;
+import model.BoxBlur;
 import model.ImageProcessingModel;
+import model.Kernel;
 
 /**
  * Represents the commands a user can use to apply a filter to their image through the controller.
  */
-public class Filter implements ImageOperationCommand {
+public class Filter implements BandOperation {
 
   private final String operation;
+  private final BoxBlur blur;
 
   /**
    * Gets the filter operation that the user wants to apply.
@@ -17,11 +20,32 @@ public class Filter implements ImageOperationCommand {
    */
   public Filter(String operation) {
     this.operation = operation;
+    this.blur = null;
+  }
+
+  /**
+   * Gets the box blur, or stack of box blurs, that the user wants to apply.
+   *
+   * @param blur the box blur.
+   */
+  public Filter(BoxBlur blur) {
+    this.operation = null;
+    this.blur = blur;
   }
 
   @Override
   public ImageProcessingModel executeCommand(ImageProcessingModel model) {
+    if (this.blur != null) {
+      return model.boxBlur(this.blur);
+    }
     return model.filter(this.operation);
   }
 
+  @Override
+  public int getHalo() throws IllegalArgumentException {
+    if (this.blur != null) {
+      return this.blur.getHalo();
+    }
+    return Kernel.named(this.operation).getHeight() / 2;
+  }
 }
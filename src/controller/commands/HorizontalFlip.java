@@ -1,14 +1,19 @@
 package controller.commands;
 
-import controller.ImageOperationCommand;
+import controller.BandOperation;
 import model.ImageProcessingModel;
 
 /**
  * Represents the commands a user can use to horizontally flip an image through the controller.
  */
-public class HorizontalFlip implements ImageOperationCommand {
+public class HorizontalFlip implements BandOperation {
   @Override
   public ImageProcessingModel executeCommand(ImageProcessingModel model) {
     return model.flipHorizontal();
   }
+
+  @Override
+  public int getHalo() {
+    return 0;
+  }
 }
@@ -0,0 +1,30 @@
+package controller.commands;
+
+import controller.ImageOperationCommand;
+import model.ImageProcessingModel;
+
+/**
+ * Represents the commands a user can use to rotate an image clockwise by a multiple of 90 degrees
+ * through the controller.
+ */
+public class Rotate implements ImageOperationCommand {
+  private final int degrees;
+
+  /**
+   * Rotates the image clockwise by the given number of degrees.
+   *
+   * @param degrees the given rotation, a multiple of 90 degrees
+   * @throws IllegalArgumentException if the rotation is not a multiple of 90 degrees
+   */
+  public Rotate(int degrees) throws IllegalArgumentException {
+    if (degrees % 90 != 0) {
+      throw new IllegalArgumentException("rotations must be a multiple of 90 degrees");
+    }
+    this.degrees = degrees;
+  }
+
+  @Override
+  public ImageProcessingModel executeCommand(ImageProcessingModel model) {
+    return model.rotate(degrees);
+  }
+}
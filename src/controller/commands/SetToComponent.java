@@ -1,12 +1,12 @@
 package controller.commands;
 
-import controller.ImageOperationCommand;
+import controller.BandOperation;
 import model.ImageProcessingModel;
 
 /**
  * Represents the commands a user can use to set a component of the image through the controller.
  */
-public class SetToComponent implements ImageOperationCommand {
+public class SetToComponent implements BandOperation {
   private final String channelComponent;
 
   /**
@@ -22,4 +22,9 @@ public class SetToComponent implements ImageOperationCommand {
   public ImageProcessingModel executeCommand(ImageProcessingModel model) {
     return model.channelComponent(this.channelComponent);
   }
+
+  @Override
+  public int getHalo() {
+    return 0;
+  }
 }
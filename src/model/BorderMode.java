@@ -0,0 +1,46 @@
+package model;
+
+/**
+ * Represents how a convolution treats the neighbors of a pixel that fall outside the image.
+ */
+public enum BorderMode {
+
+  /**
+   * Neighbors outside the image are treated as black, so they add nothing to the result.
+   */
+  ZERO,
+
+  /**
+   * Neighbors outside the image take the value of the nearest pixel on the image's edge.
+   */
+  CLAMP,
+
+  /**
+   * Neighbors outside the image are reflected back into it about the edge pixel, which is not
+   * repeated.
+   */
+  MIRROR;
+
+  /**
+   * Maps the given position along a row or column of the given size into the image, or returns
+   * -1 if the neighbor at that position should be skipped.
+   */
+  int index(int position, int size) {
+    if (position >= 0 && position < size) {
+      return position;
+    }
+    switch (this) {
+      case CLAMP:
+        return position < 0 ? 0 : size - 1;
+      case MIRROR:
+        if (size == 1) {
+          return 0;
+        }
+        int period = 2 * (size - 1);
+        int folded = Math.floorMod(position, period);
+        return folded < size ? folded : period - folded;
+      default:
+        return -1;
+    }
+  }
+}
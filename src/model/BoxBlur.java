@@ -0,0 +1,150 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Represents a blur made of one or more box blurs applied one after another, each computed from
+ * the summed-area tables of its input. A box blur averages every pixel within its radius
+ * equally, and takes the same time per pixel whatever its radius, so heavy blurs take no longer
+ * than light ones. Three box blurs of suitable radii stacked on top of each other approximate a
+ * Gaussian blur of any standard deviation. Blurs are immutable.
+ */
+public final class BoxBlur {
+
+  /**
+   * The largest radius of a box. A box of this radius holds few enough pixels for the sums of
+   * its channels to stay exact in the summed-area tables.
+   */
+  public static final int MAX_RADIUS = 2047;
+
+  private static final int GAUSSIAN_BOXES = 3;
+
+  private final int[] radii;
+
+  private BoxBlur(int[] radii) {
+    this.radii = radii;
+  }
+
+  /**
+   * Creates the blur averaging the pixels within the given radius of each pixel, in both
+   * directions. Boxes are cut off at the edges of the image, and average the pixels they still
+   * hold.
+   *
+   * @param radius the number of pixels the box extends on each side of its center.
+   * @return the box blur.
+   * @throws IllegalArgumentException if the radius is negative or larger than MAX_RADIUS.
+   */
+  public static BoxBlur box(int radius) throws IllegalArgumentException {
+    if (radius < 0 || radius > MAX_RADIUS) {
+      throw new IllegalArgumentException("radius must be between 0 and " + MAX_RADIUS);
+    }
+    return new BoxBlur(new int[]{radius});
+  }
+
+  /**
+   * Creates the blur approximating a Gaussian blur with the given standard deviation by three
+   * box blurs, whose widths are the odd numbers that bring the variance of the three closest to
+   * that of the Gaussian.
+   *
+   * @param sigma the standard deviation of the blur, in pixels.
+   * @return the stacked box blur.
+   * @throws IllegalArgumentException if sigma is not positive, or so large that a box would be
+   *                                  wider than MAX_RADIUS allows.
+   */
+  public static BoxBlur gaussian(double sigma) throws IllegalArgumentException {
+    if (!(sigma > 0) || sigma > MAX_RADIUS) {
+      throw new IllegalArgumentException("sigma must be positive and at most " + MAX_RADIUS);
+    }
+    double variance = 12 * sigma * sigma;
+    int lower = (int) Math.floor(Math.sqrt(variance / GAUSSIAN_BOXES + 1));
+    if (lower % 2 == 0) {
+      lower--;
+    }
+    int upper = lower + 2;
+    //the number of boxes of the lower width that brings the variance closest to the Gaussian's
+    long narrow = Math.round((variance - GAUSSIAN_BOXES * (lower * lower + 4.0 * lower + 3))
+            / (-4.0 * lower - 4));
+    narrow = Math.max(0, Math.min(GAUSSIAN_BOXES, narrow));
+    int[] radii = new int[GAUSSIAN_BOXES];
+    for (int i = 0; i < GAUSSIAN_BOXES; i++) {
+      radii[i] = ((i < narrow ? lower : upper) - 1) / 2;
+      if (radii[i] > MAX_RADIUS) {
+        throw new IllegalArgumentException("sigma too large for a box blur");
+      }
+    }
+    return new BoxBlur(radii);
+  }
+
+  /**
+   * Gets the blur with the given name and amount: box-blur followed by the whole number radius
+   * of the box, or gaussian-blur followed by the standard deviation of the Gaussian.
+   *
+   * @param name   box-blur or gaussian-blur.
+   * @param amount the radius of the box, or the standard deviation of the Gaussian.
+   * @return the blur with that name and amount.
+   * @throws IllegalArgumentException if there is no such blur, or the amount is invalid for it.
+   */
+  public static BoxBlur named(String name, double amount) throws IllegalArgumentException {
+    if ("box-blur".equals(name)) {
+      if (amount != Math.rint(amount) || amount < 0 || amount > MAX_RADIUS) {
+        throw new IllegalArgumentException("radius must be a whole number up to " + MAX_RADIUS);
+      }
+      return box((int) amount);
+    } else if ("gaussian-blur".equals(name)) {
+      return gaussian(amount);
+    }
+    throw new IllegalArgumentException("invalid blur name");
+  }
+
+  /**
+   * Gets whether the given name is the name of a blur that takes an amount.
+   *
+   * @param name the name to check.
+   * @return true if the name is box-blur or gaussian-blur.
+   */
+  public static boolean isNamed(String name) {
+    return "box-blur".equals(name) || "gaussian-blur".equals(name);
+  }
+
+  /**
+   * Gets the radius of each box of this blur, in the order they are applied.
+   *
+   * @return the radii of the boxes.
+   */
+  public int[] getRadii() {
+    return radii.clone();
+  }
+
+  /**
+   * Gets the number of rows above and below a pixel that its blurred value depends on, which is
+   * the sum of the radii of the boxes.
+   *
+   * @return the reach of this blur.
+   */
+  public int getHalo() {
+    return Arrays.stream(radii).sum();
+  }
+
+  /**
+   * Blurs the image whose rows are produced by the given source, building the summed-area
+   * tables of the result of each box to compute the next.
+   *
+   * @param width  the width of the image.
+   * @param height the height of the image.
+   * @param source writes the requested row of the image into the given array.
+   * @return the blurred pixels in 0xRRGGBB form, row by row.
+   */
+  int[] apply(int width, int height, RowWriter source) {
+    if (width == 0 || height == 0) {
+      return new int[0];
+    }
+    int[] pixels = null;
+    for (int radius : radii) {
+      int[] input = pixels;
+      RowWriter rows = input == null ? source
+          : (h, row) -> System.arraycopy(input, h * width, row, 0, width);
+      pixels = new SummedAreaTable(width, height, rows).boxBlur(radius);
+    }
+    return pixels;
+  }
+}
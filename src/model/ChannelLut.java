@@ -0,0 +1,235 @@
+package model;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+import static model.ImageGrid.MAX_VALUE;
+
+/**
+ * Represents a point operation on 8-bit pixels as one 256-entry lookup table per channel. Each
+ * output channel reads one source channel of the pixel (red, green, or blue) and maps it through
+ * its table, so brightening, darkening, extracting a red, green, or blue component, and any curve
+ * of a single channel can all be applied with three table reads per pixel.
+ *
+ * <p>Lookup tables are immutable, and two of them can be composed into a single table that has
+ * the same effect as applying one after the other. A table that adds the same offset to every
+ * channel and clamps it, as brightening, darkening, and the red, green, and blue components do,
+ * is applied with the point operation loops of Vectorization instead of table reads.
+ */
+public final class ChannelLut {
+
+  public static final int RED = 0;
+  public static final int GREEN = 1;
+  public static final int BLUE = 2;
+
+  private static final int[] SHIFTS = new int[]{16, 8, 0};
+  private static final ChannelLut IDENTITY = curve(value -> value);
+
+  private final int[] sources;
+  private final byte[][] tables;
+  //set when every table maps a value to min(high, max(low, value + offset))
+  private final boolean ramp;
+  private final int offset;
+  private final int low;
+  private final int high;
+
+  private ChannelLut(int[] sources, byte[][] tables) {
+    this.sources = sources;
+    this.tables = tables;
+    byte[] table = tables[0];
+    this.low = table[0] & 0xFF;
+    this.high = table[MAX_VALUE] & 0xFF;
+    this.offset = rampOffset(table, low, high);
+    this.ramp = Arrays.equals(table, tables[1]) && Arrays.equals(table, tables[2])
+            && isRamp(table, offset, low, high);
+  }
+
+  /**
+   * Gets the only offset the given table could add to each value if it is a clamped ramp from
+   * low to high.
+   */
+  private static int rampOffset(byte[] table, int low, int high) {
+    int lastLow = 0;
+    for (int value = 0; value <= MAX_VALUE; value++) {
+      int mapped = table[value] & 0xFF;
+      if (mapped > low && mapped < high) {
+        return mapped - value;
+      } else if (mapped == low) {
+        lastLow = value;
+      }
+    }
+    //every value maps to low or high, so the ramp, if any, steps straight from one to the other
+    return low == high ? 0 : high - lastLow - 1;
+  }
+
+  private static boolean isRamp(byte[] table, int offset, int low, int high) {
+    if (low > high) {
+      return false;
+    }
+    for (int value = 0; value <= MAX_VALUE; value++) {
+      if ((table[value] & 0xFF) != Math.min(high, Math.max(low, value + offset))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Creates the lookup table that leaves every pixel unchanged.
+   *
+   * @return the identity lookup table.
+   */
+  public static ChannelLut identity() {
+    return IDENTITY;
+  }
+
+  /**
+   * Creates a lookup table that adds the given value to every channel, clamping each channel
+   * between 0 and the maximum value. A negative value darkens.
+   *
+   * @param value the amount to add to each channel.
+   * @return the lookup table brightening by the given value.
+   */
+  public static ChannelLut brighten(int value) {
+    return curve(channel -> channel + value);
+  }
+
+  /**
+   * Creates a lookup table that sets every channel to the given channel of the pixel.
+   *
+   * @param channel the channel to copy, one of RED, GREEN, or BLUE.
+   * @return the lookup table visualizing the given channel.
+   * @throws IllegalArgumentException if the given channel is not RED, GREEN, or BLUE.
+   */
+  public static ChannelLut component(int channel) throws IllegalArgumentException {
+    if (channel < RED || channel > BLUE) {
+      throw new IllegalArgumentException("invalid channel");
+    }
+    return new ChannelLut(new int[]{channel, channel, channel}, IDENTITY.tables);
+  }
+
+  /**
+   * Creates a lookup table that maps every channel through the given function, clamping the
+   * result between 0 and the maximum value. The function is called once for each of the 256
+   * possible channel values.
+   *
+   * @param function the function to apply to each channel.
+   * @return the lookup table applying the given function.
+   * @throws IllegalArgumentException if the given function is null.
+   */
+  public static ChannelLut curve(IntUnaryOperator function) throws IllegalArgumentException {
+    if (function == null) {
+      throw new IllegalArgumentException("function cannot be null");
+    }
+    byte[] table = new byte[MAX_VALUE + 1];
+    for (int value = 0; value <= MAX_VALUE; value++) {
+      table[value] = (byte) Math.max(0, Math.min(function.applyAsInt(value), MAX_VALUE));
+    }
+    return new ChannelLut(new int[]{RED, GREEN, BLUE}, new byte[][]{table, table, table});
+  }
+
+  /**
+   * Composes this lookup table with the given one into a single lookup table that has the same
+   * effect as applying this table first and the given table second.
+   *
+   * @param next the lookup table to apply after this one.
+   * @return the composed lookup table.
+   * @throws IllegalArgumentException if the given lookup table is null.
+   */
+  public ChannelLut andThen(ChannelLut next) throws IllegalArgumentException {
+    if (next == null) {
+      throw new IllegalArgumentException("lookup table cannot be null");
+    }
+    int[] newSources = new int[3];
+    byte[][] newTables = new byte[3][];
+    for (int c = 0; c < 3; c++) {
+      int through = next.sources[c];
+      newSources[c] = sources[through];
+      byte[] first = tables[through];
+      byte[] second = next.tables[c];
+      byte[] table = new byte[MAX_VALUE + 1];
+      for (int value = 0; value <= MAX_VALUE; value++) {
+        table[value] = second[first[value] & 0xFF];
+      }
+      newTables[c] = table;
+    }
+    return new ChannelLut(newSources, newTables);
+  }
+
+  /**
+   * Gets whether this lookup table leaves every pixel unchanged.
+   *
+   * @return true if applying this lookup table has no effect, and false otherwise.
+   */
+  public boolean isIdentity() {
+    for (int c = 0; c < 3; c++) {
+      if (sources[c] != c) {
+        return false;
+      }
+      for (int value = 0; value <= MAX_VALUE; value++) {
+        if ((tables[c][value] & 0xFF) != value) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gets whether this lookup table sets all three channels of a pixel to the same value.
+   */
+  boolean isGrey() {
+    return sources[0] == sources[1] && sources[1] == sources[2]
+            && Arrays.equals(tables[0], tables[1]) && Arrays.equals(tables[1], tables[2]);
+  }
+
+  /**
+   * Gets the source channel read by the given output channel.
+   */
+  int source(int channel) {
+    return sources[channel];
+  }
+
+  /**
+   * Gets the value the given output channel takes when its source channel has the given value.
+   */
+  int lookup(int channel, int value) {
+    return tables[channel][value] & 0xFF;
+  }
+
+  /**
+   * Applies this lookup table to the given pixel in 0xRRGGBB form.
+   *
+   * @param pixel the packed pixel.
+   * @return the packed pixel with this lookup table applied.
+   */
+  public int apply(int pixel) {
+    return (tables[0][(pixel >> SHIFTS[sources[0]]) & 0xFF] & 0xFF) << 16
+            | (tables[1][(pixel >> SHIFTS[sources[1]]) & 0xFF] & 0xFF) << 8
+            | (tables[2][(pixel >> SHIFTS[sources[2]]) & 0xFF] & 0xFF);
+  }
+
+  /**
+   * Applies this lookup table to a run of packed pixels, writing the results to the given
+   * destination. The source and destination may be the same array.
+   */
+  void apply(int[] src, int srcOffset, int[] dst, int dstOffset, int length) {
+    if (ramp) {
+      Vectorization.get().offset(src, srcOffset, dst, dstOffset, length,
+              sources[0], sources[1], sources[2], offset, low, high);
+      return;
+    }
+    byte[] red = tables[0];
+    byte[] green = tables[1];
+    byte[] blue = tables[2];
+    int redShift = SHIFTS[sources[0]];
+    int greenShift = SHIFTS[sources[1]];
+    int blueShift = SHIFTS[sources[2]];
+    for (int i = 0; i < length; i++) {
+      int p = src[srcOffset + i];
+      dst[dstOffset + i] = (red[(p >> redShift) & 0xFF] & 0xFF) << 16
+              | (green[(p >> greenShift) & 0xFF] & 0xFF) << 8
+              | (blue[(p >> blueShift) & 0xFF] & 0xFF);
+    }
+  }
+}
@@ -0,0 +1,287 @@
+package model;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Represents a color transformation as a 3x4 matrix: each output channel is a weighted sum of
+ * the red, green, and blue channels of a pixel plus an offset, computed in double arithmetic,
+ * truncated, and clamped between 0 and the maximum value. Sepia and greyscale (luma) are
+ * built-in matrices, and any 3x3 or 3x4 matrix can be created.
+ *
+ * <p>Matrices are applied in a single integer pass: every weight and offset is converted once to
+ * a fixed-point number with 24 fractional bits, and each channel is computed with integer
+ * arithmetic only. A fixed-point channel rounds down to the same value as the double arithmetic
+ * unless it is within PointKernels.MATRIX_MARGIN of a whole number, where the two may round
+ * differently, so the rare pixels with such a channel are computed in double arithmetic.
+ *
+ * <p>Matrices are immutable, and two of them can be composed into a single matrix that applies
+ * both at once. Since the composed matrix rounds and clamps only once, its result may differ
+ * slightly from applying the two matrices one after the other, unless the first matrix has
+ * whole-number entries and keeps every pixel in range.
+ */
+public final class ColorMatrix {
+
+  private static final int SHIFT = PointKernels.MATRIX_SHIFT;
+  private static final double ONE = 1L << SHIFT;
+  //keeps every fixed-point sum far from overflowing a long
+  private static final double LIMIT = 65536;
+
+  private static final ColorMatrix IDENTITY = new ColorMatrix(new double[][]{
+      {1, 0, 0, 0},
+      {0, 1, 0, 0},
+      {0, 0, 1, 0}});
+  private static final ColorMatrix SEPIA = new ColorMatrix(new double[][]{
+      {0.393, 0.769, 0.189, 0},
+      {0.349, 0.686, 0.168, 0},
+      {0.272, 0.534, 0.131, 0}});
+  private static final ColorMatrix LUMA = new ColorMatrix(new double[][]{
+      {0.2126, 0.7152, 0.0722, 0},
+      {0.2126, 0.7152, 0.0722, 0},
+      {0.2126, 0.7152, 0.0722, 0}});
+
+  private final double[][] rows;
+  private final long[] coefficients;
+  //the exact matrix applied before the rows computed in double arithmetic, or null
+  private final ColorMatrix before;
+  private final double[][] after;
+  //null when the fixed-point coefficients give every pixel exactly
+  private final IntUnaryOperator reference;
+
+  private ColorMatrix(double[][] rows) {
+    this(rows, null, rows);
+  }
+
+  private ColorMatrix(double[][] rows, ColorMatrix before, double[][] after) {
+    this.rows = rows;
+    this.before = before;
+    this.after = after;
+    this.coefficients = new long[12];
+    for (int c = 0; c < 3; c++) {
+      for (int column = 0; column < 4; column++) {
+        coefficients[c * 4 + column] = Math.round(rows[c][column] * ONE);
+      }
+    }
+    this.reference = isFixedPoint(rows) && isFixedPoint(after) ? null : this::reference;
+  }
+
+  /**
+   * Gets whether every entry of the given rows is a fixed-point number, so that both the
+   * fixed-point and the double arithmetic compute every channel exactly.
+   */
+  private static boolean isFixedPoint(double[][] rows) {
+    for (double[] row : rows) {
+      for (double entry : row) {
+        if (entry * ONE != Math.rint(entry * ONE)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Computes the given pixel in double arithmetic, adding the weighted channels in order and
+   * truncating the sum, as color transformations always have.
+   */
+  private int reference(int pixel) {
+    int p = before == null ? pixel : before.apply(pixel);
+    double red = (p >> 16) & 0xFF;
+    double green = (p >> 8) & 0xFF;
+    double blue = p & 0xFF;
+    int result = 0;
+    for (double[] row : after) {
+      int value = (int) (row[0] * red + row[1] * green + row[2] * blue + row[3]);
+      result = result << 8 | Math.max(0, Math.min(ImageGrid.MAX_VALUE, value));
+    }
+    return result;
+  }
+
+  /**
+   * Creates the matrix that leaves every pixel unchanged.
+   *
+   * @return the identity matrix.
+   */
+  public static ColorMatrix identity() {
+    return IDENTITY;
+  }
+
+  /**
+   * Creates the matrix that gives every pixel a sepia tone.
+   *
+   * @return the sepia matrix.
+   */
+  public static ColorMatrix sepia() {
+    return SEPIA;
+  }
+
+  /**
+   * Creates the matrix that sets every channel of a pixel to its luma.
+   *
+   * @return the greyscale matrix.
+   */
+  public static ColorMatrix luma() {
+    return LUMA;
+  }
+
+  /**
+   * Gets the built-in matrix of the given color transformation.
+   *
+   * @param transformationType the type of color transformation, either sepia or greyscale.
+   * @return the built-in matrix of that transformation.
+   * @throws IllegalArgumentException if there is no built-in transformation with the given name.
+   */
+  public static ColorMatrix named(String transformationType) throws IllegalArgumentException {
+    if ("sepia".equals(transformationType)) {
+      return SEPIA;
+    } else if ("greyscale".equals(transformationType)) {
+      return LUMA;
+    }
+    throw new IllegalArgumentException("invalid component name");
+  }
+
+  /**
+   * Creates a matrix with the given rows. Each row computes one output channel (red, green, then
+   * blue) from the red, green, and blue channels of a pixel, and may end with an offset added to
+   * the channel.
+   *
+   * @param rows the three rows of the matrix, each with three weights and an optional offset.
+   * @return the matrix with the given rows.
+   * @throws IllegalArgumentException if the rows are null, there are not three of them, they do
+   *                                  not all have three or all have four entries, or an entry is
+   *                                  not finite or is larger than 65536 in magnitude.
+   */
+  public static ColorMatrix of(double[][] rows) throws IllegalArgumentException {
+    if (rows == null || rows.length != 3 || rows[0] == null
+            || (rows[0].length != 3 && rows[0].length != 4)) {
+      throw new IllegalArgumentException("matrix must have three rows of three or four entries");
+    }
+    double[][] copy = new double[3][4];
+    for (int c = 0; c < 3; c++) {
+      if (rows[c] == null || rows[c].length != rows[0].length) {
+        throw new IllegalArgumentException("matrix rows must all have the same length");
+      }
+      System.arraycopy(rows[c], 0, copy[c], 0, rows[c].length);
+    }
+    if (!inRange(copy)) {
+      throw new IllegalArgumentException("matrix entries must be finite and at most 65536");
+    }
+    return new ColorMatrix(copy);
+  }
+
+  /**
+   * Composes this matrix with the given one into a single matrix that applies this matrix first
+   * and the given matrix second, rounding and clamping only once.
+   *
+   * @param next the matrix to apply after this one.
+   * @return the composed matrix.
+   * @throws IllegalArgumentException if the given matrix is null, or an entry of the composed
+   *                                  matrix is larger than 65536 in magnitude.
+   */
+  public ColorMatrix andThen(ColorMatrix next) throws IllegalArgumentException {
+    if (next == null) {
+      throw new IllegalArgumentException("matrix cannot be null");
+    }
+    ColorMatrix composed = compose(next);
+    if (composed == null) {
+      throw new IllegalArgumentException("composed matrix entries must be at most 65536");
+    }
+    return composed;
+  }
+
+  /**
+   * Composes this matrix with the given one, or gets null if the composed matrix is out of
+   * range.
+   */
+  ColorMatrix compose(ColorMatrix next) {
+    double[][] composed = new double[3][4];
+    for (int c = 0; c < 3; c++) {
+      for (int column = 0; column < 4; column++) {
+        double sum = column == 3 ? next.rows[c][3] : 0;
+        for (int through = 0; through < 3; through++) {
+          sum += next.rows[c][through] * rows[through][column];
+        }
+        composed[c][column] = sum;
+      }
+    }
+    if (!inRange(composed)) {
+      return null;
+    } else if (!isExact() || next.isExact()) {
+      return new ColorMatrix(composed);
+    }
+    //this matrix keeps every pixel whole, so the composed one can fall back to applying it and
+    //then computing next in double arithmetic, exactly as applying the two one after the other
+    ColorMatrix first = next.before == null ? this : compose(next.before);
+    return new ColorMatrix(composed, first, next.after);
+  }
+
+  /**
+   * Gets whether this matrix maps every pixel to channels it neither rounds down nor clamps:
+   * its weights and offsets are whole numbers, and each row keeps every pixel between 0 and the
+   * maximum value. Composing such a matrix with one applied after it gives exactly the channels
+   * of applying the two one after the other.
+   */
+  boolean isExact() {
+    for (double[] row : rows) {
+      double lowest = row[3];
+      double highest = row[3];
+      for (int column = 0; column < 4; column++) {
+        if (row[column] != Math.rint(row[column])) {
+          return false;
+        }
+        if (column < 3) {
+          lowest += Math.min(0, row[column]) * ImageGrid.MAX_VALUE;
+          highest += Math.max(0, row[column]) * ImageGrid.MAX_VALUE;
+        }
+      }
+      if (lowest < 0 || highest > ImageGrid.MAX_VALUE) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean inRange(double[][] rows) {
+    for (double[] row : rows) {
+      for (double entry : row) {
+        if (!(Math.abs(entry) <= LIMIT)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gets whether this matrix leaves every pixel unchanged.
+   *
+   * @return true if applying this matrix has no effect, and false otherwise.
+   */
+  public boolean isIdentity() {
+    for (int c = 0; c < 3; c++) {
+      for (int column = 0; column < 4; column++) {
+        if (rows[c][column] != IDENTITY.rows[c][column]) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Applies this matrix to the given pixel in 0xRRGGBB form.
+   *
+   * @param pixel the packed pixel.
+   * @return the packed pixel with this matrix applied.
+   */
+  public int apply(int pixel) {
+    return ScalarPointKernels.matrix(pixel, coefficients, reference);
+  }
+
+  /**
+   * Applies this matrix to a run of packed pixels, writing the results to the given destination,
+   * which may be the source run itself.
+   */
+  void apply(int[] src, int srcOffset, int[] dst, int dstOffset, int length) {
+    Vectorization.get().matrix(src, srcOffset, dst, dstOffset, length, coefficients, reference);
+  }
+}
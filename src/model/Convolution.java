@@ -0,0 +1,186 @@
+package model;
+
+/**
+ * Applies a kernel to every pixel of an image stored as packed 0xRRGGBB rows. The image is
+ * processed in chunks of rows; each chunk reads the source rows it needs once into reusable
+ * buffers, so no memory is allocated per pixel.
+ */
+final class Convolution {
+
+  private static final int CHUNK_ROWS = 32;
+
+  private Convolution() {
+  }
+
+  /**
+   * Convolves the image whose rows are produced by the given source with the given kernel.
+   *
+   * @param width  the width of the image.
+   * @param height the height of the image.
+   * @param source writes the requested row of the image into the given array.
+   * @param kernel the kernel to apply.
+   * @param border how neighbors outside the image are treated.
+   * @return the filtered pixels in 0xRRGGBB form, row by row.
+   */
+  static int[] apply(int width, int height, RowWriter source, Kernel kernel, BorderMode border) {
+    int[] out = new int[width * height];
+    if (width == 0 || height == 0) {
+      return out;
+    }
+    int halfH = kernel.getHeight() / 2;
+    int halfW = kernel.getWidth() / 2;
+    int[] columns = new int[width + 2 * halfW];
+    for (int i = 0; i < columns.length; i++) {
+      columns[i] = border.index(i - halfW, width);
+    }
+
+    Parallelism.forEachRow(height, width, (startRow, endRow) -> {
+      int chunk = Math.min(CHUNK_ROWS, endRow - startRow);
+      int[][] buffers = new int[chunk + 2 * halfH][width];
+      int[][] rows = new int[buffers.length][];
+      double[][] passed = kernel.isSeparable() ? new double[3][buffers.length * width] : null;
+
+      for (int first = startRow; first < endRow; first += chunk) {
+        int last = Math.min(first + chunk, endRow);
+        for (int r = 0; r < last - first + 2 * halfH; r++) {
+          int src = border.index(first - halfH + r, height);
+          rows[r] = src < 0 ? null : buffers[r];
+          if (src >= 0) {
+            source.write(src, buffers[r]);
+          }
+        }
+
+        if (passed != null) {
+          separable(width, first, last, rows, columns, kernel, passed, out);
+        } else if (kernel.truncatesTaps()) {
+          truncated(width, first, last, rows, columns, kernel, out);
+        } else {
+          direct(width, first, last, rows, columns, kernel, out);
+        }
+      }
+    });
+    return out;
+  }
+
+  /**
+   * Computes the given rows, truncating each neighbor's weighted channels before summing them.
+   */
+  private static void truncated(int width, int first, int last, int[][] rows, int[] columns,
+                                Kernel kernel, int[] out) {
+    double[][] weights = kernel.weights();
+    for (int h = first; h < last; h++) {
+      for (int w = 0; w < width; w++) {
+        int red = 0;
+        int green = 0;
+        int blue = 0;
+        for (int kh = 0; kh < weights.length; kh++) {
+          int[] src = rows[h - first + kh];
+          if (src == null) {
+            continue;
+          }
+          double[] line = weights[kh];
+          for (int kw = 0; kw < line.length; kw++) {
+            int x = columns[w + kw];
+            if (x < 0) {
+              continue;
+            }
+            int p = src[x];
+            red += (int) (((p >> 16) & 0xFF) * line[kw]);
+            green += (int) (((p >> 8) & 0xFF) * line[kw]);
+            blue += (int) ((p & 0xFF) * line[kw]);
+          }
+        }
+        out[h * width + w] = PackedImage.pack(red, green, blue);
+      }
+    }
+  }
+
+  /**
+   * Computes the given rows by summing every weighted neighbor.
+   */
+  private static void direct(int width, int first, int last, int[][] rows, int[] columns,
+                             Kernel kernel, int[] out) {
+    double[][] weights = kernel.weights();
+    for (int h = first; h < last; h++) {
+      for (int w = 0; w < width; w++) {
+        double red = 0;
+        double green = 0;
+        double blue = 0;
+        for (int kh = 0; kh < weights.length; kh++) {
+          int[] src = rows[h - first + kh];
+          if (src == null) {
+            continue;
+          }
+          double[] line = weights[kh];
+          for (int kw = 0; kw < line.length; kw++) {
+            int x = columns[w + kw];
+            if (x < 0) {
+              continue;
+            }
+            int p = src[x];
+            red += ((p >> 16) & 0xFF) * line[kw];
+            green += ((p >> 8) & 0xFF) * line[kw];
+            blue += (p & 0xFF) * line[kw];
+          }
+        }
+        out[h * width + w] = PackedImage.pack((int) red, (int) green, (int) blue);
+      }
+    }
+  }
+
+  /**
+   * Computes the given rows with a horizontal pass over every source row followed by a vertical
+   * pass over the horizontal results.
+   */
+  private static void separable(int width, int first, int last, int[][] rows, int[] columns,
+                                Kernel kernel, double[][] passed, int[] out) {
+    double[] rowWeights = kernel.rowWeights();
+    double[] columnWeights = kernel.columnWeights();
+    double[] reds = passed[0];
+    double[] greens = passed[1];
+    double[] blues = passed[2];
+
+    for (int r = 0; r < last - first + columnWeights.length - 1; r++) {
+      int[] src = rows[r];
+      if (src == null) {
+        continue;
+      }
+      for (int w = 0; w < width; w++) {
+        double red = 0;
+        double green = 0;
+        double blue = 0;
+        for (int kw = 0; kw < rowWeights.length; kw++) {
+          int x = columns[w + kw];
+          if (x < 0) {
+            continue;
+          }
+          int p = src[x];
+          red += ((p >> 16) & 0xFF) * rowWeights[kw];
+          green += ((p >> 8) & 0xFF) * rowWeights[kw];
+          blue += (p & 0xFF) * rowWeights[kw];
+        }
+        reds[r * width + w] = red;
+        greens[r * width + w] = green;
+        blues[r * width + w] = blue;
+      }
+    }
+
+    for (int h = first; h < last; h++) {
+      for (int w = 0; w < width; w++) {
+        double red = 0;
+        double green = 0;
+        double blue = 0;
+        for (int kh = 0; kh < columnWeights.length; kh++) {
+          int r = h - first + kh;
+          if (rows[r] == null) {
+            continue;
+          }
+          red += reds[r * width + w] * columnWeights[kh];
+          green += greens[r * width + w] * columnWeights[kh];
+          blue += blues[r * width + w] * columnWeights[kh];
+        }
+        out[h * width + w] = PackedImage.pack((int) red, (int) green, (int) blue);
+      }
+    }
+  }
+}
@@ -0,0 +1,172 @@
+package model;
+
+import static model.ImageGrid.MAX_VALUE;
+
+/**
+ * Represents the histograms of an image: for each value from 0 to 255, the number of pixels whose
+ * red, green, or blue channel, or whose intensity (the average of the three channels), has that
+ * value. Histograms are immutable.
+ *
+ * <p>The histograms of an image made by a lookup table are derived from those of its input
+ * without looking at its pixels again. When the table sets the channels of a pixel to different
+ * values, its intensity cannot be derived from the channel histograms, so it is counted from the
+ * pixels the first time it is requested.
+ */
+public final class Histogram {
+
+  private final int[] red;
+  private final int[] green;
+  private final int[] blue;
+  private final int imageWidth;
+  private final int imageHeight;
+  private volatile int[] intensity;
+  //produces the rows whose intensity is still to be counted, or null once it is known
+  private RowWriter intensitySource;
+
+  private Histogram(int[] red, int[] green, int[] blue, int[] intensity) {
+    this(red, green, blue, intensity, null, 0, 0);
+  }
+
+  private Histogram(int[] red, int[] green, int[] blue, int[] intensity,
+                    RowWriter intensitySource, int imageWidth, int imageHeight) {
+    this.red = red;
+    this.green = green;
+    this.blue = blue;
+    this.intensity = intensity;
+    this.intensitySource = intensitySource;
+    this.imageWidth = imageWidth;
+    this.imageHeight = imageHeight;
+  }
+
+  /**
+   * Counts the values of every pixel of the image whose rows are produced by the given source in
+   * a single pass, splitting the rows into bands counted in parallel for large images.
+   */
+  static Histogram compute(int imageWidth, int imageHeight, RowWriter source) {
+    int[][] totals = count(imageWidth, imageHeight, source, true);
+    return new Histogram(totals[0], totals[1], totals[2], totals[3]);
+  }
+
+  /**
+   * Counts the red, green, blue, and intensity values of every pixel of the image whose rows are
+   * produced by the given source, or only the intensity values if the channels are not counted.
+   */
+  private static int[][] count(int imageWidth, int imageHeight, RowWriter source,
+                               boolean channels) {
+    int[][] totals = new int[4][MAX_VALUE + 1];
+    Parallelism.forEachRow(imageHeight, imageWidth, (startRow, endRow) -> {
+      int[][] counts = new int[4][MAX_VALUE + 1];
+      int[] row = new int[imageWidth];
+      for (int h = startRow; h < endRow; h++) {
+        source.write(h, row);
+        for (int w = 0; w < imageWidth; w++) {
+          int p = row[w];
+          int r = (p >> 16) & 0xFF;
+          int g = (p >> 8) & 0xFF;
+          int b = p & 0xFF;
+          if (channels) {
+            counts[0][r]++;
+            counts[1][g]++;
+            counts[2][b]++;
+          }
+          counts[3][(r + g + b) / 3]++;
+        }
+      }
+      synchronized (totals) {
+        for (int c = 0; c < 4; c++) {
+          for (int value = 0; value <= MAX_VALUE; value++) {
+            totals[c][value] += counts[c][value];
+          }
+        }
+      }
+    });
+    return totals;
+  }
+
+  /**
+   * Derives the histogram of the image produced by applying the given lookup table to the image
+   * this histogram describes, without looking at the image again. The channel histograms are
+   * always derived, and so is the intensity histogram when the lookup table sets all three
+   * channels to the same value (such as a red, green, or blue component); otherwise the
+   * intensity is counted from the given rows of the new image the first time it is requested.
+   */
+  Histogram derive(ChannelLut lut, int imageWidth, int imageHeight, RowWriter rows) {
+    int[][] channels = new int[][]{red, green, blue};
+    int[][] derived = new int[3][];
+    for (int c = 0; c < 3; c++) {
+      derived[c] = new int[MAX_VALUE + 1];
+      int[] source = channels[lut.source(c)];
+      for (int value = 0; value <= MAX_VALUE; value++) {
+        derived[c][lut.lookup(c, value)] += source[value];
+      }
+    }
+    if (lut.isGrey()) {
+      return new Histogram(derived[0], derived[1], derived[2], derived[0].clone());
+    }
+    return new Histogram(derived[0], derived[1], derived[2], null, rows, imageWidth,
+            imageHeight);
+  }
+
+  /**
+   * Gets the number of pixels whose red channel has the given value.
+   *
+   * @param value the value of the channel, between 0 and 255.
+   * @return the number of pixels with that red value.
+   * @throws IllegalArgumentException if the value is out of range.
+   */
+  public int getRed(int value) throws IllegalArgumentException {
+    return count(red, value);
+  }
+
+  /**
+   * Gets the number of pixels whose green channel has the given value.
+   *
+   * @param value the value of the channel, between 0 and 255.
+   * @return the number of pixels with that green value.
+   * @throws IllegalArgumentException if the value is out of range.
+   */
+  public int getGreen(int value) throws IllegalArgumentException {
+    return count(green, value);
+  }
+
+  /**
+   * Gets the number of pixels whose blue channel has the given value.
+   *
+   * @param value the value of the channel, between 0 and 255.
+   * @return the number of pixels with that blue value.
+   * @throws IllegalArgumentException if the value is out of range.
+   */
+  public int getBlue(int value) throws IllegalArgumentException {
+    return count(blue, value);
+  }
+
+  /**
+   * Gets the number of pixels whose intensity, the average of its channels rounded down, has the
+   * given value.
+   *
+   * @param value the intensity, between 0 and 255.
+   * @return the number of pixels with that intensity.
+   * @throws IllegalArgumentException if the value is out of range.
+   */
+  public int getIntensity(int value) throws IllegalArgumentException {
+    int[] known = intensity;
+    if (known == null) {
+      synchronized (this) {
+        known = intensity;
+        if (known == null) {
+          known = count(imageWidth, imageHeight, intensitySource, false)[3];
+          intensity = known;
+          intensitySource = null;
+        }
+      }
+    }
+    return count(known, value);
+  }
+
+  private static int count(int[] counts, int value) throws IllegalArgumentException {
+    if (value < 0 || value > MAX_VALUE) {
+      throw new IllegalArgumentException("value must be between 0 and 255");
+    }
+    return counts[value];
+  }
+}
@@ -1,15 +1,21 @@
 package model;
 
+import java.util.Arrays;
 
 /**
  * Represents the PPM Image model with a RGB 8-bit representation for the pixels
- * in this image's pixel grid and a maximum value of 255 for any pixel.
+ * in this image's pixel grid and a maximum value of 255 for any pixel. Operations read this
+ * image's pixels directly, and since pixels are immutable a new image shares every pixel it does
+ * not change with this image. Flips, rotations, and crops return ImageViews reading this image's
+ * grid, so they copy nothing.
  */
 public class ImageGrid implements ImageProcessingModel {
 
   private final RGB[][] pixelGrid;
   private final int imageWidth;
   private final int imageHeight;
+  private volatile Histogram histogram;
+  private volatile Mipmap mipmap;
   public final static int MAX_VALUE = 255;
 
 
@@ -32,28 +38,52 @@ public class ImageGrid implements ImageProcessingModel {
 
 
   private ImageGrid applyOperation(PixelOperation operation) {
-    RGB[][] newGrid = this.getGrid();
-    for (int h = 0; h < imageHeight; h++) {
-      for (int w = 0; w < imageWidth; w++) {
-        operation.apply(newGrid, h, w);
+    RGB[][] newGrid = new RGB[imageHeight][imageWidth];
+    Parallelism.forEachRow(imageHeight, imageWidth, (startRow, endRow) -> {
+      for (int h = startRow; h < endRow; h++) {
+        for (int w = 0; w < imageWidth; w++) {
+          operation.apply(newGrid, h, w);
+        }
       }
-    }
+    });
     return new ImageGrid(newGrid);
   }
 
   @Override
   public ImageGrid brighten(int value) {
-    return applyOperation((grid, h, w) -> grid[h][w] = grid[h][w].brightness(value));
+    if (value == 0) {
+      return this;
+    }
+    return applyOperation((grid, h, w) -> grid[h][w] = pixelGrid[h][w].brightness(value));
+  }
+
+  /**
+   * Creates the view of this whole image that reads its grid, so that geometric operations
+   * return views rather than copies.
+   */
+  private ImageView view() {
+    return ImageView.of(this, (x, y) -> pixelGrid[y][x].toPacked(), null);
+  }
+
+  @Override
+  public ImageProcessingModel flipVertical() {
+    return view().flipVertical();
   }
 
   @Override
-  public ImageGrid flipVertical() {
-    return applyOperation((grid, h, w) -> grid[h][w] = pixelGrid[imageHeight - 1 - h][w]);
+  public ImageProcessingModel flipHorizontal() {
+    return view().flipHorizontal();
   }
 
   @Override
-  public ImageGrid flipHorizontal() {
-    return applyOperation((grid, h, w) -> grid[h][w] = pixelGrid[h][imageWidth - 1 - w]);
+  public ImageProcessingModel rotate(int degrees) throws IllegalArgumentException {
+    return view().rotate(degrees);
+  }
+
+  @Override
+  public ImageProcessingModel crop(int x, int y, int width, int height)
+          throws IllegalArgumentException {
+    return view().crop(x, y, width, height);
   }
 
   /**
@@ -69,7 +99,11 @@ public class ImageGrid implements ImageProcessingModel {
    */
   @Override
   public ImageGrid channelComponent(String component) throws IllegalArgumentException {
-    return applyOperation((grid, h, w) -> grid[h][w] = grid[h][w].setComponentSame(component));
+    if ("luma-component".equals(component)) {
+      return colorTransformation(ColorMatrix.luma());
+    }
+    return applyOperation((grid, h, w) ->
+            grid[h][w] = pixelGrid[h][w].setComponentSame(component));
   }
 
 
@@ -80,42 +114,30 @@ public class ImageGrid implements ImageProcessingModel {
    * @return a new version of this image with the applied filter.
    */
   @Override
-  public ImageProcessingModel filter(String filterType) throws IllegalArgumentException {
-    RGB[][] newGrid = this.getGrid();
-    RGB[][] listOfFilteredRGBs = new RGB[newGrid.length][newGrid[0].length];
-
-    for (int h = 0; h < imageHeight; h++) {
-      for (int w = 0; w < imageWidth; w++) {
-
-        RGB[][] kernelPosition;
-
-        if (filterType.equals("blur")) {
-          kernelPosition = new RGB[3][3];
-        } else if (filterType.equals("sharpen")) {
-          kernelPosition = new RGB[5][5];
-        } else {
-          throw new IllegalArgumentException("invalid filter type");
-        }
-
-        for (int kernelHeight = 0; kernelHeight < kernelPosition.length; kernelHeight++) {
-          for (int kernelWidth = 0; kernelWidth < kernelPosition[0].length; kernelWidth++) {
-            try {
-              kernelPosition[kernelHeight][kernelWidth] =
-                      newGrid[h + (kernelHeight - kernelPosition.length / 2)]
-                              [w + (kernelWidth - kernelPosition.length / 2)];
-            } catch (IndexOutOfBoundsException e) {
-              kernelPosition[kernelHeight][kernelWidth] = null;
-            }
-          }
-        }
-
-        listOfFilteredRGBs[h][w] = newGrid[h][w].returnFilterValues(kernelPosition);
+  public ImageGrid filter(String filterType) throws IllegalArgumentException {
+    return convolve(Kernel.named(filterType), BorderMode.ZERO);
+  }
 
-      }
+  @Override
+  public ImageGrid convolve(Kernel kernel, BorderMode border) throws IllegalArgumentException {
+    if (kernel == null || border == null) {
+      throw new IllegalArgumentException("kernel and border mode cannot be null");
     }
+    int[] filtered = Convolution.apply(imageWidth, imageHeight, this::getPackedRow,
+            kernel, border);
+    return applyOperation((grid, h, w) -> {
+      int p = filtered[h * imageWidth + w];
+      grid[h][w] = RGB.fromPacked(p);
+    });
+  }
 
-
-    return new ImageGrid(listOfFilteredRGBs);
+  @Override
+  public ImageGrid boxBlur(BoxBlur blur) throws IllegalArgumentException {
+    if (blur == null) {
+      throw new IllegalArgumentException("blur cannot be null");
+    }
+    int[] blurred = blur.apply(imageWidth, imageHeight, this::getPackedRow);
+    return applyOperation((grid, h, w) -> grid[h][w] = RGB.fromPacked(blurred[h * imageWidth + w]));
   }
 
   /**
@@ -128,12 +150,18 @@ public class ImageGrid implements ImageProcessingModel {
   @Override
   public ImageGrid colorTransformation(String transformationType)
           throws IllegalArgumentException {
-    if (transformationType.equals("greyscale")) {
-      return this.channelComponent("luma-component");
-    } else {
-      return applyOperation((grid, h, w) ->
-              grid[h][w] = grid[h][w].setComponentColor(transformationType));
+    return colorTransformation(ColorMatrix.named(transformationType));
+  }
+
+  @Override
+  public ImageGrid colorTransformation(ColorMatrix matrix) throws IllegalArgumentException {
+    if (matrix == null) {
+      throw new IllegalArgumentException("matrix cannot be null");
     }
+    return applyOperation((grid, h, w) -> {
+      int p = matrix.apply(pixelGrid[h][w].toPacked());
+      grid[h][w] = RGB.fromPacked(p);
+    });
   }
 
   /**
@@ -144,82 +172,152 @@ public class ImageGrid implements ImageProcessingModel {
    * @return a new image with the applied downscale change
    */
   public ImageGrid downscaleImage(int widthPercentage, int heightPercentage) {
-    RGB[][] currGrid = this.getGrid();
+    RGB[][] currGrid = pixelGrid;
     int newHeight = (int) (imageHeight * (heightPercentage / 100.0));
     int newWidth = (int) (imageWidth * (widthPercentage / 100.0));
     RGB[][] newGrid = new RGB[newHeight][newWidth];
 
-    for (int h = 0; h < newHeight; h++) {
-      for (int w = 0; w < newWidth; w++) {
+    Parallelism.forEachRow(newHeight, newWidth, (startRow, endRow) -> {
+      for (int h = startRow; h < endRow; h++) {
+        for (int w = 0; w < newWidth; w++) {
 
 
-        double currH = (h + 0.0) / imageHeight * newHeight;
-        double currW = (w + 0.0) / imageWidth * newWidth;
-        int flW = (int) Math.floor(currW);
-        int cW = (int) Math.floor(currW) + 1;
-        int flH = (int) Math.floor(currH);
-        int cH = (int) Math.floor(currH) + 1;
-        System.out.println("" + flW + " " + cW + " " + flH + " " + cH);
+          double currH = (h + 0.0) / imageHeight * newHeight;
+          double currW = (w + 0.0) / imageWidth * newWidth;
+          int flW = (int) Math.floor(currW);
+          int cW = (int) Math.floor(currW) + 1;
+          int flH = (int) Math.floor(currH);
+          int cH = (int) Math.floor(currH) + 1;
 
-        if (flH >= imageHeight) {
-          flH = imageHeight - 1;
-        }
-        if (cH >= imageHeight) {
-          cH = imageHeight - 1;
-        }
-        if (flW >= imageWidth) {
-          flW = imageWidth - 1;
-        }
-        if (cW >= imageWidth) {
-          cW = imageWidth - 1;
-        }
-        RGB a = currGrid[flH][flW];
-        RGB b = currGrid[cH][flW];
-        RGB c = currGrid[flH][cW];
-        RGB d = currGrid[cH][cW];
+          if (flH >= imageHeight) {
+            flH = imageHeight - 1;
+          }
+          if (cH >= imageHeight) {
+            cH = imageHeight - 1;
+          }
+          if (flW >= imageWidth) {
+            flW = imageWidth - 1;
+          }
+          if (cW >= imageWidth) {
+            cW = imageWidth - 1;
+          }
+          RGB a = currGrid[flH][flW];
+          RGB b = currGrid[cH][flW];
+          RGB c = currGrid[flH][cW];
+          RGB d = currGrid[cH][cW];
 
-        if (currH == cH) {
-          cH += 1;
-        }
-        if (currW == cW) {
-          cW += 1;
-        }
+          if (currH == cH) {
+            cH += 1;
+          }
+          if (currW == cW) {
+            cW += 1;
+          }
 
-        double m = b.getRed() * (currH - flH) + a.getRed() * (cH - currH);
-        double n = d.getRed() * (currH - flH) + c.getRed() * (cH - currH);
-        int p = (int) (n * (currW - flW) + m * (cW - currW));
-        double mg = b.getGreen() * (currH - flH) + a.getGreen() * (cH - currH);
-        double ng = d.getGreen() * (currH - flH) + c.getGreen() * (cH - currH);
-        int pg = (int) (ng * (currW - flW) + mg * (cW - currW));
-        double mb = b.getBlue() * (currH - flH) + a.getBlue() * (cH - currH);
-        double nb = d.getBlue() * (currH - flH) + c.getBlue() * (cH - currH);
-        int pb = (int) (nb * (currW - flW) + mb * (cW - currW));
+          double m = b.getRed() * (currH - flH) + a.getRed() * (cH - currH);
+          double n = d.getRed() * (currH - flH) + c.getRed() * (cH - currH);
+          int p = (int) (n * (currW - flW) + m * (cW - currW));
+          double mg = b.getGreen() * (currH - flH) + a.getGreen() * (cH - currH);
+          double ng = d.getGreen() * (currH - flH) + c.getGreen() * (cH - currH);
+          int pg = (int) (ng * (currW - flW) + mg * (cW - currW));
+          double mb = b.getBlue() * (currH - flH) + a.getBlue() * (cH - currH);
+          double nb = d.getBlue() * (currH - flH) + c.getBlue() * (cH - currH);
+          int pb = (int) (nb * (currW - flW) + mb * (cW - currW));
 
 
-        newGrid[h][w] = new RGB(p, pg, pb);
+          newGrid[h][w] = RGB.of(p, pg, pb);
+        }
       }
+    });
+    return new ImageGrid(newGrid);
+  }
+
+  @Override
+  public ImageGrid downscaleImage(int widthPercentage, int heightPercentage,
+                                  ResampleFilter filter) throws IllegalArgumentException {
+    if (filter == null || widthPercentage < 0 || heightPercentage < 0) {
+      throw new IllegalArgumentException("percentages cannot be negative or filter null");
     }
+    int newHeight = (int) (imageHeight * (heightPercentage / 100.0));
+    int newWidth = (int) (imageWidth * (widthPercentage / 100.0));
+    int[] resized = Resampler.resize(getMipmap(), newWidth, newHeight, filter);
+    RGB[][] newGrid = new RGB[newHeight][newWidth];
+    Parallelism.forEachRow(newHeight, newWidth, (startRow, endRow) -> {
+      for (int h = startRow; h < endRow; h++) {
+        for (int w = 0; w < newWidth; w++) {
+          int p = resized[h * newWidth + w];
+          newGrid[h][w] = RGB.fromPacked(p);
+        }
+      }
+    });
     return new ImageGrid(newGrid);
   }
 
+  /**
+   * Gets the mipmap of this image, creating it the first time, so that its levels are made at
+   * most once.
+   */
+  private Mipmap getMipmap() {
+    Mipmap known = mipmap;
+    if (known == null) {
+      known = new Mipmap(this);
+      mipmap = known;
+    }
+    return known;
+  }
+
+  @Override
+  public ImageGrid applyLut(ChannelLut lut) throws IllegalArgumentException {
+    if (lut == null) {
+      throw new IllegalArgumentException("lookup table cannot be null");
+    }
+    return applyOperation((grid, h, w) -> {
+      int p = lut.apply(pixelGrid[h][w].toPacked());
+      grid[h][w] = RGB.fromPacked(p);
+    });
+  }
+
 
   /**
-   * Makes a copy of the pixel grid representing this image.
+   * Makes a copy of the pixel grid representing this image. Pixels are immutable, so the copy
+   * shares them with this image and only the arrays are copied.
    *
    * @return a copy of this image's pixel grid.
    */
   public RGB[][] getGrid() {
-    RGB[][] ret = new RGB[imageHeight][imageWidth];
+    RGB[][] ret = new RGB[imageHeight][];
     for (int h = 0; h < imageHeight; h++) {
-      for (int w = 0; w < imageWidth; w++) {
-        ret[h][w] = new RGB(pixelGrid[h][w].getRed(),
-                pixelGrid[h][w].getGreen(),
-                pixelGrid[h][w].getBlue());
-      }
+      ret[h] = pixelGrid[h].clone();
     }
     return ret;
   }
 
+  @Override
+  public void getPackedRow(int row, int[] pixels) {
+    for (int w = 0; w < imageWidth; w++) {
+      pixels[w] = pixelGrid[row][w].toPacked();
+    }
+  }
+
+  @Override
+  public boolean hasAlpha() {
+    return false;
+  }
+
+  @Override
+  public void getAlphaRow(int row, int[] alphas) {
+    Arrays.fill(alphas, 0, imageWidth, MAX_VALUE);
+  }
+
+  @Override
+  public Histogram getHistogram() {
+    Histogram known = histogram;
+    if (known == null) {
+      known = Histogram.compute(imageWidth, imageHeight, this::getPackedRow);
+      histogram = known;
+    }
+    return known;
+  }
+
   public int getImageWidth() {
     return imageWidth;
   }
@@ -32,6 +32,30 @@ public interface ImageProcessingModel {
    */
   ImageProcessingModel flipHorizontal();
 
+  /**
+   * Creates a new image by rotating this image clockwise by the given multiple of 90 degrees.
+   * Negative rotations turn the image counterclockwise.
+   *
+   * @param degrees the angle to rotate this image by, clockwise.
+   * @return a new version of this image rotated by the given angle.
+   * @throws IllegalArgumentException if the angle is not a multiple of 90 degrees.
+   */
+  ImageProcessingModel rotate(int degrees) throws IllegalArgumentException;
+
+  /**
+   * Creates a new image holding the given rectangle of this image.
+   *
+   * @param x      the column of the top left pixel of the rectangle.
+   * @param y      the row of the top left pixel of the rectangle.
+   * @param width  the width of the rectangle.
+   * @param height the height of the rectangle.
+   * @return a new image holding the pixels of this image within the rectangle.
+   * @throws IllegalArgumentException if the rectangle does not cover at least one pixel or does
+   *                                  not lie within this image.
+   */
+  ImageProcessingModel crop(int x, int y, int width, int height)
+          throws IllegalArgumentException;
+
   /**
    * Creates a new image by converting this image to greyscale based on the specified
    * individual channel or component given to be visualized.
@@ -53,6 +77,29 @@ public interface ImageProcessingModel {
    */
   ImageProcessingModel filter(String filterType);
 
+  /**
+   * Creates a new image by convolving this image with the given kernel. Each channel of a new
+   * pixel is the weighted sum of the same channel of its neighbors, clamped between 0 and the
+   * maximum value.
+   *
+   * @param kernel the weights to apply to each pixel's neighbors.
+   * @param border how neighbors that fall outside this image are treated.
+   * @return a new version of this image with the kernel applied.
+   * @throws IllegalArgumentException if the kernel or border mode is null.
+   */
+  ImageProcessingModel convolve(Kernel kernel, BorderMode border) throws IllegalArgumentException;
+
+  /**
+   * Creates a new image by applying the given box blur, or stack of box blurs, to this image.
+   * Each box is computed from summed-area tables, so the time it takes per pixel does not
+   * depend on its radius.
+   *
+   * @param blur the blur to apply.
+   * @return a new version of this image with the blur applied.
+   * @throws IllegalArgumentException if the blur is null.
+   */
+  ImageProcessingModel boxBlur(BoxBlur blur) throws IllegalArgumentException;
+
   /**
    * Creates a new image by applying the given color transformation to modify the color of this
    * image's pixels based on their current colors.
@@ -62,6 +109,16 @@ public interface ImageProcessingModel {
    */
   ImageProcessingModel colorTransformation(String transformationType);
 
+  /**
+   * Creates a new image by multiplying the channels of every pixel of this image by the given
+   * color matrix.
+   *
+   * @param matrix the color matrix to apply.
+   * @return a new version of this image with the color matrix applied.
+   * @throws IllegalArgumentException if the given matrix is null.
+   */
+  ImageProcessingModel colorTransformation(ColorMatrix matrix) throws IllegalArgumentException;
+
   /**
    * Creates a new image by downscaling the image's size based on the given width and height
    * percentages.
@@ -72,6 +129,28 @@ public interface ImageProcessingModel {
    */
   ImageProcessingModel downscaleImage(int widthPercentage, int heightPercentage);
 
+  /**
+   * Creates a new image by downscaling the image's size based on the given width and height
+   * percentages, computing each new pixel with the given filter from the pixels it covers.
+   *
+   * @param widthPercentage  the given width percentage
+   * @param heightPercentage the given height percentage
+   * @param filter           how the new pixels are computed
+   * @return a new version of this image with the applied downscale change
+   * @throws IllegalArgumentException if a percentage is negative or the filter is null.
+   */
+  ImageProcessingModel downscaleImage(int widthPercentage, int heightPercentage,
+                                      ResampleFilter filter) throws IllegalArgumentException;
+
+  /**
+   * Creates a new image by mapping every pixel of this image through the given lookup table.
+   *
+   * @param lut the lookup table to apply.
+   * @return a new version of this image with the lookup table applied.
+   * @throws IllegalArgumentException if the given lookup table is null.
+   */
+  ImageProcessingModel applyLut(ChannelLut lut) throws IllegalArgumentException;
+
   /**
    * Makes a copy of the pixel grid representing this image.
    *
@@ -79,6 +158,41 @@ public interface ImageProcessingModel {
    */
   RGB[][] getGrid();
 
+  /**
+   * Gets the red, green, blue, and intensity histograms of this image. Images are immutable, so
+   * the histograms are computed once and kept with the image.
+   *
+   * @return the histograms of this image.
+   */
+  Histogram getHistogram();
+
+  /**
+   * Copies one row of this image's pixels into the given array, packed as 0xRRGGBB, without
+   * copying the rest of the image.
+   *
+   * @param row    the row to copy.
+   * @param pixels the array to copy the row into, which must hold at least the image's width.
+   */
+  void getPackedRow(int row, int[] pixels);
+
+  /**
+   * Gets whether this image has an alpha channel, so that some of its pixels may be transparent.
+   * Images without one are fully opaque and store no alpha at all.
+   *
+   * @return true if this image has an alpha channel.
+   */
+  boolean hasAlpha();
+
+  /**
+   * Copies the alpha of each pixel in one row of this image into the given array, from 0 for a
+   * fully transparent pixel to 255 for a fully opaque one. Every pixel of an image without an
+   * alpha channel is fully opaque.
+   *
+   * @param row    the row to copy.
+   * @param alphas the array to copy the alphas into, which must hold at least the image's width.
+   */
+  void getAlphaRow(int row, int[] alphas);
+
   /**
    * Gets the width of this image.
    *
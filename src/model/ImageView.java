@@ -0,0 +1,315 @@
+package model;
+
+import java.util.Arrays;
+
+import static model.ImageGrid.MAX_VALUE;
+
+/**
+ * Represents a flipped, rotated, or cropped image that reads the pixels of the image it was made
+ * from instead of copying them. Each pixel of a view is found in that image through an index
+ * transform: the position of the view's first pixel, and the steps taken in the image for each
+ * step right or down in the view, each one pixel along a row or a column in either direction. A
+ * geometric operation on a view only changes the transform, so chained operations are composed
+ * into one view of the original image, and operations that cancel out (such as two flips) give
+ * the original image back. Creating a view takes the same time for any size of image. The alpha
+ * of an image with an alpha channel is read through the same transform as its colors.
+ *
+ * <p>Rows are read through the transform, so views can be saved, displayed, or read a row at a
+ * time without copying. Other operations need contiguous pixels: the first of them copies the
+ * view into a PackedImage, which the view keeps for the operations after it.
+ */
+public final class ImageView implements ImageProcessingModel {
+
+  private final ImageProcessingModel base;
+  private final PixelReader reader;
+  private final PixelReader alphaReader;
+  private final PackedImage packedBase;
+  private final int originX;
+  private final int originY;
+  private final int rightX;
+  private final int rightY;
+  private final int downX;
+  private final int downY;
+  private final int imageWidth;
+  private final int imageHeight;
+  private volatile PackedImage contiguous;
+  private volatile Histogram histogram;
+
+  private ImageView(ImageProcessingModel base, PixelReader reader, PixelReader alphaReader,
+                    int originX, int originY, int rightX, int rightY, int downX, int downY,
+                    int imageWidth, int imageHeight) {
+    this.base = base;
+    this.reader = reader;
+    this.alphaReader = alphaReader;
+    this.packedBase = base instanceof PackedImage ? (PackedImage) base : null;
+    this.originX = originX;
+    this.originY = originY;
+    this.rightX = rightX;
+    this.rightY = rightY;
+    this.downX = downX;
+    this.downY = downY;
+    this.imageWidth = imageWidth;
+    this.imageHeight = imageHeight;
+  }
+
+  /**
+   * Creates the view of the whole of the given image, unchanged, reading its pixels with the
+   * given reader and their alphas with the other, which is null if the image is opaque. The
+   * pixels the readers read must not change while the view is in use.
+   */
+  static ImageView of(ImageProcessingModel base, PixelReader reader, PixelReader alphaReader) {
+    return new ImageView(base, reader, alphaReader, 0, 0, 1, 0, 0, 1,
+            base.getImageWidth(), base.getImageHeight());
+  }
+
+  /**
+   * Creates the view of the base image with the given transform, or gets the base image itself
+   * if the transform leaves it unchanged.
+   */
+  private ImageProcessingModel view(int originX, int originY, int rightX, int rightY,
+                                    int downX, int downY, int imageWidth, int imageHeight) {
+    if (originX == 0 && originY == 0 && rightX == 1 && downY == 1
+            && imageWidth == base.getImageWidth() && imageHeight == base.getImageHeight()) {
+      return base;
+    }
+    return new ImageView(base, reader, alphaReader, originX, originY, rightX, rightY,
+            downX, downY, imageWidth, imageHeight);
+  }
+
+  /**
+   * Checks that the given rotation is a multiple of 90 degrees, and gets it as 0, 90, 180, or
+   * 270 degrees clockwise.
+   *
+   * @throws IllegalArgumentException if the rotation is not a multiple of 90 degrees.
+   */
+  static int quarterTurns(int degrees) throws IllegalArgumentException {
+    if (degrees % 90 != 0) {
+      throw new IllegalArgumentException("rotations must be a multiple of 90 degrees");
+    }
+    return ((degrees / 90) % 4 + 4) % 4;
+  }
+
+  /**
+   * Checks that the given rectangle covers at least one pixel and lies within an image of the
+   * given size.
+   *
+   * @throws IllegalArgumentException if the rectangle is empty or not within the image.
+   */
+  static void checkCrop(int x, int y, int width, int height, int imageWidth, int imageHeight)
+          throws IllegalArgumentException {
+    if (x < 0 || y < 0 || width < 1 || height < 1
+            || width > imageWidth - x || height > imageHeight - y) {
+      throw new IllegalArgumentException("crop must cover at least one pixel of the image");
+    }
+  }
+
+  @Override
+  public ImageProcessingModel flipVertical() {
+    return view(originX + (imageHeight - 1) * downX, originY + (imageHeight - 1) * downY,
+            rightX, rightY, -downX, -downY, imageWidth, imageHeight);
+  }
+
+  @Override
+  public ImageProcessingModel flipHorizontal() {
+    return view(originX + (imageWidth - 1) * rightX, originY + (imageWidth - 1) * rightY,
+            -rightX, -rightY, downX, downY, imageWidth, imageHeight);
+  }
+
+  @Override
+  public ImageProcessingModel rotate(int degrees) throws IllegalArgumentException {
+    switch (quarterTurns(degrees)) {
+      case 1:
+        //the first column, read from the bottom up, becomes the first row
+        return view(originX + (imageHeight - 1) * downX, originY + (imageHeight - 1) * downY,
+                -downX, -downY, rightX, rightY, imageHeight, imageWidth);
+      case 2:
+        return view(originX + (imageWidth - 1) * rightX + (imageHeight - 1) * downX,
+                originY + (imageWidth - 1) * rightY + (imageHeight - 1) * downY,
+                -rightX, -rightY, -downX, -downY, imageWidth, imageHeight);
+      case 3:
+        //the last column, read from the top down, becomes the first row
+        return view(originX + (imageWidth - 1) * rightX, originY + (imageWidth - 1) * rightY,
+                downX, downY, -rightX, -rightY, imageHeight, imageWidth);
+      default:
+        return view(originX, originY, rightX, rightY, downX, downY, imageWidth, imageHeight);
+    }
+  }
+
+  @Override
+  public ImageProcessingModel crop(int x, int y, int width, int height)
+          throws IllegalArgumentException {
+    checkCrop(x, y, width, height, imageWidth, imageHeight);
+    return view(originX + x * rightX + y * downX, originY + x * rightY + y * downY,
+            rightX, rightY, downX, downY, width, height);
+  }
+
+  /**
+   * Copies this view into a PackedImage the first time, and keeps the copy for the operations
+   * that need contiguous pixels.
+   */
+  private PackedImage contiguous() {
+    PackedImage known = contiguous;
+    if (known == null) {
+      known = PackedImage.fromRows(imageWidth, imageHeight, this::getPackedRow,
+              alphaReader == null ? null : this::getAlphaRow);
+      contiguous = known;
+    }
+    return known;
+  }
+
+  @Override
+  public void getPackedRow(int row, int[] pixels) {
+    int x = originX + row * downX;
+    int y = originY + row * downY;
+    if (rightY == 0 && packedBase != null) {
+      //the row is part of a row of the base image, read straight from its storage
+      int[] src = packedBase.rowArray(y);
+      int at = packedBase.rowOffset(y) + x;
+      if (rightX == 1) {
+        System.arraycopy(src, at, pixels, 0, imageWidth);
+      } else {
+        for (int w = 0; w < imageWidth; w++) {
+          pixels[w] = src[at - w];
+        }
+      }
+      return;
+    }
+    if (rightX == 1 && x == 0 && imageWidth == base.getImageWidth()) {
+      base.getPackedRow(y, pixels);
+      return;
+    }
+    for (int w = 0; w < imageWidth; w++) {
+      pixels[w] = reader.read(x, y);
+      x += rightX;
+      y += rightY;
+    }
+  }
+
+  @Override
+  public boolean hasAlpha() {
+    return alphaReader != null;
+  }
+
+  @Override
+  public void getAlphaRow(int row, int[] alphas) {
+    if (alphaReader == null) {
+      Arrays.fill(alphas, 0, imageWidth, MAX_VALUE);
+      return;
+    }
+    int x = originX + row * downX;
+    int y = originY + row * downY;
+    for (int w = 0; w < imageWidth; w++) {
+      alphas[w] = alphaReader.read(x, y);
+      x += rightX;
+      y += rightY;
+    }
+  }
+
+  @Override
+  public RGB[][] getGrid() {
+    RGB[][] grid = new RGB[imageHeight][imageWidth];
+    int[] row = new int[imageWidth];
+    for (int h = 0; h < imageHeight; h++) {
+      getPackedRow(h, row);
+      for (int w = 0; w < imageWidth; w++) {
+        grid[h][w] = RGB.fromPacked(row[w]);
+      }
+    }
+    return grid;
+  }
+
+  /**
+   * Gets the histograms of this view. A view of the whole image has the same pixels in another
+   * order, so it has the histograms of the image; the histograms of a cropped view are computed
+   * from its rows the first time.
+   *
+   * @return the histograms of this view.
+   */
+  @Override
+  public Histogram getHistogram() {
+    if ((long) imageWidth * imageHeight
+            == (long) base.getImageWidth() * base.getImageHeight()) {
+      return base.getHistogram();
+    }
+    Histogram known = histogram;
+    if (known == null) {
+      known = Histogram.compute(imageWidth, imageHeight, this::getPackedRow);
+      histogram = known;
+    }
+    return known;
+  }
+
+  @Override
+  public ImageProcessingModel brighten(int value) {
+    if (value == 0) {
+      return this;
+    }
+    return contiguous().brighten(value);
+  }
+
+  @Override
+  public ImageProcessingModel channelComponent(String component)
+          throws IllegalArgumentException {
+    return contiguous().channelComponent(component);
+  }
+
+  @Override
+  public ImageProcessingModel filter(String filterType) throws IllegalArgumentException {
+    return contiguous().filter(filterType);
+  }
+
+  @Override
+  public ImageProcessingModel convolve(Kernel kernel, BorderMode border)
+          throws IllegalArgumentException {
+    return contiguous().convolve(kernel, border);
+  }
+
+  @Override
+  public ImageProcessingModel boxBlur(BoxBlur blur) throws IllegalArgumentException {
+    return contiguous().boxBlur(blur);
+  }
+
+  @Override
+  public ImageProcessingModel colorTransformation(String transformationType)
+          throws IllegalArgumentException {
+    return contiguous().colorTransformation(transformationType);
+  }
+
+  @Override
+  public ImageProcessingModel colorTransformation(ColorMatrix matrix)
+          throws IllegalArgumentException {
+    return contiguous().colorTransformation(matrix);
+  }
+
+  @Override
+  public ImageProcessingModel downscaleImage(int widthPercentage, int heightPercentage) {
+    return contiguous().downscaleImage(widthPercentage, heightPercentage);
+  }
+
+  @Override
+  public ImageProcessingModel downscaleImage(int widthPercentage, int heightPercentage,
+                                             ResampleFilter filter)
+          throws IllegalArgumentException {
+    return contiguous().downscaleImage(widthPercentage, heightPercentage, filter);
+  }
+
+  @Override
+  public ImageProcessingModel applyLut(ChannelLut lut) throws IllegalArgumentException {
+    return contiguous().applyLut(lut);
+  }
+
+  @Override
+  public int getImageWidth() {
+    return imageWidth;
+  }
+
+  @Override
+  public int getImageHeight() {
+    return imageHeight;
+  }
+
+  @Override
+  public int getMaxValue() {
+    return MAX_VALUE;
+  }
+}
@@ -0,0 +1,208 @@
+package model;
+
+/**
+ * Represents the weights of a convolution filter. The weights form a grid with an odd number of
+ * rows and columns, centered on the pixel being computed. Kernels are immutable.
+ *
+ * <p>A kernel whose weights are the product of one column of weights and one row of weights
+ * (such as a Gaussian blur) is separable, and is applied as a horizontal pass followed by a
+ * vertical pass instead of visiting every weight for every pixel.
+ */
+public final class Kernel {
+
+  /**
+   * The built-in blur filter. Like the original filter, each neighbor's channels are multiplied
+   * by its weight and truncated before being summed.
+   */
+  public static final Kernel BLUR = new Kernel(new double[][]{
+      {1 / 16d, 1 / 8d, 1 / 16d},
+      {1 / 8d, 1 / 4d, 1 / 8d},
+      {1 / 16d, 1 / 8d, 1 / 16d}}, true);
+
+  /**
+   * The built-in sharpen filter. Like the original filter, each neighbor's channels are multiplied
+   * by its weight and truncated before being summed.
+   */
+  public static final Kernel SHARPEN = new Kernel(new double[][]{
+      {-1 / 8d, -1 / 8d, -1 / 8d, -1 / 8d, -1 / 8d},
+      {-1 / 8d, 1 / 4d, 1 / 4d, 1 / 4d, -1 / 8d},
+      {-1 / 8d, 1 / 4d, 1d, 1 / 4d, -1 / 8d},
+      {-1 / 8d, 1 / 4d, 1 / 4d, 1 / 4d, -1 / 8d},
+      {-1 / 8d, -1 / 8d, -1 / 8d, -1 / 8d, -1 / 8d}}, true);
+
+  private static final double SEPARABLE_TOLERANCE = 1e-9;
+
+  private final double[][] weights;
+  private final boolean truncatesTaps;
+  private final double[] columnWeights;
+  private final double[] rowWeights;
+
+  /**
+   * Creates a kernel with the given weights. Each channel of a filtered pixel is the weighted sum
+   * of its neighbors' channels, truncated to an integer.
+   *
+   * @param weights the weights of this kernel, one array per row.
+   * @throws IllegalArgumentException if the weights are null, are not rectangular, do not have an
+   *                                  odd number of rows and columns, or are not all finite.
+   */
+  public Kernel(double[][] weights) throws IllegalArgumentException {
+    this(weights, false);
+  }
+
+  private Kernel(double[][] weights, boolean truncatesTaps) throws IllegalArgumentException {
+    if (weights == null || weights.length % 2 == 0 || weights[0] == null
+            || weights[0].length % 2 == 0) {
+      throw new IllegalArgumentException("kernel must have an odd number of rows and columns");
+    }
+    this.weights = new double[weights.length][];
+    for (int h = 0; h < weights.length; h++) {
+      if (weights[h] == null || weights[h].length != weights[0].length) {
+        throw new IllegalArgumentException("kernel rows must all have the same length");
+      }
+      for (double weight : weights[h]) {
+        if (!Double.isFinite(weight)) {
+          throw new IllegalArgumentException("kernel weights must be finite");
+        }
+      }
+      this.weights[h] = weights[h].clone();
+    }
+    this.truncatesTaps = truncatesTaps;
+
+    double[][] factors = truncatesTaps ? null : factor(this.weights);
+    this.columnWeights = factors == null ? null : factors[0];
+    this.rowWeights = factors == null ? null : factors[1];
+  }
+
+  /**
+   * Gets the built-in kernel with the given filter name.
+   *
+   * @param name the name of the filter, either blur or sharpen.
+   * @return the built-in kernel with that name.
+   * @throws IllegalArgumentException if there is no built-in filter with the given name.
+   */
+  public static Kernel named(String name) throws IllegalArgumentException {
+    if ("blur".equals(name)) {
+      return BLUR;
+    } else if ("sharpen".equals(name)) {
+      return SHARPEN;
+    }
+    throw new IllegalArgumentException("invalid filter type");
+  }
+
+  /**
+   * Creates a normalized Gaussian blur kernel with the given standard deviation, extending three
+   * standard deviations from the center.
+   *
+   * @param sigma the standard deviation of the blur, in pixels.
+   * @return the Gaussian kernel.
+   * @throws IllegalArgumentException if sigma is not positive.
+   */
+  public static Kernel gaussian(double sigma) throws IllegalArgumentException {
+    if (!(sigma > 0) || Double.isInfinite(sigma)) {
+      throw new IllegalArgumentException("sigma must be positive");
+    }
+    int radius = (int) Math.ceil(3 * sigma);
+    double[] line = new double[2 * radius + 1];
+    double total = 0;
+    for (int i = 0; i < line.length; i++) {
+      line[i] = Math.exp(-((i - radius) * (i - radius)) / (2 * sigma * sigma));
+      total += line[i];
+    }
+    double[][] weights = new double[line.length][line.length];
+    for (int h = 0; h < line.length; h++) {
+      for (int w = 0; w < line.length; w++) {
+        weights[h][w] = line[h] / total * line[w] / total;
+      }
+    }
+    return new Kernel(weights);
+  }
+
+  /**
+   * Splits the given weights into a column and a row whose product gives back the weights, or
+   * returns null if the weights are not separable.
+   */
+  private static double[][] factor(double[][] weights) {
+    int pivotH = 0;
+    int pivotW = 0;
+    double largest = 0;
+    for (int h = 0; h < weights.length; h++) {
+      for (int w = 0; w < weights[0].length; w++) {
+        if (Math.abs(weights[h][w]) > largest) {
+          largest = Math.abs(weights[h][w]);
+          pivotH = h;
+          pivotW = w;
+        }
+      }
+    }
+    if (largest == 0 || (weights.length == 1 && weights[0].length == 1)) {
+      return null;
+    }
+
+    double pivot = weights[pivotH][pivotW];
+    double[] column = new double[weights.length];
+    double[] row = weights[pivotH].clone();
+    for (int h = 0; h < weights.length; h++) {
+      column[h] = weights[h][pivotW] / pivot;
+      for (int w = 0; w < weights[0].length; w++) {
+        if (Math.abs(column[h] * row[w] - weights[h][w]) > SEPARABLE_TOLERANCE * largest) {
+          return null;
+        }
+      }
+    }
+    return new double[][]{column, row};
+  }
+
+  /**
+   * Gets the number of rows of this kernel.
+   *
+   * @return the height of this kernel.
+   */
+  public int getHeight() {
+    return weights.length;
+  }
+
+  /**
+   * Gets the number of columns of this kernel.
+   *
+   * @return the width of this kernel.
+   */
+  public int getWidth() {
+    return weights[0].length;
+  }
+
+  /**
+   * Gets the weight at the given row and column of this kernel.
+   *
+   * @param row    the row of the weight.
+   * @param column the column of the weight.
+   * @return the weight at that position.
+   */
+  public double getWeight(int row, int column) {
+    return weights[row][column];
+  }
+
+  /**
+   * Gets whether this kernel is applied as a horizontal pass followed by a vertical pass.
+   *
+   * @return true if this kernel is separable, and false otherwise.
+   */
+  public boolean isSeparable() {
+    return rowWeights != null;
+  }
+
+  boolean truncatesTaps() {
+    return truncatesTaps;
+  }
+
+  double[][] weights() {
+    return weights;
+  }
+
+  double[] columnWeights() {
+    return columnWeights;
+  }
+
+  double[] rowWeights() {
+    return rowWeights;
+  }
+}
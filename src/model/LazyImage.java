@@ -0,0 +1,471 @@
+package model;
+
+import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
+
+import static model.ImageGrid.MAX_VALUE;
+
+/**
+ * Represents an image that has not been computed yet: a node in a graph of operations rooted
+ * at images that exist. Every operation on a lazy image returns a new node without touching any
+ * pixels, and the pixels of a node are only computed when they are read (when its rows, grid,
+ * or histogram are requested, or it is materialized).
+ *
+ * <p>A node is computed in a single pass over its source rows: the lookup tables of consecutive
+ * point operations (brighten, darken, red, green, or blue component) are composed into one
+ * table, a color matrix is composed with the ones after it when its channels need no rounding
+ * or clamping (such as swapping or inverting channels), so that the composed matrix gives
+ * exactly the channels of the matrices applied one at a time, other per-pixel operations and
+ * flips are applied to each row as it is produced, and no intermediate image is stored.
+ * Operations that need whole images (filters, convolutions, box blurs,
+ * rotations, crops, and downscaling) are applied to their computed input. A node read by more
+ * than one operation is computed once and kept, as is any node that is materialized, so that
+ * shared work is never repeated. A node that has been kept lets go of its input, so the images
+ * and nodes it was computed from can be freed once nothing else reads them.
+ *
+ * <p>The alphas of an image with an alpha channel are produced alongside its colors, moved by
+ * flips and left as they are by other operations on rows. A whole-image operation whose alphas
+ * are needed is kept once computed, so that its colors are not computed a second time.
+ *
+ * <p>The arguments of an operation are checked when the node is created, so an invalid
+ * operation fails right away as it would on any other image.
+ */
+public final class LazyImage implements ImageProcessingModel {
+
+  /**
+   * Represents how the rows of a node are produced from the rows of its input.
+   */
+  private enum Kind {
+    SOURCE, LUT, MATRIX, PIXEL, FLIP_VERTICAL, FLIP_HORIZONTAL, WHOLE
+  }
+
+  private final Kind kind;
+  //cleared once the node is kept, always after materialized is set
+  private volatile ImageProcessingModel source;
+  private volatile LazyImage input;
+  private final ChannelLut lut;
+  private final ColorMatrix matrix;
+  private final IntUnaryOperator pixel;
+  private final Function<ImageProcessingModel, ImageProcessingModel> whole;
+  private final int imageWidth;
+  private final int imageHeight;
+
+  private int reads;
+  private volatile ImageProcessingModel materialized;
+
+  private LazyImage(Kind kind, ImageProcessingModel source, LazyImage input, ChannelLut lut,
+                    ColorMatrix matrix, IntUnaryOperator pixel,
+                    Function<ImageProcessingModel, ImageProcessingModel> whole,
+                    int imageWidth, int imageHeight) {
+    this.kind = kind;
+    this.source = source;
+    this.input = input;
+    this.lut = lut;
+    this.matrix = matrix;
+    this.pixel = pixel;
+    this.whole = whole;
+    this.imageWidth = imageWidth;
+    this.imageHeight = imageHeight;
+  }
+
+  /**
+   * Creates the lazy image whose operations are deferred until their results are read, starting
+   * from the given image.
+   *
+   * @param image the image to start from.
+   * @return the given image if it is already lazy, or a lazy image reading the given image.
+   * @throws IllegalArgumentException if the image is null.
+   */
+  public static LazyImage of(ImageProcessingModel image) throws IllegalArgumentException {
+    if (image == null) {
+      throw new IllegalArgumentException("image cannot be null");
+    }
+    if (image instanceof LazyImage) {
+      return (LazyImage) image;
+    }
+    return new LazyImage(Kind.SOURCE, image, null, null, null, null, null,
+            image.getImageWidth(), image.getImageHeight());
+  }
+
+  /**
+   * Creates a node reading this one, counting the read.
+   */
+  private synchronized LazyImage then(Kind kind, ChannelLut lut, IntUnaryOperator pixel,
+                                      Function<ImageProcessingModel, ImageProcessingModel> whole,
+                                      int imageWidth, int imageHeight) {
+    reads++;
+    return new LazyImage(kind, null, this, lut, null, pixel, whole, imageWidth, imageHeight);
+  }
+
+  /**
+   * Creates a node applying the given color matrix to this one, counting the read.
+   */
+  private synchronized LazyImage then(ColorMatrix matrix) {
+    reads++;
+    return new LazyImage(Kind.MATRIX, null, this, null, matrix, null, null,
+            imageWidth, imageHeight);
+  }
+
+  /**
+   * Gets whether this node is read by more than one operation, so it is worth keeping once it
+   * is computed.
+   */
+  private synchronized boolean isShared() {
+    return kind != Kind.SOURCE && reads > 1;
+  }
+
+  /**
+   * Computes this image if it has not been computed yet, and keeps the result.
+   *
+   * @return the computed image.
+   */
+  public synchronized ImageProcessingModel materialize() {
+    if (materialized == null) {
+      materialized = compute();
+      source = null;
+      input = null;
+    }
+    return materialized;
+  }
+
+  /**
+   * Gets the image whose pixels this lazy image holds, without computing anything: the image it
+   * was made from, if it was made from an existing image, and otherwise its computed image once
+   * it has been kept.
+   *
+   * @return the image held, or null if this lazy image has not been computed and kept.
+   */
+  public ImageProcessingModel getHeld() {
+    //the source is read before the result, as it is only cleared once the result is set
+    ImageProcessingModel original = source;
+    ImageProcessingModel done = materialized;
+    if (done != null) {
+      return done;
+    }
+    return kind == Kind.SOURCE ? original : null;
+  }
+
+  /**
+   * Gets the computed image of this node, keeping it only if it is shared.
+   */
+  private ImageProcessingModel image() {
+    return isShared() ? materialize() : compute();
+  }
+
+  /**
+   * Computes the image of this node without keeping it.
+   */
+  private ImageProcessingModel compute() {
+    //the inputs are read before the result, as they are only cleared once it is set
+    ImageProcessingModel original = source;
+    LazyImage in = input;
+    ImageProcessingModel done = materialized;
+    if (done != null) {
+      return done;
+    }
+    switch (kind) {
+      case SOURCE:
+        return original;
+      case WHOLE:
+        return whole.apply(in.image());
+      default:
+        //a whole image the alphas need is kept first, so the rows read it rather than redo it
+        RowWriter alphas = alphaRows();
+        return PackedImage.fromRows(imageWidth, imageHeight, rows(), alphas);
+    }
+  }
+
+  /**
+   * Gets the writer producing the alphas of the rows of this node for the nodes reading it, or
+   * null if it is opaque, computing and keeping this node first if it is shared.
+   */
+  private RowWriter readAlpha() {
+    return isShared() ? materialize()::getAlphaRow : alphaRows();
+  }
+
+  /**
+   * Gets the writer producing the alphas of the rows of this node from those of its input, or
+   * null if it is opaque. Flips move the alphas and other operations on rows leave them as they
+   * are, while an operation on the whole image is computed and kept.
+   */
+  private RowWriter alphaRows() {
+    if (!hasAlpha()) {
+      return null;
+    }
+    ImageProcessingModel original = source;
+    LazyImage in = input;
+    ImageProcessingModel done = materialized;
+    if (done != null) {
+      return done::getAlphaRow;
+    }
+    switch (kind) {
+      case SOURCE:
+        return original::getAlphaRow;
+      case WHOLE:
+        return materialize()::getAlphaRow;
+      case FLIP_VERTICAL:
+        RowWriter upright = in.readAlpha();
+        return (h, row) -> upright.write(imageHeight - 1 - h, row);
+      case FLIP_HORIZONTAL:
+        RowWriter unflipped = in.readAlpha();
+        return (h, row) -> {
+          unflipped.write(h, row);
+          for (int left = 0, right = imageWidth - 1; left < right; left++, right--) {
+            int a = row[left];
+            row[left] = row[right];
+            row[right] = a;
+          }
+        };
+      default:
+        return in.readAlpha();
+    }
+  }
+
+  /**
+   * Gets the writer producing the rows of this node for the nodes reading it, computing and
+   * keeping this node first if it is shared.
+   */
+  private RowWriter read() {
+    return isShared() ? materialize()::getPackedRow : rows();
+  }
+
+  /**
+   * Gets the writer producing the rows of this node from the rows of its input. Every shared
+   * node and whole-image operation this depends on is computed before this returns, so the
+   * writer itself only transforms rows.
+   */
+  private RowWriter rows() {
+    ImageProcessingModel original = source;
+    LazyImage in = input;
+    ImageProcessingModel done = materialized;
+    if (done != null) {
+      return done::getPackedRow;
+    }
+    switch (kind) {
+      case SOURCE:
+        return original::getPackedRow;
+      case WHOLE:
+        return compute()::getPackedRow;
+      case LUT:
+        ChannelLut fused = lut;
+        LazyImage base = in;
+        while (base.kind == Kind.LUT && !base.isShared()) {
+          LazyImage next = base.input;
+          if (next == null || base.materialized != null) {
+            break;
+          }
+          fused = base.lut.andThen(fused);
+          base = next;
+        }
+        RowWriter unmapped = base.read();
+        ChannelLut table = fused;
+        return (h, row) -> {
+          unmapped.write(h, row);
+          table.apply(row, 0, row, 0, imageWidth);
+        };
+      case MATRIX:
+        ColorMatrix composed = matrix;
+        LazyImage first = in;
+        //a matrix whose channels are rounded or clamped is applied on its own, as it is eagerly
+        while (first.kind == Kind.MATRIX && !first.isShared() && first.matrix.isExact()) {
+          LazyImage next = first.input;
+          ColorMatrix both = first.matrix.compose(composed);
+          if (next == null || first.materialized != null || both == null) {
+            break;
+          }
+          composed = both;
+          first = next;
+        }
+        RowWriter untransformed = first.read();
+        ColorMatrix transform = composed;
+        return (h, row) -> {
+          untransformed.write(h, row);
+          transform.apply(row, 0, row, 0, imageWidth);
+        };
+      case PIXEL:
+        RowWriter unchanged = in.read();
+        return (h, row) -> {
+          unchanged.write(h, row);
+          for (int w = 0; w < imageWidth; w++) {
+            row[w] = pixel.applyAsInt(row[w]);
+          }
+        };
+      case FLIP_VERTICAL:
+        RowWriter upright = in.read();
+        return (h, row) -> upright.write(imageHeight - 1 - h, row);
+      default:
+        RowWriter unflipped = in.read();
+        return (h, row) -> {
+          unflipped.write(h, row);
+          for (int left = 0, right = imageWidth - 1; left < right; left++, right--) {
+            int p = row[left];
+            row[left] = row[right];
+            row[right] = p;
+          }
+        };
+    }
+  }
+
+  @Override
+  public LazyImage brighten(int value) {
+    return applyLut(ChannelLut.brighten(value));
+  }
+
+  @Override
+  public LazyImage flipVertical() {
+    return then(Kind.FLIP_VERTICAL, null, null, null, imageWidth, imageHeight);
+  }
+
+  @Override
+  public LazyImage flipHorizontal() {
+    return then(Kind.FLIP_HORIZONTAL, null, null, null, imageWidth, imageHeight);
+  }
+
+  @Override
+  public LazyImage rotate(int degrees) throws IllegalArgumentException {
+    boolean sideways = ImageView.quarterTurns(degrees) % 2 == 1;
+    return then(Kind.WHOLE, null, null, image -> image.rotate(degrees),
+            sideways ? imageHeight : imageWidth, sideways ? imageWidth : imageHeight);
+  }
+
+  @Override
+  public LazyImage crop(int x, int y, int width, int height) throws IllegalArgumentException {
+    ImageView.checkCrop(x, y, width, height, imageWidth, imageHeight);
+    return then(Kind.WHOLE, null, null, image -> image.crop(x, y, width, height),
+            width, height);
+  }
+
+  @Override
+  public LazyImage channelComponent(String component) throws IllegalArgumentException {
+    if ("red-component".equals(component)) {
+      return applyLut(ChannelLut.component(ChannelLut.RED));
+    } else if ("green-component".equals(component)) {
+      return applyLut(ChannelLut.component(ChannelLut.GREEN));
+    } else if ("blue-component".equals(component)) {
+      return applyLut(ChannelLut.component(ChannelLut.BLUE));
+    } else if ("luma-component".equals(component)) {
+      return colorTransformation(ColorMatrix.luma());
+    }
+    IntUnaryOperator toGrey = PackedImage.componentOf(component);
+    return then(Kind.PIXEL, null, p -> PackedImage.grey(toGrey.applyAsInt(p)), null,
+            imageWidth, imageHeight);
+  }
+
+  @Override
+  public LazyImage filter(String filterType) throws IllegalArgumentException {
+    //looks the filter up now so that an invalid type fails here rather than when computed
+    Kernel.named(filterType);
+    return then(Kind.WHOLE, null, null, image -> image.filter(filterType),
+            imageWidth, imageHeight);
+  }
+
+  @Override
+  public LazyImage convolve(Kernel kernel, BorderMode border) throws IllegalArgumentException {
+    if (kernel == null || border == null) {
+      throw new IllegalArgumentException("kernel and border mode cannot be null");
+    }
+    return then(Kind.WHOLE, null, null, image -> image.convolve(kernel, border),
+            imageWidth, imageHeight);
+  }
+
+  @Override
+  public LazyImage boxBlur(BoxBlur blur) throws IllegalArgumentException {
+    if (blur == null) {
+      throw new IllegalArgumentException("blur cannot be null");
+    }
+    return then(Kind.WHOLE, null, null, image -> image.boxBlur(blur), imageWidth, imageHeight);
+  }
+
+  @Override
+  public LazyImage colorTransformation(String transformationType)
+          throws IllegalArgumentException {
+    return colorTransformation(ColorMatrix.named(transformationType));
+  }
+
+  @Override
+  public LazyImage colorTransformation(ColorMatrix matrix) throws IllegalArgumentException {
+    if (matrix == null) {
+      throw new IllegalArgumentException("matrix cannot be null");
+    }
+    return then(matrix);
+  }
+
+  @Override
+  public LazyImage downscaleImage(int widthPercentage, int heightPercentage)
+          throws IllegalArgumentException {
+    int newHeight = (int) (imageHeight * (heightPercentage / 100.0));
+    int newWidth = (int) (imageWidth * (widthPercentage / 100.0));
+    if (newHeight < 0 || newWidth < 0) {
+      throw new IllegalArgumentException("percentages cannot be negative");
+    }
+    return then(Kind.WHOLE, null, null,
+        image -> image.downscaleImage(widthPercentage, heightPercentage), newWidth, newHeight);
+  }
+
+  @Override
+  public LazyImage downscaleImage(int widthPercentage, int heightPercentage,
+                                  ResampleFilter filter) throws IllegalArgumentException {
+    if (filter == null || widthPercentage < 0 || heightPercentage < 0) {
+      throw new IllegalArgumentException("percentages cannot be negative or filter null");
+    }
+    int newHeight = (int) (imageHeight * (heightPercentage / 100.0));
+    int newWidth = (int) (imageWidth * (widthPercentage / 100.0));
+    return then(Kind.WHOLE, null, null,
+        image -> image.downscaleImage(widthPercentage, heightPercentage, filter),
+        newWidth, newHeight);
+  }
+
+  @Override
+  public LazyImage applyLut(ChannelLut lut) throws IllegalArgumentException {
+    if (lut == null) {
+      throw new IllegalArgumentException("lookup table cannot be null");
+    }
+    return then(Kind.LUT, lut, null, null, imageWidth, imageHeight);
+  }
+
+  @Override
+  public RGB[][] getGrid() {
+    return materialize().getGrid();
+  }
+
+  @Override
+  public Histogram getHistogram() {
+    return materialize().getHistogram();
+  }
+
+  @Override
+  public void getPackedRow(int row, int[] pixels) {
+    materialize().getPackedRow(row, pixels);
+  }
+
+  @Override
+  public boolean hasAlpha() {
+    ImageProcessingModel original = source;
+    LazyImage in = input;
+    ImageProcessingModel done = materialized;
+    if (done != null) {
+      return done.hasAlpha();
+    }
+    return kind == Kind.SOURCE ? original.hasAlpha() : in.hasAlpha();
+  }
+
+  @Override
+  public void getAlphaRow(int row, int[] alphas) {
+    materialize().getAlphaRow(row, alphas);
+  }
+
+  @Override
+  public int getImageWidth() {
+    return imageWidth;
+  }
+
+  @Override
+  public int getImageHeight() {
+    return imageHeight;
+  }
+
+  @Override
+  public int getMaxValue() {
+    return MAX_VALUE;
+  }
+}
@@ -0,0 +1,307 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+import static model.ImageGrid.MAX_VALUE;
+
+/**
+ * Represents an image whose pixels are read directly from buffers holding binary PPM samples,
+ * usually a file mapped into memory, instead of being copied onto the heap. Each buffer holds
+ * the same number of consecutive rows, so an image larger than a single buffer can hold is split
+ * across several of them.
+ *
+ * <p>Flips, rotations, and crops return ImageViews reading the same buffers, so no pixels are
+ * copied onto the heap. Operations that only need one row at a time (components, lookup tables,
+ * and filters) read this image's rows straight from the buffers and produce a PackedImage.
+ * Operations that need the whole image at once first copy it into a PackedImage.
+ */
+public class MappedImage implements ImageProcessingModel {
+
+  private final ByteBuffer[] chunks;
+  private final int rowsPerChunk;
+  private final int imageWidth;
+  private final int imageHeight;
+  private final int maxValue;
+  private final int bytesPerSample;
+  private volatile Histogram histogram;
+  private volatile Mipmap mipmap;
+
+  /**
+   * Creates the image from the given buffers of binary PPM samples. Every buffer but the last
+   * holds exactly the given number of rows, starting at its position; the buffers are not
+   * modified.
+   *
+   * @param chunks       the buffers holding the rows of this image.
+   * @param rowsPerChunk the number of rows held by each buffer.
+   * @param imageWidth   the width of this image.
+   * @param imageHeight  the height of this image.
+   * @param maxValue     the maximum value of a sample in the buffers, between 1 and 65535. Samples
+   *                     take two bytes, most significant first, if it is above 255.
+   * @throws IllegalArgumentException if the buffers are null or too small for the given size,
+   *                                  or a number is out of range.
+   */
+  public MappedImage(ByteBuffer[] chunks, int rowsPerChunk, int imageWidth, int imageHeight,
+                     int maxValue) throws IllegalArgumentException {
+    if (chunks == null || rowsPerChunk < 1 || imageWidth < 0 || imageHeight < 0
+            || maxValue < 1 || maxValue > 65535) {
+      throw new IllegalArgumentException("invalid mapped image");
+    }
+    this.bytesPerSample = maxValue > 255 ? 2 : 1;
+    long rowBytes = (long) imageWidth * 3 * bytesPerSample;
+    if (chunks.length != (imageHeight + rowsPerChunk - 1) / rowsPerChunk
+            || rowBytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("invalid mapped image");
+    }
+    this.chunks = new ByteBuffer[chunks.length];
+    for (int c = 0; c < chunks.length; c++) {
+      int rows = Math.min(rowsPerChunk, imageHeight - c * rowsPerChunk);
+      if (chunks[c] == null || chunks[c].remaining() < rows * rowBytes) {
+        throw new IllegalArgumentException("buffer too small for its rows");
+      }
+      this.chunks[c] = chunks[c].slice();
+    }
+    this.rowsPerChunk = rowsPerChunk;
+    this.imageWidth = imageWidth;
+    this.imageHeight = imageHeight;
+    this.maxValue = maxValue;
+  }
+
+  /**
+   * Scales a sample of the buffers to the range of the model, rounding to the nearest value.
+   */
+  private int toModel(int sample) {
+    if (maxValue == MAX_VALUE) {
+      return sample;
+    }
+    return (int) ((sample * 255L + maxValue / 2) / maxValue);
+  }
+
+  /**
+   * Copies the given row of this image into the given array in 0xRRGGBB form, reading it from
+   * the buffer that holds it.
+   *
+   * @param row    the index of the row to copy.
+   * @param pixels the array to copy the row into, at least as long as this image is wide.
+   */
+  @Override
+  public void getPackedRow(int row, int[] pixels) {
+    int rowBytes = imageWidth * 3 * bytesPerSample;
+    ByteBuffer chunk = chunks[row / rowsPerChunk].duplicate();
+    chunk.position((row % rowsPerChunk) * rowBytes);
+    byte[] samples = new byte[rowBytes];
+    chunk.get(samples);
+
+    int[] channels = new int[3];
+    for (int w = 0; w < imageWidth; w++) {
+      for (int c = 0; c < 3; c++) {
+        int at = (w * 3 + c) * bytesPerSample;
+        int sample = bytesPerSample == 1 ? samples[at] & 0xFF
+                : (samples[at] & 0xFF) << 8 | (samples[at + 1] & 0xFF);
+        channels[c] = toModel(sample);
+      }
+      pixels[w] = PackedImage.pack(channels[0], channels[1], channels[2]);
+    }
+  }
+
+  /**
+   * Copies this whole image onto the heap.
+   *
+   * @return a PackedImage with the same pixels as this image.
+   */
+  public PackedImage toPackedImage() {
+    return PackedImage.fromRows(imageWidth, imageHeight, this::getPackedRow);
+  }
+
+  @Override
+  public PackedImage brighten(int value) {
+    return applyLut(ChannelLut.brighten(value));
+  }
+
+  /**
+   * Reads the pixel at the given column and row of this image from the buffer that holds it.
+   */
+  private int pixel(int x, int y) {
+    ByteBuffer chunk = chunks[y / rowsPerChunk];
+    int at = ((y % rowsPerChunk) * imageWidth + x) * 3 * bytesPerSample;
+    int packed = 0;
+    for (int c = 0; c < 3; c++) {
+      int sample = bytesPerSample == 1 ? chunk.get(at) & 0xFF
+              : (chunk.get(at) & 0xFF) << 8 | (chunk.get(at + 1) & 0xFF);
+      packed = packed << 8 | toModel(sample);
+      at += bytesPerSample;
+    }
+    return packed;
+  }
+
+  /**
+   * Creates the view of this whole image that reads its buffers, so that geometric operations
+   * return views rather than copies.
+   */
+  private ImageView view() {
+    return ImageView.of(this, this::pixel, null);
+  }
+
+  @Override
+  public ImageProcessingModel flipVertical() {
+    return view().flipVertical();
+  }
+
+  @Override
+  public ImageProcessingModel flipHorizontal() {
+    return view().flipHorizontal();
+  }
+
+  @Override
+  public ImageProcessingModel rotate(int degrees) throws IllegalArgumentException {
+    return view().rotate(degrees);
+  }
+
+  @Override
+  public ImageProcessingModel crop(int x, int y, int width, int height)
+          throws IllegalArgumentException {
+    return view().crop(x, y, width, height);
+  }
+
+  @Override
+  public PackedImage channelComponent(String component) throws IllegalArgumentException {
+    if ("red-component".equals(component)) {
+      return applyLut(ChannelLut.component(ChannelLut.RED));
+    } else if ("green-component".equals(component)) {
+      return applyLut(ChannelLut.component(ChannelLut.GREEN));
+    } else if ("blue-component".equals(component)) {
+      return applyLut(ChannelLut.component(ChannelLut.BLUE));
+    } else if ("luma-component".equals(component)) {
+      return colorTransformation(ColorMatrix.luma());
+    }
+    IntUnaryOperator toGrey = PackedImage.componentOf(component);
+    return PackedImage.fromRows(imageWidth, imageHeight, (h, row) -> {
+      getPackedRow(h, row);
+      for (int w = 0; w < imageWidth; w++) {
+        row[w] = PackedImage.grey(toGrey.applyAsInt(row[w]));
+      }
+    });
+  }
+
+  @Override
+  public PackedImage applyLut(ChannelLut lut) throws IllegalArgumentException {
+    if (lut == null) {
+      throw new IllegalArgumentException("lookup table cannot be null");
+    }
+    return PackedImage.fromRows(imageWidth, imageHeight, (h, row) -> {
+      getPackedRow(h, row);
+      lut.apply(row, 0, row, 0, imageWidth);
+    });
+  }
+
+  @Override
+  public PackedImage filter(String filterType) throws IllegalArgumentException {
+    return convolve(Kernel.named(filterType), BorderMode.ZERO);
+  }
+
+  @Override
+  public PackedImage convolve(Kernel kernel, BorderMode border) throws IllegalArgumentException {
+    if (kernel == null || border == null) {
+      throw new IllegalArgumentException("kernel and border mode cannot be null");
+    }
+    return new PackedImage(imageWidth, imageHeight,
+            Convolution.apply(imageWidth, imageHeight, this::getPackedRow, kernel, border));
+  }
+
+  @Override
+  public PackedImage boxBlur(BoxBlur blur) throws IllegalArgumentException {
+    if (blur == null) {
+      throw new IllegalArgumentException("blur cannot be null");
+    }
+    return new PackedImage(imageWidth, imageHeight,
+            blur.apply(imageWidth, imageHeight, this::getPackedRow));
+  }
+
+  @Override
+  public PackedImage colorTransformation(String transformationType)
+          throws IllegalArgumentException {
+    return colorTransformation(ColorMatrix.named(transformationType));
+  }
+
+  @Override
+  public PackedImage colorTransformation(ColorMatrix matrix) throws IllegalArgumentException {
+    if (matrix == null) {
+      throw new IllegalArgumentException("matrix cannot be null");
+    }
+    return PackedImage.fromRows(imageWidth, imageHeight, (h, row) -> {
+      getPackedRow(h, row);
+      matrix.apply(row, 0, row, 0, imageWidth);
+    });
+  }
+
+  @Override
+  public PackedImage downscaleImage(int widthPercentage, int heightPercentage) {
+    return toPackedImage().downscaleImage(widthPercentage, heightPercentage);
+  }
+
+  @Override
+  public PackedImage downscaleImage(int widthPercentage, int heightPercentage,
+                                    ResampleFilter filter) throws IllegalArgumentException {
+    if (filter == null || widthPercentage < 0 || heightPercentage < 0) {
+      throw new IllegalArgumentException("percentages cannot be negative or filter null");
+    }
+    int newHeight = (int) (imageHeight * (heightPercentage / 100.0));
+    int newWidth = (int) (imageWidth * (widthPercentage / 100.0));
+    return new PackedImage(newWidth, newHeight,
+            Resampler.resize(getMipmap(), newWidth, newHeight, filter));
+  }
+
+  /**
+   * Gets the mipmap of this image, creating it the first time, so that its levels are made at
+   * most once.
+   */
+  private Mipmap getMipmap() {
+    Mipmap known = mipmap;
+    if (known == null) {
+      known = new Mipmap(this);
+      mipmap = known;
+    }
+    return known;
+  }
+
+  @Override
+  public RGB[][] getGrid() {
+    return toPackedImage().getGrid();
+  }
+
+  @Override
+  public Histogram getHistogram() {
+    Histogram known = histogram;
+    if (known == null) {
+      known = Histogram.compute(imageWidth, imageHeight, this::getPackedRow);
+      histogram = known;
+    }
+    return known;
+  }
+
+  @Override
+  public boolean hasAlpha() {
+    return false;
+  }
+
+  @Override
+  public void getAlphaRow(int row, int[] alphas) {
+    Arrays.fill(alphas, 0, imageWidth, MAX_VALUE);
+  }
+
+  @Override
+  public int getImageWidth() {
+    return imageWidth;
+  }
+
+  @Override
+  public int getImageHeight() {
+    return imageHeight;
+  }
+
+  @Override
+  public int getMaxValue() {
+    return MAX_VALUE;
+  }
+}
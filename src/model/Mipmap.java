@@ -0,0 +1,150 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents an image along with copies of it at successively halved resolutions, each pixel of
+ * a level being the average of a two by two block of the level above it. The copies are made
+ * when they are first requested and kept, so a preview of an image at any size can be picked
+ * without scanning the full image more than once.
+ */
+public final class Mipmap {
+
+  private final List<ImageProcessingModel> levels = new ArrayList<>();
+
+  /**
+   * Creates the mipmap of the given image.
+   *
+   * @param image the full resolution image.
+   * @throws IllegalArgumentException if the image is null.
+   */
+  public Mipmap(ImageProcessingModel image) throws IllegalArgumentException {
+    if (image == null) {
+      throw new IllegalArgumentException("image cannot be null");
+    }
+    levels.add(image);
+  }
+
+  /**
+   * Gets the full resolution image of this mipmap.
+   *
+   * @return the image this mipmap was created from.
+   */
+  public ImageProcessingModel getImage() {
+    return levels.get(0);
+  }
+
+  /**
+   * Gets the smallest level of this mipmap that is at least as large as the given size in both
+   * directions, or the full resolution image if it is no larger than that.
+   *
+   * @param width  the smallest width wanted.
+   * @param height the smallest height wanted.
+   * @return the level closest to the given size without being smaller.
+   * @throws IllegalArgumentException if the size is not positive.
+   */
+  public synchronized ImageProcessingModel levelFor(int width, int height)
+          throws IllegalArgumentException {
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("size must be positive");
+    }
+    int level = 0;
+    while (true) {
+      ImageProcessingModel current = levels.get(level);
+      int halfWidth = (current.getImageWidth() + 1) / 2;
+      int halfHeight = (current.getImageHeight() + 1) / 2;
+      if (halfWidth < width || halfHeight < height
+              || current.getImageWidth() < 2 && current.getImageHeight() < 2) {
+        return current;
+      }
+      if (level + 1 == levels.size()) {
+        levels.add(halve(current));
+      }
+      level++;
+    }
+  }
+
+  /**
+   * Creates the image half as wide and half as tall as the given one, rounding up, where each
+   * pixel is the rounded average of a two by two block of the given image. Blocks on an odd last
+   * row or column average the pixels they have. The colors of an image with an alpha channel are
+   * averaged weighing each pixel by its alpha.
+   */
+  private static ImageProcessingModel halve(ImageProcessingModel image) {
+    int sourceWidth = image.getImageWidth();
+    int sourceHeight = image.getImageHeight();
+    int width = (sourceWidth + 1) / 2;
+    int height = (sourceHeight + 1) / 2;
+    if (image.hasAlpha()) {
+      return PackedImage.fromRows(width, height,
+          (h, row) -> average(image, sourceWidth, sourceHeight, h, row, true),
+          (h, row) -> average(image, sourceWidth, sourceHeight, h, row, false));
+    }
+    return PackedImage.fromRows(width, height, (h, row) -> {
+      int[] top = new int[sourceWidth];
+      int[] bottom = new int[sourceWidth];
+      image.getPackedRow(2 * h, top);
+      if (2 * h + 1 < sourceHeight) {
+        image.getPackedRow(2 * h + 1, bottom);
+      } else {
+        System.arraycopy(top, 0, bottom, 0, sourceWidth);
+      }
+      for (int w = 0; w < width; w++) {
+        int left = 2 * w;
+        int right = Math.min(left + 1, sourceWidth - 1);
+        int a = top[left];
+        int b = top[right];
+        int c = bottom[left];
+        int d = bottom[right];
+        int red = ((a >> 16) & 0xFF) + ((b >> 16) & 0xFF) + ((c >> 16) & 0xFF)
+                + ((d >> 16) & 0xFF);
+        int green = ((a >> 8) & 0xFF) + ((b >> 8) & 0xFF) + ((c >> 8) & 0xFF)
+                + ((d >> 8) & 0xFF);
+        int blue = (a & 0xFF) + (b & 0xFF) + (c & 0xFF) + (d & 0xFF);
+        row[w] = PackedImage.pack((red + 2) / 4, (green + 2) / 4, (blue + 2) / 4);
+      }
+    });
+  }
+
+  /**
+   * Computes the given row of the halved image of the given image with an alpha channel: its
+   * colors, averaged weighing each pixel by its alpha, or else its alphas.
+   */
+  private static void average(ImageProcessingModel image, int sourceWidth, int sourceHeight,
+                              int h, int[] row, boolean colors) {
+    int[][] pixels = new int[2][sourceWidth];
+    int[][] alphas = new int[2][sourceWidth];
+    for (int r = 0; r < 2; r++) {
+      int sourceRow = Math.min(2 * h + r, sourceHeight - 1);
+      image.getAlphaRow(sourceRow, alphas[r]);
+      if (colors) {
+        image.getPackedRow(sourceRow, pixels[r]);
+      }
+    }
+    for (int w = 0; w < (sourceWidth + 1) / 2; w++) {
+      int alpha = 0;
+      int red = 0;
+      int green = 0;
+      int blue = 0;
+      //the four pixels of the block, the last column standing in for a missing right one
+      for (int k = 0; k < 4; k++) {
+        int column = Math.min(2 * w + k / 2, sourceWidth - 1);
+        int a = alphas[k % 2][column];
+        int p = pixels[k % 2][column];
+        alpha += a;
+        red += ((p >> 16) & 0xFF) * a;
+        green += ((p >> 8) & 0xFF) * a;
+        blue += (p & 0xFF) * a;
+      }
+      if (!colors) {
+        row[w] = (alpha + 2) / 4;
+      } else if (alpha == 0) {
+        row[w] = 0;
+      } else {
+        row[w] = PackedImage.pack((red + alpha / 2) / alpha, (green + alpha / 2) / alpha,
+                (blue + alpha / 2) / alpha);
+      }
+    }
+  }
+}
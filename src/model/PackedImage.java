@@ -0,0 +1,758 @@
+package model;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+import java.util.function.UnaryOperator;
+
+import static model.ImageGrid.MAX_VALUE;
+
+/**
+ * Represents an image whose pixels are stored as packed ints rather than as one RGB object
+ * per pixel. Each int holds one pixel in 0xRRGGBB form and the pixels are laid out row by
+ * row. RGB objects are only created on demand when the pixel grid is requested.
+ *
+ * <p>Images are immutable, and the rows are grouped into tiles of TILE_ROWS rows so that a new
+ * image derived from this one can share storage with it: a tile of the new image is only
+ * copied from this image's tile once one of its rows actually changes (copy-on-write).
+ * A tile may be a slice of a larger array, so an image built from one flat array refers to
+ * that array without copying it.
+ *
+ * <p>An image may have an alpha channel, kept as a separate plane of one byte per pixel next to
+ * the packed colors. Opaque images have no plane at all, so they take no more memory than
+ * before. Operations that only change colors share the plane of the image they came from.
+ * Filters and downscaling blend neighboring pixels, so on images with alpha they work on colors
+ * premultiplied by their alpha, and transparent pixels do not bleed into opaque ones.
+ *
+ * <p>Flips, rotations, and crops return ImageViews reading this image's storage, so they copy
+ * nothing.
+ *
+ * <p>Point operations that can be expressed as a ChannelLut (brightening, darkening, and the red,
+ * green, and blue components) are not applied right away. The new image keeps this image's
+ * storage together with the pending lookup table, consecutive lookup tables are composed into
+ * one, and the pixels are only computed in a single pass when another operation needs them.
+ * The tiles and the pending table are kept together in one immutable Storage, published through
+ * a volatile field, so threads reading rows never lock the image and always see a table with the
+ * tiles it applies to.
+ */
+public class PackedImage implements ImageProcessingModel {
+
+  static final int TILE_SHIFT = 6;
+  static final int TILE_ROWS = 1 << TILE_SHIFT;
+
+  private final int imageWidth;
+  private final int imageHeight;
+  /**
+   * Represents the storage of an image: its tiles, the index of the first pixel of each tile
+   * within its array, and the lookup table still to be applied to them, if any, along with the
+   * histograms of the tiles that the histograms of the image can be derived from.
+   */
+  private static final class Storage {
+    private final int[][] tiles;
+    private final int[] tileOffsets;
+    private final ChannelLut pending;
+    private final Histogram baseHistogram;
+
+    private Storage(int[][] tiles, int[] tileOffsets, ChannelLut pending,
+                    Histogram baseHistogram) {
+      this.tiles = tiles;
+      this.tileOffsets = tileOffsets;
+      this.pending = pending;
+      this.baseHistogram = baseHistogram;
+    }
+
+    private int[] rowArray(int h) {
+      return tiles[h >> TILE_SHIFT];
+    }
+
+    private int rowOffset(int h, int imageWidth) {
+      return tileOffsets[h >> TILE_SHIFT] + (h & (TILE_ROWS - 1)) * imageWidth;
+    }
+  }
+
+  private final byte[] alpha;
+  private volatile Storage storage;
+  private volatile Histogram histogram;
+  private volatile Mipmap mipmap;
+
+  /**
+   * Creates the image from the given packed pixels. The array is used directly as this image's
+   * storage and must not be modified afterwards.
+   *
+   * @param imageWidth  the width of this image.
+   * @param imageHeight the height of this image.
+   * @param pixels      the pixels of this image in 0xRRGGBB form, row by row.
+   * @throws IllegalArgumentException if the array is null, a dimension is negative, or the
+   *                                  array does not hold exactly width * height pixels.
+   */
+  public PackedImage(int imageWidth, int imageHeight, int[] pixels)
+          throws IllegalArgumentException {
+    this(imageWidth, imageHeight, pixels, null);
+  }
+
+  /**
+   * Creates the image from the given packed pixels and the alpha of each of them. Both arrays
+   * are used directly as this image's storage and must not be modified afterwards.
+   *
+   * @param imageWidth  the width of this image.
+   * @param imageHeight the height of this image.
+   * @param pixels      the pixels of this image in 0xRRGGBB form, row by row.
+   * @param alpha       the alpha of each pixel, row by row, or null if the image is opaque.
+   * @throws IllegalArgumentException if the pixels are null, a dimension is negative, or an
+   *                                  array does not hold exactly width * height values.
+   */
+  public PackedImage(int imageWidth, int imageHeight, int[] pixels, byte[] alpha)
+          throws IllegalArgumentException {
+    if (pixels == null || imageWidth < 0 || imageHeight < 0
+            || (long) imageWidth * imageHeight != pixels.length
+            || alpha != null && alpha.length != pixels.length) {
+      throw new IllegalArgumentException("invalid pixel array for the given dimensions");
+    }
+    this.imageWidth = imageWidth;
+    this.imageHeight = imageHeight;
+    this.alpha = alpha;
+    int[][] tiles = new int[tileCount(imageHeight)][];
+    int[] tileOffsets = new int[tiles.length];
+    for (int t = 0; t < tiles.length; t++) {
+      tiles[t] = pixels;
+      tileOffsets[t] = (t << TILE_SHIFT) * imageWidth;
+    }
+    this.storage = new Storage(tiles, tileOffsets, null, null);
+  }
+
+  /**
+   * Creates the image by packing the given grid of pixels.
+   *
+   * @param pixelGrid the grid of pixels representing this image in RGB color representation.
+   * @throws IllegalArgumentException if the given array is null.
+   */
+  public PackedImage(RGB[][] pixelGrid) throws IllegalArgumentException {
+    this(pixelGrid == null ? 0 : pixelGrid[0].length, pixelGrid == null ? 0 : pixelGrid.length,
+            packGrid(pixelGrid));
+  }
+
+  private PackedImage(int imageWidth, int imageHeight, byte[] alpha, Storage storage) {
+    this.imageWidth = imageWidth;
+    this.imageHeight = imageHeight;
+    this.alpha = alpha;
+    this.storage = storage;
+  }
+
+  private static int[] packGrid(RGB[][] pixelGrid) throws IllegalArgumentException {
+    if (pixelGrid == null) {
+      throw new IllegalArgumentException();
+    }
+    int imageWidth = pixelGrid[0].length;
+    int[] pixels = new int[imageWidth * pixelGrid.length];
+    for (int h = 0; h < pixelGrid.length; h++) {
+      for (int w = 0; w < imageWidth; w++) {
+        RGB pixel = pixelGrid[h][w];
+        pixels[h * imageWidth + w] = pack(pixel.getRed(), pixel.getGreen(), pixel.getBlue());
+      }
+    }
+    return pixels;
+  }
+
+  private static int tileCount(int imageHeight) {
+    return (imageHeight + TILE_ROWS - 1) >> TILE_SHIFT;
+  }
+
+  /**
+   * Gets the array holding the given row of this image, applying any pending lookup table first.
+   */
+  int[] rowArray(int h) {
+    return resolve().rowArray(h);
+  }
+
+  /**
+   * Gets the index of the first pixel of the given row within its array.
+   */
+  int rowOffset(int h) {
+    return resolve().rowOffset(h, imageWidth);
+  }
+
+  /**
+   * Creates a new image of the same size as this one whose rows are computed by the given writer.
+   * Tiles whose rows all come out identical to this image's are shared rather than copied.
+   */
+  private PackedImage derive(RowWriter writer) {
+    return build(imageWidth, imageHeight, this, writer, alpha);
+  }
+
+  /**
+   * Creates a new opaque image of the given size whose rows are computed by the given writer.
+   */
+  static PackedImage fromRows(int imageWidth, int imageHeight, RowWriter writer) {
+    return build(imageWidth, imageHeight, null, writer, null);
+  }
+
+  /**
+   * Creates a new image of the given size whose rows are computed by the given writer, and the
+   * alphas of whose rows are computed by the other, or an opaque image if that one is null.
+   */
+  static PackedImage fromRows(int imageWidth, int imageHeight, RowWriter writer,
+                              RowWriter alphaWriter) {
+    if (alphaWriter == null) {
+      return fromRows(imageWidth, imageHeight, writer);
+    }
+    byte[] alpha = new byte[imageWidth * imageHeight];
+    Parallelism.forEachRow(imageHeight, imageWidth, (startRow, endRow) -> {
+      int[] row = new int[imageWidth];
+      for (int h = startRow; h < endRow; h++) {
+        alphaWriter.write(h, row);
+        for (int w = 0; w < imageWidth; w++) {
+          alpha[h * imageWidth + w] = (byte) row[w];
+        }
+      }
+    });
+    return build(imageWidth, imageHeight, null, writer, alpha);
+  }
+
+  /**
+   * Creates a new image of the given size whose rows are computed by the given writer. If a
+   * parent of the same size is given, each tile of the new image starts out as the parent's tile
+   * and is only copied when a row differs from the parent's. The new image has the given alpha.
+   */
+  private static PackedImage build(int imageWidth, int imageHeight, PackedImage parent,
+                                   RowWriter writer, byte[] alpha) {
+    int[][] tiles = new int[tileCount(imageHeight)][];
+    int[] tileOffsets = new int[tiles.length];
+    //the parent's tiles are compared as they are, whether or not a lookup table is pending
+    Storage shared = parent == null ? null : parent.storage;
+    Parallelism.forEachRow(tiles.length, TILE_ROWS * imageWidth, (startTile, endTile) -> {
+      int[] row = new int[imageWidth];
+      for (int t = startTile; t < endTile; t++) {
+        int firstRow = t << TILE_SHIFT;
+        int rows = Math.min(TILE_ROWS, imageHeight - firstRow);
+        int[] tile = shared == null ? new int[rows * imageWidth] : shared.tiles[t];
+        int tileOffset = shared == null ? 0 : shared.tileOffsets[t];
+        boolean copied = shared == null;
+
+        for (int r = 0; r < rows; r++) {
+          writer.write(firstRow + r, row);
+          int at = tileOffset + r * imageWidth;
+          if (!copied) {
+            if (Arrays.mismatch(row, 0, imageWidth, tile, at, at + imageWidth) < 0) {
+              continue;
+            }
+            int[] copy = new int[rows * imageWidth];
+            System.arraycopy(tile, tileOffset, copy, 0, r * imageWidth);
+            tile = copy;
+            tileOffset = 0;
+            copied = true;
+            at = r * imageWidth;
+          }
+          System.arraycopy(row, 0, tile, at, imageWidth);
+        }
+        tiles[t] = tile;
+        tileOffsets[t] = tileOffset;
+      }
+    });
+    return new PackedImage(imageWidth, imageHeight, alpha,
+            new Storage(tiles, tileOffsets, null, null));
+  }
+
+  /**
+   * Applies the pending lookup table, if any, to this image's storage, and gets the storage with
+   * no table pending. Every operation that reads this image's pixels calls this first, and the
+   * storage does not change afterwards. Only the first thread to find the table pending applies
+   * it; the others wait for the new storage.
+   */
+  private Storage resolve() {
+    Storage current = storage;
+    if (current.pending == null) {
+      return current;
+    }
+    synchronized (this) {
+      current = storage;
+      if (current.pending == null) {
+        return current;
+      }
+      Storage source = current;
+      PackedImage applied = derive((h, row) -> source.pending.apply(source.rowArray(h),
+              source.rowOffset(h, imageWidth), row, 0, imageWidth));
+      current = applied.storage;
+      storage = current;
+      return current;
+    }
+  }
+
+  /**
+   * Creates a new image by applying the given lookup table to every pixel of this image. The
+   * pixels are computed lazily: if this image is itself waiting on a lookup table, the two tables
+   * are composed so that the new image is computed in a single pass from the same storage.
+   *
+   * @param lut the lookup table to apply.
+   * @return a new version of this image with the lookup table applied.
+   * @throws IllegalArgumentException if the given lookup table is null.
+   */
+  @Override
+  public PackedImage applyLut(ChannelLut lut) throws IllegalArgumentException {
+    if (lut == null) {
+      throw new IllegalArgumentException("lookup table cannot be null");
+    }
+    Storage current = storage;
+    ChannelLut combined = current.pending == null ? lut : current.pending.andThen(lut);
+    return new PackedImage(imageWidth, imageHeight, alpha, new Storage(current.tiles,
+            current.tileOffsets, combined.isIdentity() ? null : combined,
+            current.pending == null ? histogram : current.baseHistogram));
+  }
+
+  /**
+   * Gets the histograms of this image, computing them in one pass the first time. If this image
+   * is waiting on a lookup table and the histograms of the storage it shares are known, they are
+   * derived from those instead of looking at the pixels, except for an intensity that cannot be
+   * derived, which is counted when it is first requested.
+   *
+   * @return the histograms of this image.
+   */
+  @Override
+  public Histogram getHistogram() {
+    Histogram known = histogram;
+    if (known != null) {
+      return known;
+    }
+    Storage current = storage;
+    ChannelLut lut = current.pending;
+    Histogram base = lut == null ? null : current.baseHistogram;
+
+    RowWriter rows = (h, row) -> {
+      int[] src = current.rowArray(h);
+      int offset = current.rowOffset(h, imageWidth);
+      if (lut == null) {
+        System.arraycopy(src, offset, row, 0, imageWidth);
+      } else {
+        lut.apply(src, offset, row, 0, imageWidth);
+      }
+    };
+    known = base != null ? base.derive(lut, imageWidth, imageHeight, rows)
+            : Histogram.compute(imageWidth, imageHeight, rows);
+    histogram = known;
+    return known;
+  }
+
+  /**
+   * Gets whether the given tile of this image shares its storage with the same tile of the given
+   * image.
+   */
+  boolean sharesTile(PackedImage other, int tile) {
+    Storage mine = resolve();
+    Storage theirs = other.resolve();
+    return mine.tiles[tile] == theirs.tiles[tile]
+            && mine.tileOffsets[tile] == theirs.tileOffsets[tile];
+  }
+
+  /**
+   * Packs the given channels into a single 0xRRGGBB pixel, clamping each channel
+   * between 0 and the maximum value.
+   *
+   * @param red   the red channel.
+   * @param green the green channel.
+   * @param blue  the blue channel.
+   * @return the packed pixel.
+   */
+  public static int pack(int red, int green, int blue) {
+    return (clamp(red) << 16) | (clamp(green) << 8) | clamp(blue);
+  }
+
+  private static int clamp(int value) {
+    if (value < 0) {
+      return 0;
+    }
+    return Math.min(value, MAX_VALUE);
+  }
+
+  @Override
+  public PackedImage brighten(int value) {
+    if (value == 0) {
+      return this;
+    }
+    return applyLut(ChannelLut.brighten(value));
+  }
+
+  /**
+   * Creates the view of this whole image that reads its storage, so that geometric operations
+   * return views rather than copies.
+   */
+  private ImageView view() {
+    Storage resolved = resolve();
+    return ImageView.of(this, (x, y) -> resolved.rowArray(y)[resolved.rowOffset(y, imageWidth) + x],
+        alpha == null ? null : (x, y) -> alpha[y * imageWidth + x] & 0xFF);
+  }
+
+  @Override
+  public ImageProcessingModel flipVertical() {
+    return view().flipVertical();
+  }
+
+  @Override
+  public ImageProcessingModel flipHorizontal() {
+    return view().flipHorizontal();
+  }
+
+  @Override
+  public ImageProcessingModel rotate(int degrees) throws IllegalArgumentException {
+    return view().rotate(degrees);
+  }
+
+  @Override
+  public ImageProcessingModel crop(int x, int y, int width, int height)
+          throws IllegalArgumentException {
+    return view().crop(x, y, width, height);
+  }
+
+  /**
+   * Creates a new image by converting this image to greyscale based on the specified
+   * individual channel or component given to be visualized (red, green, blue,
+   * value, luma, or intensity).
+   *
+   * @param component the individual channel or component to be visualized in the new image.
+   * @return a new version of this image converted to greyscale based on the given
+   *     channel or component.
+   * @throws IllegalArgumentException if the given component is not one of the components or
+   *                                  channels represented by this image.
+   */
+  @Override
+  public PackedImage channelComponent(String component) throws IllegalArgumentException {
+    if ("red-component".equals(component)) {
+      return applyLut(ChannelLut.component(ChannelLut.RED));
+    } else if ("green-component".equals(component)) {
+      return applyLut(ChannelLut.component(ChannelLut.GREEN));
+    } else if ("blue-component".equals(component)) {
+      return applyLut(ChannelLut.component(ChannelLut.BLUE));
+    } else if ("luma-component".equals(component)) {
+      return colorTransformation(ColorMatrix.luma());
+    }
+    int kernel = kernelComponent(component);
+    resolve();
+    return derive((h, row) ->
+            Vectorization.get().grey(rowArray(h), rowOffset(h), row, 0, imageWidth, kernel));
+  }
+
+  /**
+   * Gets the function computing the given value or intensity component of a packed pixel.
+   */
+  static IntUnaryOperator componentOf(String component) throws IllegalArgumentException {
+    if (component == null) {
+      throw new IllegalArgumentException("invalid component name");
+    }
+    switch (component) {
+      case "value-component":
+        return p -> Math.max(Math.max((p >> 16) & 0xFF, (p >> 8) & 0xFF), p & 0xFF);
+      case "intensity-component":
+        return p -> (((p >> 16) & 0xFF) + ((p >> 8) & 0xFF) + (p & 0xFF)) / 3;
+      default:
+        throw new IllegalArgumentException("invalid component name");
+    }
+  }
+
+  /**
+   * Gets the PointKernels constant of the given value or intensity component.
+   */
+  private static int kernelComponent(String component) throws IllegalArgumentException {
+    if ("value-component".equals(component)) {
+      return PointKernels.VALUE;
+    } else if ("intensity-component".equals(component)) {
+      return PointKernels.INTENSITY;
+    }
+    throw new IllegalArgumentException("invalid component name");
+  }
+
+  static int grey(int value) {
+    return value << 16 | value << 8 | value;
+  }
+
+  /**
+   * Creates a new image by applying a filter to either blur or sharpen it. Each neighbor's
+   * channels are multiplied by the kernel and truncated before being summed, and neighbors
+   * outside the image are skipped.
+   *
+   * @param filterType the type of filter to be applied.
+   * @return a new version of this image with the applied filter.
+   * @throws IllegalArgumentException if the given filter type is not supported.
+   */
+  @Override
+  public PackedImage filter(String filterType) throws IllegalArgumentException {
+    return convolve(Kernel.named(filterType), BorderMode.ZERO);
+  }
+
+  @Override
+  public PackedImage convolve(Kernel kernel, BorderMode border) throws IllegalArgumentException {
+    if (kernel == null || border == null) {
+      throw new IllegalArgumentException("kernel and border mode cannot be null");
+    }
+    if (alpha != null) {
+      return premultiplied(image -> image.convolve(kernel, border));
+    }
+    resolve();
+    return new PackedImage(imageWidth, imageHeight, Convolution.apply(imageWidth, imageHeight,
+        (h, row) -> System.arraycopy(rowArray(h), rowOffset(h), row, 0, imageWidth),
+        kernel, border));
+  }
+
+  @Override
+  public PackedImage boxBlur(BoxBlur blur) throws IllegalArgumentException {
+    if (blur == null) {
+      throw new IllegalArgumentException("blur cannot be null");
+    }
+    if (alpha != null) {
+      return premultiplied(image -> image.boxBlur(blur));
+    }
+    resolve();
+    return new PackedImage(imageWidth, imageHeight, blur.apply(imageWidth, imageHeight,
+        (h, row) -> System.arraycopy(rowArray(h), rowOffset(h), row, 0, imageWidth)));
+  }
+
+  /**
+   * Creates a new image by applying a color transformation to make it either a greyscale image
+   * or a sepia-toned image.
+   *
+   * @param transformationType the type of color image to be created.
+   * @return a new version of this image with the applied color transformation.
+   * @throws IllegalArgumentException if the given transformation type is not supported.
+   */
+  @Override
+  public PackedImage colorTransformation(String transformationType)
+          throws IllegalArgumentException {
+    return colorTransformation(ColorMatrix.named(transformationType));
+  }
+
+  @Override
+  public PackedImage colorTransformation(ColorMatrix matrix) throws IllegalArgumentException {
+    if (matrix == null) {
+      throw new IllegalArgumentException("matrix cannot be null");
+    }
+    resolve();
+    return derive((h, row) -> matrix.apply(rowArray(h), rowOffset(h), row, 0, imageWidth));
+  }
+
+  /**
+   * Creates a new image by downscaling, or shrinking, the image by the given width and height
+   * percentages. Each new pixel is interpolated from the four pixels surrounding its position.
+   *
+   * @param widthPercentage  the given width percentage
+   * @param heightPercentage the given height percentage
+   * @return a new image with the applied downscale change
+   */
+  @Override
+  public PackedImage downscaleImage(int widthPercentage, int heightPercentage) {
+    if (alpha != null) {
+      return premultiplied(image -> image.downscaleImage(widthPercentage, heightPercentage));
+    }
+    int newHeight = (int) (imageHeight * (heightPercentage / 100.0));
+    int newWidth = (int) (imageWidth * (widthPercentage / 100.0));
+    resolve();
+
+    return fromRows(newWidth, newHeight, (h, row) -> {
+      double currH = (h + 0.0) / imageHeight * newHeight;
+      int flH = Math.min((int) Math.floor(currH), imageHeight - 1);
+      int cH = Math.min((int) Math.floor(currH) + 1, imageHeight - 1);
+      double weightH = currH - flH;
+      double otherWeightH = (currH == cH ? cH + 1 : cH) - currH;
+      int[] top = rowArray(flH);
+      int topOffset = rowOffset(flH);
+      int[] bottom = rowArray(cH);
+      int bottomOffset = rowOffset(cH);
+
+      for (int w = 0; w < newWidth; w++) {
+        double currW = (w + 0.0) / imageWidth * newWidth;
+        int flW = Math.min((int) Math.floor(currW), imageWidth - 1);
+        int cW = Math.min((int) Math.floor(currW) + 1, imageWidth - 1);
+        double weightW = currW - flW;
+        double otherWeightW = (currW == cW ? cW + 1 : cW) - currW;
+
+        int a = top[topOffset + flW];
+        int b = bottom[bottomOffset + flW];
+        int c = top[topOffset + cW];
+        int d = bottom[bottomOffset + cW];
+
+        row[w] = pack(
+                interpolate(a, b, c, d, 16, weightH, otherWeightH, weightW, otherWeightW),
+                interpolate(a, b, c, d, 8, weightH, otherWeightH, weightW, otherWeightW),
+                interpolate(a, b, c, d, 0, weightH, otherWeightH, weightW, otherWeightW));
+      }
+    });
+  }
+
+  @Override
+  public PackedImage downscaleImage(int widthPercentage, int heightPercentage,
+                                    ResampleFilter filter) throws IllegalArgumentException {
+    if (filter == null || widthPercentage < 0 || heightPercentage < 0) {
+      throw new IllegalArgumentException("percentages cannot be negative or filter null");
+    }
+    if (alpha != null) {
+      return premultiplied(image ->
+              image.downscaleImage(widthPercentage, heightPercentage, filter));
+    }
+    int newHeight = (int) (imageHeight * (heightPercentage / 100.0));
+    int newWidth = (int) (imageWidth * (widthPercentage / 100.0));
+    return new PackedImage(newWidth, newHeight,
+            Resampler.resize(getMipmap(), newWidth, newHeight, filter));
+  }
+
+  /**
+   * Applies the given operation to this image's colors premultiplied by their alpha, and to its
+   * alpha as a grey image, then divides the resulting colors by the resulting alphas. Operations
+   * blending neighboring pixels so weigh each of them by how opaque it is. Opaque pixels are
+   * passed through as they are rather than multiplied and divided by 255.
+   */
+  private PackedImage premultiplied(UnaryOperator<PackedImage> operation) {
+    resolve();
+    int[] colors = new int[imageWidth * imageHeight];
+    int[] coverage = new int[colors.length];
+    Parallelism.forEachRow(imageHeight, imageWidth, (startRow, endRow) -> {
+      for (int h = startRow; h < endRow; h++) {
+        int[] src = rowArray(h);
+        int offset = rowOffset(h);
+        for (int w = 0, i = h * imageWidth; w < imageWidth; w++, i++) {
+          int a = alpha[i] & 0xFF;
+          int p = src[offset + w];
+          colors[i] = a == MAX_VALUE ? p : pack(premultiply(p >> 16, a),
+                  premultiply(p >> 8, a), premultiply(p, a));
+          coverage[i] = grey(a);
+        }
+      }
+    });
+    PackedImage color = operation.apply(new PackedImage(imageWidth, imageHeight, colors));
+    PackedImage covered = operation.apply(new PackedImage(imageWidth, imageHeight, coverage));
+
+    int width = color.imageWidth;
+    int height = color.imageHeight;
+    int[] pixels = new int[width * height];
+    byte[] alphas = new byte[pixels.length];
+    Parallelism.forEachRow(height, width, (startRow, endRow) -> {
+      int[] row = new int[width];
+      int[] alphaRow = new int[width];
+      for (int h = startRow; h < endRow; h++) {
+        color.getPackedRow(h, row);
+        covered.getPackedRow(h, alphaRow);
+        for (int w = 0, i = h * width; w < width; w++, i++) {
+          int a = alphaRow[w] & 0xFF;
+          int p = row[w];
+          pixels[i] = a == MAX_VALUE ? p : a == 0 ? 0 : pack(unpremultiply(p >> 16, a),
+                  unpremultiply(p >> 8, a), unpremultiply(p, a));
+          alphas[i] = (byte) a;
+        }
+      }
+    });
+    return new PackedImage(width, height, pixels, isOpaque(alphas) ? null : alphas);
+  }
+
+  /**
+   * Multiplies the given channel of a pixel by the given alpha, rounding to the nearest value.
+   */
+  private static int premultiply(int channel, int alpha) {
+    return ((channel & 0xFF) * alpha + MAX_VALUE / 2) / MAX_VALUE;
+  }
+
+  /**
+   * Divides the given channel of a premultiplied pixel by the given alpha, rounding to the
+   * nearest value.
+   */
+  private static int unpremultiply(int channel, int alpha) {
+    return ((channel & 0xFF) * MAX_VALUE + alpha / 2) / alpha;
+  }
+
+  /**
+   * Gets whether every one of the given alphas is fully opaque.
+   */
+  static boolean isOpaque(byte[] alpha) {
+    for (byte a : alpha) {
+      if (a != (byte) MAX_VALUE) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gets the mipmap of this image, creating it the first time, so that its levels are made at
+   * most once.
+   */
+  private Mipmap getMipmap() {
+    Mipmap known = mipmap;
+    if (known == null) {
+      known = new Mipmap(this);
+      mipmap = known;
+    }
+    return known;
+  }
+
+  private static int interpolate(int a, int b, int c, int d, int shift, double weightH,
+                                 double otherWeightH, double weightW, double otherWeightW) {
+    double m = ((b >> shift) & 0xFF) * weightH + ((a >> shift) & 0xFF) * otherWeightH;
+    double n = ((d >> shift) & 0xFF) * weightH + ((c >> shift) & 0xFF) * otherWeightH;
+    return (int) (n * weightW + m * otherWeightW);
+  }
+
+  /**
+   * Creates the pixel grid representing this image, sharing the RGB of each grey or recently
+   * used color.
+   *
+   * @return a copy of this image's pixel grid.
+   */
+  @Override
+  public RGB[][] getGrid() {
+    resolve();
+    RGB[][] ret = new RGB[imageHeight][imageWidth];
+    for (int h = 0; h < imageHeight; h++) {
+      int[] src = rowArray(h);
+      int offset = rowOffset(h);
+      for (int w = 0; w < imageWidth; w++) {
+        int p = src[offset + w];
+        ret[h][w] = RGB.fromPacked(p);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Copies the given row of this image into the given array in 0xRRGGBB form. If this image is
+   * waiting on a lookup table, the table is applied to the copied row only.
+   *
+   * @param row    the index of the row to copy.
+   * @param pixels the array to copy the row into, at least as long as this image is wide.
+   */
+  @Override
+  public void getPackedRow(int row, int[] pixels) {
+    //the table and the tiles it applies to are read together, so no lock is needed
+    Storage current = storage;
+    if (current.pending != null) {
+      current.pending.apply(current.rowArray(row), current.rowOffset(row, imageWidth), pixels, 0,
+              imageWidth);
+    } else {
+      System.arraycopy(current.rowArray(row), current.rowOffset(row, imageWidth), pixels, 0,
+              imageWidth);
+    }
+  }
+
+  @Override
+  public boolean hasAlpha() {
+    return alpha != null;
+  }
+
+  @Override
+  public void getAlphaRow(int row, int[] alphas) {
+    if (alpha == null) {
+      Arrays.fill(alphas, 0, imageWidth, MAX_VALUE);
+      return;
+    }
+    for (int w = 0, i = row * imageWidth; w < imageWidth; w++, i++) {
+      alphas[w] = alpha[i] & 0xFF;
+    }
+  }
+
+  @Override
+  public int getImageWidth() {
+    return imageWidth;
+  }
+
+  @Override
+  public int getImageHeight() {
+    return imageHeight;
+  }
+
+  @Override
+  public int getMaxValue() {
+    return MAX_VALUE;
+  }
+}
@@ -0,0 +1,90 @@
+package model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Controls how image operations split their work across cores. Images with fewer pixels than
+ * the parallelism threshold are processed on the calling thread, while larger images are split
+ * into bands of rows that are processed in parallel on the common fork-join pool. The threshold
+ * defaults to the value of the "imageprocessor.parallelThreshold" system property, if set.
+ */
+public final class Parallelism {
+
+  private static final int BAND_PIXELS = 1 << 14;
+
+  private static volatile int threshold =
+          Integer.getInteger("imageprocessor.parallelThreshold", 1 << 18);
+
+  private Parallelism() {
+  }
+
+  /**
+   * Sets the number of pixels an image must have before its operations run in parallel.
+   *
+   * @param pixels the smallest number of pixels processed in parallel.
+   * @throws IllegalArgumentException if the given number is not positive.
+   */
+  public static void setThreshold(int pixels) throws IllegalArgumentException {
+    if (pixels <= 0) {
+      throw new IllegalArgumentException("threshold must be positive");
+    }
+    threshold = pixels;
+  }
+
+  /**
+   * Gets the number of pixels an image must have before its operations run in parallel.
+   *
+   * @return the smallest number of pixels processed in parallel.
+   */
+  public static int getThreshold() {
+    return threshold;
+  }
+
+  /**
+   * Applies the given operation to every row of an image with the given dimensions, either
+   * directly or split into bands of rows running in parallel. Each row is passed to exactly one
+   * call of the operation, so the operation may write to its own rows without synchronizing.
+   *
+   * @param imageHeight the number of rows in the image.
+   * @param imageWidth  the number of pixels in each row.
+   * @param operation   the operation to apply to the bands of rows.
+   */
+  static void forEachRow(int imageHeight, int imageWidth, RowOperation operation) {
+    if ((long) imageHeight * imageWidth < threshold || imageHeight < 2) {
+      operation.apply(0, imageHeight);
+      return;
+    }
+    int bandRows = Math.max(1, BAND_PIXELS / Math.max(1, imageWidth));
+    ForkJoinPool.commonPool().invoke(new RowBandTask(operation, 0, imageHeight, bandRows));
+  }
+
+  /**
+   * Splits a band of rows in half until it is small enough to be processed directly.
+   */
+  private static final class RowBandTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final RowOperation operation;
+    private final int startRow;
+    private final int endRow;
+    private final int bandRows;
+
+    private RowBandTask(RowOperation operation, int startRow, int endRow, int bandRows) {
+      this.operation = operation;
+      this.startRow = startRow;
+      this.endRow = endRow;
+      this.bandRows = bandRows;
+    }
+
+    @Override
+    protected void compute() {
+      if (endRow - startRow <= bandRows) {
+        operation.apply(startRow, endRow);
+        return;
+      }
+      int middle = (startRow + endRow) >>> 1;
+      invokeAll(new RowBandTask(operation, startRow, middle, bandRows),
+              new RowBandTask(operation, middle, endRow, bandRows));
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package model;
+
+/**
+ * A functional interface that reads single pixels of an image from wherever it stores them.
+ */
+@FunctionalInterface
+interface PixelReader {
+  /**
+   * Reads the packed 0xRRGGBB pixel at the given column and row of the image.
+   *
+   * @param x the column of the pixel
+   * @param y the row of the pixel
+   * @return the packed pixel
+   */
+  int read(int x, int y);
+}
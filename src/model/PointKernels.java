@@ -0,0 +1,91 @@
+package model;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Represents the loops behind the point operations of packed images: adding an offset to every
+ * channel and clamping it (brightening and darkening), value and intensity components, and color
+ * matrices (sepia, greyscale, and any other ColorMatrix). Each method reads a run of pixels in
+ * 0xRRGGBB form and writes the results to the given destination, which may be the source run
+ * itself but must not partly overlap it.
+ *
+ * <p>Every implementation must produce exactly the same pixels as the scalar one, so that the
+ * implementation in use (see Vectorization) never changes the result of an operation.
+ */
+public interface PointKernels {
+
+  /**
+   * The component that is the largest channel of a pixel.
+   */
+  int VALUE = 0;
+
+  /**
+   * The component that is the average of the channels of a pixel, rounded down.
+   */
+  int INTENSITY = 1;
+
+  /**
+   * The number of fractional bits of the fixed-point coefficients of a color matrix.
+   */
+  int MATRIX_SHIFT = 24;
+
+  /**
+   * The distance, in units of the last fractional bit, from a whole number within which a
+   * fixed-point channel of a color matrix is computed by the matrix's reference instead. The
+   * rounding of the coefficients moves a channel by less than 384 units, so channels further from
+   * a whole number round down to the same value in either arithmetic.
+   */
+  long MATRIX_MARGIN = 1L << 10;
+
+  /**
+   * Sets each channel of every pixel to the given source channel plus the given offset, clamped
+   * between the given bounds.
+   *
+   * @param src         the source pixels.
+   * @param srcOffset   the index of the first source pixel.
+   * @param dst         the destination pixels.
+   * @param dstOffset   the index of the first destination pixel.
+   * @param length      the number of pixels.
+   * @param redSource   the channel the red channel is computed from, one of ChannelLut.RED,
+   *                    GREEN, or BLUE.
+   * @param greenSource the channel the green channel is computed from.
+   * @param blueSource  the channel the blue channel is computed from.
+   * @param offset      the amount added to each channel.
+   * @param low         the smallest value of a channel, at least 0.
+   * @param high        the largest value of a channel, at most 255 and at least low.
+   */
+  void offset(int[] src, int srcOffset, int[] dst, int dstOffset, int length, int redSource,
+              int greenSource, int blueSource, int offset, int low, int high);
+
+  /**
+   * Sets every pixel to the grey pixel of the given component.
+   *
+   * @param src       the source pixels.
+   * @param srcOffset the index of the first source pixel.
+   * @param dst       the destination pixels.
+   * @param dstOffset the index of the first destination pixel.
+   * @param length    the number of pixels.
+   * @param component VALUE or INTENSITY.
+   */
+  void grey(int[] src, int srcOffset, int[] dst, int dstOffset, int length, int component);
+
+  /**
+   * Sets every pixel to the product of a color matrix and its channels. Each output channel c is
+   * (coefficients[4c] * red + coefficients[4c + 1] * green + coefficients[4c + 2] * blue
+   * + coefficients[4c + 3]) shifted right by MATRIX_SHIFT, clamped between 0 and 255. If the
+   * coefficients are rounded, a pixel with a channel within MATRIX_MARGIN of a whole number is
+   * set by the given reference instead.
+   *
+   * @param src          the source pixels.
+   * @param srcOffset    the index of the first source pixel.
+   * @param dst          the destination pixels.
+   * @param dstOffset    the index of the first destination pixel.
+   * @param length       the number of pixels.
+   * @param coefficients the twelve fixed-point weights and offsets of the matrix, row by row,
+   *                     each at most 2^40 in magnitude.
+   * @param reference    the function computing a pixel exactly, or null if the coefficients are
+   *                     exact and every pixel is computed from them.
+   */
+  void matrix(int[] src, int srcOffset, int[] dst, int dstOffset, int length,
+              long[] coefficients, IntUnaryOperator reference);
+}
@@ -1,8 +1,5 @@
 package model;
 
-import java.util.ArrayList;
-import java.util.Objects;
-
 import static model.ImageGrid.MAX_VALUE;
 
 /**
@@ -10,13 +7,30 @@ import static model.ImageGrid.MAX_VALUE;
  * in the RGB representation with 8 bits used per channel.
  * Invariants: Red, green, and blue are integers between 0 and 255.
  * Those are invariants because they only accurately represent the class
- * when they meet the condition. Package-private methods are intended to be package-private.
+ * when they meet the condition. Pixels are immutable, so they can be shared between images.
+ * Package-private methods are intended to be package-private.
+ *
+ * <p>A pixel holds its channels packed into a single int as 0xRRGGBB. Pixels obtained through
+ * {@link #of} are shared where that costs little memory: the 256 greys always get the same
+ * pixel, and other colors are kept in a small cache holding one recently requested color per
+ * slot, so operations producing greys, or only a few colors, allocate almost nothing per pixel.
+ * The cache never holds more than 4096 pixels, however many colors the images of the program
+ * use.
  */
 public class RGB {
-  private int red;
-  private int green;
-  private int blue;
 
+  private static final RGB[] GREYS = new RGB[MAX_VALUE + 1];
+  private static final int CACHE_BITS = 12;
+  //each slot holds the last color requested whose hash picks it; races only cost a duplicate
+  private static final RGB[] CACHE = new RGB[1 << CACHE_BITS];
+
+  static {
+    for (int value = 0; value <= MAX_VALUE; value++) {
+      GREYS[value] = new RGB(value, value, value);
+    }
+  }
+
+  private final int packed;
 
   /**
    * Constructs this pixel as an RGB representation with 8 bits per channel.
@@ -26,20 +40,51 @@ public class RGB {
    * @param blue  the value of the blue in this pixel's RGB.
    */
   public RGB(int red, int green, int blue) {
-    Integer[] newColors = new Integer[]{red, green, blue};
+    this.packed = clamp(red) << 16 | clamp(green) << 8 | clamp(blue);
+  }
 
-    for (int color = 0; color < newColors.length; color++) {
-      if (newColors[color] < 0) {
-        newColors[color] = 0;
-      } else if (newColors[color] > MAX_VALUE) {
-        newColors[color] = MAX_VALUE;
-      }
-    }
-    this.red = newColors[0];
-    this.green = newColors[1];
-    this.blue = newColors[2];
+  private static int clamp(int channel) {
+    return Math.max(0, Math.min(MAX_VALUE, channel));
+  }
+
+  /**
+   * Gets the pixel with the given channels, each clamped between 0 and the maximum value, reusing
+   * the pixel of the same color if it is a grey or was requested recently.
+   *
+   * @param red   the value of the red in the pixel's RGB.
+   * @param green the value of the green in the pixel's RGB.
+   * @param blue  the value of the blue in the pixel's RGB.
+   * @return a pixel with the given channels.
+   */
+  public static RGB of(int red, int green, int blue) {
+    return fromPacked(clamp(red) << 16 | clamp(green) << 8 | clamp(blue));
+  }
 
+  /**
+   * Gets a pixel of the given color in 0xRRGGBB form, shared as {@link #of} does; any higher bits
+   * are ignored.
+   */
+  static RGB fromPacked(int pixel) {
+    int color = pixel & 0xFFFFFF;
+    int blue = color & 0xFF;
+    if (color == blue * 0x010101) {
+      return GREYS[blue];
+    }
+    int slot = (color * 0x9E3779B1) >>> (32 - CACHE_BITS);
+    //pixels are immutable, so one read from another thread is always complete
+    RGB known = CACHE[slot];
+    if (known == null || known.packed != color) {
+      known = new RGB(color >> 16, color >> 8 & 0xFF, blue);
+      CACHE[slot] = known;
+    }
+    return known;
+  }
 
+  /**
+   * Gets the channels of this pixel packed as 0xRRGGBB.
+   */
+  int toPacked() {
+    return packed;
   }
 
   /**
@@ -53,9 +98,7 @@ public class RGB {
     if (!(other instanceof RGB)) {
       return false;
     }
-    RGB that = (RGB) other;
-    return that.getRed() == this.red && that.getGreen() == this.green
-            && that.getBlue() == this.blue;
+    return ((RGB) other).packed == this.packed;
   }
 
   /**
@@ -65,7 +108,8 @@ public class RGB {
    */
   @Override
   public int hashCode() {
-    return Objects.hash(red, green, blue);
+    //the same value as Objects.hash(red, green, blue), without boxing the channels
+    return ((31 + getRed()) * 31 + getGreen()) * 31 + getBlue();
   }
 
 
@@ -75,7 +119,7 @@ public class RGB {
    * @return the number representing the red component of this pixel.
    */
   public int getRed() {
-    return this.red;
+    return (packed >> 16) & 0xFF;
   }
 
   /**
@@ -84,7 +128,7 @@ public class RGB {
    * @return the number representing the green component of this pixel.
    */
   public int getGreen() {
-    return this.green;
+    return (packed >> 8) & 0xFF;
   }
 
   /**
@@ -93,7 +137,7 @@ public class RGB {
    * @return the number representing the blue component of this pixel.
    */
   public int getBlue() {
-    return this.blue;
+    return packed & 0xFF;
   }
 
 
@@ -106,13 +150,13 @@ public class RGB {
    * @param val the given constant to add to each field in this pixel.
    */
   RGB brightness(int val) {
-    return new RGB(red + val, green + val, blue + val);
+    return of(getRed() + val, getGreen() + val, getBlue() + val);
   }
 
   /**
    * Creates a new pixel with the same number across all its fields based on the given channel or
    * component. If the component is a field of this pixel, all the fields of the new pixel will
-   * be set to the component's field. If the component is value, intensity, or luma, the number
+   * be set to the component's field. If the component is value or intensity, the number
    * will be calculated based on the fields of this class. If the number is greater than the
    * maximum value of this image, that number will be set to the maximum value. If the number is
    * less than 0, that number will be set to 0.
@@ -123,6 +167,9 @@ public class RGB {
    *                                  channels represented by this pixel.
    */
   RGB setComponentSame(String component) throws IllegalArgumentException {
+    int red = getRed();
+    int green = getGreen();
+    int blue = getBlue();
     int num;
     switch (component) {
       case "value-component": {
@@ -133,11 +180,6 @@ public class RGB {
         num = (red + green + blue) / 3;
         break;
       }
-      case "luma-component": {
-        double numD = ((0.2126 * red) + (0.7152 * green) + (0.0722 * blue));
-        num = (int) numD;
-        break;
-      }
       case "red-component": {
         num = red;
         break;
@@ -153,115 +195,6 @@ public class RGB {
       default:
         throw new IllegalArgumentException("invalid component name");
     }
-    return new RGB(num, num, num);
-  }
-
-  /**
-   * Creates a new pixel with the operations on the given kernel applied to this pixel.
-   * If applying the kernel makes any field greater than the given maximum value of this image,
-   * that field will be set to the maximum value. If applying the kernel makes any field less than
-   * 0, that field will be set to 0.
-   *
-   * @param positions the kernel to apply operations on.
-   */
-  RGB returnFilterValues(RGB[][] positions) {
-    ArrayList<Integer> neighborReds = new ArrayList<>();
-    ArrayList<Integer> neighborGreens = new ArrayList<>();
-    ArrayList<Integer> neighborBlues = new ArrayList<>();
-    int redValue = 0;
-    int greenValue = 0;
-    int blueValue = 0;
-
-
-    double[][] kernel;
-    if (positions.length == 3) {
-      kernel = new double[][]{
-              {1 / 16d, 1 / 8d, 1 / 16d},
-              {1 / 8d, 1 / 4d, 1 / 8d},
-              {1 / 16d, 1 / 8d, 1 / 16d}};
-
-    } else {
-      kernel = new double[][]{
-              {-1 / 8d, -1 / 8d, -1 / 8d, -1 / 8d, -1 / 8d},
-              {-1 / 8d, 1 / 4d, 1 / 4d, 1 / 4d, -1 / 8d},
-              {-1 / 8d, 1 / 4d, 1d, 1 / 4d, -1 / 8d},
-              {-1 / 8d, 1 / 4d, 1 / 4d, 1 / 4d, -1 / 8d},
-              {-1 / 8d, -1 / 8d, -1 / 8d, -1 / 8d, -1 / 8d}};
-    }
-
-    for (int h = 0; h < positions.length; h++) {
-      for (int w = 0; w < positions.length; w++) {
-        try {
-          neighborReds.add((int) (positions[h][w].getRed() * kernel[h][w]));
-          neighborGreens.add((int) (positions[h][w].getGreen() * kernel[h][w]));
-          neighborBlues.add((int) (positions[h][w].getBlue() * kernel[h][w]));
-        } catch (NullPointerException ignored) {
-          // no intended effect
-        }
-      }
-    }
-
-    for (int value : neighborReds) {
-      try {
-        redValue += value;
-      } catch (NullPointerException ignored) {
-        // no intended effect
-      }
-
-    }
-    for (int value : neighborGreens) {
-      try {
-        greenValue += value;
-      } catch (NullPointerException ignored) {
-        // no intended effect
-      }
-    }
-    for (int value : neighborBlues) {
-      try {
-        blueValue += value;
-      } catch (NullPointerException ignored) {
-        // no intended effect
-      }
-    }
-
-    return new RGB(redValue, greenValue, blueValue);
-  }
-
-  /**
-   * Creates a new pixel with the given color transformation applied to this pixel by multiplying
-   * this pixel by a matrix. If applying the transformation makes any field greater than the given
-   * maximum value of this image, that field will be set to the maximum value. If applying the
-   * transformation makes any field less than 0, that field will be set to 0.
-   *
-   * @param transformationType the type of color-transformation to be applied on this pixel.
-   * @throws IllegalArgumentException if the given transformation type is not supported.
-   */
-  RGB setComponentColor(String transformationType)
-          throws IllegalArgumentException {
-    Double[][] matrix;
-
-    if ("sepia".equals(transformationType)) {
-      matrix = new Double[][]{{0.393, 0.769, 0.189},
-          {0.349, 0.686, 0.168}, {0.272, 0.534, 0.131}};
-    } else {
-      throw new IllegalArgumentException("invalid component name");
-    }
-
-    Integer[] newColors = new Integer[]{red, green, blue};
-    Integer[] currColors = new Integer[]{red, green, blue};
-    double currC = 0;
-    for (int r = 0; r < matrix.length; r++) {
-      for (int c = 0; c < matrix[0].length; c++) {
-        currC += currColors[c] * matrix[r][c];
-      }
-      newColors[r] = (int) currC;
-      currC = 0;
-    }
-
-    red = newColors[0];
-    green = newColors[1];
-    blue = newColors[2];
-
-    return new RGB(red, green, blue);
+    return of(num, num, num);
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,201 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Resizes an image stored as packed 0xRRGGBB rows with a ResampleFilter, as two separable
+ * passes: each new row is first blended from the original rows under the filter into one row of
+ * channel sums, which is then blended along its columns. The weights of both passes are
+ * computed once per resize, and the rows are processed in parallel bands with buffers of their
+ * own, so no memory is allocated per pixel.
+ *
+ * <p>Shrinking starts from the smallest level of the image's mipmap that keeps enough detail
+ * for the filter, so shrinking the same image again, or by a large factor, reads few pixels.
+ * Each level rounds its averages, so shrinking by a whole factor with the box filter averages
+ * the blocks of the full image instead.
+ */
+final class Resampler {
+
+  private Resampler() {
+  }
+
+  /**
+   * Represents the weights of a resize along one direction: the original pixels each new pixel
+   * is blended from, and their weights, which add up to one.
+   */
+  private static final class Axis {
+    private final int[] first;
+    private final int[] taps;
+    private final double[] weights;
+    private final int stride;
+
+    private Axis(int sourceSize, int size, ResampleFilter filter) {
+      double scale = (double) sourceSize / size;
+      //shrinking stretches the filter over every original pixel within a new one
+      double stretch = Math.max(1, scale);
+      double support = filter.support() * stretch;
+      this.stride = (int) Math.floor(2 * support) + 1;
+      this.first = new int[size];
+      this.taps = new int[size];
+      this.weights = new double[size * stride];
+
+      for (int i = 0; i < size; i++) {
+        double center = (i + 0.5) * scale;
+        //the original pixels whose centers are within the support
+        int start = Math.max(0, (int) Math.floor(center - support - 0.5) + 1);
+        int end = Math.min(Math.min(sourceSize, start + stride),
+                (int) Math.floor(center + support - 0.5) + 1);
+        double total = 0;
+        int count = 0;
+        for (int j = start; j < end; j++) {
+          double weight = filter.weight((j + 0.5 - center) / stretch);
+          weights[i * stride + count] = weight;
+          total += weight;
+          count++;
+        }
+        //original pixels past the edge are left out, so the weights that remain are scaled up
+        for (int k = 0; k < count; k++) {
+          weights[i * stride + k] /= total;
+        }
+        first[i] = start;
+        taps[i] = count;
+      }
+    }
+  }
+
+  /**
+   * Resizes the image of the given mipmap to the given size, starting from the smallest level
+   * that is at least twice as large as the new image in both directions (or, for the box filter,
+   * as large as it), or from the full image. Shrinking by a whole factor in both directions with
+   * the box filter averages each block of the full image exactly.
+   *
+   * @param mipmap the mipmap of the image to resize.
+   * @param width  the width of the new image.
+   * @param height the height of the new image.
+   * @param filter how the new pixels are computed.
+   * @return the pixels of the new image in 0xRRGGBB form, row by row.
+   */
+  static int[] resize(Mipmap mipmap, int width, int height, ResampleFilter filter) {
+    if (width == 0 || height == 0) {
+      return new int[0];
+    }
+    ImageProcessingModel full = mipmap.getImage();
+    if (filter == ResampleFilter.BOX && full.getImageWidth() % width == 0
+            && full.getImageHeight() % height == 0) {
+      return average(full, width, height);
+    }
+    int margin = filter == ResampleFilter.BOX ? 1 : 2;
+    ImageProcessingModel level = mipmap.levelFor(width * margin, height * margin);
+    if (level.getImageWidth() == width && level.getImageHeight() == height) {
+      //every filter leaves an image of the same size unchanged
+      int[] out = new int[width * height];
+      int[] row = new int[width];
+      for (int h = 0; h < height; h++) {
+        level.getPackedRow(h, row);
+        System.arraycopy(row, 0, out, h * width, width);
+      }
+      return out;
+    }
+    return resize(level.getImageWidth(), level.getImageHeight(), level::getPackedRow,
+            width, height, filter);
+  }
+
+  /**
+   * Resizes the image whose rows are produced by the given source to the given size.
+   *
+   * @param sourceWidth  the width of the image.
+   * @param sourceHeight the height of the image.
+   * @param source       writes the requested row of the image into the given array.
+   * @param width        the width of the new image.
+   * @param height       the height of the new image.
+   * @param filter       how the new pixels are computed.
+   * @return the pixels of the new image in 0xRRGGBB form, row by row.
+   */
+  static int[] resize(int sourceWidth, int sourceHeight, RowWriter source, int width, int height,
+                      ResampleFilter filter) {
+    int[] out = new int[width * height];
+    if (width == 0 || height == 0 || sourceWidth == 0 || sourceHeight == 0) {
+      return out;
+    }
+    Axis columns = new Axis(sourceWidth, width, filter);
+    Axis rows = new Axis(sourceHeight, height, filter);
+
+    Parallelism.forEachRow(height, width, (startRow, endRow) -> {
+      int[] row = new int[sourceWidth];
+      double[] red = new double[sourceWidth];
+      double[] green = new double[sourceWidth];
+      double[] blue = new double[sourceWidth];
+      for (int h = startRow; h < endRow; h++) {
+        Arrays.fill(red, 0);
+        Arrays.fill(green, 0);
+        Arrays.fill(blue, 0);
+        for (int k = 0; k < rows.taps[h]; k++) {
+          double weight = rows.weights[h * rows.stride + k];
+          source.write(rows.first[h] + k, row);
+          for (int w = 0; w < sourceWidth; w++) {
+            int p = row[w];
+            red[w] += weight * ((p >> 16) & 0xFF);
+            green[w] += weight * ((p >> 8) & 0xFF);
+            blue[w] += weight * (p & 0xFF);
+          }
+        }
+
+        for (int w = 0; w < width; w++) {
+          double r = 0;
+          double g = 0;
+          double b = 0;
+          int start = columns.first[w];
+          for (int k = 0; k < columns.taps[w]; k++) {
+            double weight = columns.weights[w * columns.stride + k];
+            r += weight * red[start + k];
+            g += weight * green[start + k];
+            b += weight * blue[start + k];
+          }
+          out[h * width + w] = PackedImage.pack(round(r), round(g), round(b));
+        }
+      }
+    });
+    return out;
+  }
+
+  /**
+   * Shrinks the given image by whole factors to the given size, setting each new pixel to the
+   * rounded average of the block of original pixels it covers, summed as integers.
+   */
+  private static int[] average(ImageProcessingModel image, int width, int height) {
+    int sourceWidth = image.getImageWidth();
+    int blockWidth = sourceWidth / width;
+    int blockHeight = image.getImageHeight() / height;
+    long count = (long) blockWidth * blockHeight;
+    int[] out = new int[width * height];
+    Parallelism.forEachRow(height, width, (startRow, endRow) -> {
+      int[] row = new int[sourceWidth];
+      long[] red = new long[width];
+      long[] green = new long[width];
+      long[] blue = new long[width];
+      for (int h = startRow; h < endRow; h++) {
+        Arrays.fill(red, 0);
+        Arrays.fill(green, 0);
+        Arrays.fill(blue, 0);
+        for (int k = 0; k < blockHeight; k++) {
+          image.getPackedRow(h * blockHeight + k, row);
+          for (int w = 0; w < sourceWidth; w++) {
+            int p = row[w];
+            red[w / blockWidth] += (p >> 16) & 0xFF;
+            green[w / blockWidth] += (p >> 8) & 0xFF;
+            blue[w / blockWidth] += p & 0xFF;
+          }
+        }
+        for (int w = 0; w < width; w++) {
+          out[h * width + w] = PackedImage.pack((int) ((red[w] + count / 2) / count),
+                  (int) ((green[w] + count / 2) / count), (int) ((blue[w] + count / 2) / count));
+        }
+      }
+    });
+    return out;
+  }
+
+  private static int round(double channel) {
+    return Math.max(0, Math.min(255, (int) (channel + 0.5)));
+  }
+}
@@ -0,0 +1,15 @@
+package model;
+
+/**
+ * A functional interface that applies an operation to a band of consecutive rows of an image.
+ */
+@FunctionalInterface
+interface RowOperation {
+  /**
+   * Applies a function to every row in the given band.
+   *
+   * @param startRow the first row of the band, inclusive
+   * @param endRow   the last row of the band, exclusive
+   */
+  void apply(int startRow, int endRow);
+}
@@ -0,0 +1,15 @@
+package model;
+
+/**
+ * A functional interface that computes the pixels of one row of a new image.
+ */
+@FunctionalInterface
+interface RowWriter {
+  /**
+   * Writes the packed pixels of the given row of the new image into the given array.
+   *
+   * @param h   the row being computed
+   * @param row the array to write the row's pixels to, one per column
+   */
+  void write(int h, int[] row);
+}
@@ -0,0 +1,77 @@
+package model;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Represents the point operation loops running one pixel at a time. These are the reference for
+ * every other implementation, and are used when no vectorized implementation is available.
+ */
+public final class ScalarPointKernels implements PointKernels {
+
+  private static final String[] COMPONENTS = new String[]{
+    "value-component", "intensity-component"};
+
+  @Override
+  public void offset(int[] src, int srcOffset, int[] dst, int dstOffset, int length,
+                     int redSource, int greenSource, int blueSource, int offset, int low,
+                     int high) {
+    int redShift = 16 - 8 * redSource;
+    int greenShift = 16 - 8 * greenSource;
+    int blueShift = 16 - 8 * blueSource;
+    for (int i = 0; i < length; i++) {
+      int p = src[srcOffset + i];
+      int red = Math.min(high, Math.max(low, ((p >> redShift) & 0xFF) + offset));
+      int green = Math.min(high, Math.max(low, ((p >> greenShift) & 0xFF) + offset));
+      int blue = Math.min(high, Math.max(low, ((p >> blueShift) & 0xFF) + offset));
+      dst[dstOffset + i] = red << 16 | green << 8 | blue;
+    }
+  }
+
+  @Override
+  public void grey(int[] src, int srcOffset, int[] dst, int dstOffset, int length,
+                   int component) {
+    if (component < VALUE || component > INTENSITY) {
+      throw new IllegalArgumentException("invalid component");
+    }
+    IntUnaryOperator toGrey = PackedImage.componentOf(COMPONENTS[component]);
+    for (int i = 0; i < length; i++) {
+      dst[dstOffset + i] = PackedImage.grey(toGrey.applyAsInt(src[srcOffset + i]));
+    }
+  }
+
+  @Override
+  public void matrix(int[] src, int srcOffset, int[] dst, int dstOffset, int length,
+                     long[] coefficients, IntUnaryOperator reference) {
+    for (int i = 0; i < length; i++) {
+      dst[dstOffset + i] = matrix(src[srcOffset + i], coefficients, reference);
+    }
+  }
+
+  /**
+   * Gets the product of the color matrix with the given fixed-point coefficients and the given
+   * packed pixel, or the result of the given reference if a channel is too close to a whole
+   * number for the fixed-point arithmetic to round it down the same way.
+   */
+  static int matrix(int p, long[] coefficients, IntUnaryOperator reference) {
+    long red = (p >> 16) & 0xFF;
+    long green = (p >> 8) & 0xFF;
+    long blue = p & 0xFF;
+    int result = 0;
+    for (int c = 0; c < 3; c++) {
+      long sum = coefficients[4 * c] * red + coefficients[4 * c + 1] * green
+              + coefficients[4 * c + 2] * blue + coefficients[4 * c + 3];
+      if (reference != null && nearWhole(sum)) {
+        return reference.applyAsInt(p);
+      }
+      result = result << 8 | (int) Math.max(0, Math.min(255, sum >> MATRIX_SHIFT));
+    }
+    return result;
+  }
+
+  /**
+   * Gets whether the given fixed-point sum is within MATRIX_MARGIN of a whole number.
+   */
+  private static boolean nearWhole(long sum) {
+    return ((sum + MATRIX_MARGIN) & ((1L << MATRIX_SHIFT) - 1)) < 2 * MATRIX_MARGIN;
+  }
+}
@@ -0,0 +1,96 @@
+package model;
+
+/**
+ * Represents the summed-area tables of an image stored as packed 0xRRGGBB rows: for each
+ * channel, the sum of that channel over every pixel above and to the left of each position.
+ * The tables are built in a single pass over the rows, after which the sum of a channel over any
+ * rectangle takes four lookups, however large the rectangle is.
+ *
+ * <p>Sums are kept in ints and allowed to wrap around, so the tables take no more memory than
+ * the image does per channel. The sum over a rectangle is the difference of four entries, which
+ * is exact as long as the rectangle holds at most (2^32 - 1) / 255 pixels, since its true sum
+ * then fits in 32 unsigned bits.
+ */
+final class SummedAreaTable {
+
+  private final int width;
+  private final int height;
+  //each table has a row and a column of zeros before the first pixel
+  private final int[] red;
+  private final int[] green;
+  private final int[] blue;
+
+  /**
+   * Builds the tables of the image whose rows are produced by the given source.
+   *
+   * @param width  the width of the image.
+   * @param height the height of the image.
+   * @param source writes the requested row of the image into the given array.
+   */
+  SummedAreaTable(int width, int height, RowWriter source) {
+    this.width = width;
+    this.height = height;
+    int stride = width + 1;
+    this.red = new int[stride * (height + 1)];
+    this.green = new int[red.length];
+    this.blue = new int[red.length];
+    int[] row = new int[width];
+    for (int h = 0; h < height; h++) {
+      source.write(h, row);
+      int r = 0;
+      int g = 0;
+      int b = 0;
+      int above = h * stride + 1;
+      int at = above + stride;
+      for (int w = 0; w < width; w++, above++, at++) {
+        int p = row[w];
+        r += (p >> 16) & 0xFF;
+        g += (p >> 8) & 0xFF;
+        b += p & 0xFF;
+        red[at] = red[above] + r;
+        green[at] = green[above] + g;
+        blue[at] = blue[above] + b;
+      }
+    }
+  }
+
+  /**
+   * Computes every pixel of the image as the rounded average of the pixels within the given
+   * radius of it in both directions. Boxes are cut off at the edges of the image, and average
+   * the pixels they still hold.
+   *
+   * @param radius the number of pixels the box extends on each side of its center.
+   * @return the blurred pixels in 0xRRGGBB form, row by row.
+   */
+  int[] boxBlur(int radius) {
+    int[] out = new int[width * height];
+    int stride = width + 1;
+    Parallelism.forEachRow(height, width, (startRow, endRow) -> {
+      for (int h = startRow; h < endRow; h++) {
+        int top = Math.max(0, h - radius) * stride;
+        int bottom = Math.min(height, h + radius + 1) * stride;
+        int rows = (bottom - top) / stride;
+        for (int w = 0; w < width; w++) {
+          int left = Math.max(0, w - radius);
+          int right = Math.min(width, w + radius + 1);
+          long count = (long) rows * (right - left);
+          long half = count / 2;
+          out[h * width + w] = PackedImage.pack(
+                  (int) ((sum(red, top, bottom, left, right) + half) / count),
+                  (int) ((sum(green, top, bottom, left, right) + half) / count),
+                  (int) ((sum(blue, top, bottom, left, right) + half) / count));
+        }
+      }
+    });
+    return out;
+  }
+
+  /**
+   * Gets the sum of the given table's channel over the rectangle between the given table rows
+   * (as indices of their first entries) and columns.
+   */
+  private static long sum(int[] table, int top, int bottom, int left, int right) {
+    return Integer.toUnsignedLong(table[bottom + right] - table[bottom + left]
+            - table[top + right] + table[top + left]);
+  }
+}
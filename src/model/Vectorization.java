@@ -0,0 +1,65 @@
+package model;
+
+/**
+ * Controls which implementation of the point operation loops packed images use. The vectorized
+ * implementation uses the incubating Vector API, so it is kept in its own source folder, outside
+ * the model, and only loaded when it is on the class path, the "imageprocessor.vector" system
+ * property is true, and the program runs with --add-modules jdk.incubator.vector; otherwise, and if
+ * it cannot be loaded, the scalar implementation is used. Both produce exactly the same pixels.
+ */
+public final class Vectorization {
+
+  private static final String VECTOR_KERNELS = "simd.VectorPointKernels";
+  private static final PointKernels SCALAR = new ScalarPointKernels();
+
+  private static volatile PointKernels kernels =
+          Boolean.getBoolean("imageprocessor.vector") && vector() != null ? vector() : SCALAR;
+
+  private Vectorization() {
+  }
+
+  /**
+   * Gets the point operation loops packed images use.
+   *
+   * @return the implementation in use.
+   */
+  public static PointKernels get() {
+    return kernels;
+  }
+
+  /**
+   * Sets the point operation loops packed images use.
+   *
+   * @param implementation the implementation to use.
+   * @throws IllegalArgumentException if the implementation is null.
+   */
+  public static void set(PointKernels implementation) throws IllegalArgumentException {
+    if (implementation == null) {
+      throw new IllegalArgumentException("implementation cannot be null");
+    }
+    kernels = implementation;
+  }
+
+  /**
+   * Gets the point operation loops running one pixel at a time.
+   *
+   * @return the scalar implementation.
+   */
+  public static PointKernels scalar() {
+    return SCALAR;
+  }
+
+  /**
+   * Gets the point operation loops using the Vector API, if they can be loaded.
+   *
+   * @return the vectorized implementation, or null if it is not on the class path or the
+   *     jdk.incubator.vector module is not available.
+   */
+  public static PointKernels vector() {
+    try {
+      return (PointKernels) Class.forName(VECTOR_KERNELS).getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      return null;
+    }
+  }
+}
@@ -18,8 +18,7 @@ import javax.swing.Icon;
 import javax.swing.ImageIcon;
 
 import controller.Features;
-
-import static controller.ImageProcessingControllerGUI.imageRGBCounter;
+import model.Histogram;
 
 /**
  * Represents the frame of the Image Processor GUI.
@@ -48,6 +47,7 @@ public class ImageProcessorFrame extends JFrame implements ImageProcessorViewGUI
 
   private JButton loadButton;
   private JButton saveButton;
+  private JButton cancelButton;
   private JTextField lightNum;
 
   private JButton downscale;
@@ -202,6 +202,7 @@ public class ImageProcessorFrame extends JFrame implements ImageProcessorViewGUI
 
     loadButton.addActionListener(evt -> features.loadImage());
     saveButton.addActionListener(evt -> features.saveImage());
+    cancelButton.addActionListener(evt -> features.cancel());
 
     downscale.addActionListener(evt -> features.applyOp(downscale.getActionCommand(),
             downscale.getActionCommand()));
@@ -255,9 +256,12 @@ public class ImageProcessorFrame extends JFrame implements ImageProcessorViewGUI
     fileOpenDisplay = new JLabel("Image name will appear here");
 
     saveButton.setActionCommand("Save file");
+    cancelButton = new JButton("Cancel");
+    cancelButton.setActionCommand("Cancel");
 
     fileOperationsPanel.add(loadButton);
     fileOperationsPanel.add(saveButton);
+    fileOperationsPanel.add(cancelButton);
     fileOperationsPanel.add(fileOpenDisplay);
 
     mainPanel.add(fileOperationsPanel, BorderLayout.SOUTH);
@@ -322,13 +326,15 @@ public class ImageProcessorFrame extends JFrame implements ImageProcessorViewGUI
   /**
    * Updates the histogram panels to reflect the RGB and intensity values of the currrently
    * displayed image.
+   *
+   * @param histogram the histograms of the displayed image.
    */
-  public void updateHistogram() {
+  public void updateHistogram(Histogram histogram) {
     JPanel[] histograms = new JPanel[]{redHistogram, greenHistogram,
         blueHistogram, intensityHistogram};
-    for (JPanel histogram : histograms) {
-      histogram.removeAll();
-      histogram.updateUI();
+    for (JPanel panel : histograms) {
+      panel.removeAll();
+      panel.updateUI();
     }
 
     int dim = Math.max(imageLabel.getIcon().getIconHeight(), imageLabel.getIcon().getIconWidth());
@@ -345,7 +351,8 @@ public class ImageProcessorFrame extends JFrame implements ImageProcessorViewGUI
       }
 
 
-      int[] countArray = imageRGBCounter(rgb);
+      int[] countArray = new int[]{histogram.getRed(rgb), histogram.getGreen(rgb),
+          histogram.getBlue(rgb), histogram.getIntensity(rgb)};
 
 
       redCurr.setMinimumSize(new Dimension(1, countArray[0] / (dim / 4)));
@@ -2,6 +2,8 @@ package view;
 
 import javax.swing.Icon;
 
+import model.Histogram;
+
 /**
  * Represents the operations of the GUI.
  */
@@ -18,5 +20,5 @@ public interface ImageProcessorViewGUI {
 
   String getHeightNum();
 
-  void updateHistogram();
+  void updateHistogram(Histogram histogram);
 }
@@ -0,0 +1,249 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import controller.BandPipeline;
+import controller.BandSource;
+import controller.ImageFileOperationsImpl;
+import controller.ImageIOBandSource;
+import controller.ImageOperationCommand;
+import controller.ImageProcessingControllerStream;
+import controller.ImageStore;
+import controller.MapImageStore;
+import controller.PPMBandSink;
+import controller.PPMBandSource;
+import controller.PPMFileOperationsImpl;
+import controller.commands.Brighten;
+import controller.commands.ColorTransformation;
+import controller.commands.Downscale;
+import controller.commands.Filter;
+import controller.commands.HorizontalFlip;
+import controller.commands.SetToComponent;
+import controller.commands.VerticalFlip;
+import model.BoxBlur;
+import model.ImageProcessingModel;
+import model.PackedImage;
+import model.RGB;
+import model.ResampleFilter;
+import view.ImageProcessingViewImpl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the BandPipeline class, the band sources and sinks, and the streaming controller.
+ */
+public class BandPipelineTest {
+
+  private Map<String, ImageProcessingModel> models;
+  private ImageStore images;
+  private PackedImage original;
+  private File input;
+  private File output;
+
+  @Before
+  public void setUp() throws IOException {
+    RGB[][] grid = new RGB[53][37];
+    for (int h = 0; h < grid.length; h++) {
+      for (int w = 0; w < grid[0].length; w++) {
+        grid[h][w] = new RGB((h * 31 + w) % 256, (h * w) % 256, (w * 7 + h) % 256);
+      }
+    }
+    original = new PackedImage(grid);
+    models = new HashMap<>();
+    models.put("image", original);
+    images = new MapImageStore(models);
+    input = File.createTempFile("bandInput", ".ppm");
+    output = File.createTempFile("bandOutput", ".ppm");
+    new PPMFileOperationsImpl(images, true, 255).save(input.getPath(), "image");
+  }
+
+  @After
+  public void tearDown() {
+    input.delete();
+    output.delete();
+  }
+
+  private ImageProcessingModel expected(List<ImageOperationCommand> commands) {
+    ImageProcessingModel image = original;
+    for (ImageOperationCommand command : commands) {
+      image = command.executeCommand(image);
+    }
+    return image;
+  }
+
+  private ImageProcessingModel streamed(List<ImageOperationCommand> commands, int bandRows,
+                                        int spills) throws IOException {
+    try (BandSource source = new PPMBandSource(input.getPath());
+         PPMBandSink sink = new PPMBandSink(output.getPath())) {
+      assertEquals(spills, new BandPipeline(commands, bandRows).run(source, sink));
+    }
+    new PPMFileOperationsImpl(images).load(output.getPath(), "streamed");
+    return models.get("streamed");
+  }
+
+  @Test
+  public void bandsMatchWholeImage() throws IOException {
+    List<ImageOperationCommand> commands = Arrays.asList(new Filter("sharpen"),
+            new Brighten(10), new Filter("blur"), new HorizontalFlip(),
+            new ColorTransformation("sepia"), new SetToComponent("value-component"));
+    RGB[][] whole = expected(commands).getGrid();
+    for (int bandRows : new int[]{1, 2, 5, 16, 53, 100}) {
+      assertArrayEquals(whole, streamed(commands, bandRows, 0).getGrid());
+    }
+  }
+
+  @Test
+  public void boxBlursMatchWholeImage() throws IOException {
+    List<ImageOperationCommand> commands = Arrays.asList(new Filter(BoxBlur.box(3)),
+            new Brighten(10), new Filter(BoxBlur.gaussian(2)));
+    RGB[][] whole = expected(commands).getGrid();
+    for (int bandRows : new int[]{1, 4, 16, 100}) {
+      assertArrayEquals(whole, streamed(commands, bandRows, 0).getGrid());
+    }
+  }
+
+  @Test
+  public void plainFilesStream() throws IOException {
+    new PPMFileOperationsImpl(images, false, 1000).save(input.getPath(), "image");
+    List<ImageOperationCommand> commands = Arrays.asList(new Filter("sharpen"));
+    assertArrayEquals(expected(commands).getGrid(), streamed(commands, 3, 0).getGrid());
+  }
+
+  @Test
+  public void unsupportedCommandsSpill() throws IOException {
+    List<ImageOperationCommand> commands = Arrays.asList(new Brighten(10), new VerticalFlip(),
+            new Filter("sharpen"), new Downscale(50, 70, ResampleFilter.BILINEAR),
+            new VerticalFlip(), new Filter("blur"));
+    ImageProcessingModel result = streamed(commands, 4, 2);
+    assertEquals(18, result.getImageWidth());
+    assertEquals(37, result.getImageHeight());
+    assertArrayEquals(expected(commands).getGrid(), result.getGrid());
+    List<ImageOperationCommand> flip = Arrays.asList(new VerticalFlip());
+    assertArrayEquals(original.flipVertical().getGrid(), streamed(flip, 8, 1).getGrid());
+  }
+
+  @Test
+  public void imageIOSourceReadsBands() throws IOException {
+    new ImageFileOperationsImpl(images).load("res/test.png", "png");
+    ImageProcessingModel png = models.get("png");
+    try (BandSource source = new ImageIOBandSource("res/test.png");
+         PPMBandSink sink = new PPMBandSink(output.getPath())) {
+      assertEquals(png.getImageWidth(), source.getImageWidth());
+      assertEquals(png.getImageHeight(), source.getImageHeight());
+      new BandPipeline(Arrays.asList(new Filter("blur")), 1).run(source, sink);
+    }
+    new PPMFileOperationsImpl(images).load(output.getPath(), "streamed");
+    assertArrayEquals(png.filter("blur").getGrid(), models.get("streamed").getGrid());
+  }
+
+  @Test
+  public void controllerStreamsScript() throws IOException {
+    StringBuilder log = new StringBuilder();
+    new ImageProcessingControllerStream(new StringReader("filter sharpen\nvertical-flip\n"
+            + "brighten 5\nq\n"), input.getPath(), output.getPath(),
+            new ImageProcessingViewImpl(log), 7).runProgram();
+    assertTrue(log.toString().contains("(1 spill to disk)"));
+    new PPMFileOperationsImpl(images).load(output.getPath(), "streamed");
+    assertArrayEquals(original.filter("sharpen").flipVertical().brighten(5).getGrid(),
+            models.get("streamed").getGrid());
+
+    log.setLength(0);
+    new ImageProcessingControllerStream(new StringReader("sharpen image"), input.getPath(),
+            output.getPath(), new ImageProcessingViewImpl(log), 7).runProgram();
+    assertEquals("Command sharpen does not exist!" + System.lineSeparator(), log.toString());
+    log.setLength(0);
+    new ImageProcessingControllerStream(new StringReader("filter emboss"), input.getPath(),
+            output.getPath(), new ImageProcessingViewImpl(log), 7).runProgram();
+    assertTrue(log.toString().startsWith("Command failed!"));
+  }
+
+  /**
+   * Counts the temporary files left next to the given file by a sink writing it.
+   */
+  private static int leftovers(File file) {
+    File[] files = file.getAbsoluteFile().getParentFile().listFiles((directory, name) ->
+            name.startsWith(file.getName()) && name.endsWith(".tmp"));
+    return files == null ? 0 : files.length;
+  }
+
+  @Test
+  public void controllerStreamsOverItsInput() throws IOException {
+    //larger than the buffer the input is read through, so it is still being read when written
+    int[] pixels = new int[300 * 250];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = (i * 0x9E3779B1) & 0xFFFFFF;
+    }
+    PackedImage large = new PackedImage(300, 250, pixels);
+    models.put("large", large);
+    new PPMFileOperationsImpl(images, true, 255).save(input.getPath(), "large");
+    StringBuilder log = new StringBuilder();
+    new ImageProcessingControllerStream(new StringReader("brighten 5\nvertical-flip\nq\n"),
+            input.getPath(), input.getPath(), new ImageProcessingViewImpl(log), 7).runProgram();
+    assertTrue(log.toString().contains(" streamed to "));
+    new PPMFileOperationsImpl(images).load(input.getPath(), "streamed");
+    assertArrayEquals(large.brighten(5).flipVertical().getGrid(),
+            models.get("streamed").getGrid());
+    assertEquals(0, leftovers(input));
+  }
+
+  @Test
+  public void failedStreamLeavesFilesUntouched() throws IOException {
+    new PPMFileOperationsImpl(images, true, 255).save(output.getPath(), "image");
+    byte[] previous = Files.readAllBytes(output.toPath());
+    //the header promises every row, but the file ends half way through them
+    byte[] whole = Files.readAllBytes(input.toPath());
+    byte[] truncated = Arrays.copyOf(whole, whole.length / 2);
+    Files.write(input.toPath(), truncated);
+    for (File target : new File[]{output, input}) {
+      StringBuilder log = new StringBuilder();
+      new ImageProcessingControllerStream(new StringReader("brighten 5\nq\n"), input.getPath(),
+              target.getPath(), new ImageProcessingViewImpl(log), 4).runProgram();
+      assertTrue(log.toString().startsWith("Streaming failed"));
+      assertEquals(0, leftovers(target));
+    }
+    assertArrayEquals(previous, Files.readAllBytes(output.toPath()));
+    assertArrayEquals(truncated, Files.readAllBytes(input.toPath()));
+  }
+
+  @Test
+  public void invalidArguments() throws IOException {
+    Runnable[] invalid = new Runnable[]{
+        () -> new BandPipeline(null, 4),
+        () -> new BandPipeline(Arrays.asList(new Brighten(1), null), 4),
+        () -> new BandPipeline(Arrays.asList(new Brighten(1)), 0),
+        () -> new ImageProcessingControllerStream(new StringReader(""), input.getPath(),
+                "out.png", new ImageProcessingViewImpl(new StringBuilder()), 4)};
+    for (Runnable operation : invalid) {
+      try {
+        operation.run();
+        fail("No exception thrown");
+      } catch (IllegalArgumentException e) {
+        //Exception thrown
+      }
+    }
+    try (BandSource source = new PPMBandSource(input.getPath())) {
+      source.readRows(54, new int[54 * 37], 0);
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //Exception thrown
+    }
+    try {
+      new PPMBandSource("res/missing.ppm");
+      fail("No exception thrown");
+    } catch (IOException e) {
+      //Exception thrown
+    }
+  }
+}
@@ -0,0 +1,136 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import controller.ImageProcessingControllerBatch;
+import controller.ImageStore;
+import controller.MapImageStore;
+import controller.PPMFileOperationsImpl;
+import model.ImageProcessingModel;
+import view.ImageProcessingViewImpl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the ImageProcessingControllerBatch class.
+ */
+public class BatchControllerTest {
+
+  private Path directory;
+  private Path input;
+  private Path output;
+  private Map<String, ImageProcessingModel> models;
+  private ImageStore images;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("batchTest");
+    input = Files.createDirectory(directory.resolve("in"));
+    output = directory.resolve("out");
+    for (String name : new String[]{"first", "second", "third"}) {
+      Files.copy(Paths.get("res/test.ppm"), input.resolve(name + ".ppm"));
+    }
+    Files.copy(Paths.get("res/test.png"), input.resolve("fourth.png"));
+    Files.write(input.resolve("notes.txt"), "not an image".getBytes());
+    models = new HashMap<>();
+    images = new MapImageStore(models);
+    new PPMFileOperationsImpl(images).load("res/test.ppm", "original");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
+  private String run(String template, String inputs, int threads, int maxInFlight) {
+    StringBuilder log = new StringBuilder();
+    new ImageProcessingControllerBatch(new StringReader(template), inputs, output.toString(),
+            new ImageProcessingViewImpl(log), threads, maxInFlight).runProgram();
+    return log.toString();
+  }
+
+  @Test
+  public void processesDirectory() throws IOException {
+    String log = run("load {input} image brighten image 20 image "
+            + "save {output}/{name}.ppm image q", input.toString(), 3, 2);
+
+    ImageProcessingModel expected = models.get("original").brighten(20);
+    for (String name : new String[]{"first", "second", "third"}) {
+      new PPMFileOperationsImpl(images).load(output.resolve(name + ".ppm").toString(), name);
+      assertArrayEquals(expected.getGrid(), models.get(name).getGrid());
+      assertTrue(log.contains(name + ".ppm: "));
+    }
+    assertTrue(Files.exists(output.resolve("fourth.ppm")));
+    assertFalse(log.contains("notes.txt"));
+    String[] lines = log.split(System.lineSeparator());
+    assertEquals(5, lines.length);
+    for (int i = 0; i < 4; i++) {
+      assertTrue(lines[i].matches("\\w+\\.p[pn][mg]: \\d+ ms"));
+    }
+    assertTrue(lines[4].startsWith("Processed 4 images in "));
+    assertTrue(lines[4].endsWith(" images/second)"));
+  }
+
+  @Test
+  public void processesGlob() {
+    String log = run("load {input} image save {output}/{name}.png image q",
+            input.resolve("*.ppm").toString(), 1, 1);
+    assertTrue(Files.exists(output.resolve("first.png")));
+    assertTrue(Files.exists(output.resolve("third.png")));
+    assertFalse(Files.exists(output.resolve("fourth.png")));
+    assertTrue(log.contains("Processed 3 images in "));
+  }
+
+  @Test
+  public void reportsErrors() {
+    String log = run("load {input} image unknown darken missing 10 other q",
+            input.resolve("first.ppm").toString(), 2, 2);
+    assertTrue(log.startsWith("first.ppm: "));
+    assertTrue(log.contains("(Command does not exist! Try again.; "
+            + "Image does not exist! Try again.)"));
+
+    log = run("load {input} image", input.resolve("second.ppm").toString(), 2, 2);
+    assertTrue(log.contains("(script did not end with q)"));
+  }
+
+  @Test
+  public void invalidArguments() {
+    try {
+      new ImageProcessingControllerBatch(null, "in", "out",
+              new ImageProcessingViewImpl(new StringBuilder()));
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //Exception thrown
+    }
+    try {
+      new ImageProcessingControllerBatch(new StringReader("q"), "in", "out",
+              new ImageProcessingViewImpl(new StringBuilder()), 0, 1);
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //Exception thrown
+    }
+    try {
+      run("q", directory.resolve("missing").resolve("*.ppm").toString(), 1, 1);
+      fail("No exception thrown");
+    } catch (IllegalStateException e) {
+      //Exception thrown
+    }
+  }
+}
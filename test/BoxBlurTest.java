@@ -0,0 +1,135 @@
+import org.junit.Test;
+
+import model.BoxBlur;
+import model.ImageGrid;
+import model.ImageProcessingModel;
+import model.LazyImage;
+import model.PackedImage;
+import model.RGB;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the BoxBlur class and blurring images with it.
+ */
+public class BoxBlurTest {
+
+  private static RGB[][] gradient(int height, int width) {
+    RGB[][] grid = new RGB[height][width];
+    for (int h = 0; h < height; h++) {
+      for (int w = 0; w < width; w++) {
+        grid[h][w] = new RGB((h * 37 + w * 11) % 256, (h * w) % 256, (h + w * 5) % 256);
+      }
+    }
+    return grid;
+  }
+
+  /**
+   * Averages the pixels within the given radius of each pixel one by one, cutting boxes off at
+   * the edges of the grid.
+   */
+  private static RGB[][] naiveBlur(RGB[][] grid, int radius) {
+    int height = grid.length;
+    int width = grid[0].length;
+    RGB[][] blurred = new RGB[height][width];
+    for (int h = 0; h < height; h++) {
+      for (int w = 0; w < width; w++) {
+        int[] sums = new int[3];
+        int count = 0;
+        for (int y = Math.max(0, h - radius); y <= Math.min(height - 1, h + radius); y++) {
+          for (int x = Math.max(0, w - radius); x <= Math.min(width - 1, w + radius); x++) {
+            sums[0] += grid[y][x].getRed();
+            sums[1] += grid[y][x].getGreen();
+            sums[2] += grid[y][x].getBlue();
+            count++;
+          }
+        }
+        blurred[h][w] = new RGB((sums[0] + count / 2) / count, (sums[1] + count / 2) / count,
+                (sums[2] + count / 2) / count);
+      }
+    }
+    return blurred;
+  }
+
+  @Test
+  public void boxMatchesNaiveAverage() {
+    RGB[][] grid = gradient(13, 9);
+    PackedImage image = new PackedImage(grid);
+    for (int radius : new int[]{0, 1, 2, 5, 20}) {
+      assertArrayEquals(naiveBlur(grid, radius), image.boxBlur(BoxBlur.box(radius)).getGrid());
+    }
+    assertArrayEquals(grid, image.boxBlur(BoxBlur.box(0)).getGrid());
+  }
+
+  @Test
+  public void gaussianStacksBoxes() {
+    BoxBlur gaussian = BoxBlur.gaussian(2);
+    assertArrayEquals(new int[]{1, 1, 2}, gaussian.getRadii());
+    assertEquals(4, gaussian.getHalo());
+    assertArrayEquals(new int[]{3}, BoxBlur.named("box-blur", 3).getRadii());
+    assertArrayEquals(gaussian.getRadii(), BoxBlur.named("gaussian-blur", 2).getRadii());
+    assertTrue(BoxBlur.isNamed("gaussian-blur"));
+    assertFalse(BoxBlur.isNamed("blur"));
+
+    RGB[][] grid = gradient(11, 14);
+    RGB[][] stacked = naiveBlur(naiveBlur(naiveBlur(grid, 1), 1), 2);
+    assertArrayEquals(stacked, new PackedImage(grid).boxBlur(gaussian).getGrid());
+  }
+
+  @Test
+  public void everyImageBlursTheSame() {
+    RGB[][] grid = gradient(10, 12);
+    PackedImage packed = new PackedImage(grid);
+    BoxBlur blur = BoxBlur.gaussian(1.5);
+    RGB[][] expected = packed.boxBlur(blur).getGrid();
+    assertArrayEquals(expected, new ImageGrid(grid).boxBlur(blur).getGrid());
+    assertArrayEquals(expected, LazyImage.of(packed).boxBlur(blur).getGrid());
+    ImageProcessingModel view = packed.crop(2, 1, 7, 8);
+    assertArrayEquals(new PackedImage(view.getGrid()).boxBlur(blur).getGrid(),
+            view.boxBlur(blur).getGrid());
+  }
+
+  @Test
+  public void transparentPixelsDoNotBleed() {
+    int[] pixels = new int[]{PackedImage.pack(200, 0, 0), PackedImage.pack(0, 0, 255)};
+    PackedImage image = new PackedImage(2, 1, pixels, new byte[]{(byte) 255, 0});
+    ImageProcessingModel blurred = image.boxBlur(BoxBlur.box(1));
+    assertTrue(blurred.hasAlpha());
+    int[] row = new int[2];
+    blurred.getPackedRow(0, row);
+    for (int pixel : row) {
+      //premultiplying the colors may round the red away by one
+      assertEquals(200, (pixel >> 16) & 0xFF, 1);
+      assertEquals(0, pixel & 0xFFFF);
+    }
+    blurred.getAlphaRow(0, row);
+    assertEquals(row[0], row[1]);
+  }
+
+  @Test
+  public void invalidBlurs() {
+    Runnable[] invalid = new Runnable[]{
+        () -> BoxBlur.box(-1),
+        () -> BoxBlur.box(BoxBlur.MAX_RADIUS + 1),
+        () -> BoxBlur.gaussian(0),
+        () -> BoxBlur.gaussian(Double.NaN),
+        () -> BoxBlur.gaussian(1e6),
+        () -> BoxBlur.named("box-blur", 2.5),
+        () -> BoxBlur.named("blur", 2),
+        () -> new PackedImage(gradient(2, 2)).boxBlur(null),
+        () -> new ImageGrid(gradient(2, 2)).boxBlur(null),
+        () -> LazyImage.of(new PackedImage(gradient(2, 2))).boxBlur(null)};
+    for (Runnable operation : invalid) {
+      try {
+        operation.run();
+        fail("No exception thrown");
+      } catch (IllegalArgumentException e) {
+        //Exception thrown
+      }
+    }
+  }
+}
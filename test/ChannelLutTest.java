@@ -0,0 +1,91 @@
+import org.junit.Test;
+
+import model.ChannelLut;
+import model.PackedImage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the ChannelLut class.
+ */
+public class ChannelLutTest {
+
+  private final int pink = PackedImage.pack(250, 100, 150);
+  private final int dark = PackedImage.pack(5, 40, 0);
+
+  @Test
+  public void brighten() {
+    assertEquals(PackedImage.pack(255, 130, 180), ChannelLut.brighten(30).apply(pink));
+    assertEquals(PackedImage.pack(0, 10, 0), ChannelLut.brighten(-30).apply(dark));
+  }
+
+  @Test
+  public void component() {
+    assertEquals(PackedImage.pack(250, 250, 250),
+            ChannelLut.component(ChannelLut.RED).apply(pink));
+    assertEquals(PackedImage.pack(100, 100, 100),
+            ChannelLut.component(ChannelLut.GREEN).apply(pink));
+    assertEquals(PackedImage.pack(150, 150, 150),
+            ChannelLut.component(ChannelLut.BLUE).apply(pink));
+  }
+
+  @Test
+  public void curveClamps() {
+    ChannelLut doubled = ChannelLut.curve(value -> value * 2);
+    assertEquals(PackedImage.pack(255, 200, 255), doubled.apply(pink));
+    assertEquals(0, ChannelLut.curve(value -> -value).apply(pink));
+  }
+
+  @Test
+  public void composeMatchesSequential() {
+    ChannelLut[] luts = new ChannelLut[]{ChannelLut.brighten(70), ChannelLut.brighten(-120),
+        ChannelLut.component(ChannelLut.GREEN), ChannelLut.component(ChannelLut.BLUE),
+        ChannelLut.curve(value -> value * value / 255)};
+    for (ChannelLut first : luts) {
+      for (ChannelLut second : luts) {
+        ChannelLut composed = first.andThen(second);
+        for (int pixel : new int[]{pink, dark, PackedImage.pack(255, 255, 255), 0}) {
+          assertEquals(second.apply(first.apply(pixel)), composed.apply(pixel));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void identity() {
+    assertTrue(ChannelLut.identity().isIdentity());
+    assertEquals(pink, ChannelLut.identity().apply(pink));
+    assertTrue(ChannelLut.brighten(0).isIdentity());
+    assertFalse(ChannelLut.brighten(10).andThen(ChannelLut.brighten(-10)).isIdentity());
+    assertFalse(ChannelLut.component(ChannelLut.RED).isIdentity());
+  }
+
+  @Test
+  public void invalidChannel() {
+    try {
+      ChannelLut.component(3);
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //exception thrown
+    }
+  }
+
+  @Test
+  public void nullArguments() {
+    try {
+      ChannelLut.curve(null);
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //exception thrown
+    }
+    try {
+      ChannelLut.identity().andThen(null);
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //exception thrown
+    }
+  }
+}
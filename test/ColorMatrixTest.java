@@ -0,0 +1,118 @@
+import org.junit.Test;
+
+import model.ColorMatrix;
+import model.PackedImage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the ColorMatrix class.
+ */
+public class ColorMatrixTest {
+
+  private final int pink = PackedImage.pack(250, 100, 150);
+
+  private static int clamp(int value) {
+    return Math.max(0, Math.min(255, value));
+  }
+
+  @Test
+  public void builtInMatricesMatchDoubleArithmetic() {
+    for (int p = 0; p < 1 << 24; p++) {
+      int red = (p >> 16) & 0xFF;
+      int green = (p >> 8) & 0xFF;
+      int blue = p & 0xFF;
+      int sepia = PackedImage.pack(clamp((int) (red * 0.393 + green * 0.769 + blue * 0.189)),
+              clamp((int) (red * 0.349 + green * 0.686 + blue * 0.168)),
+              clamp((int) (red * 0.272 + green * 0.534 + blue * 0.131)));
+      assertEquals(sepia, ColorMatrix.sepia().apply(p));
+      int luma = (int) ((0.2126 * red) + (0.7152 * green) + (0.0722 * blue));
+      assertEquals(PackedImage.pack(luma, luma, luma), ColorMatrix.luma().apply(p));
+    }
+    //the double arithmetic rounds white a unit low
+    assertEquals(PackedImage.pack(254, 254, 254),
+            ColorMatrix.luma().apply(PackedImage.pack(255, 255, 255)));
+  }
+
+  @Test
+  public void offsetsAndClamping() {
+    ColorMatrix swap = ColorMatrix.of(new double[][]{
+        {0, 0, 1, 10},
+        {0, 1, 0, -120},
+        {-1, 0, 0, 300}});
+    assertEquals(PackedImage.pack(160, 0, 50), swap.apply(pink));
+    ColorMatrix halved = ColorMatrix.of(new double[][]{{0.5, 0, 0}, {0, 0.5, 0}, {0, 0, 0.5}});
+    assertEquals(PackedImage.pack(125, 50, 75), halved.apply(pink));
+    assertEquals(PackedImage.pack(127, 127, 127),
+            halved.apply(PackedImage.pack(255, 255, 255)));
+  }
+
+  @Test
+  public void composeMatchesSequentialWithoutRounding() {
+    ColorMatrix swap = ColorMatrix.of(new double[][]{{0, 0, 1}, {0, 1, 0}, {1, 0, 0}});
+    ColorMatrix doubled = ColorMatrix.of(new double[][]{
+        {2, 0, 0, 1},
+        {0, 2, 0, 1},
+        {0, 0, 2, 1}});
+    ColorMatrix composed = swap.andThen(doubled);
+    for (int pixel : new int[]{pink, PackedImage.pack(5, 40, 0), 0}) {
+      assertEquals(doubled.apply(swap.apply(pixel)), composed.apply(pixel));
+    }
+    ColorMatrix invert = ColorMatrix.of(new double[][]{
+        {-1, 0, 0, 255}, {0, -1, 0, 255}, {0, 0, -1, 255}});
+    ColorMatrix inverted = invert.andThen(ColorMatrix.luma());
+    for (int p = 0; p < 1 << 24; p += 7) {
+      assertEquals(ColorMatrix.luma().apply(invert.apply(p)), inverted.apply(p));
+    }
+    assertTrue(swap.andThen(swap).isIdentity());
+    assertEquals(PackedImage.pack(60, 60, 60),
+            ColorMatrix.sepia().andThen(ColorMatrix.luma()).apply(PackedImage.pack(50, 50, 50)));
+  }
+
+  @Test
+  public void identity() {
+    assertTrue(ColorMatrix.identity().isIdentity());
+    assertEquals(pink, ColorMatrix.identity().apply(pink));
+    assertTrue(ColorMatrix.of(new double[][]{{1, 0, 0}, {0, 1, 0}, {0, 0, 1}}).isIdentity());
+    assertFalse(ColorMatrix.sepia().isIdentity());
+  }
+
+  @Test
+  public void invalidMatrices() {
+    double[][][] invalid = new double[][][]{null, {{1, 0, 0}, {0, 1, 0}},
+        {{1, 0}, {0, 1}, {0, 0}}, {{1, 0, 0}, {0, 1, 0, 0}, {0, 0, 1}},
+        {{1, 0, 0}, null, {0, 0, 1}}, {{Double.NaN, 0, 0}, {0, 1, 0}, {0, 0, 1}},
+        {{1, 0, 0}, {0, 1e6, 0}, {0, 0, 1}}};
+    for (double[][] rows : invalid) {
+      try {
+        ColorMatrix.of(rows);
+        fail("No exception thrown");
+      } catch (IllegalArgumentException e) {
+        //Exception thrown
+      }
+    }
+    try {
+      ColorMatrix.named("negative");
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //Exception thrown
+    }
+    try {
+      ColorMatrix.sepia().andThen(null);
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //Exception thrown
+    }
+    ColorMatrix large = ColorMatrix.of(new double[][]{
+        {60000, 0, 0}, {0, 60000, 0}, {0, 0, 60000}});
+    try {
+      large.andThen(large);
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //Exception thrown
+    }
+  }
+}
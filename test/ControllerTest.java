@@ -1,20 +1,38 @@
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import controller.ImageProcessingController;
 import controller.ImageProcessingControllerImpl;
+import model.BoxBlur;
+import model.ColorMatrix;
 import model.ImageGrid;
 import model.ImageProcessingModel;
+import model.LazyImage;
+import model.MappedImage;
 import model.RGB;
+import model.ResampleFilter;
 import view.ImageProcessingView;
 import view.ImageProcessingViewImpl;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -26,6 +44,9 @@ public class ControllerTest {
   ImageProcessingView view;
   ImageProcessingController controller;
 
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
 
   private final RGB red = new RGB(255, 0, 0);
   private final RGB green = new RGB(0, 255, 0);
@@ -288,6 +309,24 @@ public class ControllerTest {
     assertArrayEquals(allLumaPPM.getGrid(), models.get("testGrey").getGrid());
   }
 
+  @Test
+  public void testColorTransformationInputMatrix() {
+    input = new StringReader("load res/test.ppm testImage " +
+            "color-transformation testImage matrix 0 0 1 0 1 0 1 0 0 swapped " +
+            "color-transformation testImage matrix-offset 1 0 0 20 0 1 0 0 0 0 1 -20 warm " +
+            "color-transformation testImage matrix 1 0 0 0 1 0 0 0 1e9 q");
+    ImageProcessingController controller = new ImageProcessingControllerImpl(models, view, input);
+    controller.runProgram();
+    ImageProcessingModel original = models.get("testImage");
+    assertArrayEquals(original.colorTransformation(ColorMatrix.of(new double[][]{
+        {0, 0, 1}, {0, 1, 0}, {1, 0, 0}})).getGrid(), models.get("swapped").getGrid());
+    assertArrayEquals(original.colorTransformation(ColorMatrix.of(new double[][]{
+        {1, 0, 0, 20}, {0, 1, 0, 0}, {0, 0, 1, -20}})).getGrid(), models.get("warm").getGrid());
+    assertEquals(original.getGrid()[0][0].getBlue(),
+            models.get("swapped").getGrid()[0][0].getRed());
+    assertTrue(output.toString().contains("Command failed! Try again."));
+  }
+
   @Test
   public void testColorTransformationInputSepia() {
     RGB redSepia = new RGB(100, 88, 69);
@@ -559,6 +598,34 @@ public class ControllerTest {
             models.get("testVerticalHorizontal").getGrid());
   }
 
+  @Test
+  public void testRotateCropInput() {
+    RGB[][] rotatedGrid = new RGB[][]{{orange, blue, green, red}, {orange, green, blue, red},
+        {purple, green, blue, red}, {purple, blue, green, red}};
+    RGB[][] croppedGrid = new RGB[][]{{orange, green, blue}, {purple, green, blue}};
+    input = new StringReader("load res/test.ppm testImage " +
+            "rotate testImage 90 testRotated " +
+            "crop testRotated 0 1 3 2 testCropped q");
+    ImageProcessingController controller = new ImageProcessingControllerImpl(models, view, input);
+    controller.runProgram();
+    assertArrayEquals(rotatedGrid, models.get("testRotated").getGrid());
+    assertArrayEquals(croppedGrid, models.get("testCropped").getGrid());
+  }
+
+  @Test
+  public void testInvalidRotateCrop() {
+    Appendable output = new StringBuffer();
+    input = new StringReader("load res/test.ppm testImage " +
+            "crop testImage 2 2 3 3 testCropped " +
+            "rotate testImage 45 testRotated q");
+    this.view = new ImageProcessingViewImpl(output);
+    ImageProcessingController controller = new ImageProcessingControllerImpl(models, view, input);
+    controller.runProgram();
+    String[] prompts = output.toString().split("Type instruction: " + System.lineSeparator());
+    assertEquals("Command failed! Try again." + System.lineSeparator(), prompts[2]);
+    assertEquals("Command failed! Try again." + System.lineSeparator(), prompts[3]);
+  }
+
   @Test
   public void testVerticalFlipVerticalFlipInput() {
     input = new StringReader("load res/test.ppm testImage " +
@@ -678,7 +745,7 @@ public class ControllerTest {
     controller = new ImageProcessingControllerImpl(models, view, input);
     controller.runProgram();
     assertEquals("Type instruction: ",
-            output.toString().split(System.lineSeparator())[11]);
+            output.toString().split(System.lineSeparator())[14]);
     assertEquals(testPPM.getGrid().length, models.get("testImage").getGrid().length);
   }
 
@@ -950,4 +1017,212 @@ public class ControllerTest {
             models.get("testNewVertical").getGrid().length);
   }
 
+  @Test
+  public void testDownscaleWithFilter() {
+    //destinations named after filters are still read as image names
+    input = new StringReader("load res/test.ppm testImage " +
+            "downscale-filtered testImage lanczos 50 50 a " +
+            "downscale-filtered testImage box 50 50 b downscale testImage 50 50 box " +
+            "downscale-filtered testImage bilinear 50 50 lanczos q");
+    controller = new ImageProcessingControllerImpl(models, view, input);
+    controller.runProgram();
+    ImageProcessingModel original = models.get("testImage");
+    assertArrayEquals(original.downscaleImage(50, 50, ResampleFilter.LANCZOS).getGrid(),
+            models.get("a").getGrid());
+    assertArrayEquals(original.downscaleImage(50, 50, ResampleFilter.BOX).getGrid(),
+            models.get("b").getGrid());
+    assertArrayEquals(original.downscaleImage(50, 50).getGrid(), models.get("box").getGrid());
+    assertArrayEquals(original.downscaleImage(50, 50, ResampleFilter.BILINEAR).getGrid(),
+            models.get("lanczos").getGrid());
+  }
+
+  @Test
+  public void testLargePPMFilesMapped() throws IOException {
+    //the controllers map PPM files and images of at least 8 MiB
+    int width = 1800;
+    int height = 1700;
+    File large = File.createTempFile("large", ".ppm");
+    File saved = File.createTempFile("saved", ".ppm");
+    File small = File.createTempFile("small", ".ppm");
+    try {
+      byte[] header = ("P6\n" + width + " " + height + "\n255\n")
+              .getBytes(StandardCharsets.US_ASCII);
+      byte[] samples = new byte[width * height * 3];
+      for (int i = 0; i < samples.length; i++) {
+        samples[i] = (byte) (i * 7 + i / 5400);
+      }
+      try (OutputStream out = new FileOutputStream(large)) {
+        out.write(header);
+        out.write(samples);
+      }
+      input = new StringReader("load " + large.getPath() + " big save " + saved.getPath()
+              + " big load res/test.ppm testImage save " + small.getPath() + " testImage q");
+      controller = new ImageProcessingControllerImpl(models, view, input);
+      controller.runProgram();
+
+      assertTrue(models.get("big") instanceof MappedImage);
+      assertFalse(models.get("testImage") instanceof MappedImage);
+      byte[] written = Files.readAllBytes(saved.toPath());
+      assertArrayEquals(header, Arrays.copyOf(written, header.length));
+      assertArrayEquals(samples, Arrays.copyOfRange(written, header.length, written.length));
+      //images smaller than that are still saved as plain files
+      assertEquals("P3", new String(Files.readAllBytes(small.toPath()),
+              StandardCharsets.US_ASCII).substring(0, 2));
+    } finally {
+      models.clear();
+      large.delete();
+      saved.delete();
+      small.delete();
+    }
+  }
+
+  @Test
+  public void testBoxBlurFilters() {
+    input = new StringReader("load res/test.ppm testImage filter testImage box-blur 2 a " +
+            "filter testImage gaussian-blur 1.5 b q");
+    controller = new ImageProcessingControllerImpl(models, view, input);
+    controller.runProgram();
+    ImageProcessingModel original = models.get("testImage");
+    assertArrayEquals(original.boxBlur(BoxBlur.box(2)).getGrid(), models.get("a").getGrid());
+    assertArrayEquals(original.boxBlur(BoxBlur.gaussian(1.5)).getGrid(),
+            models.get("b").getGrid());
+  }
+
+  /**
+   * Gets the path of the file with the given name in the temporary folder of the test.
+   */
+  private String temp(String name) {
+    return new File(folder.getRoot(), name).getPath();
+  }
+
+  @Test
+  public void testLazyScript() {
+    String script = "load res/test.ppm testImage " +
+            "brighten testImage 40 a darken a 10 b greyscale b red-component c " +
+            "horizontal-flip c d color-transformation d sepia e filter e blur f " +
+            "vertical-flip testImage g downscale g 50 50 h ";
+    Map<String, ImageProcessingModel> lazyModels = new HashMap<>();
+    String saved = temp("testLazy.ppm");
+    input = new StringReader(script + "save " + saved + " f q");
+    controller = new ImageProcessingControllerImpl(lazyModels, view, input, true);
+    controller.runProgram();
+
+    input = new StringReader(script + "q");
+    controller = new ImageProcessingControllerImpl(models, view, input);
+    controller.runProgram();
+    for (String name : new String[]{"a", "b", "c", "d", "e", "f", "g", "h"}) {
+      assertArrayEquals(models.get(name).getGrid(), lazyModels.get(name).getGrid());
+    }
+    input = new StringReader("load " + saved + " saved q");
+    controller = new ImageProcessingControllerImpl(models, view, input);
+    controller.runProgram();
+    assertArrayEquals(models.get("f").getGrid(), models.get("saved").getGrid());
+  }
+
+  @Test
+  public void testLazyInvalidCommand() {
+    input = new StringReader("load res/test.ppm testImage filter testImage emboss a q");
+    controller = new ImageProcessingControllerImpl(models, view, input, true);
+    controller.runProgram();
+    assertEquals("Command failed! Try again." + System.lineSeparator(),
+            output.toString().split("Type instruction: " + System.lineSeparator())[2]);
+  }
+
+  /**
+   * Runs the given script line by line and in parallel, checking that both print the same
+   * output and produce the same images.
+   */
+  private void assertParallelMatches(String script, String... names) {
+    Appendable sequentialOutput = new StringBuffer();
+    Map<String, ImageProcessingModel> sequential = new HashMap<>();
+    new ImageProcessingControllerImpl(sequential, new ImageProcessingViewImpl(sequentialOutput),
+            new StringReader(script)).runProgram();
+
+    Appendable parallelOutput = new StringBuffer();
+    Map<String, ImageProcessingModel> parallel = new HashMap<>();
+    new ImageProcessingControllerImpl(parallel, new ImageProcessingViewImpl(parallelOutput),
+            new StringReader(script), false, true).runProgram();
+
+    assertEquals(sequentialOutput.toString(), parallelOutput.toString());
+    for (String name : names) {
+      assertArrayEquals(sequential.get(name).getGrid(), parallel.get(name).getGrid());
+    }
+  }
+
+  @Test
+  public void testParallelScript() {
+    assertParallelMatches("load res/test.ppm a load res/test.png b load res/test.bmp c " +
+            "brighten a 30 a1 filter b blur b1 vertical-flip c c1 " +
+            "missing-command a x brighten missing 10 y greyscale b bad-component z " +
+            "darken a1 10 a2 horizontal-flip b1 b2 color-transformation c1 sepia c2 " +
+            "brighten a2 5 a2 save " + temp("testParallelA.png") + " a2 " +
+            "load " + temp("testParallelA.png") + " a3 " +
+            "save " + temp("testParallelB.ppm") + " b2 flip-nothing q",
+            "a1", "a2", "a3", "b1", "b2", "c1", "c2");
+  }
+
+  @Test
+  public void testParallelReadsBeforeLaterWrites() {
+    assertParallelMatches("load res/test.ppm a brighten later 10 x " +
+            "vertical-flip a later brighten later 10 y brighten a 100 a " +
+            "horizontal-flip a z q", "later", "y", "a", "z");
+  }
+
+  @Test
+  public void testParallelLazyScript() {
+    String script = "load res/test.ppm a brighten a 40 b darken b 10 c " +
+            "greyscale c luma-component d filter d sharpen e vertical-flip b f " +
+            "save " + temp("testParallelLazy.png") + " e q";
+    Map<String, ImageProcessingModel> parallel = new HashMap<>();
+    new ImageProcessingControllerImpl(parallel, view, new StringReader(script), true, true)
+            .runProgram();
+    new ImageProcessingControllerImpl(models, view, new StringReader(script)).runProgram();
+    for (String name : new String[]{"b", "c", "d", "e", "f"}) {
+      assertArrayEquals(models.get(name).getGrid(), parallel.get(name).getGrid());
+    }
+    //commands only read the image they are applied to, so its entry is never replaced
+    assertFalse(parallel.get("a") instanceof LazyImage);
+  }
+
+  @Test
+  public void testParallelIncompleteInput() {
+    input = new StringReader("load res/test.ppm testImage brighten testImage 10 b");
+    controller = new ImageProcessingControllerImpl(models, view, input, false, true);
+    try {
+      controller.runProgram();
+      fail("No exception thrown");
+    } catch (IllegalStateException e) {
+      //Exception thrown
+    }
+    assertEquals(3, output.toString().split("Type instruction: ").length - 1);
+    assertArrayEquals(models.get("testImage").brighten(10).getGrid(), models.get("b").getGrid());
+  }
+
+  @Test
+  public void testConcurrentSessions() throws InterruptedException {
+    int sessions = 8;
+    List<Map<String, ImageProcessingModel>> results = new ArrayList<>();
+    Thread[] threads = new Thread[sessions];
+    for (int i = 0; i < sessions; i++) {
+      int session = i;
+      Map<String, ImageProcessingModel> images = new HashMap<>();
+      results.add(images);
+      //every session uses the same names for different images
+      String script = "load res/test.ppm a brighten a " + (session * 10) + " b "
+              + "vertical-flip b c darken c " + session + " c q";
+      threads[i] = new Thread(() -> new ImageProcessingControllerImpl(images,
+              new ImageProcessingViewImpl(new StringBuilder()), new StringReader(script), false,
+              session % 2 == 0).runProgram());
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    ImageProcessingModel original = results.get(0).get("a");
+    for (int i = 0; i < sessions; i++) {
+      assertArrayEquals(original.brighten(i * 10).flipVertical().brighten(-i).getGrid(),
+              results.get(i).get("c").getGrid());
+    }
+  }
 }
@@ -6,6 +6,7 @@ import java.util.Map;
 
 
 import controller.ImageProcessingControllerGUI;
+import model.Histogram;
 import model.ImageGrid;
 import model.ImageProcessingModel;
 import model.RGB;
@@ -52,7 +53,8 @@ public class GUIControllerTest {
     models = new HashMap<>();
     models.put("current", new ImageGrid(testGrid));
     frameView = new ImageProcessorFrame();
-    guiController = new ImageProcessingControllerGUI(models, frameView);
+    guiController = new ImageProcessingControllerGUI(models, frameView, Runnable::run,
+            Runnable::run);
   }
 
   @Test
@@ -98,7 +100,7 @@ public class GUIControllerTest {
         {green, blue, blue, green}, {red, red, red, red}};
 
     ImageProcessingControllerGUI guiController =
-            new ImageProcessingControllerGUI(models, frameView);
+            new ImageProcessingControllerGUI(models, frameView, Runnable::run, Runnable::run);
 
     guiController.applyOp("vertical-flip", "vertical-flip");
     assertArrayEquals(verticallyFlippedGrid, models.get("current").getGrid());
@@ -110,7 +112,7 @@ public class GUIControllerTest {
         {blue, green, green, blue}, {purple, purple, orange, orange}};
 
     ImageProcessingControllerGUI guiController =
-            new ImageProcessingControllerGUI(models, frameView);
+            new ImageProcessingControllerGUI(models, frameView, Runnable::run, Runnable::run);
 
     guiController.applyOp("horizontal-flip", "horizontal-flip");
     assertArrayEquals(horizontallyFlippedGrid, models.get("current").getGrid());
@@ -122,7 +124,7 @@ public class GUIControllerTest {
         {black, black, black, black}, {white, white, grey, grey}};
 
     ImageProcessingControllerGUI guiController =
-            new ImageProcessingControllerGUI(models, frameView);
+            new ImageProcessingControllerGUI(models, frameView, Runnable::run, Runnable::run);
 
     guiController.applyOp("greyscale", "red-component");
     assertArrayEquals(allRedGrid, models.get("current").getGrid());
@@ -134,7 +136,7 @@ public class GUIControllerTest {
         {black, white, white, black}, {grey, grey, black, black}};
 
     ImageProcessingControllerGUI guiController =
-            new ImageProcessingControllerGUI(models, frameView);
+            new ImageProcessingControllerGUI(models, frameView, Runnable::run, Runnable::run);
 
     guiController.applyOp("greyscale", "green-component");
     assertArrayEquals(allGreenGrid, models.get("current").getGrid());
@@ -146,7 +148,7 @@ public class GUIControllerTest {
         {white, black, black, white}, {black, black, white, white}};
 
     ImageProcessingControllerGUI guiController =
-            new ImageProcessingControllerGUI(models, frameView);
+            new ImageProcessingControllerGUI(models, frameView, Runnable::run, Runnable::run);
 
     guiController.applyOp("greyscale", "blue-component");
     assertArrayEquals(allBlueGrid, models.get("current").getGrid());
@@ -158,7 +160,7 @@ public class GUIControllerTest {
         {white, white, white, white}, {white, white, white, white}};
 
     ImageProcessingControllerGUI guiController =
-            new ImageProcessingControllerGUI(models, frameView);
+            new ImageProcessingControllerGUI(models, frameView, Runnable::run, Runnable::run);
 
     guiController.applyOp("greyscale", "value-component");
     assertArrayEquals(allValueGrid, models.get("current").getGrid());
@@ -167,7 +169,7 @@ public class GUIControllerTest {
   @Test
   public void guiSetComponentLumaTest() {
     ImageProcessingControllerGUI guiController =
-            new ImageProcessingControllerGUI(models, frameView);
+            new ImageProcessingControllerGUI(models, frameView, Runnable::run, Runnable::run);
 
     guiController.applyOp("greyscale", "luma-component");
     assertArrayEquals(allLumaGrid, models.get("current").getGrid());
@@ -182,7 +184,7 @@ public class GUIControllerTest {
         {avgSingle, avgSingle, avgSingle, avgSingle}, {avgOP, avgOP, avgOP, avgOP}};
 
     ImageProcessingControllerGUI guiController =
-            new ImageProcessingControllerGUI(models, frameView);
+            new ImageProcessingControllerGUI(models, frameView, Runnable::run, Runnable::run);
 
     guiController.applyOp("greyscale", "intensity-component");
     assertArrayEquals(allIntensityGrid, models.get("current").getGrid());
@@ -203,7 +205,7 @@ public class GUIControllerTest {
                     {orangeSepia, orangeSepia, purpleSepia, purpleSepia}};
 
     ImageProcessingControllerGUI guiController =
-            new ImageProcessingControllerGUI(models, frameView);
+            new ImageProcessingControllerGUI(models, frameView, Runnable::run, Runnable::run);
 
     guiController.applyOp("color-transformation", "sepia");
     assertArrayEquals(allSepiaGrid, models.get("current").getGrid());
@@ -212,7 +214,7 @@ public class GUIControllerTest {
   @Test
   public void guiColorTransformationGrey() {
     ImageProcessingControllerGUI guiController =
-            new ImageProcessingControllerGUI(models, frameView);
+            new ImageProcessingControllerGUI(models, frameView, Runnable::run, Runnable::run);
 
     guiController.applyOp("color-transformation", "greyscale");
     assertArrayEquals(allLumaGrid, models.get("current").getGrid());
@@ -298,7 +300,7 @@ public class GUIControllerTest {
                                     + (int) (255 * (1 / 8d))))}};
 
     ImageProcessingControllerGUI guiController =
-            new ImageProcessingControllerGUI(models, frameView);
+            new ImageProcessingControllerGUI(models, frameView, Runnable::run, Runnable::run);
 
     guiController.applyOp("filter", "blur");
     assertArrayEquals(blurredGridFourByFour, models.get("current").getGrid());
@@ -432,7 +434,7 @@ public class GUIControllerTest {
                                     + (int) (255 * (-1 / 8d)) + (int) (255 * (1 / 4d)))}};
 
     ImageProcessingControllerGUI guiController =
-            new ImageProcessingControllerGUI(models, frameView);
+            new ImageProcessingControllerGUI(models, frameView, Runnable::run, Runnable::run);
 
     guiController.applyOp("filter", "sharpen");
     assertArrayEquals(sharpenedGridFourByFour, models.get("current").getGrid());
@@ -443,10 +445,35 @@ public class GUIControllerTest {
   @Test
   public void guiInvalidInputs() {
     ImageProcessingControllerGUI guiController =
-            new ImageProcessingControllerGUI(models, frameView);
+            new ImageProcessingControllerGUI(models, frameView, Runnable::run, Runnable::run);
 
     guiController.applyOp("random", "random2");
     assertArrayEquals(testGrid, models.get("current").getGrid());
   }
 
+  @Test
+  public void guiRecoversFromUnshowableImage() {
+    RGB[][] flipped = new RGB[][]{{red, red, red, red}, {green, blue, blue, green},
+        {blue, green, green, blue}, {purple, purple, orange, orange}};
+    ImageProcessingModel original = new ImageGrid(testGrid) {
+      @Override
+      public ImageProcessingModel flipVertical() {
+        return new ImageGrid(testGrid) {
+          @Override
+          public Histogram getHistogram() {
+            throw new IllegalStateException("cannot be shown");
+          }
+        };
+      }
+    };
+    models.put("current", original);
+    ImageProcessingControllerGUI guiController =
+            new ImageProcessingControllerGUI(models, frameView, Runnable::run, Runnable::run);
+
+    guiController.applyOp("vertical-flip", "vertical-flip");
+    assertEquals(original, models.get("current"));
+    guiController.applyOp("horizontal-flip", "horizontal-flip");
+    assertArrayEquals(flipped, models.get("current").getGrid());
+  }
+
 }
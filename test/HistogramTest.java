@@ -0,0 +1,128 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import model.Histogram;
+import model.ImageGrid;
+import model.ImageProcessingModel;
+import model.PackedImage;
+import model.Parallelism;
+import model.RGB;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the Histogram class and the histograms of images.
+ */
+public class HistogramTest {
+
+  private RGB[][] grid;
+  private ImageProcessingModel packed;
+
+  @Before
+  public void setUp() {
+    grid = new RGB[90][70];
+    for (int h = 0; h < grid.length; h++) {
+      for (int w = 0; w < grid[0].length; w++) {
+        grid[h][w] = new RGB((h * 3 + w) % 256, (h * w) % 256, (w * 5) % 256);
+      }
+    }
+    packed = new PackedImage(grid);
+  }
+
+  /**
+   * Checks every count of the given histogram against the pixels of the given grid.
+   */
+  private static void assertCounts(RGB[][] pixels, Histogram histogram) {
+    int[][] expected = new int[4][256];
+    for (RGB[] row : pixels) {
+      for (RGB p : row) {
+        expected[0][p.getRed()]++;
+        expected[1][p.getGreen()]++;
+        expected[2][p.getBlue()]++;
+        expected[3][(p.getRed() + p.getGreen() + p.getBlue()) / 3]++;
+      }
+    }
+    for (int value = 0; value < 256; value++) {
+      assertEquals(expected[0][value], histogram.getRed(value));
+      assertEquals(expected[1][value], histogram.getGreen(value));
+      assertEquals(expected[2][value], histogram.getBlue(value));
+      assertEquals(expected[3][value], histogram.getIntensity(value));
+    }
+  }
+
+  @Test
+  public void counts() {
+    assertCounts(grid, packed.getHistogram());
+    assertCounts(grid, new ImageGrid(grid).getHistogram());
+  }
+
+  @Test
+  public void countsInParallel() {
+    int threshold = Parallelism.getThreshold();
+    Parallelism.setThreshold(1);
+    try {
+      assertCounts(grid, new PackedImage(grid).getHistogram());
+    } finally {
+      Parallelism.setThreshold(threshold);
+    }
+  }
+
+  @Test
+  public void cached() {
+    assertSame(packed.getHistogram(), packed.getHistogram());
+    ImageProcessingModel model = new ImageGrid(grid);
+    assertSame(model.getHistogram(), model.getHistogram());
+  }
+
+  @Test
+  public void derivedImages() {
+    packed.getHistogram();
+    for (ImageProcessingModel derived : new ImageProcessingModel[]{packed.flipVertical(),
+        packed.flipHorizontal(), packed.channelComponent("green-component"),
+        packed.channelComponent("red-component").brighten(40), packed.brighten(-60),
+        packed.brighten(30).channelComponent("blue-component"),
+        packed.channelComponent("luma-component")}) {
+      assertCounts(derived.getGrid(), derived.getHistogram());
+    }
+  }
+
+  @Test
+  public void pendingImage() {
+    ImageProcessingModel brighter = packed.brighten(25);
+    Histogram histogram = brighter.getHistogram();
+    assertCounts(new ImageGrid(grid).brighten(25).getGrid(), histogram);
+    assertSame(histogram, brighter.getHistogram());
+  }
+
+  @Test
+  public void brightenedChannelsDerived() {
+    int[] pixels = new int[]{PackedImage.pack(10, 20, 30), PackedImage.pack(250, 0, 100)};
+    PackedImage image = new PackedImage(2, 1, pixels);
+    image.getHistogram();
+    ImageProcessingModel brighter = image.brighten(10);
+    //the storage is changed only to show that the channels are not counted from it again
+    pixels[0] = PackedImage.pack(0, 0, 0);
+    Histogram histogram = brighter.getHistogram();
+    assertEquals(1, histogram.getRed(20));
+    assertEquals(1, histogram.getRed(255));
+    assertEquals(1, histogram.getGreen(30));
+    assertEquals(1, histogram.getGreen(10));
+    assertEquals(1, histogram.getBlue(40));
+    assertEquals(1, histogram.getBlue(110));
+    assertEquals(0, histogram.getRed(10));
+  }
+
+  @Test
+  public void invalidValue() {
+    for (int value : new int[]{-1, 256}) {
+      try {
+        packed.getHistogram().getRed(value);
+        fail("No exception thrown");
+      } catch (IllegalArgumentException e) {
+        //exception thrown
+      }
+    }
+  }
+}
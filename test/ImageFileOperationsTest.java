@@ -0,0 +1,142 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import controller.ImageFileOperationsImpl;
+import controller.ImageStore;
+import controller.MapImageStore;
+import model.ImageProcessingModel;
+import model.PackedImage;
+import model.RGB;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the ImageFileOperationsImpl class.
+ */
+public class ImageFileOperationsTest {
+
+  private Map<String, ImageProcessingModel> models;
+  private ImageStore images;
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    models = new HashMap<>();
+    images = new MapImageStore(models);
+    file = File.createTempFile("imageTest", ".png");
+  }
+
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  private static int argb(int x, int y) {
+    return (x * 40 + y) % 256 << 24 | (x * 17) % 256 << 16 | (y * 29) % 256 << 8 | (x + y) % 256;
+  }
+
+  private void assertLoadMatches(int imageType) throws IOException {
+    BufferedImage source = new BufferedImage(7, 5, imageType);
+    for (int y = 0; y < 5; y++) {
+      for (int x = 0; x < 7; x++) {
+        source.setRGB(x, y, argb(x, y));
+      }
+    }
+    ImageIO.write(source, "png", file);
+    BufferedImage expected = ImageIO.read(file);
+
+    new ImageFileOperationsImpl(images).load(file.getPath(), "loaded");
+    RGB[][] grid = models.get("loaded").getGrid();
+    for (int y = 0; y < 5; y++) {
+      for (int x = 0; x < 7; x++) {
+        int p = expected.getRGB(x, y);
+        assertEquals(new RGB((p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF), grid[y][x]);
+      }
+    }
+  }
+
+  @Test
+  public void loadImageTypes() throws IOException {
+    for (int imageType : new int[]{BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB,
+        BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_BYTE_GRAY,
+        BufferedImage.TYPE_USHORT_565_RGB, BufferedImage.TYPE_BYTE_INDEXED}) {
+      assertLoadMatches(imageType);
+    }
+  }
+
+  @Test
+  public void saveAndLoad() throws IOException {
+    RGB[][] grid = new RGB[][]{{new RGB(255, 0, 0), new RGB(250, 100, 150)},
+        {new RGB(0, 0, 0), new RGB(12, 200, 7)}, {new RGB(1, 2, 3), new RGB(9, 9, 9)}};
+    models.put("image", new PackedImage(grid));
+
+    for (String type : new String[]{"png", "bmp"}) {
+      File typed = new File(file.getPath().replace(".png", "." + type));
+      try {
+        new ImageFileOperationsImpl(images).save(typed.getPath(), "image");
+        BufferedImage saved = ImageIO.read(typed);
+        assertEquals(0xFFFA6496, saved.getRGB(1, 0));
+        new ImageFileOperationsImpl(images).load(typed.getPath(), "loaded");
+        assertArrayEquals(grid, models.get("loaded").getGrid());
+      } finally {
+        typed.delete();
+      }
+    }
+  }
+
+  @Test
+  public void perPixelAlpha() throws IOException {
+    BufferedImage source = new BufferedImage(7, 5, BufferedImage.TYPE_INT_ARGB);
+    for (int y = 0; y < 5; y++) {
+      for (int x = 0; x < 7; x++) {
+        source.setRGB(x, y, argb(x, y));
+      }
+    }
+    ImageIO.write(source, "png", file);
+    new ImageFileOperationsImpl(images).load(file.getPath(), "loaded");
+    ImageProcessingModel loaded = models.get("loaded");
+    assertTrue(loaded.hasAlpha());
+    int[] alphas = new int[7];
+    for (int y = 0; y < 5; y++) {
+      loaded.getAlphaRow(y, alphas);
+      for (int x = 0; x < 7; x++) {
+        assertEquals(argb(x, y) >>> 24, alphas[x]);
+      }
+    }
+
+    File saved = new File(file.getPath().replace(".png", "Saved.png"));
+    try {
+      new ImageFileOperationsImpl(images).save(saved.getPath(), "loaded");
+      BufferedImage written = ImageIO.read(saved);
+      for (int y = 0; y < 5; y++) {
+        for (int x = 0; x < 7; x++) {
+          assertEquals(argb(x, y), written.getRGB(x, y));
+        }
+      }
+    } finally {
+      saved.delete();
+    }
+
+    source = new BufferedImage(3, 2, BufferedImage.TYPE_INT_ARGB);
+    for (int y = 0; y < 2; y++) {
+      for (int x = 0; x < 3; x++) {
+        source.setRGB(x, y, argb(x, y) | 0xFF000000);
+      }
+    }
+    ImageIO.write(source, "png", file);
+    new ImageFileOperationsImpl(images).load(file.getPath(), "opaque");
+    assertFalse(models.get("opaque").hasAlpha());
+  }
+}
@@ -1,12 +1,19 @@
 import org.junit.Before;
 import org.junit.Test;
 
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
 import model.ImageGrid;
 import model.ImageProcessingModel;
+import model.Parallelism;
 import model.RGB;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 
@@ -678,5 +685,43 @@ public class ImageGridTest {
     assertArrayEquals(commBlackWhiteGrid, commBlackWhiteModel.getGrid());
   }
 
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+            .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
 
-}
\ No newline at end of file
+  @Test
+  public void greyOperationsDoNotAllocatePixels() {
+    int size = 128;
+    RGB[][] grid = new RGB[size][size];
+    for (int h = 0; h < size; h++) {
+      for (int w = 0; w < size; w++) {
+        grid[h][w] = new RGB(h * 2, w * 2, (h + w) % 256);
+      }
+    }
+    ImageGrid image = new ImageGrid(grid);
+    //operations producing greys share their pixels, and flips reuse those of the image
+    List<UnaryOperator<ImageProcessingModel>> operations = Arrays.asList(
+        ImageProcessingModel::flipVertical, ImageProcessingModel::flipHorizontal,
+        m -> m.channelComponent("value-component"), m -> m.channelComponent("luma-component"),
+        m -> m.channelComponent("red-component"), m -> m.colorTransformation("greyscale"));
+    int threshold = Parallelism.getThreshold();
+    Parallelism.setThreshold(Integer.MAX_VALUE);
+    try {
+      long before = allocatedBytes();
+      RGB[][] result = new RGB[size][size];
+      long gridBytes = allocatedBytes() - before;
+      assertEquals(size, result.length);
+      for (UnaryOperator<ImageProcessingModel> operation : operations) {
+        operation.apply(image);
+        before = allocatedBytes();
+        operation.apply(image);
+        long allocated = allocatedBytes() - before;
+        //the new grid's arrays and a few objects per operation, but nothing per pixel
+        assertTrue(allocated + " bytes allocated", allocated < gridBytes + 4096);
+      }
+    } finally {
+      Parallelism.setThreshold(threshold);
+    }
+  }
+}
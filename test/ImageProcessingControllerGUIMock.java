@@ -10,6 +10,8 @@ import controller.Features;
 import controller.FileOperations;
 import controller.ImageOperationCommand;
 import controller.ImageProcessingController;
+import controller.ImageStore;
+import controller.MapImageStore;
 import controller.PPMFileOperationsImpl;
 import controller.commands.Brighten;
 import controller.commands.ColorTransformation;
@@ -28,11 +30,7 @@ import view.ImageProcessorFrame;
 public class ImageProcessingControllerGUIMock implements
         ImageProcessingController, Features {
 
-  private static Map<String, ImageProcessingModel> listOfImages =
-          new HashMap<String, ImageProcessingModel>();
-
-  private static Map<String, Integer> listOfAlpha =
-          new HashMap<String, Integer>();
+  private final ImageStore images;
 
   private final ImageProcessorFrame view;
 
@@ -62,14 +60,11 @@ public class ImageProcessingControllerGUIMock implements
     if (listOfModels == null || view == null) {
       throw new IllegalArgumentException("models or view is null");
     }
-    listOfImages = listOfModels;
+    images = new MapImageStore(listOfModels);
     this.view = view;
-    for (Map.Entry<String, ImageProcessingModel> mod : listOfImages.entrySet()) {
-      listOfAlpha.put(mod.getKey(), 255);
-    }
 
 
-    knownOperations.put("ppm", s -> new PPMFileOperationsImpl());
+    knownOperations.put("ppm", s -> new PPMFileOperationsImpl(images));
 
 
     knownCommands.put("brighten", s -> new Brighten(Integer.parseInt(view.getLightNum())));
@@ -114,4 +109,9 @@ public class ImageProcessingControllerGUIMock implements
   public void applyOp(String method, String action) {
     log.append("operation applied");
   }
+
+  @Override
+  public void cancel() {
+    log.append("cancelled");
+  }
 }
@@ -0,0 +1,296 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import controller.BoundedImageStore;
+import controller.ImageProcessingControllerImpl;
+import controller.MapImageStore;
+import model.ImageProcessingModel;
+import model.LazyImage;
+import model.PackedImage;
+import view.ImageProcessingViewImpl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the MapImageStore and BoundedImageStore classes.
+ */
+public class ImageStoreTest {
+
+  private static ImageProcessingModel image(int width, int height, int seed) {
+    int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = (i * 2654435 + seed * 977) & 0xFFFFFF;
+    }
+    return new PackedImage(width, height, pixels);
+  }
+
+  private static long files(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.count();
+    }
+  }
+
+  @Test
+  public void mapStore() {
+    Map<String, ImageProcessingModel> map = new HashMap<>();
+    ImageProcessingModel first = image(3, 2, 1);
+    map.put("first", first);
+    MapImageStore store = new MapImageStore(map);
+    assertSame(first, store.get("first"));
+    assertEquals(255, store.getAlpha("first"));
+    assertNull(store.get("second"));
+    assertEquals(255, store.getAlpha("second"));
+
+    ImageProcessingModel second = image(2, 2, 2);
+    store.put("second", second, 40);
+    assertSame(second, map.get("second"));
+    assertSame(second, store.get("second"));
+    assertEquals(40, store.getAlpha("second"));
+  }
+
+  @Test
+  public void concurrentPutsKeepAlphaWithImage() throws InterruptedException {
+    Map<String, ImageProcessingModel> map = new HashMap<>();
+    MapImageStore store = new MapImageStore(map);
+    ImageProcessingModel first = image(2, 2, 1);
+    ImageProcessingModel second = image(2, 2, 2);
+    Thread[] writers = new Thread[]{
+        new Thread(() -> {
+          for (int i = 0; i < 20000; i++) {
+            store.put("shared", first, 10);
+          }
+        }),
+        new Thread(() -> {
+          for (int i = 0; i < 20000; i++) {
+            store.put("shared", second, 20);
+          }
+        })};
+    for (Thread writer : writers) {
+      writer.start();
+    }
+    for (Thread writer : writers) {
+      writer.join();
+    }
+    assertEquals(store.get("shared") == first ? 10 : 20, store.getAlpha("shared"));
+    assertSame(store.get("shared"), map.get("shared"));
+  }
+
+  @Test
+  public void spillsLeastRecentlyUsed() throws IOException {
+    Path directory = Files.createTempDirectory("storeTest");
+    //room for two 10x10 images
+    BoundedImageStore store = new BoundedImageStore(800, directory);
+    ImageProcessingModel a = image(10, 10, 1);
+    ImageProcessingModel b = image(10, 10, 2);
+    ImageProcessingModel c = image(10, 10, 3);
+    store.put("a", a, 10);
+    store.put("b", b, 20);
+    assertEquals(800, store.getResidentBytes());
+    assertSame(a, store.get("a"));
+
+    store.put("c", c, 30);
+    assertFalse(store.isSpilled("a"));
+    assertTrue(store.isSpilled("b"));
+    assertFalse(store.isSpilled("c"));
+    assertEquals(800, store.getResidentBytes());
+    assertEquals(1, files(directory));
+
+    ImageProcessingModel reloaded = store.get("b");
+    assertArrayEquals(b.getGrid(), reloaded.getGrid());
+    assertEquals(20, store.getAlpha("b"));
+    assertFalse(store.isSpilled("b"));
+    assertTrue(store.isSpilled("a"));
+    assertEquals(800, store.getResidentBytes());
+
+    assertArrayEquals(a.getGrid(), store.get("a").getGrid());
+    assertArrayEquals(c.getGrid(), store.get("c").getGrid());
+    assertEquals(10, store.getAlpha("a"));
+    assertEquals(30, store.getAlpha("c"));
+    //b was spilled again when c was read, but only written the first time
+    assertTrue(store.isSpilled("b"));
+    assertEquals(3, files(directory));
+
+    store.put("b", image(1, 1, 4), 0);
+    store.put("a", image(1, 1, 5), 0);
+    store.put("c", image(1, 1, 6), 0);
+    assertEquals(0, files(directory));
+  }
+
+  @Test
+  public void sharedStoreSpillsConcurrently() throws InterruptedException {
+    //room for three of the eight 20x20 images the threads keep storing and reading
+    BoundedImageStore store = new BoundedImageStore(4800);
+    ImageProcessingModel[] originals = new ImageProcessingModel[8];
+    for (int i = 0; i < originals.length; i++) {
+      originals[i] = image(20, 20, i);
+      store.put("image" + i, originals[i], i);
+    }
+    AtomicBoolean mismatch = new AtomicBoolean();
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      int first = t;
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 200; i++) {
+          int n = (first + i * 3) % originals.length;
+          if (i % 5 == 0) {
+            store.put("image" + n, originals[n], n);
+          }
+          ImageProcessingModel read = store.get("image" + n);
+          if (!Arrays.deepEquals(originals[n].getGrid(), read.getGrid())
+                  || store.getAlpha("image" + n) != n) {
+            mismatch.set(true);
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertFalse(mismatch.get());
+    assertTrue(store.getResidentBytes() <= 4800);
+  }
+
+  @Test
+  public void spillKeepsAlpha() {
+    BoundedImageStore store = new BoundedImageStore(0);
+    int[] pixels = new int[12];
+    byte[] alpha = new byte[12];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = i * 0x10305;
+      alpha[i] = (byte) (i * 21);
+    }
+    PackedImage image = new PackedImage(4, 3, pixels, alpha);
+    store.put("a", image, 255);
+    store.put("b", image(4, 3, 1), 255);
+    assertTrue(store.isSpilled("a"));
+    ImageProcessingModel reloaded = store.get("a");
+    assertTrue(reloaded.hasAlpha());
+    int[] expected = new int[4];
+    int[] actual = new int[4];
+    for (int h = 0; h < 3; h++) {
+      image.getAlphaRow(h, expected);
+      reloaded.getAlphaRow(h, actual);
+      assertArrayEquals(expected, actual);
+    }
+    assertArrayEquals(image.getGrid(), reloaded.getGrid());
+    assertFalse(store.get("b").hasAlpha());
+  }
+
+  @Test
+  public void oversizedImageStaysWhileUsed() {
+    BoundedImageStore store = new BoundedImageStore(0);
+    ImageProcessingModel a = image(4, 4, 1);
+    store.put("a", a, 255);
+    assertFalse(store.isSpilled("a"));
+    store.put("b", image(4, 4, 2), 255);
+    assertTrue(store.isSpilled("a"));
+    assertArrayEquals(a.getGrid(), store.get("a").getGrid());
+    assertTrue(store.isSpilled("b"));
+  }
+
+  @Test
+  public void lazyImagesCountOnceKept() {
+    BoundedImageStore store = new BoundedImageStore(300);
+    LazyImage first = LazyImage.of(image(8, 8, 1)).brighten(10);
+    LazyImage second = LazyImage.of(image(8, 8, 2)).brighten(-10);
+    store.put("first", first, 255);
+    store.put("second", second, 255);
+    //neither has been computed, so both only hold their operations
+    assertEquals(0, store.getResidentBytes());
+    assertSame(first, store.get("first"));
+    first.materialize();
+    second.materialize();
+    //the next use of the store counts both, and spills the one used least recently
+    assertSame(second, store.get("second"));
+    assertEquals(256, store.getResidentBytes());
+    assertTrue(store.isSpilled("first"));
+    assertArrayEquals(image(8, 8, 1).brighten(10).getGrid(), store.get("first").getGrid());
+    assertTrue(store.isSpilled("second"));
+    //a lazy image made from an existing image holds its pixels from the start
+    store.put("wrapped", LazyImage.of(image(8, 8, 3)), 255);
+    assertEquals(256, store.getResidentBytes());
+    assertTrue(store.isSpilled("first"));
+  }
+
+  @Test
+  public void lazyScriptWithinBudget() {
+    String script = "load res/test.ppm a brighten a 30 b vertical-flip b c filter c blur d "
+            + "darken b 20 e horizontal-flip d f greyscale f luma-component g q";
+    Map<String, ImageProcessingModel> models = new HashMap<>();
+    new ImageProcessingControllerImpl(models, new ImageProcessingViewImpl(new StringBuilder()),
+            new StringReader(script)).runProgram();
+
+    BoundedImageStore store = new BoundedImageStore(0);
+    new ImageProcessingControllerImpl(store, new ImageProcessingViewImpl(new StringBuilder()),
+            new StringReader(script), true, true).runProgram();
+    for (String name : new String[]{"a", "b", "c", "d", "e", "f", "g"}) {
+      assertArrayEquals(models.get(name).getGrid(), store.get(name).getGrid());
+    }
+    //the lazy results hold their pixels once read, so they are spilled like any other image
+    for (String name : new String[]{"a", "b", "c", "d", "e", "f"}) {
+      assertTrue(name, store.isSpilled(name));
+    }
+  }
+
+  @Test
+  public void invalidValues() {
+    try {
+      new BoundedImageStore(-1);
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //Exception thrown
+    }
+    try {
+      new MapImageStore(null);
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //Exception thrown
+    }
+    BoundedImageStore store = new BoundedImageStore(100);
+    try {
+      store.put("a", null, 255);
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //Exception thrown
+    }
+    try {
+      store.put("a", image(1, 1, 1), 256);
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //Exception thrown
+    }
+  }
+
+  @Test
+  public void scriptWithinBudget() {
+    String script = "load res/test.ppm a brighten a 30 b vertical-flip b c filter c blur d "
+            + "darken a 20 e horizontal-flip d f greyscale f luma-component g q";
+    Map<String, ImageProcessingModel> models = new HashMap<>();
+    new ImageProcessingControllerImpl(models, new ImageProcessingViewImpl(new StringBuilder()),
+            new StringReader(script)).runProgram();
+
+    BoundedImageStore store = new BoundedImageStore(0);
+    new ImageProcessingControllerImpl(store, new ImageProcessingViewImpl(new StringBuilder()),
+            new StringReader(script), false, false).runProgram();
+    assertTrue(store.isSpilled("a"));
+    for (String name : new String[]{"a", "b", "c", "d", "e", "f", "g"}) {
+      assertArrayEquals(models.get(name).getGrid(), store.get(name).getGrid());
+    }
+  }
+}
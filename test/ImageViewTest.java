@@ -0,0 +1,200 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import controller.MapImageStore;
+import controller.MappedPPMFileOperationsImpl;
+import controller.PPMFileOperationsImpl;
+import model.ImageGrid;
+import model.ImageProcessingModel;
+import model.ImageView;
+import model.LazyImage;
+import model.PackedImage;
+import model.RGB;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the ImageView class, and the flips, rotations, and crops of every kind of image.
+ */
+public class ImageViewTest {
+
+  private RGB[][] grid;
+  private PackedImage packed;
+
+  @Before
+  public void setUp() {
+    grid = new RGB[7][5];
+    for (int h = 0; h < grid.length; h++) {
+      for (int w = 0; w < grid[0].length; w++) {
+        grid[h][w] = new RGB(h * 30 + w, (h * w) % 256, w * 40 + h);
+      }
+    }
+    packed = new PackedImage(grid);
+  }
+
+  /**
+   * Rotates the given grid clockwise by a quarter turn.
+   */
+  private static RGB[][] turned(RGB[][] grid) {
+    RGB[][] turned = new RGB[grid[0].length][grid.length];
+    for (int h = 0; h < grid.length; h++) {
+      for (int w = 0; w < grid[0].length; w++) {
+        turned[w][grid.length - 1 - h] = grid[h][w];
+      }
+    }
+    return turned;
+  }
+
+  @Test
+  public void rotations() {
+    RGB[][] expected = grid;
+    for (int degrees = 0; degrees <= 360; degrees += 90) {
+      ImageProcessingModel rotated = packed.rotate(degrees);
+      assertArrayEquals(expected, rotated.getGrid());
+      assertEquals(expected.length, rotated.getImageHeight());
+      assertEquals(expected[0].length, rotated.getImageWidth());
+      assertArrayEquals(expected, packed.rotate(degrees - 360).getGrid());
+      expected = turned(expected);
+    }
+    assertArrayEquals(turned(turned(turned(grid))), packed.rotate(-90).getGrid());
+  }
+
+  @Test
+  public void viewsCompose() {
+    ImageProcessingModel flipped = packed.flipVertical();
+    assertTrue(flipped instanceof ImageView);
+    assertSame(packed, flipped.flipVertical());
+    assertSame(packed, packed.flipHorizontal().flipHorizontal());
+    assertSame(packed, packed.rotate(90).rotate(90).rotate(90).rotate(90));
+    assertSame(packed, packed.rotate(180).flipVertical().flipHorizontal());
+    assertSame(packed, packed.rotate(0));
+    assertSame(packed, packed.crop(0, 0, 5, 7));
+    assertArrayEquals(packed.flipHorizontal().getGrid(),
+            packed.rotate(90).flipHorizontal().rotate(90).getGrid());
+    assertArrayEquals(packed.rotate(90).getGrid(),
+            packed.flipVertical().rotate(-90).flipHorizontal().rotate(180).getGrid());
+  }
+
+  @Test
+  public void crops() {
+    ImageProcessingModel cropped = packed.crop(1, 2, 3, 4);
+    assertEquals(3, cropped.getImageWidth());
+    assertEquals(4, cropped.getImageHeight());
+    RGB[][] expected = cropped.getGrid();
+    for (int h = 0; h < 4; h++) {
+      for (int w = 0; w < 3; w++) {
+        assertEquals(grid[h + 2][w + 1], expected[h][w]);
+      }
+    }
+    //a crop of a rotated view reads the rotated pixels
+    ImageProcessingModel corner = packed.rotate(90).crop(0, 0, 2, 1);
+    assertArrayEquals(new RGB[][]{{grid[6][0], grid[5][0]}}, corner.getGrid());
+    assertArrayEquals(packed.crop(1, 1, 3, 5).flipHorizontal().getGrid(),
+            packed.flipHorizontal().crop(1, 1, 3, 5).getGrid());
+  }
+
+  @Test
+  public void everyImageGivesTheSameViews() throws IOException {
+    File file = File.createTempFile("view", ".ppm");
+    try {
+      Map<String, ImageProcessingModel> models = new HashMap<>();
+      models.put("image", packed);
+      MapImageStore images = new MapImageStore(models);
+      new PPMFileOperationsImpl(images, true, 255).save(file.getPath(), "image");
+      new MappedPPMFileOperationsImpl(images, 64).load(file.getPath(), "mapped");
+
+      for (ImageProcessingModel image : new ImageProcessingModel[]{new ImageGrid(grid),
+          models.get("mapped"), LazyImage.of(packed)}) {
+        assertArrayEquals(packed.flipVertical().getGrid(), image.flipVertical().getGrid());
+        assertArrayEquals(packed.flipHorizontal().getGrid(), image.flipHorizontal().getGrid());
+        assertArrayEquals(packed.rotate(270).getGrid(), image.rotate(270).getGrid());
+        assertArrayEquals(packed.crop(2, 3, 3, 2).getGrid(), image.crop(2, 3, 3, 2).getGrid());
+        assertArrayEquals(packed.rotate(90).crop(1, 0, 6, 4).brighten(20).getGrid(),
+                image.rotate(90).crop(1, 0, 6, 4).brighten(20).getGrid());
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void operationsOnViews() {
+    ImageProcessingModel rotated = packed.rotate(90);
+    PackedImage copy = new PackedImage(rotated.getGrid());
+    assertArrayEquals(copy.filter("blur").getGrid(), rotated.filter("blur").getGrid());
+    assertArrayEquals(copy.colorTransformation("sepia").getGrid(),
+            rotated.colorTransformation("sepia").getGrid());
+    assertArrayEquals(copy.downscaleImage(50, 50).getGrid(),
+            rotated.downscaleImage(50, 50).getGrid());
+    for (int value = 0; value < 256; value++) {
+      assertEquals(copy.getHistogram().getRed(value), rotated.getHistogram().getRed(value));
+    }
+
+    ImageProcessingModel cropped = packed.crop(1, 1, 2, 2);
+    copy = new PackedImage(cropped.getGrid());
+    for (int value = 0; value < 256; value++) {
+      assertEquals(copy.getHistogram().getGreen(value), cropped.getHistogram().getGreen(value));
+    }
+    assertArrayEquals(copy.brighten(-40).getGrid(), cropped.brighten(-40).getGrid());
+    int[] row = new int[2];
+    cropped.getPackedRow(1, row);
+    int[] expected = new int[2];
+    copy.getPackedRow(1, expected);
+    assertArrayEquals(expected, row);
+  }
+
+  @Test
+  public void alphaFollowsViews() {
+    int[] pixels = new int[35];
+    byte[] alpha = new byte[35];
+    for (int i = 0; i < alpha.length; i++) {
+      alpha[i] = (byte) (i * 7);
+    }
+    PackedImage image = new PackedImage(5, 7, pixels, alpha);
+    ImageProcessingModel view = image.rotate(90).crop(1, 2, 4, 3);
+    assertTrue(view.hasAlpha());
+    assertFalse(packed.rotate(90).hasAlpha());
+    int[] alphas = new int[4];
+    view.getAlphaRow(1, alphas);
+    //row 1 of the crop is row 3 of the rotation, which reads column 3 from the bottom up
+    assertArrayEquals(new int[]{5 * 5 + 3, 4 * 5 + 3, 3 * 5 + 3, 2 * 5 + 3},
+            new int[]{alphas[0] / 7, alphas[1] / 7, alphas[2] / 7, alphas[3] / 7});
+    ImageProcessingModel brightened = view.brighten(10);
+    int[] copied = new int[4];
+    brightened.getAlphaRow(1, copied);
+    assertArrayEquals(alphas, copied);
+  }
+
+  @Test
+  public void invalidArguments() {
+    Runnable[] invalid = new Runnable[]{
+        () -> packed.rotate(45),
+        () -> packed.rotate(-100),
+        () -> packed.crop(-1, 0, 2, 2),
+        () -> packed.crop(0, 0, 0, 2),
+        () -> packed.crop(4, 0, 2, 2),
+        () -> packed.crop(0, 6, 1, 2),
+        () -> packed.rotate(90).crop(0, 0, 8, 1),
+        () -> new ImageGrid(grid).crop(0, 0, 6, 1),
+        () -> LazyImage.of(packed).rotate(10),
+        () -> LazyImage.of(packed).crop(0, 0, 5, 8)};
+    for (Runnable operation : invalid) {
+      try {
+        operation.run();
+        fail("No exception thrown");
+      } catch (IllegalArgumentException e) {
+        //Exception thrown
+      }
+    }
+  }
+}
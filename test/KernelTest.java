@@ -0,0 +1,158 @@
+import org.junit.Test;
+
+import model.BorderMode;
+import model.ImageGrid;
+import model.ImageProcessingModel;
+import model.Kernel;
+import model.PackedImage;
+import model.RGB;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the Kernel class and convolving images with it.
+ */
+public class KernelTest {
+
+  private final ImageProcessingModel line = new PackedImage(3, 1, new int[]{
+      PackedImage.pack(10, 0, 0), PackedImage.pack(20, 0, 0), PackedImage.pack(30, 0, 0)});
+
+  private static RGB[][] gradient(int height, int width) {
+    RGB[][] grid = new RGB[height][width];
+    for (int h = 0; h < height; h++) {
+      for (int w = 0; w < width; w++) {
+        grid[h][w] = new RGB((h * 37 + w * 11) % 256, (h * w) % 256, (h + w * 5) % 256);
+      }
+    }
+    return grid;
+  }
+
+  private static int[] reds(ImageProcessingModel model) {
+    int[] row = new int[model.getImageWidth()];
+    model.getPackedRow(0, row);
+    for (int w = 0; w < row.length; w++) {
+      row[w] = (row[w] >> 16) & 0xFF;
+    }
+    return row;
+  }
+
+  @Test
+  public void namedKernels() {
+    assertSame(Kernel.BLUR, Kernel.named("blur"));
+    assertSame(Kernel.SHARPEN, Kernel.named("sharpen"));
+    assertEquals(3, Kernel.BLUR.getWidth());
+    assertEquals(5, Kernel.SHARPEN.getHeight());
+    assertEquals(0.25, Kernel.BLUR.getWeight(1, 1), 0);
+  }
+
+  @Test
+  public void invalidName() {
+    try {
+      Kernel.named("emboss");
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //exception thrown
+    }
+  }
+
+  @Test
+  public void invalidWeights() {
+    double[][][] invalid = new double[][][]{null, {{1, 1}}, {{1}, {1}},
+        {{1, 1, 1}, {1}, {1, 1, 1}}, {{Double.NaN}}};
+    for (double[][] weights : invalid) {
+      try {
+        new Kernel(weights);
+        fail("No exception thrown");
+      } catch (IllegalArgumentException e) {
+        //exception thrown
+      }
+    }
+  }
+
+  @Test
+  public void separable() {
+    assertTrue(new Kernel(new double[][]{{1, 2, 1}, {2, 4, 2}, {1, 2, 1}}).isSeparable());
+    assertTrue(new Kernel(new double[][]{{1, 1, 1}}).isSeparable());
+    assertTrue(Kernel.gaussian(1.5).isSeparable());
+    assertFalse(new Kernel(new double[][]{{0, 1, 0}, {1, 1, 1}, {0, 1, 0}}).isSeparable());
+    assertFalse(Kernel.BLUR.isSeparable());
+  }
+
+  @Test
+  public void gaussianIsNormalized() {
+    Kernel gaussian = Kernel.gaussian(1);
+    assertEquals(7, gaussian.getWidth());
+    double total = 0;
+    for (int h = 0; h < gaussian.getHeight(); h++) {
+      for (int w = 0; w < gaussian.getWidth(); w++) {
+        total += gaussian.getWeight(h, w);
+      }
+    }
+    assertEquals(1, total, 1e-9);
+  }
+
+  @Test
+  public void borderModes() {
+    Kernel sum = new Kernel(new double[][]{{1, 1, 1}});
+    assertArrayEquals(new int[]{30, 60, 50}, reds(line.convolve(sum, BorderMode.ZERO)));
+    assertArrayEquals(new int[]{40, 60, 80}, reds(line.convolve(sum, BorderMode.CLAMP)));
+    assertArrayEquals(new int[]{50, 60, 70}, reds(line.convolve(sum, BorderMode.MIRROR)));
+
+    Kernel cross = new Kernel(new double[][]{{0, 1, 0}, {1, 1, 1}, {0, 1, 0}});
+    assertArrayEquals(new int[]{30, 60, 50}, reds(line.convolve(cross, BorderMode.ZERO)));
+    assertArrayEquals(new int[]{60, 100, 140}, reds(line.convolve(cross, BorderMode.CLAMP)));
+  }
+
+  @Test
+  public void separableMatchesDirect() {
+    RGB[][] grid = gradient(45, 38);
+    double[][] box = new double[][]{{1 / 9d, 1 / 9d, 1 / 9d}, {1 / 9d, 1 / 9d, 1 / 9d},
+        {1 / 9d, 1 / 9d, 1 / 9d}};
+    RGB[][] filtered = new PackedImage(grid).convolve(new Kernel(box), BorderMode.CLAMP)
+            .getGrid();
+
+    for (int h = 0; h < grid.length; h++) {
+      for (int w = 0; w < grid[0].length; w++) {
+        int red = 0;
+        for (int kh = -1; kh <= 1; kh++) {
+          for (int kw = -1; kw <= 1; kw++) {
+            red += grid[Math.max(0, Math.min(h + kh, grid.length - 1))]
+                    [Math.max(0, Math.min(w + kw, grid[0].length - 1))].getRed();
+          }
+        }
+        assertEquals(red / 9.0, filtered[h][w].getRed(), 1);
+      }
+    }
+  }
+
+  @Test
+  public void implementationsAgree() {
+    RGB[][] grid = gradient(70, 20);
+    Kernel gaussian = Kernel.gaussian(1.2);
+    for (BorderMode border : BorderMode.values()) {
+      assertArrayEquals(new ImageGrid(grid).convolve(gaussian, border).getGrid(),
+              new PackedImage(grid).convolve(gaussian, border).getGrid());
+    }
+  }
+
+  @Test
+  public void nullConvolveArguments() {
+    try {
+      line.convolve(null, BorderMode.ZERO);
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //exception thrown
+    }
+    try {
+      line.convolve(Kernel.BLUR, null);
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //exception thrown
+    }
+  }
+}
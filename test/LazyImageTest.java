@@ -0,0 +1,218 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.function.UnaryOperator;
+
+import model.ColorMatrix;
+import model.ImageGrid;
+import model.ImageProcessingModel;
+import model.LazyImage;
+import model.PackedImage;
+import model.RGB;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the LazyImage class.
+ */
+public class LazyImageTest {
+
+  /**
+   * Counts the rows read from an image.
+   */
+  private static final class CountingImage extends PackedImage {
+    private int rowsRead;
+
+    CountingImage(RGB[][] grid) {
+      super(grid);
+    }
+
+    @Override
+    public synchronized void getPackedRow(int row, int[] pixels) {
+      rowsRead++;
+      super.getPackedRow(row, pixels);
+    }
+  }
+
+  private RGB[][] grid;
+
+  @Before
+  public void setUp() {
+    grid = new RGB[37][23];
+    for (int h = 0; h < grid.length; h++) {
+      for (int w = 0; w < grid[0].length; w++) {
+        grid[h][w] = new RGB((h * 7 + w * 3) % 256, (h * w) % 256, (w * 11 + h) % 256);
+      }
+    }
+  }
+
+  /**
+   * Applies the same chain of operations lazily and eagerly and checks the results match.
+   */
+  private void assertSameResult(ImageProcessingModel eager,
+                                UnaryOperator<ImageProcessingModel> chain) {
+    assertArrayEquals(chain.apply(eager).getGrid(),
+            chain.apply(LazyImage.of(eager)).getGrid());
+  }
+
+  @Test
+  public void matchesEagerOperations() {
+    UnaryOperator<ImageProcessingModel> chain = image -> image.brighten(30)
+            .channelComponent("red-component").flipHorizontal().brighten(-50)
+            .colorTransformation("sepia").filter("blur").flipVertical()
+            .downscaleImage(60, 80).channelComponent("luma-component").brighten(12);
+    assertSameResult(new PackedImage(grid), chain);
+    assertSameResult(new ImageGrid(grid), chain);
+    assertSameResult(new PackedImage(grid), image -> image.channelComponent("value-component")
+            .brighten(40).filter("sharpen").colorTransformation("greyscale").brighten(-7)
+            .channelComponent("intensity-component").channelComponent("green-component"));
+  }
+
+  @Test
+  public void consecutiveMatricesComposed() {
+    RGB[][] extremes = new RGB[][]{{new RGB(255, 255, 255), new RGB(0, 0, 0)},
+        {new RGB(255, 0, 128), new RGB(3, 250, 7)}};
+    ColorMatrix warm = ColorMatrix.of(new double[][]{
+        {1.1, 0, 0, 15}, {0, 1, 0, 0}, {0, 0, 0.9, -10}});
+    ColorMatrix invert = ColorMatrix.of(new double[][]{
+        {0, -1, 0, 255}, {-1, 0, 0, 255}, {0, 0, 1, 0}});
+    for (RGB[][] pixels : new RGB[][][]{grid, extremes}) {
+      CountingImage source = new CountingImage(pixels);
+      ImageProcessingModel result = LazyImage.of(source).colorTransformation(invert)
+              .colorTransformation("sepia").colorTransformation("sepia")
+              .colorTransformation(warm).channelComponent("luma-component");
+      PackedImage eager = new PackedImage(pixels);
+      assertArrayEquals(eager.colorTransformation(invert).colorTransformation("sepia")
+              .colorTransformation("sepia").colorTransformation(warm)
+              .channelComponent("luma-component").getGrid(), result.getGrid());
+      assertEquals(pixels.length, source.rowsRead);
+    }
+    //white stays 255, 255, 236 after two sepias, rather than the 255 of a composed matrix
+    assertEquals(new RGB(255, 255, 236), LazyImage.of(new PackedImage(extremes))
+            .colorTransformation("sepia").colorTransformation("sepia").getGrid()[0][0]);
+  }
+
+  @Test
+  public void deferredUntilRead() {
+    CountingImage source = new CountingImage(grid);
+    ImageProcessingModel result = LazyImage.of(source).brighten(10).flipVertical()
+            .channelComponent("blue-component").flipHorizontal().brighten(-3)
+            .colorTransformation("sepia");
+    assertEquals(0, source.rowsRead);
+
+    int[] row = new int[grid[0].length];
+    result.getPackedRow(0, row);
+    result.getPackedRow(5, row);
+    assertEquals(grid.length, source.rowsRead);
+    assertArrayEquals(new PackedImage(grid).brighten(10).flipVertical()
+            .channelComponent("blue-component").flipHorizontal().brighten(-3)
+            .colorTransformation("sepia").getGrid(), result.getGrid());
+    assertEquals(grid.length, source.rowsRead);
+  }
+
+  @Test
+  public void sharedNodesComputedOnce() {
+    CountingImage source = new CountingImage(grid);
+    LazyImage shared = LazyImage.of(source).brighten(20).flipHorizontal();
+    ImageProcessingModel first = shared.channelComponent("red-component");
+    ImageProcessingModel second = shared.flipVertical().colorTransformation("sepia");
+    first.getGrid();
+    second.getGrid();
+    assertEquals(grid.length, source.rowsRead);
+
+    PackedImage eager = new PackedImage(grid);
+    assertArrayEquals(eager.brighten(20).flipHorizontal().channelComponent("red-component")
+            .getGrid(), first.getGrid());
+    assertArrayEquals(eager.brighten(20).flipHorizontal().flipVertical()
+            .colorTransformation("sepia").getGrid(), second.getGrid());
+  }
+
+  @Test
+  public void materializedOnce() {
+    LazyImage image = LazyImage.of(new PackedImage(grid)).brighten(5);
+    assertSame(image.materialize(), image.materialize());
+    assertSame(image, LazyImage.of(image));
+  }
+
+  @Test
+  public void sizes() {
+    ImageProcessingModel image = LazyImage.of(new PackedImage(grid)).downscaleImage(50, 25);
+    assertEquals(11, image.getImageWidth());
+    assertEquals(9, image.getImageHeight());
+    assertEquals(11, image.getGrid()[0].length);
+    assertEquals(9, image.getGrid().length);
+  }
+
+  @Test
+  public void alphaMatchesEager() {
+    int[] pixels = new int[37 * 23];
+    byte[] alpha = new byte[pixels.length];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = i * 0x10203 & 0xFFFFFF;
+      alpha[i] = (byte) (i * 13);
+    }
+    PackedImage eager = new PackedImage(23, 37, pixels, alpha);
+    UnaryOperator<ImageProcessingModel> chain = image -> image.brighten(20).flipHorizontal()
+            .filter("blur").flipVertical().colorTransformation("sepia").rotate(270);
+    ImageProcessingModel expected = chain.apply(eager);
+    ImageProcessingModel lazy = chain.apply(LazyImage.of(eager));
+    assertTrue(lazy.hasAlpha());
+    assertArrayEquals(expected.getGrid(), lazy.getGrid());
+    int[] expectedRow = new int[37];
+    int[] lazyRow = new int[37];
+    for (int h = 0; h < 23; h++) {
+      expected.getAlphaRow(h, expectedRow);
+      lazy.getAlphaRow(h, lazyRow);
+      assertArrayEquals(expectedRow, lazyRow);
+    }
+  }
+
+  @Test
+  public void invalidOperationsFailRightAway() {
+    LazyImage image = LazyImage.of(new PackedImage(grid));
+    Runnable[] invalid = new Runnable[]{() -> image.filter("emboss"),
+        () -> image.channelComponent("alpha-component"),
+        () -> image.colorTransformation("negative"), () -> image.downscaleImage(-50, 50),
+        () -> image.applyLut(null), () -> image.colorTransformation((ColorMatrix) null)};
+    for (Runnable operation : invalid) {
+      try {
+        operation.run();
+        fail("No exception thrown");
+      } catch (IllegalArgumentException e) {
+        //exception thrown
+      }
+    }
+  }
+
+  @Test
+  public void keptNodeFreesItsChain() {
+    PackedImage source = new PackedImage(grid);
+    LazyImage middle = LazyImage.of(source).brighten(25).flipVertical();
+    LazyImage saved = middle.colorTransformation("sepia");
+    saved.materialize();
+    WeakReference<LazyImage> middleRef = new WeakReference<>(middle);
+    WeakReference<PackedImage> sourceRef = new WeakReference<>(source);
+    //overwrites the names of the chain, as a script reusing them would
+    middle = null;
+    source = null;
+    for (int i = 0; i < 20 && (middleRef.get() != null || sourceRef.get() != null); i++) {
+      System.gc();
+      try {
+        Thread.sleep(10);
+      } catch (InterruptedException e) {
+        //Exception thrown
+        Thread.currentThread().interrupt();
+      }
+    }
+    assertNull(middleRef.get());
+    assertNull(sourceRef.get());
+    assertArrayEquals(new PackedImage(grid).brighten(25).flipVertical()
+            .colorTransformation("sepia").getGrid(), saved.getGrid());
+  }
+}
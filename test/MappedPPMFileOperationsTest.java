@@ -0,0 +1,164 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import controller.ImageStore;
+import controller.MapImageStore;
+import controller.MappedPPMFileOperationsImpl;
+import controller.PPMFileOperationsImpl;
+import model.BorderMode;
+import model.ImageProcessingModel;
+import model.ImageView;
+import model.Kernel;
+import model.MappedImage;
+import model.PackedImage;
+import model.RGB;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the MappedPPMFileOperationsImpl and MappedImage classes.
+ */
+public class MappedPPMFileOperationsTest {
+
+  private Map<String, ImageProcessingModel> models;
+  private ImageStore images;
+  private PackedImage original;
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    RGB[][] grid = new RGB[53][37];
+    for (int h = 0; h < grid.length; h++) {
+      for (int w = 0; w < grid[0].length; w++) {
+        grid[h][w] = new RGB((h * 31 + w) % 256, (h * w) % 256, (w * 7 + h) % 256);
+      }
+    }
+    original = new PackedImage(grid);
+    models = new HashMap<>();
+    models.put("image", original);
+    images = new MapImageStore(models);
+    file = File.createTempFile("mappedTest", ".ppm");
+  }
+
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  private ImageProcessingModel load(long chunkBytes) throws FileNotFoundException {
+    new MappedPPMFileOperationsImpl(images, chunkBytes).load(file.getPath(), "mapped");
+    return models.get("mapped");
+  }
+
+  @Test
+  public void operationsMatchPackedImage() throws IOException {
+    new PPMFileOperationsImpl(images, true, 255).save(file.getPath(), "image");
+    ImageProcessingModel mapped = load(500);
+    assertTrue(mapped instanceof MappedImage);
+    assertEquals(37, mapped.getImageWidth());
+    assertEquals(53, mapped.getImageHeight());
+
+    assertArrayEquals(original.getGrid(), mapped.getGrid());
+    assertArrayEquals(original.flipVertical().getGrid(), mapped.flipVertical().getGrid());
+    assertTrue(mapped.flipVertical() instanceof ImageView);
+    assertArrayEquals(original.getGrid(), mapped.flipVertical().flipVertical().getGrid());
+    assertArrayEquals(original.flipHorizontal().getGrid(), mapped.flipHorizontal().getGrid());
+    assertArrayEquals(original.brighten(-30).getGrid(), mapped.brighten(-30).getGrid());
+    for (String component : new String[]{"red-component", "green-component", "blue-component",
+        "value-component", "luma-component", "intensity-component"}) {
+      assertArrayEquals(original.channelComponent(component).getGrid(),
+              mapped.channelComponent(component).getGrid());
+    }
+    assertArrayEquals(original.filter("sharpen").getGrid(), mapped.filter("sharpen").getGrid());
+    assertArrayEquals(original.convolve(Kernel.gaussian(1), BorderMode.MIRROR).getGrid(),
+            mapped.convolve(Kernel.gaussian(1), BorderMode.MIRROR).getGrid());
+    assertArrayEquals(original.colorTransformation("sepia").getGrid(),
+            mapped.colorTransformation("sepia").getGrid());
+    assertArrayEquals(original.downscaleImage(40, 70).getGrid(),
+            mapped.downscaleImage(40, 70).getGrid());
+  }
+
+  @Test
+  public void sixteenBitSamples() throws IOException {
+    new PPMFileOperationsImpl(images, true, 65535).save(file.getPath(), "image");
+    assertArrayEquals(original.getGrid(), load(1000).getGrid());
+  }
+
+  @Test
+  public void plainFileIsLoadedOnHeap() throws IOException {
+    new PPMFileOperationsImpl(images).save(file.getPath(), "image");
+    ImageProcessingModel loaded = load(500);
+    assertTrue(loaded instanceof PackedImage);
+    assertArrayEquals(original.getGrid(), loaded.getGrid());
+  }
+
+  @Test
+  public void saveThroughMapping() throws IOException {
+    new MappedPPMFileOperationsImpl(images, 300).save(file.getPath(), "image");
+    assertEquals("P6\n37 53\n255\n".length() + 37 * 53 * 3, file.length());
+    assertArrayEquals(original.getGrid(), load(1 << 20).getGrid());
+
+    models.put("flipped", models.get("mapped").flipVertical());
+    new MappedPPMFileOperationsImpl(images).save(file.getPath(), "flipped");
+    new PPMFileOperationsImpl(images).load(file.getPath(), "reloaded");
+    assertArrayEquals(original.flipVertical().getGrid(), models.get("reloaded").getGrid());
+  }
+
+  @Test
+  public void failedSaveLeavesNoFiles() throws IOException {
+    File folder = Files.createTempDirectory("mappedSave").toFile();
+    File target = new File(folder, "image.ppm");
+    models.put("broken", new PackedImage(original.getGrid()) {
+      @Override
+      public void getPackedRow(int row, int[] pixels) {
+        if (row == 40) {
+          throw new IllegalStateException("row cannot be read");
+        }
+        super.getPackedRow(row, pixels);
+      }
+    });
+    try {
+      new MappedPPMFileOperationsImpl(images, 300).save(target.getPath(), "broken");
+      fail("No exception thrown");
+    } catch (IllegalStateException e) {
+      //exception thrown
+    }
+    assertEquals(0, folder.list().length);
+    folder.delete();
+  }
+
+  @Test
+  public void truncatedFile() throws IOException {
+    new PPMFileOperationsImpl(images, true, 255).save(file.getPath(), "image");
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 1));
+    try {
+      load(500);
+      fail("No exception thrown");
+    } catch (FileNotFoundException e) {
+      //exception thrown
+    }
+  }
+
+  @Test
+  public void invalidChunkSize() {
+    try {
+      new MappedPPMFileOperationsImpl(images, 0);
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //exception thrown
+    }
+  }
+}
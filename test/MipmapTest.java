@@ -0,0 +1,76 @@
+import org.junit.Test;
+
+import model.ImageProcessingModel;
+import model.Mipmap;
+import model.PackedImage;
+import model.RGB;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the Mipmap class.
+ */
+public class MipmapTest {
+
+  private static ImageProcessingModel image(int width, int height) {
+    RGB[][] grid = new RGB[height][width];
+    for (int h = 0; h < height; h++) {
+      for (int w = 0; w < width; w++) {
+        grid[h][w] = new RGB((h * 7 + w) % 256, (h * w) % 256, (w * 3) % 256);
+      }
+    }
+    return new PackedImage(grid);
+  }
+
+  @Test
+  public void levelSizes() {
+    ImageProcessingModel full = image(100, 60);
+    Mipmap mipmap = new Mipmap(full);
+    assertSame(full, mipmap.getImage());
+    assertSame(full, mipmap.levelFor(100, 60));
+    assertSame(full, mipmap.levelFor(60, 31));
+
+    ImageProcessingModel half = mipmap.levelFor(50, 30);
+    assertEquals(50, half.getImageWidth());
+    assertEquals(30, half.getImageHeight());
+
+    ImageProcessingModel small = mipmap.levelFor(10, 1);
+    assertEquals(13, small.getImageWidth());
+    assertEquals(8, small.getImageHeight());
+    assertSame(small, mipmap.levelFor(13, 8));
+    assertSame(half, mipmap.levelFor(26, 16));
+  }
+
+  @Test
+  public void averagesBlocks() {
+    RGB[][] grid = new RGB[][]{
+        {new RGB(0, 10, 255), new RGB(1, 20, 255), new RGB(100, 0, 0)},
+        {new RGB(2, 30, 255), new RGB(3, 41, 254), new RGB(50, 0, 1)},
+        {new RGB(9, 9, 9), new RGB(11, 11, 11), new RGB(200, 100, 0)}};
+    ImageProcessingModel level = new Mipmap(new PackedImage(grid)).levelFor(1, 1);
+    assertEquals(1, level.getImageWidth());
+
+    level = new Mipmap(new PackedImage(grid)).levelFor(2, 2);
+    RGB[][] expected = new RGB[][]{
+        {new RGB(2, 25, 255), new RGB(75, 0, 1)},
+        {new RGB(10, 10, 10), new RGB(200, 100, 0)}};
+    for (int h = 0; h < 2; h++) {
+      for (int w = 0; w < 2; w++) {
+        assertEquals(expected[h][w].getRed(), level.getGrid()[h][w].getRed());
+        assertEquals(expected[h][w].getGreen(), level.getGrid()[h][w].getGreen());
+        assertEquals(expected[h][w].getBlue(), level.getGrid()[h][w].getBlue());
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void nullImage() {
+    new Mipmap(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidSize() {
+    new Mipmap(image(4, 4)).levelFor(0, 4);
+  }
+}
@@ -0,0 +1,147 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import controller.ImageStore;
+import controller.MapImageStore;
+import controller.PPMFileOperationsImpl;
+import model.ImageProcessingModel;
+import model.PackedImage;
+import model.RGB;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the PPMFileOperationsImpl class.
+ */
+public class PPMFileOperationsTest {
+
+  private final RGB red = new RGB(255, 0, 0);
+  private final RGB pink = new RGB(250, 100, 150);
+  private final RGB black = new RGB(0, 0, 0);
+  private final RGB grey = new RGB(128, 128, 128);
+
+  private Map<String, ImageProcessingModel> models;
+  private ImageStore images;
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    models = new HashMap<>();
+    models.put("image", new PackedImage(new RGB[][]{{red, pink}, {black, grey}}));
+    images = new MapImageStore(models);
+    file = File.createTempFile("ppmTest", ".ppm");
+  }
+
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  private void write(String contents) throws IOException {
+    Files.write(file.toPath(), contents.getBytes(StandardCharsets.ISO_8859_1));
+  }
+
+  private String read() throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.ISO_8859_1);
+  }
+
+  private RGB[][] load() throws FileNotFoundException {
+    new PPMFileOperationsImpl(images).load(file.getPath(), "loaded");
+    return models.get("loaded").getGrid();
+  }
+
+  @Test
+  public void savePlain() throws IOException {
+    new PPMFileOperationsImpl(images).save(file.getPath(), "image");
+    assertEquals("P3\n2 2\n255\n255\n0\n0\n250\n100\n150\n0\n0\n0\n128\n128\n128\n", read());
+    assertArrayEquals(models.get("image").getGrid(), load());
+  }
+
+  @Test
+  public void saveBinary() throws IOException {
+    new PPMFileOperationsImpl(images, true, 255).save(file.getPath(), "image");
+    assertEquals("P6\n2 2\n255\n\u00ff\u0000\u0000\u00fad\u0096"
+            + "\u0000\u0000\u0000\u0080\u0080\u0080", read());
+    assertArrayEquals(models.get("image").getGrid(), load());
+  }
+
+  @Test
+  public void saveSixteenBit() throws IOException {
+    new PPMFileOperationsImpl(images, true, 65535).save(file.getPath(), "image");
+    assertEquals("P6\n2 2\n65535\n".length() + 4 * 3 * 2, file.length());
+    assertArrayEquals(models.get("image").getGrid(), load());
+
+    new PPMFileOperationsImpl(images, false, 65535).save(file.getPath(), "image");
+    assertArrayEquals(models.get("image").getGrid(), load());
+  }
+
+  @Test
+  public void loadScalesMaxValue() throws IOException {
+    write("P3\n2 1\n15\n15 0 5\n8 8 30\n");
+    assertArrayEquals(new RGB[][]{{new RGB(255, 0, 85), new RGB(136, 136, 255)}}, load());
+
+    write("P6 1 1 65535\n\u00ff\u00ff\u0080\u0000\u0000\u0000");
+    assertArrayEquals(new RGB[][]{{new RGB(255, 128, 0)}}, load());
+  }
+
+  @Test
+  public void loadComments() throws IOException {
+    write("# leading comment\nP3 # magic\n2 # width\n1\n255# max\n1 2 3 # first pixel\n"
+            + "# between pixels\n4 5 6");
+    assertArrayEquals(new RGB[][]{{new RGB(1, 2, 3), new RGB(4, 5, 6)}}, load());
+  }
+
+  @Test
+  public void loadBinaryWhitespaceSample() throws IOException {
+    write("P6\n1 1\n255\n\n\t ");
+    assertArrayEquals(new RGB[][]{{new RGB(10, 9, 32)}}, load());
+  }
+
+  @Test
+  public void loadMissingFile() {
+    file.delete();
+    try {
+      load();
+      fail("No exception thrown");
+    } catch (FileNotFoundException e) {
+      assertEquals("File " + file.getPath() + " not found!", e.getMessage());
+    }
+  }
+
+  @Test
+  public void loadInvalidFiles() throws IOException {
+    for (String contents : new String[]{"", "P5\n1 1\n255\n0", "P3\n2 1\n255\n1 2 3 4",
+        "P3\n1 1\n255\n1 x 3", "P6\n2 1\n255\n\u0001\u0002\u0003", "P3\n1 1\n0\n0 0 0"}) {
+      write(contents);
+      try {
+        load();
+        fail("No exception thrown for " + contents);
+      } catch (FileNotFoundException e) {
+        //exception thrown
+      }
+    }
+  }
+
+  @Test
+  public void invalidMaxValue() {
+    for (int maxValue : new int[]{0, 65536}) {
+      try {
+        new PPMFileOperationsImpl(images, true, maxValue);
+        fail("No exception thrown");
+      } catch (IllegalArgumentException e) {
+        //exception thrown
+      }
+    }
+  }
+}
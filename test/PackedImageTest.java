@@ -0,0 +1,277 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import model.ChannelLut;
+import model.ImageGrid;
+import model.ImageProcessingModel;
+import model.PackedImage;
+import model.Parallelism;
+import model.RGB;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the PackedImage class.
+ */
+public class PackedImageTest {
+
+  private final RGB red = new RGB(255, 0, 0);
+  private final RGB green = new RGB(0, 255, 0);
+  private final RGB blue = new RGB(0, 0, 255);
+  private final RGB orange = new RGB(255, 150, 0);
+  private final RGB purple = new RGB(150, 0, 255);
+  private final RGB pink = new RGB(250, 100, 150);
+  private final RGB indigo = new RGB(145, 145, 250);
+
+  private RGB[][] testGrid;
+  private ImageProcessingModel packedModel;
+  private ImageProcessingModel gridModel;
+
+  @Before
+  public void initializeImage() {
+    this.testGrid = new RGB[][]{{red, red, red, pink}, {green, blue, blue, green},
+        {blue, green, indigo, blue}, {orange, orange, purple, purple}};
+    this.packedModel = new PackedImage(testGrid);
+    this.gridModel = new ImageGrid(testGrid);
+  }
+
+  @Test
+  public void getGrid() {
+    assertArrayEquals(testGrid, packedModel.getGrid());
+  }
+
+  @Test
+  public void getGridReturnsNewRows() {
+    RGB[][] grid = packedModel.getGrid();
+    grid[0][0] = blue;
+    assertEquals(red, packedModel.getGrid()[0][0]);
+    assertNotSame(gridModel.getGrid()[0], gridModel.getGrid()[0]);
+  }
+
+  @Test
+  public void getPackedRow() {
+    int[] row = new int[4];
+    for (ImageProcessingModel model : new ImageProcessingModel[]{packedModel, gridModel}) {
+      model.getPackedRow(2, row);
+      assertArrayEquals(new int[]{PackedImage.pack(0, 0, 255), PackedImage.pack(0, 255, 0),
+          PackedImage.pack(145, 145, 250), PackedImage.pack(0, 0, 255)}, row);
+    }
+  }
+
+  @Test
+  public void unchangedImageIsShared() {
+    assertSame(packedModel, packedModel.brighten(0));
+    assertSame(gridModel, gridModel.brighten(0));
+  }
+
+  @Test
+  public void copyOnWriteKeepsParent() {
+    RGB[][] greyGrid = new RGB[150][3];
+    for (int h = 0; h < greyGrid.length; h++) {
+      for (int w = 0; w < greyGrid[0].length; w++) {
+        greyGrid[h][w] = new RGB(h % 200, h % 200, h % 200);
+      }
+    }
+    greyGrid[140][1] = red;
+    ImageProcessingModel grey = new PackedImage(greyGrid);
+    ImageProcessingModel redOnly = grey.channelComponent("red-component");
+
+    assertArrayEquals(new ImageGrid(greyGrid).channelComponent("red-component").getGrid(),
+            redOnly.getGrid());
+    assertArrayEquals(greyGrid, grey.getGrid());
+  }
+
+  @Test
+  public void packedConstructor() {
+    ImageProcessingModel model = new PackedImage(2, 1,
+            new int[]{PackedImage.pack(255, 0, 0), PackedImage.pack(300, -4, 150)});
+    assertArrayEquals(new RGB[][]{{red, new RGB(255, 0, 150)}}, model.getGrid());
+    assertEquals(2, model.getImageWidth());
+    assertEquals(1, model.getImageHeight());
+    assertEquals(255, model.getMaxValue());
+  }
+
+  @Test
+  public void packedConstructorWrongLength() {
+    try {
+      new PackedImage(2, 2, new int[3]);
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //exception thrown
+    }
+  }
+
+  @Test
+  public void brighten() {
+    assertArrayEquals(gridModel.brighten(40).getGrid(), packedModel.brighten(40).getGrid());
+    assertArrayEquals(gridModel.brighten(-90).getGrid(), packedModel.brighten(-90).getGrid());
+  }
+
+  @Test
+  public void chainedPointOperations() {
+    ImageProcessingModel packed = packedModel.brighten(120).brighten(-200)
+            .channelComponent("green-component").brighten(35);
+    ImageProcessingModel grid = gridModel.brighten(120).brighten(-200)
+            .channelComponent("green-component").brighten(35);
+    int[] row = new int[4];
+    packed.getPackedRow(1, row);
+    assertArrayEquals(new int[]{PackedImage.pack(90, 90, 90), PackedImage.pack(35, 35, 35),
+        PackedImage.pack(35, 35, 35), PackedImage.pack(90, 90, 90)}, row);
+
+    assertArrayEquals(grid.getGrid(), packed.getGrid());
+    assertArrayEquals(gridModel.brighten(120).filter("blur").getGrid(),
+            packedModel.brighten(120).filter("blur").getGrid());
+    assertArrayEquals(testGrid, packedModel.getGrid());
+  }
+
+  @Test
+  public void applyLut() {
+    ChannelLut inverted = ChannelLut.curve(value -> 255 - value);
+    assertArrayEquals(gridModel.applyLut(inverted).getGrid(),
+            packedModel.applyLut(inverted).getGrid());
+    assertArrayEquals(testGrid, packedModel.applyLut(inverted).applyLut(inverted).getGrid());
+  }
+
+  @Test
+  public void flips() {
+    assertArrayEquals(gridModel.flipVertical().getGrid(), packedModel.flipVertical().getGrid());
+    assertArrayEquals(gridModel.flipHorizontal().getGrid(),
+            packedModel.flipHorizontal().getGrid());
+    assertArrayEquals(testGrid, packedModel.flipVertical().flipVertical().getGrid());
+  }
+
+  @Test
+  public void channelComponents() {
+    for (String component : new String[]{"red-component", "green-component", "blue-component",
+        "value-component", "luma-component", "intensity-component"}) {
+      assertArrayEquals(gridModel.channelComponent(component).getGrid(),
+              packedModel.channelComponent(component).getGrid());
+    }
+  }
+
+  @Test
+  public void invalidComponentException() {
+    try {
+      packedModel.channelComponent("red");
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //exception thrown
+    }
+  }
+
+  @Test
+  public void filter() {
+    assertArrayEquals(gridModel.filter("blur").getGrid(), packedModel.filter("blur").getGrid());
+    assertArrayEquals(gridModel.filter("sharpen").getGrid(),
+            packedModel.filter("sharpen").getGrid());
+  }
+
+  @Test
+  public void invalidFilterException() {
+    try {
+      packedModel.filter("emboss");
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //exception thrown
+    }
+  }
+
+  @Test
+  public void colorTransformation() {
+    assertArrayEquals(gridModel.colorTransformation("sepia").getGrid(),
+            packedModel.colorTransformation("sepia").getGrid());
+    assertArrayEquals(gridModel.colorTransformation("greyscale").getGrid(),
+            packedModel.colorTransformation("greyscale").getGrid());
+  }
+
+  @Test
+  public void downscaleImage() {
+    ImageProcessingModel downscaled = packedModel.downscaleImage(50, 75);
+    assertEquals(2, downscaled.getImageWidth());
+    assertEquals(3, downscaled.getImageHeight());
+    assertArrayEquals(gridModel.downscaleImage(50, 75).getGrid(), downscaled.getGrid());
+  }
+
+  @Test
+  public void parallelMatchesSequential() {
+    RGB[][] largeGrid = new RGB[200][90];
+    for (int h = 0; h < largeGrid.length; h++) {
+      for (int w = 0; w < largeGrid[0].length; w++) {
+        largeGrid[h][w] = new RGB((h * 7 + w) % 256, (h * w) % 256, (h + w * 3) % 256);
+      }
+    }
+    ImageProcessingModel large = new PackedImage(largeGrid);
+    int threshold = Parallelism.getThreshold();
+
+    Parallelism.setThreshold(Integer.MAX_VALUE);
+    RGB[][] sequentialSharpen = large.filter("sharpen").getGrid();
+    RGB[][] sequentialBrighten = large.brighten(30).getGrid();
+    RGB[][] sequentialDownscale = large.downscaleImage(40, 60).getGrid();
+
+    Parallelism.setThreshold(1);
+    try {
+      assertArrayEquals(sequentialSharpen, large.filter("sharpen").getGrid());
+      assertArrayEquals(sequentialBrighten, large.brighten(30).getGrid());
+      assertArrayEquals(sequentialDownscale, large.downscaleImage(40, 60).getGrid());
+      assertArrayEquals(new ImageGrid(largeGrid).channelComponent("luma-component").getGrid(),
+              large.channelComponent("luma-component").getGrid());
+    } finally {
+      Parallelism.setThreshold(threshold);
+    }
+  }
+
+  @Test
+  public void invalidParallelThreshold() {
+    try {
+      Parallelism.setThreshold(0);
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //exception thrown
+    }
+  }
+
+  @Test
+  public void alphaChannel() {
+    assertFalse(packedModel.hasAlpha());
+    int[] alphas = new int[4];
+    packedModel.getAlphaRow(2, alphas);
+    assertArrayEquals(new int[]{255, 255, 255, 255}, alphas);
+
+    //an opaque red pixel next to a transparent blue one, above a half transparent green one
+    int[] pixels = {0xFF0000, 0x0000FF, 0x00FF00, 0x00FF00};
+    byte[] alpha = {(byte) 255, 0, (byte) 128, (byte) 128};
+    PackedImage image = new PackedImage(2, 2, pixels, alpha);
+    assertTrue(image.hasAlpha());
+    assertTrue(image.brighten(10).colorTransformation("sepia").channelComponent("value-component")
+            .hasAlpha());
+    image.brighten(10).getAlphaRow(1, alphas);
+    assertEquals(128, alphas[0]);
+
+    //the colors are weighed by their alpha, so the transparent blue pixel adds no blue
+    ImageProcessingModel blurred = image.filter("blur");
+    int[] row = new int[2];
+    blurred.getPackedRow(0, row);
+    blurred.getAlphaRow(0, alphas);
+    assertEquals(63 + 16 + 8, alphas[0]);
+    assertEquals(PackedImage.pack(185, 70, 0), row[0]);
+
+    //an image made fully opaque has no alpha plane
+    PackedImage opaque = new PackedImage(2, 2, pixels,
+            new byte[]{(byte) 255, (byte) 255, (byte) 255, (byte) 255});
+    assertFalse(opaque.downscaleImage(50, 50).hasAlpha());
+    assertTrue(image.downscaleImage(50, 100).hasAlpha());
+
+    try {
+      new PackedImage(2, 2, pixels, new byte[3]);
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //Exception thrown
+    }
+  }
+}
@@ -0,0 +1,146 @@
+import org.junit.Test;
+
+import java.util.function.IntUnaryOperator;
+
+import model.ChannelLut;
+import model.ImageGrid;
+import model.ImageProcessingModel;
+import model.PackedImage;
+import model.PointKernels;
+import model.RGB;
+import model.Vectorization;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the ScalarPointKernels and VectorPointKernels classes, and the point operations of packed
+ * images using them.
+ */
+public class PointKernelsTest {
+
+  private static final int ROW = 4096;
+  private static final long ONE = 1L << PointKernels.MATRIX_SHIFT;
+  //sepia, a matrix with negative weights and offsets, and one with the largest coefficients
+  private static final long[][] MATRICES = new long[][]{
+      {6593446, 12901679, 3170894, 0, 5855248, 11509170, 2818572, 0,
+          4563403, 8959033, 2197815, 0},
+      {-ONE / 2, 3 * ONE, -ONE, -40 * ONE, 7, 0, ONE, 30 * ONE + 1, -1, -1, -1, 255 * ONE},
+      {1L << 40, -(1L << 40), 1L << 40, -(1L << 40), -(1L << 40), 1L << 40, -(1L << 40),
+          1L << 40, 1L << 40, 1L << 40, 1L << 40, 1L << 40}};
+
+  private static PackedImage image(int width, int height) {
+    int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = (i * 0x9E3779B1) & 0xFFFFFF;
+    }
+    return new PackedImage(width, height, pixels);
+  }
+
+  private static ImageGrid grid(ImageProcessingModel image) {
+    RGB[][] pixels = new RGB[image.getImageHeight()][image.getImageWidth()];
+    int[] row = new int[image.getImageWidth()];
+    for (int h = 0; h < pixels.length; h++) {
+      image.getPackedRow(h, row);
+      for (int w = 0; w < row.length; w++) {
+        pixels[h][w] = new RGB((row[w] >> 16) & 0xFF, (row[w] >> 8) & 0xFF, row[w] & 0xFF);
+      }
+    }
+    return new ImageGrid(pixels);
+  }
+
+  @Test
+  public void packedMatchesGrid() {
+    PackedImage packed = image(64, 48);
+    ImageGrid grid = grid(packed);
+    assertArrayEquals(grid.brighten(37).getGrid(), packed.brighten(37).getGrid());
+    assertArrayEquals(grid.brighten(-90).getGrid(), packed.brighten(-90).getGrid());
+    assertArrayEquals(grid.colorTransformation("sepia").getGrid(),
+            packed.colorTransformation("sepia").getGrid());
+    for (String component : new String[]{"red-component", "green-component", "blue-component",
+        "value-component", "intensity-component", "luma-component"}) {
+      assertArrayEquals(grid.channelComponent(component).getGrid(),
+              packed.channelComponent(component).getGrid());
+    }
+  }
+
+  @Test
+  public void rampMatchesTable() {
+    PackedImage packed = image(300, 200);
+    ChannelLut[] luts = new ChannelLut[]{ChannelLut.brighten(255), ChannelLut.brighten(-256),
+        ChannelLut.brighten(1), ChannelLut.component(ChannelLut.GREEN),
+        ChannelLut.curve(value -> Math.min(200, value + 20)),
+        ChannelLut.curve(value -> value < 100 ? 4 : 5),
+        ChannelLut.curve(value -> 255 - value)};
+    int[] row = new int[packed.getImageWidth()];
+    int[] appliedRow = new int[packed.getImageWidth()];
+    for (ChannelLut lut : luts) {
+      PackedImage applied = packed.applyLut(lut);
+      for (int h = 0; h < packed.getImageHeight(); h++) {
+        packed.getPackedRow(h, row);
+        applied.getPackedRow(h, appliedRow);
+        for (int w = 0; w < row.length; w++) {
+          assertEquals(lut.apply(row[w]), appliedRow[w]);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void vectorMatchesScalarOnEveryPixel() {
+    PointKernels vector = Vectorization.vector();
+    if (vector == null) {
+      //the jdk.incubator.vector module is not available, so only the scalar loops are used
+      return;
+    }
+    PointKernels scalar = Vectorization.scalar();
+    int[] src = new int[ROW + 3];
+    int[] expected = new int[ROW];
+    int[] actual = new int[ROW];
+    for (int start = 0; start < 1 << 24; start += ROW) {
+      for (int i = 0; i < ROW; i++) {
+        src[i + 3] = start + i;
+      }
+      //odd offsets and lengths exercise the scalar tails
+      int length = ROW - start % 7;
+      for (int component = PointKernels.VALUE; component <= PointKernels.INTENSITY;
+           component++) {
+        scalar.grey(src, 3, expected, 0, length, component);
+        vector.grey(src, 3, actual, 0, length, component);
+        assertArrayEquals(expected, actual);
+      }
+      for (long[] coefficients : MATRICES) {
+        //a reference unlike the matrix shows that both loops fall back on the same pixels
+        for (IntUnaryOperator reference : new IntUnaryOperator[]{null, p -> ~p & 0xFFFFFF}) {
+          scalar.matrix(src, 3, expected, 0, length, coefficients, reference);
+          vector.matrix(src, 3, actual, 0, length, coefficients, reference);
+          assertArrayEquals(expected, actual);
+        }
+      }
+      int offset = start % 511 - 255;
+      scalar.offset(src, 3, expected, 0, length, 0, 1, 2, offset, 0, 255);
+      vector.offset(src, 3, actual, 0, length, 0, 1, 2, offset, 0, 255);
+      assertArrayEquals(expected, actual);
+      scalar.offset(src, 3, expected, 0, length, 2, 2, 2, offset, 10, 200);
+      vector.offset(src, 3, actual, 0, length, 2, 2, 2, offset, 10, 200);
+      assertArrayEquals(expected, actual);
+    }
+  }
+
+  @Test
+  public void invalidValues() {
+    try {
+      Vectorization.set(null);
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //Exception thrown
+    }
+    try {
+      Vectorization.scalar().grey(new int[1], 0, new int[1], 0, 1, 2);
+      fail("No exception thrown");
+    } catch (IllegalArgumentException e) {
+      //Exception thrown
+    }
+  }
+}
@@ -1,10 +1,13 @@
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Objects;
+
 import model.RGB;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 
 /**
  * Tests the RGB class.
@@ -99,4 +102,19 @@ public class RGBTest {
     assertNotEquals(pink3.hashCode(), pink.hashCode());
     assertNotEquals(red.hashCode(), pink.hashCode());
   }
+
+  @Test
+  public void testClamping() {
+    assertEquals(new RGB(255, 0, 128), new RGB(300, -20, 128));
+    assertEquals(new RGB(255, 0, 128), RGB.of(1000, Integer.MIN_VALUE, 128));
+  }
+
+  @Test
+  public void testOfSharesGreys() {
+    assertEquals(pink, RGB.of(250, 100, 150));
+    assertEquals(RGB.of(255, 0, 0), RGB.of(400, -1, 0));
+    assertSame(RGB.of(37, 37, 37), RGB.of(37, 37, 37));
+    assertSame(RGB.of(255, 255, 255), RGB.of(300, 256, 1000));
+    assertEquals(Objects.hash(250, 100, 150), pink.hashCode());
+  }
 }
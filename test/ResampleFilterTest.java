@@ -0,0 +1,182 @@
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import model.ImageGrid;
+import model.ImageProcessingModel;
+import model.LazyImage;
+import model.PackedImage;
+import model.RGB;
+import model.ResampleFilter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the ResampleFilter class and downscaling images with it.
+ */
+public class ResampleFilterTest {
+
+  /**
+   * Counts the rows read from an image.
+   */
+  private static final class CountingImage extends PackedImage {
+    private int rowsRead;
+
+    CountingImage(int width, int height, int[] pixels) {
+      super(width, height, pixels);
+    }
+
+    @Override
+    public synchronized void getPackedRow(int row, int[] pixels) {
+      rowsRead++;
+      super.getPackedRow(row, pixels);
+    }
+  }
+
+  private static int[] pixels(int width, int height) {
+    int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = (i * 0x9E3779B1) & 0xFFFFFF;
+    }
+    return pixels;
+  }
+
+  private static int channel(int pixel, int shift) {
+    return (pixel >> shift) & 0xFF;
+  }
+
+  @Test
+  public void boxAveragesBlocks() {
+    int[] source = pixels(8, 6);
+    int[] row = new int[4];
+    ImageProcessingModel halved = new PackedImage(8, 6, source)
+            .downscaleImage(50, 50, ResampleFilter.BOX);
+    assertEquals(4, halved.getImageWidth());
+    assertEquals(3, halved.getImageHeight());
+    for (int h = 0; h < 3; h++) {
+      halved.getPackedRow(h, row);
+      for (int w = 0; w < 4; w++) {
+        int at = 2 * h * 8 + 2 * w;
+        for (int shift = 0; shift <= 16; shift += 8) {
+          int sum = channel(source[at], shift) + channel(source[at + 1], shift)
+                  + channel(source[at + 8], shift) + channel(source[at + 9], shift);
+          assertEquals((sum + 2) / 4, channel(row[w], shift));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void boxAveragesWholeFactorBlocksOfTheOriginal() {
+    int[] source = pixels(24, 18);
+    int[] row = new int[4];
+    PackedImage packed = new PackedImage(24, 18, source);
+    for (ImageProcessingModel image : new ImageProcessingModel[]{packed,
+        new ImageGrid(packed.getGrid())}) {
+      ImageProcessingModel shrunk = image.downscaleImage(17, 17, ResampleFilter.BOX);
+      assertEquals(4, shrunk.getImageWidth());
+      assertEquals(3, shrunk.getImageHeight());
+      for (int h = 0; h < 3; h++) {
+        shrunk.getPackedRow(h, row);
+        for (int w = 0; w < 4; w++) {
+          for (int shift = 0; shift <= 16; shift += 8) {
+            int sum = 0;
+            for (int k = 0; k < 36; k++) {
+              sum += channel(source[(6 * h + k / 6) * 24 + 6 * w + k % 6], shift);
+            }
+            assertEquals((sum + 18) / 36, channel(row[w], shift));
+          }
+        }
+      }
+    }
+    //halving twice would round the two by two blocks (2, 2, 2, 1) up to 1, but 7 / 16 is 0
+    int[] ones = new int[]{1, 1, 1, 1, 0, 0, 0, 0, 1, 1, 1, 0, 0, 0, 0, 0};
+    for (int i = 0; i < ones.length; i++) {
+      ones[i] *= 0x010101;
+    }
+    int[] average = new int[1];
+    new PackedImage(4, 4, ones).downscaleImage(25, 25, ResampleFilter.BOX)
+            .getPackedRow(0, average);
+    assertEquals(0, average[0]);
+  }
+
+  @Test
+  public void constantImagesStayConstant() {
+    int[] grey = new int[30 * 20];
+    Arrays.fill(grey, PackedImage.pack(90, 150, 210));
+    for (ResampleFilter filter : ResampleFilter.values()) {
+      for (int percentage : new int[]{13, 50, 77, 100, 150}) {
+        RGB[][] resized = new PackedImage(30, 20, grey)
+                .downscaleImage(percentage, percentage, filter).getGrid();
+        for (RGB[] resizedRow : resized) {
+          for (RGB pixel : resizedRow) {
+            assertEquals(new RGB(90, 150, 210), pixel);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void fineDetailIsAveragedAway() {
+    int[] checkerboard = new int[64 * 64];
+    for (int i = 0; i < checkerboard.length; i++) {
+      checkerboard[i] = ((i / 64 + i % 64) % 2) * 0xFFFFFF;
+    }
+    for (ResampleFilter filter : ResampleFilter.values()) {
+      RGB[][] resized = new PackedImage(64, 64, checkerboard)
+              .downscaleImage(10, 15, filter).getGrid();
+      assertEquals(9, resized.length);
+      assertEquals(6, resized[0].length);
+      for (RGB[] resizedRow : resized) {
+        for (RGB pixel : resizedRow) {
+          assertTrue(Math.abs(pixel.getRed() - 128) <= 2);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void implementationsAgree() {
+    int[] source = pixels(41, 29);
+    PackedImage packed = new PackedImage(41, 29, source);
+    ImageGrid grid = new ImageGrid(packed.getGrid());
+    for (ResampleFilter filter : ResampleFilter.values()) {
+      RGB[][] expected = packed.downscaleImage(35, 60, filter).getGrid();
+      assertArrayEquals(expected, grid.downscaleImage(35, 60, filter).getGrid());
+      assertArrayEquals(expected,
+              LazyImage.of(packed).downscaleImage(35, 60, filter).getGrid());
+    }
+  }
+
+  @Test
+  public void repeatedDownscalesReuseMipmap() {
+    CountingImage source = new CountingImage(64, 48, pixels(64, 48));
+    RGB[][] first = source.downscaleImage(25, 25, ResampleFilter.BILINEAR).getGrid();
+    assertEquals(48, source.rowsRead);
+    assertArrayEquals(first, source.downscaleImage(25, 25, ResampleFilter.BILINEAR).getGrid());
+    source.downscaleImage(20, 30, ResampleFilter.BOX);
+    assertEquals(48, source.rowsRead);
+  }
+
+  @Test
+  public void invalidArguments() {
+    PackedImage image = new PackedImage(4, 4, pixels(4, 4));
+    Runnable[] invalid = new Runnable[]{() -> image.downscaleImage(50, 50, null),
+        () -> image.downscaleImage(-10, 50, ResampleFilter.BOX),
+        () -> LazyImage.of(image).downscaleImage(50, -1, ResampleFilter.LANCZOS),
+        () -> ResampleFilter.named("bicubic")};
+    for (Runnable operation : invalid) {
+      try {
+        operation.run();
+        fail("No exception thrown");
+      } catch (IllegalArgumentException e) {
+        //Exception thrown
+      }
+    }
+    assertEquals(ResampleFilter.LANCZOS, ResampleFilter.named("lanczos"));
+  }
+}
@@ -10,7 +10,24 @@ import org.junit.runners.Suite;
         {
                 RGBTest.class,
                 ImageGridTest.class,
+                PackedImageTest.class,
+                ImageViewTest.class,
+                ChannelLutTest.class,
+                ColorMatrixTest.class,
+                PointKernelsTest.class,
+                KernelTest.class,
+                BoxBlurTest.class,
+                ResampleFilterTest.class,
+                PPMFileOperationsTest.class,
+                MappedPPMFileOperationsTest.class,
+                BandPipelineTest.class,
+                ImageFileOperationsTest.class,
+                HistogramTest.class,
+                MipmapTest.class,
+                LazyImageTest.class,
+                ImageStoreTest.class,
                 ControllerTest.class,
+                BatchControllerTest.class,
                 GUIControllerTest.class,
                 ImageProcessingViewTest.class
         }